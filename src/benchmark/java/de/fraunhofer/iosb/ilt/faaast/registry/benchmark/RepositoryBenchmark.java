@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.KeyTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.ReferenceTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultKey;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultReference;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultAssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultEndpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultSubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Measures throughput and latency of the operations of an {@link AasRepository}, so that the repository
+ * implementations can be compared on the same workload.
+ *
+ * <p>The benchmark creates {@code shells} shells with {@code submodelsPerShell} submodels each, then reads random
+ * shells and submodels, searches by idShort prefixes matching 100 shells each, updates and finally deletes all
+ * shells. Every phase is executed by {@code threads} threads. The repository should be empty before and is empty
+ * again after a successful run.
+ */
+public class RepositoryBenchmark {
+
+    private static final String ID_PREFIX = "urn:benchmark:";
+    private static final int SEARCH_SUFFIX_LENGTH = 2;
+
+    private AasRepository repository;
+    private int shells;
+    private int submodelsPerShell;
+    private int reads;
+    private int threads;
+
+    private RepositoryBenchmark() {
+        shells = 10000;
+        submodelsPerShell = 3;
+        reads = 100000;
+        threads = 4;
+    }
+
+
+    /**
+     * Runs the benchmark.
+     *
+     * @return the results by phase: number of operations and errors, throughput in operations per second and latency
+     *         percentiles in microseconds
+     * @throws InterruptedException if interrupted while waiting for a phase to finish
+     */
+    public Map<String, Map<String, Object>> run() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, x -> {
+            Thread thread = new Thread(x, "repository-benchmark");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+            result.put("create", runPhase(executor, shells, i -> repository.create(shell(i))));
+            result.put("getAAS", runPhase(executor, reads, i -> repository.getAAS(shellId(randomShell()))));
+            result.put("getSubmodel", runPhase(executor, reads,
+                    i -> repository.getSubmodel(submodelId(randomShell(), ThreadLocalRandom.current().nextInt(submodelsPerShell)))));
+            result.put("findAASs", runPhase(executor, Math.max(1, reads / 100), i -> repository.findAASs(new DescriptorQuery.Builder()
+                    .idShortPrefix(searchPrefix())
+                    .build())));
+            result.put("update", runPhase(executor, shells, i -> repository.update(shellId(i), shell(i))));
+            result.put("deleteAAS", runPhase(executor, shells, i -> repository.deleteAAS(shellId(i))));
+            return result;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private Map<String, Object> runPhase(ExecutorService executor, int operations, Operation operation) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<long[]>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[operations];
+                int count = 0;
+                for (int i = next.getAndIncrement(); i < operations; i = next.getAndIncrement()) {
+                    long operationStart = System.nanoTime();
+                    try {
+                        operation.execute(i);
+                    }
+                    catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[count++] = System.nanoTime() - operationStart;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+        List<long[]> latencies = new ArrayList<>();
+        for (Future<long[]> future: futures) {
+            try {
+                latencies.add(future.get());
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("benchmark thread failed", e.getCause());
+            }
+        }
+        long duration = System.nanoTime() - start;
+        long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("operations", operations);
+        result.put("errors", errors.get());
+        result.put("operationsPerSecond", Math.round(operations / (duration / (double) TimeUnit.SECONDS.toNanos(1))));
+        result.put("meanMicros", Math.round(Arrays.stream(sorted).average().orElse(0) / 1000));
+        result.put("p50Micros", percentile(sorted, 0.5));
+        result.put("p99Micros", percentile(sorted, 0.99));
+        result.put("maxMicros", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000);
+        return result;
+    }
+
+
+    private int randomShell() {
+        return ThreadLocalRandom.current().nextInt(shells);
+    }
+
+
+    private String searchPrefix() {
+        // matches 100 consecutive shells
+        String idShort = idShort(randomShell());
+        return idShort.substring(0, idShort.length() - SEARCH_SUFFIX_LENGTH);
+    }
+
+
+    private AssetAdministrationShellDescriptor shell(int index) {
+        return new DefaultAssetAdministrationShellDescriptor.Builder()
+                .id(shellId(index))
+                .idShort(idShort(index))
+                .globalAssetId(ID_PREFIX + "asset:" + index)
+                .endpoints(List.of(new DefaultEndpoint.Builder()
+                        .interfaceInformation("AAS-3.0")
+                        .build()))
+                .submodels(IntStream.range(0, submodelsPerShell)
+                        .mapToObj(x -> submodel(index, x))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+
+    private static SubmodelDescriptor submodel(int shell, int index) {
+        return new DefaultSubmodelDescriptor.Builder()
+                .id(submodelId(shell, index))
+                .idShort("submodel" + index)
+                .semanticId(new DefaultReference.Builder()
+                        .type(ReferenceTypes.EXTERNAL_REFERENCE)
+                        .keys(new DefaultKey.Builder()
+                                .type(KeyTypes.GLOBAL_REFERENCE)
+                                .value(ID_PREFIX + "semantic-id:" + index)
+                                .build())
+                        .build())
+                .endpoints(List.of(new DefaultEndpoint.Builder()
+                        .interfaceInformation("SUBMODEL-3.0")
+                        .build()))
+                .build();
+    }
+
+
+    private static String shellId(int index) {
+        return ID_PREFIX + "shell:" + index;
+    }
+
+
+    private static String submodelId(int shell, int index) {
+        return ID_PREFIX + "submodel:" + shell + ":" + index;
+    }
+
+
+    private static String idShort(int index) {
+        return String.format("shell%08d", index);
+    }
+
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1000;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        public void execute(int index) throws Exception;
+    }
+
+    public static class Builder {
+
+        private final RepositoryBenchmark benchmark = new RepositoryBenchmark();
+
+        public Builder repository(AasRepository value) {
+            benchmark.repository = value;
+            return this;
+        }
+
+
+        public Builder shells(int value) {
+            benchmark.shells = value;
+            return this;
+        }
+
+
+        public Builder submodelsPerShell(int value) {
+            benchmark.submodelsPerShell = value;
+            return this;
+        }
+
+
+        public Builder reads(int value) {
+            benchmark.reads = value;
+            return this;
+        }
+
+
+        public Builder threads(int value) {
+            benchmark.threads = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the benchmark.
+         *
+         * @return the benchmark
+         * @throws IllegalArgumentException if the repository is missing or a count is not positive
+         */
+        public RepositoryBenchmark build() {
+            Ensure.requireNonNull(benchmark.repository, "repository must be non-null");
+            Ensure.require(benchmark.shells > 0, "shells must be positive");
+            Ensure.require(benchmark.submodelsPerShell > 0, "submodelsPerShell must be positive");
+            Ensure.require(benchmark.reads > 0, "reads must be positive");
+            Ensure.require(benchmark.threads > 0, "threads must be positive");
+            return benchmark;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Concurrent latency histogram with a bounded relative error, following the bucket layout of HdrHistogram. Values
+ * below {@value #SUB_BUCKETS} are counted exactly, larger values in buckets covering a power of two each, split into
+ * {@value #SUB_BUCKETS}/2 linear sub-buckets. Percentiles are therefore accurate to about 1.6% over the whole range of
+ * long values, with a fixed footprint of about 30 KB.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = Long.SIZE - SUB_BUCKET_BITS;
+    private static final double[] REPORTED_PERCENTILES = {
+            50,
+            90,
+            99,
+            99.9,
+            99.99
+    };
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count;
+    private final AtomicLong sum;
+    private final AtomicLong max;
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray((MAX_SHIFT + 2) * HALF_SUB_BUCKETS);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+
+    /**
+     * Records a value.
+     *
+     * @param value the value, e.g. a latency in microseconds
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        Ensure.require(value >= 0, "value must be non-negative");
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+
+    /**
+     * Adds all values recorded by another histogram.
+     *
+     * @param other the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long value = other.counts.get(i);
+            if (value > 0) {
+                counts.addAndGet(i, value);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return the mean, 0 if no value has been recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / (double) n;
+    }
+
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the maximum, 0 if no value has been recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+
+    /**
+     * Gets the value below or equal to which the given percentage of the recorded values fall. Like HdrHistogram,
+     * the result is the highest value equivalent to the bucket the percentile falls in, i.e. never lower than the
+     * exact percentile.
+     *
+     * @param percentile the percentile in range [0, 100]
+     * @return the value at the percentile, 0 if no value has been recorded
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        Ensure.require(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+
+    /**
+     * Summarizes the histogram by its count, mean, maximum and the percentiles 50, 90, 99, 99.9 and 99.99.
+     *
+     * @return the summary, keyed by e.g. {@code p99.9}
+     */
+    public Map<String, Object> getSummary() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", getCount());
+        result.put("mean", Math.round(getMean()));
+        for (double percentile: REPORTED_PERCENTILES) {
+            result.put("p" + (percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile)),
+                    getValueAtPercentile(percentile));
+        }
+        result.put("max", getMax());
+        return result;
+    }
+
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+
+    private static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKETS - 1;
+        long lowest = (long) (index - shift * HALF_SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
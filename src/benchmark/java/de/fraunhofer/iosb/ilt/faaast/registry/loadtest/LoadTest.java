@@ -0,0 +1,475 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Drives the REST API of a registry with a mix of reads and writes on descriptors synthesized by a
+ * {@link WorkloadGenerator}.
+ *
+ * <p>The test first registers {@code shells} shells, then issues requests at a fixed arrival {@code rate} for
+ * {@code duration}, independent of how fast the registry answers (open loop). The latency of a request is measured
+ * from the time it was scheduled to be sent, so that a stalled registry shows up in the latencies of all requests
+ * that were due meanwhile instead of being hidden by a client waiting for it (coordinated omission). At most
+ * {@code maxInFlight} requests are outstanding; requests due while this limit is reached are counted as dropped.
+ *
+ * <p>A share of {@code readRatio} of the requests are reads, split into retrieving a shell (50%), a submodel of a
+ * shell (25%) and a submodel by its ID (14%), searching shells by an idShort prefix matching up to 100 shells (10%)
+ * and listing all shells (1%). The writes replace a shell (60%), register a new shell (20%) or delete a shell
+ * registered during the test (20%). Shells registered while measuring are removed again afterwards, the preloaded
+ * shells are kept.
+ *
+ * <p>Besides latencies, the test reports the mean size of the response bodies as received, i.e. compressed if an
+ * {@code acceptEncoding} is requested, and the CPU time of the process per request. As the test usually runs in the
+ * registry process, the CPU time includes the load generator.
+ */
+public class LoadTest {
+
+    private static final String SHELLS_PATH = "/registry/shell-descriptors";
+    private static final String SUBMODELS_PATH = "/registry/submodel-descriptors";
+    private static final int PRELOAD_IN_FLIGHT = 32;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private String baseUrl;
+    private ObjectMapper mapper;
+    private WorkloadGenerator generator;
+    private int shells;
+    private double rate;
+    private Duration duration;
+    private double readRatio;
+    private int maxInFlight;
+    private String acceptEncoding;
+    private boolean http2;
+
+    private HttpClient client;
+    private Semaphore inFlight;
+    private AtomicInteger nextShell;
+    private Queue<Integer> createdShells;
+    private Map<Operation, Statistics> statistics;
+    private LatencyHistogram total;
+    private AtomicLong dropped;
+
+    private LoadTest() {
+        shells = 1000;
+        rate = 500;
+        duration = Duration.ofSeconds(60);
+        readRatio = 0.9;
+        maxInFlight = 256;
+    }
+
+
+    /**
+     * Runs the load test.
+     *
+     * @return the results: achieved throughput, number of dropped requests, response size and CPU time per request
+     *         and per operation the number of requests and errors, the response size and the latency summary in
+     *         microseconds
+     * @throws InterruptedException if interrupted while waiting for requests
+     */
+    public Map<String, Object> run() throws InterruptedException {
+        client = HttpClient.newBuilder()
+                .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        nextShell = new AtomicInteger(shells);
+        createdShells = new ConcurrentLinkedQueue<>();
+        preload();
+        statistics = new LinkedHashMap<>();
+        for (Operation operation: Operation.values()) {
+            statistics.put(operation, new Statistics());
+        }
+        total = new LatencyHistogram();
+        dropped = new AtomicLong();
+        inFlight = new Semaphore(maxInFlight);
+        long interval = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+        long cpuStart = getProcessCpuTime();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long issued = 0;
+        for (long due = start; due < end; due = start + ++issued * interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!inFlight.tryAcquire()) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            send(nextOperation(), due);
+        }
+        drain(maxInFlight);
+        long elapsed = System.nanoTime() - start;
+        long cpu = getProcessCpuTime() - cpuStart;
+        cleanup();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", total.getCount());
+        result.put("dropped", dropped.get());
+        result.put("throughput", Math.round(total.getCount() / (elapsed / (double) TimeUnit.SECONDS.toNanos(1))));
+        result.put("latency", total.getSummary());
+        result.put("bytesPerResponse", total.getCount() == 0
+                ? 0
+                : statistics.values().stream().mapToLong(x -> x.bytes.sum()).sum() / total.getCount());
+        result.put("cpuMicrosPerRequest", cpuStart < 0 || total.getCount() == 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(cpu) / total.getCount());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        statistics.forEach((operation, value) -> {
+            if (value.latency.getCount() > 0) {
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("requests", value.latency.getCount());
+                summary.put("errors", value.errors.get());
+                summary.put("bytesPerResponse", value.bytes.sum() / value.latency.getCount());
+                summary.put("latency", value.latency.getSummary());
+                operations.put(operation.getName(), summary);
+            }
+        });
+        result.put("operations", operations);
+        return result;
+    }
+
+
+    private void preload() throws InterruptedException {
+        inFlight = new Semaphore(PRELOAD_IN_FLIGHT);
+        AtomicInteger failed = new AtomicInteger();
+        for (int i = 0; i < shells; i++) {
+            inFlight.acquire();
+            client.sendAsync(post(SHELLS_PATH, generator.shell(i)), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || (response.statusCode() != 201 && response.statusCode() != 409)) {
+                            failed.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        drain(PRELOAD_IN_FLIGHT);
+        if (failed.get() > 0) {
+            throw new IllegalStateException(String.format("registering %d of %d shells failed", failed.get(), shells));
+        }
+    }
+
+
+    private void cleanup() throws InterruptedException {
+        inFlight = new Semaphore(PRELOAD_IN_FLIGHT);
+        for (Integer index = createdShells.poll(); index != null; index = createdShells.poll()) {
+            inFlight.acquire();
+            client.sendAsync(delete(shellPath(index)), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> inFlight.release());
+        }
+        drain(PRELOAD_IN_FLIGHT);
+    }
+
+
+    private void drain(int permits) throws InterruptedException {
+        if (!inFlight.tryAcquire(permits, DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("requests did not complete in time");
+        }
+    }
+
+
+    private Operation nextOperation() {
+        double value = ThreadLocalRandom.current().nextDouble();
+        if (value < readRatio) {
+            value /= readRatio;
+            if (value < 0.5) {
+                return Operation.GET_SHELL;
+            }
+            if (value < 0.75) {
+                return Operation.GET_SUBMODEL_OF_SHELL;
+            }
+            if (value < 0.89) {
+                return Operation.GET_SUBMODEL;
+            }
+            return value < 0.99 ? Operation.SEARCH_SHELLS : Operation.LIST_SHELLS;
+        }
+        value = (value - readRatio) / (1 - readRatio);
+        if (value < 0.6) {
+            return Operation.UPDATE_SHELL;
+        }
+        return value < 0.8 || createdShells.isEmpty() ? Operation.CREATE_SHELL : Operation.DELETE_SHELL;
+    }
+
+
+    private void send(Operation operation, long due) {
+        int shell = ThreadLocalRandom.current().nextInt(shells);
+        Integer created = null;
+        HttpRequest request;
+        switch (operation) {
+            case GET_SHELL:
+                request = get(shellPath(shell));
+                break;
+            case GET_SUBMODEL_OF_SHELL:
+                request = get(shellPath(shell) + "/submodel-descriptors/" + encode(WorkloadGenerator.submodelId(shell, randomSubmodel())));
+                break;
+            case GET_SUBMODEL:
+                request = get(SUBMODELS_PATH + "/" + encode(WorkloadGenerator.submodelId(shell, randomSubmodel())));
+                break;
+            case SEARCH_SHELLS:
+                String idShort = generator.shell(shell).getIdShort();
+                request = get(SHELLS_PATH + "/search?idShortPrefix="
+                        + URLEncoder.encode(idShort.substring(0, idShort.length() - 2), StandardCharsets.UTF_8));
+                break;
+            case LIST_SHELLS:
+                request = get(SHELLS_PATH);
+                break;
+            case UPDATE_SHELL:
+                request = put(shellPath(shell), generator.shell(shell));
+                break;
+            case CREATE_SHELL:
+                created = nextShell.getAndIncrement();
+                request = post(SHELLS_PATH, generator.shell(created));
+                break;
+            case DELETE_SHELL:
+                created = createdShells.poll();
+                if (created == null) {
+                    inFlight.release();
+                    return;
+                }
+                request = delete(shellPath(created));
+                break;
+            default:
+                throw new IllegalStateException("unsupported operation: " + operation);
+        }
+        Integer index = created;
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+                    Statistics value = statistics.get(operation);
+                    value.latency.record(latency);
+                    total.record(latency);
+                    if (error == null) {
+                        value.bytes.add(response.body().length);
+                    }
+                    boolean success = error == null && response.statusCode() < 300;
+                    if (!success) {
+                        value.errors.incrementAndGet();
+                    }
+                    if (operation == Operation.CREATE_SHELL && success) {
+                        createdShells.add(index);
+                    }
+                    else if (operation == Operation.DELETE_SHELL && !success) {
+                        createdShells.add(index);
+                    }
+                    inFlight.release();
+                });
+    }
+
+
+    private int randomSubmodel() {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, generator.getSubmodelsPerShell()));
+    }
+
+
+    private HttpRequest get(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri(path)).GET();
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+        return builder.build();
+    }
+
+
+    private HttpRequest delete(String path) {
+        return HttpRequest.newBuilder(uri(path)).DELETE().build();
+    }
+
+
+    private HttpRequest post(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(serialize(body)))
+                .build();
+    }
+
+
+    private HttpRequest put(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(serialize(body)))
+                .build();
+    }
+
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+
+    private byte[] serialize(Object body) {
+        try {
+            return mapper.writeValueAsBytes(body);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException("serializing descriptor failed", e);
+        }
+    }
+
+
+    private static long getProcessCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean
+                ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime()
+                : -1;
+    }
+
+
+    private static String shellPath(int index) {
+        return SHELLS_PATH + "/" + encode(WorkloadGenerator.shellId(index));
+    }
+
+
+    private static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private enum Operation {
+        GET_SHELL("getShell"),
+        GET_SUBMODEL_OF_SHELL("getSubmodelOfShell"),
+        GET_SUBMODEL("getSubmodel"),
+        SEARCH_SHELLS("searchShells"),
+        LIST_SHELLS("listShells"),
+        UPDATE_SHELL("updateShell"),
+        CREATE_SHELL("createShell"),
+        DELETE_SHELL("deleteShell");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+
+        String getName() {
+            return name;
+        }
+    }
+
+    private static class Statistics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final LongAdder bytes = new LongAdder();
+    }
+
+    public static class Builder {
+
+        private final LoadTest test = new LoadTest();
+
+        public Builder baseUrl(String value) {
+            test.baseUrl = value;
+            return this;
+        }
+
+
+        public Builder mapper(ObjectMapper value) {
+            test.mapper = value;
+            return this;
+        }
+
+
+        public Builder generator(WorkloadGenerator value) {
+            test.generator = value;
+            return this;
+        }
+
+
+        public Builder shells(int value) {
+            test.shells = value;
+            return this;
+        }
+
+
+        public Builder rate(double value) {
+            test.rate = value;
+            return this;
+        }
+
+
+        public Builder duration(Duration value) {
+            test.duration = value;
+            return this;
+        }
+
+
+        public Builder readRatio(double value) {
+            test.readRatio = value;
+            return this;
+        }
+
+
+        public Builder maxInFlight(int value) {
+            test.maxInFlight = value;
+            return this;
+        }
+
+
+        public Builder acceptEncoding(String value) {
+            test.acceptEncoding = value;
+            return this;
+        }
+
+
+        public Builder http2(boolean value) {
+            test.http2 = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the load test.
+         *
+         * @return the load test
+         * @throws IllegalArgumentException if a required property is missing or a value is out of range
+         */
+        public LoadTest build() {
+            Ensure.requireNonNull(test.baseUrl, "baseUrl must be non-null");
+            Ensure.requireNonNull(test.mapper, "mapper must be non-null");
+            Ensure.requireNonNull(test.generator, "generator must be non-null");
+            Ensure.requireNonNull(test.duration, "duration must be non-null");
+            Ensure.require(test.shells > 0, "shells must be positive");
+            Ensure.require(test.rate > 0, "rate must be positive");
+            Ensure.require(test.readRatio >= 0 && test.readRatio <= 1, "readRatio must be between 0 and 1");
+            Ensure.require(test.maxInFlight > 0, "maxInFlight must be positive");
+            return test;
+        }
+    }
+}
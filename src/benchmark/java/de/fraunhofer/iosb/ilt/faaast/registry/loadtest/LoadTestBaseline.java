@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * Stores the results of a {@link LoadTest} as baseline and compares later results against it. A result regresses if
+ * the throughput dropped or the median or 99th percentile latency of the test or of an operation grew by more than
+ * the given tolerance.
+ */
+public class LoadTestBaseline {
+
+    private static final TypeReference<Map<String, Object>> RESULT_TYPE = new TypeReference<>() {};
+    private static final String[] COMPARED_PERCENTILES = {
+            "p50",
+            "p99"
+    };
+
+    private LoadTestBaseline() {}
+
+
+    /**
+     * Saves results as baseline.
+     *
+     * @param file the file to write
+     * @param results the results of a load test
+     * @throws IOException if writing the file fails
+     */
+    public static void save(Path file, Map<String, Object> results) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), results);
+    }
+
+
+    /**
+     * Loads a baseline.
+     *
+     * @param file the file to read
+     * @return the results stored as baseline
+     * @throws IOException if reading the file fails
+     */
+    public static Map<String, Object> load(Path file) throws IOException {
+        return new ObjectMapper().readValue(Files.readAllBytes(file), RESULT_TYPE);
+    }
+
+
+    /**
+     * Compares results against a baseline.
+     *
+     * @param baseline the results stored as baseline
+     * @param results the results of the current load test
+     * @param tolerance the relative change tolerated, e.g. 0.1 for 10%
+     * @return the change in percent of the throughput and of the compared latency percentiles, overall and by
+     *         operation, and the list of regressions exceeding the tolerance
+     */
+    public static Map<String, Object> compare(Map<String, Object> baseline, Map<String, Object> results, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Double throughput = change(baseline.get("throughput"), results.get("throughput"));
+        changes.put("throughput", throughput);
+        if (Objects.nonNull(throughput) && throughput < -tolerance * 100) {
+            regressions.add(String.format("throughput dropped by %.1f%%", -throughput));
+        }
+        changes.put("latency", compareLatency("overall", baseline, results, tolerance, regressions));
+        Map<String, Object> operations = new LinkedHashMap<>();
+        Map<String, Object> baselineOperations = map(baseline.get("operations"));
+        map(results.get("operations")).forEach((operation, value) -> {
+            if (baselineOperations.containsKey(operation)) {
+                operations.put(operation, compareLatency(operation, map(baselineOperations.get(operation)), map(value), tolerance, regressions));
+            }
+        });
+        changes.put("operations", operations);
+        changes.put("regressions", regressions);
+        return changes;
+    }
+
+
+    private static Map<String, Object> compareLatency(String name, Map<String, Object> baseline, Map<String, Object> results, double tolerance,
+                                                      List<String> regressions) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String percentile: COMPARED_PERCENTILES) {
+            Double change = change(map(baseline.get("latency")).get(percentile), map(results.get("latency")).get(percentile));
+            result.put(percentile, change);
+            if (Objects.nonNull(change) && change > tolerance * 100) {
+                regressions.add(String.format("%s %s latency grew by %.1f%%", name, percentile, change));
+            }
+        }
+        return result;
+    }
+
+
+    private static Double change(Object baseline, Object value) {
+        if (!(baseline instanceof Number) || !(value instanceof Number) || ((Number) baseline).doubleValue() == 0) {
+            return null;
+        }
+        double before = ((Number) baseline).doubleValue();
+        return Math.round((((Number) value).doubleValue() - before) / before * 1000) / 10.0;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : Map.of();
+    }
+}
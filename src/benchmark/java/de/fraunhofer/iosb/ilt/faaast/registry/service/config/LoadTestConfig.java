@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.LoadTest;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.LoadTestBaseline;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+
+
+/**
+ * Runs a {@link LoadTest} against the REST API of this registry after startup if {@value #PROPERTY_ENABLED} is true,
+ * logs the results as JSON and exits. The results can be saved as baseline and compared against a previously saved
+ * baseline. Used by the {@code loadTest} build task, so no external load generator is needed. Part of the benchmark
+ * source set, so it is not included in the application jar.
+ */
+@Configuration
+@ConditionalOnProperty(name = LoadTestConfig.PROPERTY_ENABLED, havingValue = "true")
+public class LoadTestConfig {
+
+    /**
+     * Whether to run the load test and exit.
+     */
+    public static final String PROPERTY_ENABLED = "registry.loadtest.enabled";
+
+    /**
+     * Number of shells registered before measuring.
+     */
+    public static final String PROPERTY_SHELLS = "registry.loadtest.shells";
+
+    /**
+     * Number of submodels per generated shell.
+     */
+    public static final String PROPERTY_SUBMODELS_PER_SHELL = "registry.loadtest.submodels-per-shell";
+
+    /**
+     * Number of endpoints per generated descriptor.
+     */
+    public static final String PROPERTY_ENDPOINTS = "registry.loadtest.endpoints";
+
+    /**
+     * Number of specificAssetIds per generated shell.
+     */
+    public static final String PROPERTY_SPECIFIC_ASSET_IDS = "registry.loadtest.specific-asset-ids";
+
+    /**
+     * Length of the generated descriptions in characters; display names are capped at 128 characters.
+     */
+    public static final String PROPERTY_LANG_STRING_LENGTH = "registry.loadtest.lang-string-length";
+
+    /**
+     * Seed of the workload generator.
+     */
+    public static final String PROPERTY_SEED = "registry.loadtest.seed";
+
+    /**
+     * Requests per second.
+     */
+    public static final String PROPERTY_RATE = "registry.loadtest.rate";
+
+    /**
+     * Duration of the measurement, e.g. {@code 60s}.
+     */
+    public static final String PROPERTY_DURATION = "registry.loadtest.duration";
+
+    /**
+     * Share of reads among the requests, between 0 and 1.
+     */
+    public static final String PROPERTY_READ_RATIO = "registry.loadtest.read-ratio";
+
+    /**
+     * Maximum number of outstanding requests.
+     */
+    public static final String PROPERTY_MAX_IN_FLIGHT = "registry.loadtest.max-in-flight";
+
+    /**
+     * Value of the Accept-Encoding header sent with reads, e.g. {@code gzip}. Not sent if missing.
+     */
+    public static final String PROPERTY_ACCEPT_ENCODING = "registry.loadtest.accept-encoding";
+
+    /**
+     * Whether to use HTTP/2 (h2c) instead of HTTP/1.1.
+     */
+    public static final String PROPERTY_HTTP2 = "registry.loadtest.http2";
+
+    /**
+     * File of a baseline to compare the results against.
+     */
+    public static final String PROPERTY_BASELINE = "registry.loadtest.baseline";
+
+    /**
+     * File to save the results to as new baseline.
+     */
+    public static final String PROPERTY_SAVE_BASELINE = "registry.loadtest.save-baseline";
+
+    /**
+     * Relative change of throughput or latency compared to the baseline tolerated before reporting a regression.
+     */
+    public static final String PROPERTY_TOLERANCE = "registry.loadtest.tolerance";
+
+    /**
+     * Prefix of the log message holding the results.
+     */
+    public static final String OUTPUT_PREFIX = "load test: ";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestConfig.class);
+    private static final int DEFAULT_SHELLS = 1000;
+    private static final int DEFAULT_SUBMODELS_PER_SHELL = 5;
+    private static final int DEFAULT_ENDPOINTS = 1;
+    private static final int DEFAULT_SPECIFIC_ASSET_IDS = 2;
+    private static final int DEFAULT_LANG_STRING_LENGTH = 64;
+    private static final long DEFAULT_SEED = 0;
+    private static final double DEFAULT_RATE = 500;
+    private static final Duration DEFAULT_DURATION = Duration.ofSeconds(60);
+    private static final double DEFAULT_READ_RATIO = 0.9;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    private static final double DEFAULT_TOLERANCE = 0.1;
+
+    /**
+     * Runs the load test and exits.
+     *
+     * @param context The application context.
+     * @param environment The environment providing the load test properties and the local server port.
+     * @param mapper The mapper used to write descriptors.
+     * @return The runner.
+     */
+    @Bean
+    public ApplicationRunner loadTestRunner(ApplicationContext context, Environment environment, ObjectMapper mapper) {
+        return args -> {
+            LoadTest test = new LoadTest.Builder()
+                    .baseUrl(String.format("http://localhost:%d%s",
+                            environment.getRequiredProperty("local.server.port", Integer.class),
+                            environment.getProperty("server.servlet.context-path", "")))
+                    .mapper(mapper)
+                    .generator(new WorkloadGenerator.Builder()
+                            .submodelsPerShell(environment.getProperty(PROPERTY_SUBMODELS_PER_SHELL, Integer.class, DEFAULT_SUBMODELS_PER_SHELL))
+                            .endpointsPerDescriptor(environment.getProperty(PROPERTY_ENDPOINTS, Integer.class, DEFAULT_ENDPOINTS))
+                            .specificAssetIds(environment.getProperty(PROPERTY_SPECIFIC_ASSET_IDS, Integer.class, DEFAULT_SPECIFIC_ASSET_IDS))
+                            .langStringLength(environment.getProperty(PROPERTY_LANG_STRING_LENGTH, Integer.class, DEFAULT_LANG_STRING_LENGTH))
+                            .seed(environment.getProperty(PROPERTY_SEED, Long.class, DEFAULT_SEED))
+                            .build())
+                    .shells(environment.getProperty(PROPERTY_SHELLS, Integer.class, DEFAULT_SHELLS))
+                    .rate(environment.getProperty(PROPERTY_RATE, Double.class, DEFAULT_RATE))
+                    .duration(environment.getProperty(PROPERTY_DURATION, Duration.class, DEFAULT_DURATION))
+                    .readRatio(environment.getProperty(PROPERTY_READ_RATIO, Double.class, DEFAULT_READ_RATIO))
+                    .maxInFlight(environment.getProperty(PROPERTY_MAX_IN_FLIGHT, Integer.class, DEFAULT_MAX_IN_FLIGHT))
+                    .acceptEncoding(environment.getProperty(PROPERTY_ACCEPT_ENCODING))
+                    .http2(environment.getProperty(PROPERTY_HTTP2, Boolean.class, false))
+                    .build();
+            Map<String, Object> results = test.run();
+            Map<String, Object> output = new LinkedHashMap<>(results);
+            String baseline = environment.getProperty(PROPERTY_BASELINE);
+            if (baseline != null) {
+                output.put("baseline", LoadTestBaseline.compare(
+                        LoadTestBaseline.load(Path.of(baseline)),
+                        results,
+                        environment.getProperty(PROPERTY_TOLERANCE, Double.class, DEFAULT_TOLERANCE)));
+            }
+            String saveBaseline = environment.getProperty(PROPERTY_SAVE_BASELINE);
+            if (saveBaseline != null) {
+                LoadTestBaseline.save(Path.of(saveBaseline), results);
+            }
+            LOGGER.info("{}{}", OUTPUT_PREFIX, new ObjectMapper().writeValueAsString(output));
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.benchmark.RepositoryBenchmark;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.GroupCommitAasRepository;
+
+
+/**
+ * Runs the {@link RepositoryBenchmark} against the configured repository after startup if {@value #PROPERTY_ENABLED} is
+ * true, logs the results as JSON and exits. Used by the {@code repositoryBenchmark} build task to compare the
+ * repository implementations on identical workloads and by the {@code groupCommitBenchmark} build task to compare
+ * writes with and without group commit. Part of the benchmark source set, so it is not included in the application jar.
+ */
+@Configuration
+@ConditionalOnProperty(name = RepositoryBenchmarkConfig.PROPERTY_ENABLED, havingValue = "true")
+public class RepositoryBenchmarkConfig {
+
+    /**
+     * Whether to run the benchmark and exit.
+     */
+    public static final String PROPERTY_ENABLED = "registry.benchmark.repository.enabled";
+
+    /**
+     * Number of shells created.
+     */
+    public static final String PROPERTY_SHELLS = "registry.benchmark.repository.shells";
+
+    /**
+     * Number of submodels per shell.
+     */
+    public static final String PROPERTY_SUBMODELS_PER_SHELL = "registry.benchmark.repository.submodels-per-shell";
+
+    /**
+     * Number of reads of shells and of submodels.
+     */
+    public static final String PROPERTY_READS = "registry.benchmark.repository.reads";
+
+    /**
+     * Number of threads executing the operations.
+     */
+    public static final String PROPERTY_THREADS = "registry.benchmark.repository.threads";
+
+    /**
+     * Prefix of the log message holding the results.
+     */
+    public static final String OUTPUT_PREFIX = "repository benchmark: ";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryBenchmarkConfig.class);
+    private static final int DEFAULT_SHELLS = 10000;
+    private static final int DEFAULT_SUBMODELS_PER_SHELL = 3;
+    private static final int DEFAULT_READS = 100000;
+    private static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Runs the benchmark and exits.
+     *
+     * @param context The application context.
+     * @param environment The environment providing the benchmark properties.
+     * @param aasRepository The repository.
+     * @return The runner.
+     */
+    @Bean
+    public ApplicationRunner repositoryBenchmarkRunner(ApplicationContext context, Environment environment, AasRepository aasRepository) {
+        return args -> {
+            RepositoryBenchmark benchmark = new RepositoryBenchmark.Builder()
+                    .repository(aasRepository)
+                    .shells(environment.getProperty(PROPERTY_SHELLS, Integer.class, DEFAULT_SHELLS))
+                    .submodelsPerShell(environment.getProperty(PROPERTY_SUBMODELS_PER_SHELL, Integer.class, DEFAULT_SUBMODELS_PER_SHELL))
+                    .reads(environment.getProperty(PROPERTY_READS, Integer.class, DEFAULT_READS))
+                    .threads(environment.getProperty(PROPERTY_THREADS, Integer.class, DEFAULT_THREADS))
+                    .build();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("phases", benchmark.run());
+            RepositoryDecorator.find(aasRepository, GroupCommitAasRepository.class)
+                    .ifPresent(x -> result.put("groupCommit", x.getStatistics()));
+            LOGGER.info("{}{}", OUTPUT_PREFIX, new ObjectMapper().writeValueAsString(result));
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+}
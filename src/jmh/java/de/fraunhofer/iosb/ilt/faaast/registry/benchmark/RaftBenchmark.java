@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.AppendRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.AppendResponse;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.CommandResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.InstallSnapshotRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftCommand;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftNode;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftStorage;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftTransport;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RepositoryStateMachine;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.VoteRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.VoteResponse;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.DescriptorMapperConfig;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Measures a Raft cluster running in one process. Run with {@code gradle raftBenchmark}, the results are logged. The
+ * nodes use {@link RaftNode} and {@link RaftStorage} as in production, with the storage files in a temporary directory,
+ * but exchange messages by direct method calls instead of HTTP. The results therefore include forcing the log to disk
+ * but neither serialization nor network latency. As all nodes share one JVM, garbage collection pauses stop all of them
+ * at once and may cause elections that a real cluster would not see; the number of leader changes and of writes retried
+ * because of them is reported.
+ *
+ * <p>The benchmark runs the following phases one after another:
+ * <ol>
+ * <li>sequential writes to the leader, reporting the mean latency</li>
+ * <li>concurrent writes of many clients spread over all nodes, reporting the throughput</li>
+ * <li>read barriers on the leader and writes followed by reads on a follower, reporting the mean latency</li>
+ * <li>failover: the leader is stopped and the time until another node has been elected is reported</li>
+ * <li>restart: after further writes the stopped node is started again from its storage file, reporting the index it
+ * recovered from disk, the time until it has caught up and whether all nodes hold the same descriptors</li>
+ * </ol>
+ */
+public class RaftBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaftBenchmark.class);
+    private static final long AWAIT_TIMEOUT = 10000;
+
+    private WorkloadGenerator generator;
+    private int nodes;
+    private int clients;
+    private int writes;
+    private long electionTimeoutMin;
+    private long electionTimeoutMax;
+    private int snapshotThreshold;
+    private ObjectMapper mapper;
+    private Path directory;
+    private List<String> ids;
+    private Map<String, RaftNode> running;
+    private Map<String, AasRepositoryMemory> locals;
+    private Map<String, RaftAasRepository> repositories;
+    private AtomicInteger nextShell;
+    private AtomicInteger retries;
+
+    private RaftBenchmark() {
+        generator = new WorkloadGenerator.Builder().submodelsPerShell(1).build();
+        nodes = 3;
+        clients = 64;
+        writes = 10000;
+        electionTimeoutMin = 300;
+        electionTimeoutMax = 600;
+        snapshotThreshold = 1000;
+    }
+
+
+    /**
+     * Runs the benchmark with the default settings and logs the results. The number of concurrent clients and of
+     * writes can be passed as arguments.
+     *
+     * @param args the number of clients and the number of writes, both optional
+     * @throws IOException if the temporary directory cannot be created or removed
+     * @throws InterruptedException if interrupted while waiting for the cluster
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Builder builder = new Builder();
+        if (args.length > 0) {
+            builder.clients(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            builder.writes(Integer.parseInt(args[1]));
+        }
+        builder.build().run().forEach((key, value) -> LOGGER.info("{}: {}", key, value));
+    }
+
+
+    /**
+     * Runs the benchmark. The cluster is created in a new temporary directory, which is removed afterwards.
+     *
+     * @return the results by name
+     * @throws IOException if the temporary directory cannot be created or removed
+     * @throws InterruptedException if interrupted while waiting for the cluster
+     */
+    public Map<String, Object> run() throws IOException, InterruptedException {
+        mapper = new Jackson2ObjectMapperBuilder()
+                .modules(DescriptorMapperConfig.descriptorModule())
+                .build();
+        directory = Files.createTempDirectory("raft-benchmark");
+        ids = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            ids.add(String.format("node-%d", i));
+        }
+        running = new ConcurrentHashMap<>();
+        locals = new ConcurrentHashMap<>();
+        repositories = new ConcurrentHashMap<>();
+        nextShell = new AtomicInteger();
+        retries = new AtomicInteger();
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            ids.forEach(this::startNode);
+            String leader = awaitLeader(null, 0);
+            // warms up the JIT compiler, not measured
+            writeSequential(leader, Math.min(writes, 2000));
+            result.put("sequentialWriteMillis", writeSequential(leader, Math.min(writes, 2000)));
+            result.put("writesPerSecond", writeConcurrent());
+            String currentLeader = awaitLeader(null, 0);
+            result.put("leaderReadBarrierMicros", readBarrier(currentLeader, Math.min(writes, 10000)));
+            String follower = ids.stream().filter(x -> !x.equals(currentLeader)).findFirst().orElseThrow();
+            result.put("followerWriteReadMillis", writeAndRead(follower, Math.min(writes, 2000)));
+            // the leader may have changed in the meantime
+            String oldLeader = awaitLeader(null, 0);
+            long oldTerm = (Long) running.get(oldLeader).getStatus().get("term");
+            long failoverStart = System.nanoTime();
+            stopNode(oldLeader);
+            String newLeader = awaitLeader(oldLeader, oldTerm + 1);
+            result.put("failoverMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - failoverStart));
+            result.put("newLeader", newLeader);
+            // more writes than the snapshot threshold, so that the log is compacted while the node is down
+            writeSequential(newLeader, snapshotThreshold * 2);
+            startNode(oldLeader);
+            result.put("restartRecoveredIndex", running.get(oldLeader).getStatus().get("lastApplied"));
+            long catchUpStart = System.nanoTime();
+            awaitConverged();
+            result.put("restartCatchUpMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - catchUpStart));
+            result.put("restartSnapshotIndex", running.get(oldLeader).getStatus().get("snapshotIndex"));
+            result.put("converged", identical());
+            result.put("shells", locals.get(newLeader).getAASs().size());
+            result.put("retriedWrites", retries.get());
+            result.put("leaderChanges", running.values().stream().mapToLong(x -> (Long) x.getStatus().get("leaderChanges")).max().orElse(0));
+        }
+        finally {
+            new ArrayList<>(running.keySet()).forEach(this::stopNode);
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(x -> x.toFile().delete());
+            }
+        }
+        return result;
+    }
+
+
+    private void startNode(String id) {
+        AasRepositoryMemory local = new AasRepositoryMemory();
+        RaftNode node = new RaftNode.Builder()
+                .self(id)
+                .nodes(ids)
+                .stateMachine(new RepositoryStateMachine(id, local, mapper, List::of))
+                .storage(new RaftStorage(directory.resolve(id + ".mv.db").toString(), mapper))
+                .transport(new DirectTransport())
+                .electionTimeout(electionTimeoutMin, electionTimeoutMax)
+                .heartbeatInterval(electionTimeoutMin / 6)
+                .snapshotThreshold(snapshotThreshold)
+                .build();
+        node.start();
+        locals.put(id, local);
+        repositories.put(id, new RaftAasRepository(node, local));
+        running.put(id, node);
+    }
+
+
+    private void stopNode(String id) {
+        running.remove(id);
+        locals.remove(id);
+        repositories.remove(id).close();
+    }
+
+
+    private double writeSequential(String node, int count) {
+        RaftAasRepository repository = repositories.get(node);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            create(repository);
+        }
+        return millisPerOperation(System.nanoTime() - start, count);
+    }
+
+
+    private long writeConcurrent() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<RaftAasRepository> targets = new ArrayList<>(repositories.values());
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int client = 0; client < clients; client++) {
+                RaftAasRepository repository = targets.get(client % targets.size());
+                int count = writes / clients + (client < writes % clients ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < count; i++) {
+                        create(repository);
+                    }
+                }));
+            }
+            for (Future<?> future: futures) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException e) {
+                    throw new IllegalStateException("concurrent write failed", e.getCause());
+                }
+            }
+            return Math.round(writes / ((System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1)));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    private double readBarrier(String node, int count) {
+        RaftNode raftNode = running.get(node);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            raftNode.awaitReadable();
+        }
+        return millisPerOperation(System.nanoTime() - start, count) * 1000;
+    }
+
+
+    private double writeAndRead(String node, int count) {
+        RaftAasRepository repository = repositories.get(node);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            String id = create(repository);
+            try {
+                repository.getAAS(id);
+            }
+            catch (ResourceNotFoundException e) {
+                throw new IllegalStateException(String.format("write not visible on follower (id: %s)", id), e);
+            }
+        }
+        return millisPerOperation(System.nanoTime() - start, count);
+    }
+
+
+    private String create(RaftAasRepository repository) {
+        AssetAdministrationShellDescriptor shell = generator.shell(nextShell.getAndIncrement());
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT;
+        boolean retried = false;
+        while (true) {
+            try {
+                return repository.create(shell).getId();
+            }
+            catch (ServiceUnavailableException e) {
+                // the leader changed, clients of the registry retry as well
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException(String.format("write failed (id: %s)", shell.getId()), e);
+                }
+                retries.incrementAndGet();
+                retried = true;
+            }
+            catch (ResourceAlreadyExistsException e) {
+                if (retried) {
+                    // the failed attempt has been committed after all
+                    return shell.getId();
+                }
+                throw new IllegalStateException(String.format("write failed (id: %s)", shell.getId()), e);
+            }
+        }
+    }
+
+
+    private String awaitLeader(String excluded, long minTerm) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            for (RaftNode node: running.values()) {
+                Map<String, Object> status = node.getStatus();
+                if (status.get("role") == RaftNode.Role.LEADER
+                        && !node.getSelf().equals(excluded)
+                        && (Long) status.get("term") >= minTerm
+                        && Boolean.TRUE.equals(status.get("lease"))) {
+                    return node.getSelf();
+                }
+            }
+            Thread.sleep(1);
+        }
+        throw new IllegalStateException("no leader elected in time");
+    }
+
+
+    private void awaitConverged() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            Set<Object> applied = new HashSet<>();
+            running.values().forEach(x -> applied.add(x.getStatus().get("lastApplied")));
+            if (applied.size() == 1) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+        throw new IllegalStateException("nodes did not converge in time");
+    }
+
+
+    private boolean identical() {
+        Set<Set<String>> states = new HashSet<>();
+        for (AasRepositoryMemory local: locals.values()) {
+            Set<String> state = new HashSet<>();
+            local.getAASs().forEach(x -> state.add(x.getId()));
+            states.add(state);
+        }
+        return states.size() == 1;
+    }
+
+
+    private static double millisPerOperation(long nanos, int count) {
+        return Math.round(nanos / (double) count / 1000) / 1000.0;
+    }
+
+    /**
+     * Delivers messages by calling the receiving node directly. Messages to stopped nodes fail like unreachable ones.
+     */
+    private class DirectTransport implements RaftTransport {
+
+        @Override
+        public VoteResponse requestVote(String node, VoteRequest request) {
+            return target(node).handleVote(request);
+        }
+
+
+        @Override
+        public AppendResponse appendEntries(String node, AppendRequest request) {
+            return target(node).handleAppend(request);
+        }
+
+
+        @Override
+        public AppendResponse installSnapshot(String node, InstallSnapshotRequest request) {
+            return target(node).handleInstallSnapshot(request);
+        }
+
+
+        @Override
+        public CommandResult propose(String leader, RaftCommand command) {
+            return target(leader).proposeForwarded(command);
+        }
+
+
+        @Override
+        public long readIndex(String leader) {
+            return target(leader).getReadIndex();
+        }
+
+
+        private RaftNode target(String node) {
+            RaftNode result = running.get(node);
+            if (Objects.isNull(result)) {
+                throw new ServiceUnavailableException(String.format("node not reachable (node: %s)", node));
+            }
+            return result;
+        }
+    }
+
+    public static class Builder {
+
+        private final RaftBenchmark benchmark = new RaftBenchmark();
+
+        public Builder generator(WorkloadGenerator value) {
+            benchmark.generator = value;
+            return this;
+        }
+
+
+        public Builder nodes(int value) {
+            benchmark.nodes = value;
+            return this;
+        }
+
+
+        public Builder clients(int value) {
+            benchmark.clients = value;
+            return this;
+        }
+
+
+        public Builder writes(int value) {
+            benchmark.writes = value;
+            return this;
+        }
+
+
+        public Builder electionTimeout(long min, long max) {
+            benchmark.electionTimeoutMin = min;
+            benchmark.electionTimeoutMax = max;
+            return this;
+        }
+
+
+        public Builder snapshotThreshold(int value) {
+            benchmark.snapshotThreshold = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the benchmark.
+         *
+         * @return the benchmark
+         * @throws IllegalArgumentException if the generator is missing or a count is not positive
+         */
+        public RaftBenchmark build() {
+            Ensure.requireNonNull(benchmark.generator, "generator must be non-null");
+            Ensure.require(benchmark.nodes >= 3, "nodes must be at least 3");
+            Ensure.require(benchmark.clients > 0, "clients must be positive");
+            Ensure.require(benchmark.writes > 0, "writes must be positive");
+            Ensure.require(benchmark.electionTimeoutMin > 0 && benchmark.electionTimeoutMax >= benchmark.electionTimeoutMin,
+                    "election timeouts must be positive and ordered");
+            Ensure.require(benchmark.snapshotThreshold > 0, "snapshot threshold must be positive");
+            return benchmark;
+        }
+    }
+}
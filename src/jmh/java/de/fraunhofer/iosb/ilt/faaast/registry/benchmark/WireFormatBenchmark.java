@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.DescriptorMapperConfig;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Compares the wire formats supported by the REST API, i.e. JSON, CBOR and Smile, by the throughput of encoding and
+ * decoding shell and submodel descriptors. Run with {@code gradle jmh -PjmhIncludes=WireFormatBenchmark}. The size of
+ * the encoded descriptor and its size relative to JSON are logged once per trial.
+ *
+ * <p>The descriptors are produced by the {@link WorkloadGenerator} of the load test, so that their shape matches the
+ * one used there. All formats use the mappers of {@link DescriptorMapperConfig}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WireFormatBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WireFormatBenchmark.class);
+
+    @Param({
+            "json",
+            "cbor",
+            "smile"
+    })
+    private String format;
+
+    @Param({
+            "shell",
+            "submodel"
+    })
+    private String kind;
+
+    private ObjectMapper mapper;
+    private Object descriptor;
+    private Class<?> type;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator.Builder().build();
+        if ("shell".equals(kind)) {
+            descriptor = generator.shell(0);
+            type = AssetAdministrationShellDescriptor.class;
+        }
+        else {
+            descriptor = generator.submodel(0, 0);
+            type = SubmodelDescriptor.class;
+        }
+        mapper = mapper(format);
+        encoded = mapper.writeValueAsBytes(descriptor);
+        int jsonBytes = mapper("json").writeValueAsBytes(descriptor).length;
+        LOGGER.info("{} descriptor encoded as {}: {} bytes ({}% of JSON)",
+                kind,
+                format,
+                encoded.length,
+                Math.round(encoded.length * 1000.0 / jsonBytes) / 10.0);
+    }
+
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(descriptor);
+    }
+
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+
+    private static ObjectMapper mapper(String format) {
+        switch (format) {
+            case "cbor":
+                return DescriptorMapperConfig.cborMapper();
+            case "smile":
+                return DescriptorMapperConfig.smileMapper();
+            default:
+                return new Jackson2ObjectMapperBuilder()
+                        .modules(DescriptorMapperConfig.descriptorModule())
+                        .build();
+        }
+    }
+}
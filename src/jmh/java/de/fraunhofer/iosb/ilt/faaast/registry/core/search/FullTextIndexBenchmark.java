@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.search;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+
+
+/**
+ * Measures the search latency of a {@link FullTextIndex} holding one shell and one submodel per generated shell, i.e.
+ * one million descriptors by default. Run with {@code gradle jmh -PjmhIncludes=FullTextIndexBenchmark}; the sample
+ * mode reports percentiles of the latency.
+ *
+ * <p>{@link #searchRareTerm} searches words of the generated descriptions, which occur in few descriptors.
+ * {@link #searchCommonTerm} searches the idShort shared by the first submodel of every shell, so that half of the
+ * descriptors match and have to be scored.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FullTextIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final int LIMIT = 100;
+
+    /**
+     * Number of generated shells, each with one submodel.
+     */
+    @Param({
+            "500000"
+    })
+    private int shells;
+
+    private FullTextIndex index;
+    private String[] rareTerms;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        WorkloadGenerator generator = new WorkloadGenerator.Builder()
+                .submodelsPerShell(1)
+                .build();
+        index = new FullTextIndex();
+        rareTerms = new String[QUERIES];
+        int step = Math.max(1, shells / QUERIES);
+        for (int i = 0; i < shells; i++) {
+            AssetAdministrationShellDescriptor shell = generator.shell(i);
+            index.addShell(shell);
+            if (i % step == 0 && i / step < QUERIES) {
+                rareTerms[i / step] = FullTextIndex.tokenize(shell.getDescriptions().get(0).getText(), false).get(0);
+            }
+        }
+        for (int i = 0; i < QUERIES; i++) {
+            if (rareTerms[i] == null) {
+                rareTerms[i] = rareTerms[0];
+            }
+        }
+    }
+
+
+    @Benchmark
+    public PagedResult<SearchHit> searchRareTerm() {
+        next = (next + 1) % QUERIES;
+        return index.search(rareTerms[next], 0, LIMIT);
+    }
+
+
+    @Benchmark
+    public PagedResult<SearchHit> searchCommonTerm() {
+        return index.search("submodel0", 0, LIMIT);
+    }
+}
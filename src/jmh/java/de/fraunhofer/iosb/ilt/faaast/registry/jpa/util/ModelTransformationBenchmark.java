@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.LangStringTextType;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultLangStringTextType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.model.JpaAssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.model.JpaLangString;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+
+
+/**
+ * Measures time and allocation of converting descriptors to the JPA model. Run with {@code gradle jmh
+ * -PjmhIncludes=ModelTransformationBenchmark}; the bytes allocated per conversion are reported as
+ * {@code gc.alloc.rate.norm}.
+ *
+ * <p>{@link #convertShell} is the ingest path, where request bodies arrive as {@code Default*} instances and every
+ * element is copied. {@link #convertListLoop} and {@link #convertListStream} isolate the list conversion, comparing the
+ * loop into a presized list with the stream and collector used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ModelTransformationBenchmark {
+
+    /**
+     * Number of submodels of the shell and of elements of the converted list.
+     */
+    @Param({
+            "1",
+            "5",
+            "20"
+    })
+    private int size;
+
+    private AssetAdministrationShellDescriptor shell;
+    private List<LangStringTextType> descriptions;
+
+    @Setup
+    public void setUp() {
+        shell = new WorkloadGenerator.Builder()
+                .submodelsPerShell(size)
+                .build()
+                .shell(0);
+        descriptions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            descriptions.add(new DefaultLangStringTextType.Builder()
+                    .language("en")
+                    .text("description " + i)
+                    .build());
+        }
+    }
+
+
+    @Benchmark
+    public JpaAssetAdministrationShellDescriptor convertShell() {
+        return ModelTransformationHelper.convertAAS(shell);
+    }
+
+
+    @Benchmark
+    public List<LangStringTextType> convertListLoop() {
+        return ModelTransformationHelper.convertDescriptions(descriptions);
+    }
+
+
+    @Benchmark
+    public List<LangStringTextType> convertListStream() {
+        return descriptions.stream()
+                .map(x -> (LangStringTextType) new JpaLangString.Builder().from(x).build())
+                .collect(Collectors.toList());
+    }
+}
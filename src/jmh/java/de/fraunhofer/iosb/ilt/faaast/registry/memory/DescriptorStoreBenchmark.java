@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.DescriptorMapperConfig;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Compares {@link HeapDescriptorStore} and {@link OffHeapDescriptorStore} holding many small descriptors by the
+ * duration of a full garbage collection and by the cost of reading a descriptor. Run with {@code gradle jmh
+ * -PjmhIncludes=DescriptorStoreBenchmark}.
+ *
+ * <p>{@link #fullGc} measures {@link System#gc()}, which is a full, stop-the-world collection with the default
+ * collector. The heap used after a full collection and the direct memory held by the off-heap store are logged at the
+ * end of each trial. {@link #get} reads random descriptors; the off-heap store is used without its on-heap cache, so
+ * every read deserializes the descriptor.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DescriptorStoreBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescriptorStoreBenchmark.class);
+
+    @Param({
+            "heap",
+            "off-heap"
+    })
+    private String storage;
+
+    /**
+     * Number of submodel descriptors held by the store.
+     */
+    @Param({
+            "1000000"
+    })
+    private int descriptors;
+
+    private DescriptorStore<SubmodelDescriptor> store;
+
+    @Setup
+    public void setUp() {
+        if ("heap".equals(storage)) {
+            store = new HeapDescriptorStore<>();
+        }
+        else {
+            store = new OffHeapDescriptorStore<>(
+                    SubmodelDescriptor.class,
+                    new Jackson2ObjectMapperBuilder()
+                            .modules(DescriptorMapperConfig.descriptorModule())
+                            .build(),
+                    OffHeapDescriptorStore.DEFAULT_CHUNK_SIZE,
+                    0);
+        }
+        WorkloadGenerator generator = new WorkloadGenerator.Builder()
+                .submodelsPerShell(1)
+                .build();
+        for (int i = 0; i < descriptors; i++) {
+            store.put(WorkloadGenerator.submodelId(i, 0), generator.submodel(i, 0));
+        }
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        System.gc();
+        long heapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        long directBytes = store instanceof OffHeapDescriptorStore
+                ? ((OffHeapDescriptorStore<?>) store).getAllocatedBytes()
+                : 0;
+        LOGGER.info("{} store with {} descriptors: {} MB heap used after full GC, {} MB direct memory",
+                storage,
+                store.size(),
+                heapBytes >> 20,
+                directBytes >> 20);
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void fullGc() {
+        System.gc();
+    }
+
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public SubmodelDescriptor get() {
+        return store.get(WorkloadGenerator.submodelId(ThreadLocalRandom.current().nextInt(descriptors), 0));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.admission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Limits the number of concurrent calls and adapts the limit to the observed latency, so that load is shed before
+ * latency collapses. Two moving averages of the latency are kept: a short-term one reacting within a few calls and a
+ * long-term one serving as baseline. While the short-term latency stays within {@code tolerance} times the baseline,
+ * the limit grows by the square root of the limit, otherwise it shrinks proportionally to the ratio (gradient). The
+ * limit only changes while at least half of it is in use, because an idle system says nothing about its capacity.
+ *
+ * <p>All state is kept in atomic variables; concurrent updates of the limit that lose a race are dropped.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_SMOOTHING = 0.1;
+    private static final double LONG_SMOOTHING = 0.005;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BASELINE_DRIFT_RATIO = 2.0;
+    private static final double BASELINE_DECAY = 0.95;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight;
+    private final AtomicLong limit;
+    private final AtomicLong shortLatency;
+    private final AtomicLong longLatency;
+    private final LongAdder accepted;
+    private final LongAdder rejected;
+
+    /**
+     * Creates a new limiter.
+     *
+     * @param initialLimit the limit to start with
+     * @param minLimit the lower bound of the limit
+     * @param maxLimit the upper bound of the limit
+     * @param tolerance the factor by which the short-term latency may exceed the baseline before the limit shrinks
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        Ensure.require(minLimit > 0, "minLimit must be positive");
+        Ensure.require(minLimit <= initialLimit && initialLimit <= maxLimit, "initialLimit must be between minLimit and maxLimit");
+        Ensure.require(tolerance >= 1, "tolerance must be at least 1");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.inFlight = new AtomicInteger();
+        this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+        this.shortLatency = new AtomicLong();
+        this.longLatency = new AtomicLong();
+        this.accepted = new LongAdder();
+        this.rejected = new LongAdder();
+    }
+
+
+    /**
+     * Admits a call if the limit is not reached. The returned permit must be closed when the call is finished.
+     *
+     * @return the permit
+     * @throws ServiceUnavailableException if the limit is reached
+     */
+    public Permit acquire() {
+        int currentLimit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= currentLimit) {
+                rejected.increment();
+                throw new ServiceUnavailableException(String.format("too many concurrent requests, retry later (limit: %d)", currentLimit));
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return new Permit(System.nanoTime(), current + 1);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the maximum number of concurrent calls
+     */
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+
+    /**
+     * Gets the limit, the number of calls in flight, the numbers of accepted and rejected calls and the latency
+     * averages.
+     *
+     * @return the statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("limit", getLimit());
+        result.put("inFlight", inFlight.get());
+        result.put("accepted", accepted.sum());
+        result.put("rejected", rejected.sum());
+        result.put("shortLatencyMicros", (long) Double.longBitsToDouble(shortLatency.get()) / 1000);
+        result.put("baselineLatencyMicros", (long) Double.longBitsToDouble(longLatency.get()) / 1000);
+        return result;
+    }
+
+
+    private void release(long latency, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        double shortAverage = average(shortLatency, latency, SHORT_SMOOTHING);
+        double longAverage = average(longLatency, latency, LONG_SMOOTHING);
+        if (longAverage / shortAverage > BASELINE_DRIFT_RATIO) {
+            // the baseline is still dominated by an earlier phase of high latency, let it catch up
+            longAverage = scale(longLatency, BASELINE_DECAY);
+        }
+        long currentBits = limit.get();
+        double current = Double.longBitsToDouble(currentBits);
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longAverage / shortAverage));
+        double target = current * gradient + Math.sqrt(current);
+        double next = Math.max(minLimit, Math.min(maxLimit, current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING));
+        limit.compareAndSet(currentBits, Double.doubleToRawLongBits(next));
+    }
+
+
+    private static double average(AtomicLong average, long sample, double smoothing) {
+        while (true) {
+            long currentBits = average.get();
+            double next = Math.max(1, currentBits == 0
+                    ? sample
+                    : Double.longBitsToDouble(currentBits) + (sample - Double.longBitsToDouble(currentBits)) * smoothing);
+            if (average.compareAndSet(currentBits, Double.doubleToRawLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+
+    private static double scale(AtomicLong average, double factor) {
+        while (true) {
+            long currentBits = average.get();
+            double next = Math.max(1, Double.longBitsToDouble(currentBits) * factor);
+            if (average.compareAndSet(currentBits, Double.doubleToRawLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Admission of a single call, releasing its slot and recording its latency when closed.
+     */
+    public class Permit implements AutoCloseable {
+
+        private final long start;
+        private final int inFlightAtStart;
+        private boolean closed;
+
+        private Permit(long start, int inFlightAtStart) {
+            this.start = start;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(System.nanoTime() - start, inFlightAtStart);
+            }
+        }
+    }
+}
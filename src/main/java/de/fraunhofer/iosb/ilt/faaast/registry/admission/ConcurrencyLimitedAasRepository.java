@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.admission;
+
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} admitting calls only while the number of concurrent calls is below the limit of an
+ * {@link AdaptiveConcurrencyLimiter}. Calls beyond the limit fail immediately with a
+ * {@link ServiceUnavailableException} instead of queueing for a database connection.
+ */
+public class ConcurrencyLimitedAasRepository extends AbstractAasRepository {
+
+    private final AasRepository delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitedAasRepository(AasRepository delegate, AdaptiveConcurrencyLimiter limiter) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        Ensure.requireNonNull(limiter, "limiter must be non-null");
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+
+    /**
+     * The wrapped repository.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getAASs();
+        }
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getAASs(projection);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getAAS(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getAAS(aasId, projection);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.create(descriptor);
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            delegate.deleteAAS(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.update(aasId, descriptor);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getSubmodels(aasId);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getSubmodels();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getSubmodel(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.getSubmodel(submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.addSubmodel(aasId, descriptor);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.addSubmodel(descriptor);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            delegate.deleteSubmodel(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            delegate.deleteSubmodel(submodelId);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.findAASs(query);
+        }
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.findSubmodels(query);
+        }
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        try (AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire()) {
+            return delegate.findBySemanticId(semanticId);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.admission;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Rejects requests of clients exceeding their rate with {@code 429 Too Many Requests} and a {@code Retry-After}
+ * header. Requests are classified as modification if they are not reads, as listing if the handler returns a list or
+ * a page of results, and as lookup otherwise. Clients are identified by their IP address, or by the first value of a
+ * configured header if the registry runs behind a proxy.
+ *
+ * <p>Runs as a servlet filter rather than a handler interceptor, so that it sees every request, including requests
+ * answered by filters further down the chain such as the coalescing of identical reads. The handler of a read is
+ * looked up in the handler mapping to classify it.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Routes of the limited endpoints. Endpoints used between nodes, for health checks and for administration are not
+     * limited.
+     */
+    public static final List<String> ROUTES = List.of(
+            "/registry/shell-descriptors/**",
+            "/registry/submodel-descriptors/**",
+            "/registry/lookup/**",
+            "/registry/search/**");
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final RateLimiter rateLimiter;
+    private final String clientHeader;
+    private final Supplier<HandlerMapping> handlerMapping;
+    private final List<PathPattern> patterns;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param rateLimiter the rate limiter
+     * @param clientHeader the header identifying the client, null to use the IP address
+     * @param handlerMapping the handler mapping of the controllers, resolved on the first read
+     */
+    public RateLimitFilter(RateLimiter rateLimiter, String clientHeader, Supplier<HandlerMapping> handlerMapping) {
+        Ensure.requireNonNull(rateLimiter, "rateLimiter must be non-null");
+        Ensure.requireNonNull(handlerMapping, "handlerMapping must be non-null");
+        this.rateLimiter = rateLimiter;
+        this.clientHeader = clientHeader;
+        this.handlerMapping = handlerMapping;
+        this.patterns = ROUTES.stream().map(PathPatternParser.defaultInstance::parse).collect(Collectors.toList());
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return patterns.stream().noneMatch(x -> x.matches(path));
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.EndpointClass endpointClass = classify(request.getMethod(), READ_METHODS.contains(request.getMethod()) ? handler(request) : null);
+        long wait = rateLimiter.tryAcquire(client(request), endpointClass);
+        if (wait > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString((long) Math.ceil(wait / (double) TimeUnit.SECONDS.toNanos(1))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), String.format("request rate exceeded, retry later (endpoint class: %s, retry after: %d ms)",
+                    endpointClass.name().toLowerCase(),
+                    TimeUnit.NANOSECONDS.toMillis(wait)));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+
+    /**
+     * Determines the endpoint class of a request.
+     *
+     * @param method the HTTP method
+     * @param handler the handler of the request
+     * @return the endpoint class
+     */
+    static RateLimiter.EndpointClass classify(String method, Object handler) {
+        if (!READ_METHODS.contains(method)) {
+            return RateLimiter.EndpointClass.WRITE;
+        }
+        if (handler instanceof HandlerMethod) {
+            Class<?> type = ((HandlerMethod) handler).getReturnType().getParameterType();
+            if (Collection.class.isAssignableFrom(type) || PagedResult.class.isAssignableFrom(type)) {
+                return RateLimiter.EndpointClass.LIST;
+            }
+        }
+        return RateLimiter.EndpointClass.LOOKUP;
+    }
+
+
+    /**
+     * Looks up the handler of a request. The parsed request path required by the handler mapping is removed again
+     * afterwards, as the dispatcher servlet parses it itself.
+     *
+     * @param request the request
+     * @return the handler, null if there is none
+     */
+    private Object handler(HttpServletRequest request) {
+        RequestPath previous = (RequestPath) request.getAttribute(ServletRequestPathUtils.PATH_ATTRIBUTE);
+        ServletRequestPathUtils.parseAndCache(request);
+        try {
+            HandlerExecutionChain chain = handlerMapping.get().getHandler(request);
+            return Objects.isNull(chain) ? null : chain.getHandler();
+        }
+        catch (Exception e) {
+            return null;
+        }
+        finally {
+            ServletRequestPathUtils.setParsedRequestPath(previous, request);
+        }
+    }
+
+
+    private String client(HttpServletRequest request) {
+        if (Objects.nonNull(clientHeader)) {
+            String value = request.getHeader(clientHeader);
+            if (Objects.nonNull(value) && !value.isBlank()) {
+                return value.split(",", 2)[0].trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.admission;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Limits the request rate per client and endpoint class using one {@link TokenBucket} per combination. Buckets of
+ * clients that have been idle long enough to be full again are removed when the number of buckets reaches its
+ * maximum; if all buckets are in use, new clients share one bucket per endpoint class.
+ */
+public class RateLimiter {
+
+    /**
+     * Classes of endpoints with separate limits.
+     */
+    public enum EndpointClass {
+        /**
+         * Reads returning a list of descriptors.
+         */
+        LIST,
+        /**
+         * Reads returning a single descriptor.
+         */
+        LOOKUP,
+        /**
+         * Modifications.
+         */
+        WRITE
+    }
+
+    /**
+     * Rate and burst of an endpoint class.
+     */
+    public static class Limit {
+
+        private final double rate;
+        private final int burst;
+
+        public Limit(double rate, int burst) {
+            Ensure.require(rate > 0, "rate must be positive");
+            Ensure.require(burst > 0, "burst must be positive");
+            this.rate = rate;
+            this.burst = burst;
+        }
+
+
+        /**
+         * Number of requests per second.
+         *
+         * @return the rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+
+        /**
+         * Number of requests accepted at once.
+         *
+         * @return the burst
+         */
+        public int getBurst() {
+            return burst;
+        }
+    }
+
+    private static final String SHARED_CLIENT = "*";
+    private static final long PRUNE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<EndpointClass, Limit> limits;
+    private final int maxBuckets;
+    private final Map<String, TokenBucket> buckets;
+    private final AtomicLong lastPrune;
+    private final Map<EndpointClass, LongAdder> accepted;
+    private final Map<EndpointClass, LongAdder> rejected;
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param limits the limits by endpoint class, endpoint classes without limit are not limited
+     * @param maxBuckets the maximum number of buckets, i.e. of tracked combinations of client and endpoint class
+     */
+    public RateLimiter(Map<EndpointClass, Limit> limits, int maxBuckets) {
+        Ensure.requireNonNull(limits, "limits must be non-null");
+        Ensure.require(maxBuckets > 0, "maxBuckets must be positive");
+        this.limits = new EnumMap<>(EndpointClass.class);
+        this.limits.putAll(limits);
+        this.maxBuckets = maxBuckets;
+        this.buckets = new ConcurrentHashMap<>();
+        this.lastPrune = new AtomicLong(System.nanoTime() - PRUNE_INTERVAL);
+        this.accepted = new EnumMap<>(EndpointClass.class);
+        this.rejected = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpointClass: EndpointClass.values()) {
+            accepted.put(endpointClass, new LongAdder());
+            rejected.put(endpointClass, new LongAdder());
+        }
+    }
+
+
+    /**
+     * Takes a token of the given client for the given endpoint class if there is one.
+     *
+     * @param client the client, e.g. its IP address
+     * @param endpointClass the endpoint class
+     * @return 0 if the request is accepted, otherwise the nanoseconds until the client may send the next request
+     */
+    public long tryAcquire(String client, EndpointClass endpointClass) {
+        Limit limit = limits.get(endpointClass);
+        if (limit == null) {
+            accepted.get(endpointClass).increment();
+            return 0;
+        }
+        long now = System.nanoTime();
+        long wait = bucket(client, endpointClass, limit, now).tryAcquire(now);
+        (wait == 0 ? accepted : rejected).get(endpointClass).increment();
+        return wait;
+    }
+
+
+    /**
+     * Gets the number of tracked buckets and the numbers of accepted and rejected requests by endpoint class.
+     *
+     * @return the statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("buckets", buckets.size());
+        for (EndpointClass endpointClass: EndpointClass.values()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("accepted", accepted.get(endpointClass).sum());
+            counts.put("rejected", rejected.get(endpointClass).sum());
+            result.put(endpointClass.name().toLowerCase(), counts);
+        }
+        return result;
+    }
+
+
+    private TokenBucket bucket(String client, EndpointClass endpointClass, Limit limit, long now) {
+        String key = endpointClass + " " + client;
+        TokenBucket result = buckets.get(key);
+        if (result != null) {
+            return result;
+        }
+        if (buckets.size() >= maxBuckets) {
+            prune(now);
+            if (buckets.size() >= maxBuckets) {
+                key = endpointClass + " " + SHARED_CLIENT;
+            }
+        }
+        return buckets.computeIfAbsent(key, x -> new TokenBucket(limit.getRate(), limit.getBurst()));
+    }
+
+
+    private void prune(long now) {
+        long last = lastPrune.get();
+        if (now - last >= PRUNE_INTERVAL && lastPrune.compareAndSet(last, now)) {
+            buckets.values().removeIf(x -> x.isFull(now));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Lock-free token bucket. Instead of a token count, the bucket stores the time at which it would be full again
+ * (generic cell rate algorithm), so that refilling and taking a token is a single compare-and-set on one
+ * {@link AtomicLong}.
+ */
+public class TokenBucket {
+
+    private final long interval;
+    private final long capacity;
+    private final AtomicLong fullAt;
+
+    /**
+     * Creates a new, full bucket.
+     *
+     * @param rate the number of tokens added per second
+     * @param burst the maximum number of tokens, i.e. the number of requests accepted at once
+     */
+    public TokenBucket(double rate, int burst) {
+        Ensure.require(rate > 0, "rate must be positive");
+        Ensure.require(burst > 0, "burst must be positive");
+        this.interval = Math.max(1, (long) (1_000_000_000L / rate));
+        this.capacity = interval * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+
+    /**
+     * Takes a token if there is one.
+     *
+     * @param now the current time as returned by {@link System#nanoTime()}
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is available
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - capacity;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+
+    /**
+     * Checks whether the bucket is full, i.e. whether forgetting it would not change any future decision.
+     *
+     * @param now the current time as returned by {@link System#nanoTime()}
+     * @return true if the bucket is full, false otherwise
+     */
+    public boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.coalescing;
+
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} coalescing concurrent identical reads using a {@link SingleFlight}, so that e.g. clients
+ * re-fetching a shell right after it was updated cause a single call of the wrapped repository. Results are shared
+ * between the callers and therefore must not be modified. Modifications invalidate the reads in progress both before
+ * and after they are executed, so that a read starting after a modification never returns a result read before it.
+ * Responses of the REST API are additionally coalesced after serialization by the {@link CoalescingResponseFilter}.
+ */
+public class CoalescingAasRepository extends AbstractAasRepository {
+
+    private final AasRepository delegate;
+    private final SingleFlight singleFlight;
+
+    public CoalescingAasRepository(AasRepository delegate, SingleFlight singleFlight) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        Ensure.requireNonNull(singleFlight, "singleFlight must be non-null");
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+
+    /**
+     * The wrapped repository.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return singleFlight.execute("getAASs", () -> delegate.getAASs());
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return singleFlight.execute("getAASs", () -> delegate.getAASs(projection), projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        return singleFlight.execute("getAAS", () -> delegate.getAAS(aasId), aasId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        return singleFlight.execute("getAAS", () -> delegate.getAAS(aasId, projection), aasId, projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        singleFlight.invalidate();
+        try {
+            return delegate.create(descriptor);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        singleFlight.invalidate();
+        try {
+            delegate.deleteAAS(aasId);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        singleFlight.invalidate();
+        try {
+            return delegate.update(aasId, descriptor);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        return singleFlight.execute("getSubmodels", () -> delegate.getSubmodels(aasId), aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return singleFlight.execute("getSubmodels", () -> delegate.getSubmodels());
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        return singleFlight.execute("getSubmodel", () -> delegate.getSubmodel(aasId, submodelId), aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        return singleFlight.execute("getSubmodel", () -> delegate.getSubmodel(submodelId), submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        singleFlight.invalidate();
+        try {
+            return delegate.addSubmodel(aasId, descriptor);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        singleFlight.invalidate();
+        try {
+            return delegate.addSubmodel(descriptor);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        singleFlight.invalidate();
+        try {
+            delegate.deleteSubmodel(aasId, submodelId);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        singleFlight.invalidate();
+        try {
+            delegate.deleteSubmodel(submodelId);
+        }
+        finally {
+            singleFlight.invalidate();
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return singleFlight.execute("findAASs", () -> delegate.findAASs(query), query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return singleFlight.execute("findSubmodels", () -> delegate.findSubmodels(query), query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return singleFlight.execute("findBySemanticId", () -> delegate.findBySemanticId(semanticId), semanticId);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.coalescing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AccessListener;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Coalesces concurrent identical reads of descriptors on the HTTP level using a {@link SingleFlight}, so that they
+ * share one serialized response instead of serializing the same descriptors once per client. Requests are identical
+ * if their URI, query and {@code Accept} header are equal. The first request is handled as usual with its body
+ * buffered, requests arriving while it is in progress receive a copy of its status, headers and body without being
+ * handled themselves. Only successful responses are shared, the other requests are handled separately. The route
+ * matched by the first request is passed on to the others, so that filters running before this one, like the
+ * compression of single descriptors and rate limiting, treat the shared responses like the original one. As the
+ * {@link AccessListener}s are notified by the handler, this filter notifies them about each request that received a
+ * shared single descriptor.
+ */
+public class CoalescingResponseFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingResponseFilter.class);
+
+    /**
+     * Routes of the endpoints whose responses are coalesced.
+     */
+    public static final List<String> ROUTES = List.of(
+            "/registry/shell-descriptors/**",
+            "/registry/submodel-descriptors/**");
+
+    private static final String OPERATION = "response";
+    private static final String AAS_IDENTIFIER = "aasIdentifier";
+    private static final String SUBMODEL_IDENTIFIER = "submodelIdentifier";
+    private static final PathPattern SHELL_ROUTE = PathPatternParser.defaultInstance.parse("/registry/shell-descriptors/{aasIdentifier}");
+    private static final PathPattern SUBMODEL_OF_SHELL_ROUTE = PathPatternParser.defaultInstance.parse(
+            "/registry/shell-descriptors/{aasIdentifier}/submodel-descriptors/{submodelIdentifier}");
+    private static final PathPattern SUBMODEL_ROUTE = PathPatternParser.defaultInstance.parse("/registry/submodel-descriptors/{submodelIdentifier}");
+    private static final List<String> IGNORED_HEADERS = List.of(HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE);
+
+    private final SingleFlight singleFlight;
+    private final Supplier<List<AccessListener>> accessListenerSupplier;
+    private final List<PathPattern> patterns;
+    private volatile List<AccessListener> accessListeners;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param singleFlight the group coalescing the requests, shared with the repository so that modifications
+     *            invalidate the requests in progress
+     * @param accessListenerSupplier the listeners to notify about reads answered by a shared response, resolved on the
+     *            first such read
+     */
+    public CoalescingResponseFilter(SingleFlight singleFlight, Supplier<List<AccessListener>> accessListenerSupplier) {
+        Ensure.requireNonNull(singleFlight, "singleFlight must be non-null");
+        Ensure.requireNonNull(accessListenerSupplier, "accessListenerSupplier must be non-null");
+        this.singleFlight = singleFlight;
+        this.accessListenerSupplier = accessListenerSupplier;
+        this.patterns = ROUTES.stream().map(PathPatternParser.defaultInstance::parse).collect(Collectors.toList());
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        return patterns.stream().noneMatch(x -> x.matches(path(request)));
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        AtomicBoolean handled = new AtomicBoolean();
+        SharedResponse shared = singleFlight.execute(OPERATION, () -> {
+            handled.set(true);
+            try {
+                filterChain.doFilter(request, wrapper);
+            }
+            catch (IOException e) {
+                throw new ServletException(e);
+            }
+            return wrapper.getStatus() == HttpServletResponse.SC_OK && !wrapper.isCommitted()
+                    ? new SharedResponse(request, wrapper)
+                    : null;
+        }, request.getRequestURI(), request.getQueryString(), request.getHeader(HttpHeaders.ACCEPT));
+        if (handled.get()) {
+            wrapper.copyBodyToResponse();
+        }
+        else if (Objects.isNull(shared)) {
+            filterChain.doFilter(request, response);
+        }
+        else {
+            shared.writeTo(request, response);
+            notifyAccessListeners(shared.route, request);
+        }
+    }
+
+
+    /**
+     * Notifies the access listeners about a read answered by a shared response, like the handler would have if the
+     * request had been handled itself.
+     *
+     * @param route the route matched by the request that has been handled
+     * @param request the request answered by the shared response
+     */
+    private void notifyAccessListeners(Object route, HttpServletRequest request) {
+        Consumer<AccessListener> notification = accessOf(route, path(request));
+        if (Objects.isNull(notification)) {
+            return;
+        }
+        if (Objects.isNull(accessListeners)) {
+            accessListeners = accessListenerSupplier.get();
+        }
+        for (AccessListener listener: accessListeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("access listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+
+    /**
+     * Determines the notification of the access listeners about a request, based on the route matched by the handled
+     * request with the same path.
+     *
+     * @param route the matched route, may be null
+     * @param path the path of the request
+     * @return the notification, null if the route does not return a single descriptor
+     */
+    private static Consumer<AccessListener> accessOf(Object route, PathContainer path) {
+        if (Objects.isNull(route)) {
+            return null;
+        }
+        String pattern = route.toString();
+        if (SHELL_ROUTE.getPatternString().equals(pattern)) {
+            String aasId = decode(SHELL_ROUTE, path, AAS_IDENTIFIER);
+            return x -> x.shellRead(aasId);
+        }
+        if (SUBMODEL_OF_SHELL_ROUTE.getPatternString().equals(pattern)) {
+            String aasId = decode(SUBMODEL_OF_SHELL_ROUTE, path, AAS_IDENTIFIER);
+            String submodelId = decode(SUBMODEL_OF_SHELL_ROUTE, path, SUBMODEL_IDENTIFIER);
+            return x -> x.submodelRead(aasId, submodelId);
+        }
+        if (SUBMODEL_ROUTE.getPatternString().equals(pattern)) {
+            String submodelId = decode(SUBMODEL_ROUTE, path, SUBMODEL_IDENTIFIER);
+            return x -> x.submodelRead(null, submodelId);
+        }
+        return null;
+    }
+
+
+    private static String decode(PathPattern route, PathContainer path, String variable) {
+        return new String(Base64.getUrlDecoder().decode(route.matchAndExtract(path).getUriVariables().get(variable)));
+    }
+
+
+    private static PathContainer path(HttpServletRequest request) {
+        return PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private static class SharedResponse {
+
+        private final Object route;
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        private SharedResponse(HttpServletRequest request, ContentCachingResponseWrapper response) {
+            this.route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            this.contentType = response.getContentType();
+            this.headers = new LinkedHashMap<>();
+            for (String name: response.getHeaderNames()) {
+                if (IGNORED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                    Collection<String> values = response.getHeaders(name);
+                    headers.put(name, new ArrayList<>(values));
+                }
+            }
+            this.body = response.getContentAsByteArray();
+        }
+
+
+        private void writeTo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            if (Objects.nonNull(route)) {
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, route);
+            }
+            response.setStatus(HttpServletResponse.SC_OK);
+            if (Objects.nonNull(contentType)) {
+                response.setContentType(contentType);
+            }
+            for (Map.Entry<String, List<String>> header: headers.entrySet()) {
+                if (!response.containsHeader(header.getKey())) {
+                    header.getValue().forEach(x -> response.addHeader(header.getKey(), x));
+                }
+            }
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+}
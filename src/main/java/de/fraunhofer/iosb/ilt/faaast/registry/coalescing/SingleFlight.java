@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.coalescing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Coalesces concurrent identical calls. The first caller of an operation with given arguments executes it, callers
+ * arriving while it is in progress wait for and share its result or exception instead of executing it again. Nothing
+ * is cached beyond the duration of the call.
+ *
+ * <p>Calls are versioned by {@link #invalidate()}: a caller only joins a call that started at or after the last
+ * invalidation it has seen, so invalidating before and after a modification guarantees that no call started before
+ * the modification answers a caller arriving after it.
+ */
+public class SingleFlight {
+
+    /**
+     * A call that may be coalesced.
+     *
+     * @param <T> the type of the result
+     * @param <E> the type of the checked exception thrown by the call
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+
+        /**
+         * Executes the call.
+         *
+         * @return the result
+         * @throws E if the call fails
+         */
+        T call() throws E;
+    }
+
+    private final Map<List<Object>, Flight> flights;
+    private final Map<String, Counters> counters;
+    private final AtomicLong version;
+
+    public SingleFlight() {
+        this.flights = new ConcurrentHashMap<>();
+        this.counters = new ConcurrentHashMap<>();
+        this.version = new AtomicLong();
+    }
+
+
+    /**
+     * Executes a call unless an identical call is already in progress, in which case its outcome is returned.
+     *
+     * @param <T> the type of the result
+     * @param <E> the type of the checked exception thrown by the call
+     * @param operation the name of the operation, calls are identical if operation and arguments are equal
+     * @param call the call
+     * @param arguments the arguments of the call
+     * @return the result of the call
+     * @throws E if the call fails
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(String operation, Call<T, E> call, Object... arguments) throws E {
+        Ensure.requireNonNull(operation, "operation must be non-null");
+        Ensure.requireNonNull(call, "call must be non-null");
+        List<Object> key = new ArrayList<>(arguments.length + 1);
+        key.add(operation);
+        Collections.addAll(key, arguments);
+        Counters operationCounters = counters.computeIfAbsent(operation, x -> new Counters());
+        operationCounters.calls.increment();
+        Flight flight = new Flight(version.get());
+        Flight existing = flights.putIfAbsent(key, flight);
+        while (existing != null && existing.version < flight.version) {
+            existing = flights.replace(key, existing, flight) ? null : flights.putIfAbsent(key, flight);
+        }
+        if (existing != null) {
+            operationCounters.coalesced.increment();
+            try {
+                return (T) existing.result.join();
+            }
+            catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw (E) cause;
+            }
+        }
+        T result;
+        try {
+            result = call.call();
+        }
+        catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.result.complete(result);
+        return result;
+    }
+
+
+    /**
+     * Forgets all calls in progress, so that calls starting afterwards are executed again instead of sharing a result
+     * read before a modification. Callers already waiting still receive the result of the call they joined. Must be
+     * called both before and after a modification: the first call prevents callers arriving during the modification
+     * from joining a call that started before it, the second prevents callers arriving after the modification from
+     * joining a call that started during it and may not have seen it.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+
+    /**
+     * Gets the number of calls and of calls answered by an identical call in progress, in total and per operation.
+     *
+     * @return the statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long calls = 0;
+        long coalesced = 0;
+        Map<String, Object> operations = new TreeMap<>();
+        for (Map.Entry<String, Counters> entry: counters.entrySet()) {
+            long operationCalls = entry.getValue().calls.sum();
+            long operationCoalesced = entry.getValue().coalesced.sum();
+            operations.put(entry.getKey(), statistics(operationCalls, operationCoalesced));
+            calls += operationCalls;
+            coalesced += operationCoalesced;
+        }
+        Map<String, Object> result = statistics(calls, coalesced);
+        result.put("inFlight", flights.size());
+        result.put("operations", operations);
+        return result;
+    }
+
+
+    private static Map<String, Object> statistics(long calls, long coalesced) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("calls", calls);
+        result.put("coalesced", coalesced);
+        result.put("coalescingRatio", calls == 0 ? 0.0 : coalesced / (double) calls);
+        return result;
+    }
+
+    private static class Flight {
+
+        private final long version;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Flight(long version) {
+            this.version = version;
+        }
+    }
+
+    private static class Counters {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder coalesced = new LongAdder();
+    }
+}
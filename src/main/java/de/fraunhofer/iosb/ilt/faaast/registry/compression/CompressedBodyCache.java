@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.compression;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.FrequencySketch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.TinyLfuAdmission;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Bounded cache of compressed response bodies of frequently requested resources. An entry is only returned if the
+ * digest of the uncompressed body it was created from matches the current body, so the cache never needs to be
+ * invalidated when descriptors change, no matter whether the change was made on this node or replicated from another
+ * one. Entries are admitted using TinyLFU, i.e. a resource only replaces another one if it was requested more often.
+ */
+public class CompressedBodyCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private final FrequencySketch sketch;
+    private final TinyLfuAdmission admission;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param capacity maximum number of cached bodies
+     */
+    public CompressedBodyCache(int capacity) {
+        Ensure.require(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>();
+        this.sketch = new FrequencySketch(capacity);
+        this.admission = new TinyLfuAdmission(sketch);
+    }
+
+
+    /**
+     * Gets the compressed body of a resource if the body it was created from is still current, and records the
+     * request of the resource.
+     *
+     * @param key the resource, e.g. the request URI
+     * @param encoding the content encoding
+     * @param digest the digest of the current uncompressed body, see {@link #digest(byte[])}
+     * @return the compressed body, or null if not cached or outdated
+     */
+    public byte[] get(String key, String encoding, byte[] digest) {
+        sketch.increment(key);
+        Entry entry = entries.get(key);
+        if (Objects.isNull(entry) || !entry.encoding.equals(encoding) || !Arrays.equals(entry.digest, digest)) {
+            return null;
+        }
+        return entry.body;
+    }
+
+
+    /**
+     * Caches the compressed body of a resource, replacing an outdated one. If the cache is full, the body is only
+     * cached if the resource has been requested more often than a resident one.
+     *
+     * @param key the resource, e.g. the request URI
+     * @param encoding the content encoding
+     * @param digest the digest of the uncompressed body, see {@link #digest(byte[])}
+     * @param body the compressed body
+     */
+    public void put(String key, String encoding, byte[] digest, byte[] body) {
+        Entry entry = new Entry(encoding, digest, body);
+        if (entries.size() < capacity || entries.containsKey(key)) {
+            entries.put(key, entry);
+            return;
+        }
+        Iterator<String> candidates = entries.keySet().iterator();
+        if (!candidates.hasNext()) {
+            return;
+        }
+        String victim = candidates.next();
+        if (admission.admit(key, victim)) {
+            entries.remove(victim);
+            entries.put(key, entry);
+        }
+    }
+
+
+    /**
+     * Gets the number of cached bodies.
+     *
+     * @return the number of cached bodies
+     */
+    public int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Gets the total size of the cached bodies.
+     *
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return entries.values().stream().mapToLong(x -> x.body.length).sum();
+    }
+
+
+    /**
+     * Computes the digest identifying an uncompressed body.
+     *
+     * @param body the uncompressed body
+     * @return the digest
+     */
+    public static byte[] digest(byte[] body) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(body);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " not supported by the JVM", e);
+        }
+    }
+
+    private static class Entry {
+
+        private final String encoding;
+        private final byte[] digest;
+        private final byte[] body;
+
+        Entry(String encoding, byte[] digest, byte[] body) {
+            this.encoding = encoding;
+            this.digest = digest;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Compresses the responses of the endpoints returning a single descriptor and keeps the compressed bodies of
+ * frequently requested descriptors in a {@link CompressedBodyCache}, so that hot descriptors are compressed once
+ * instead of on every request. The encoding is negotiated from the {@code Accept-Encoding} header; gzip and deflate
+ * are supported. Bodies smaller than the threshold are sent uncompressed, and responses of all other endpoints are
+ * left to the compression of the servlet container, which streams large listings instead of buffering them.
+ */
+public class PrecompressedResponseFilter extends OncePerRequestFilter {
+
+    /**
+     * Routes of the endpoints returning a single descriptor.
+     */
+    public static final List<String> ROUTES = List.of(
+            "/registry/shell-descriptors/{aasIdentifier}",
+            "/registry/shell-descriptors/{aasIdentifier}/submodel-descriptors/{submodelIdentifier}",
+            "/registry/submodel-descriptors/{submodelIdentifier}");
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final List<String> ENCODINGS = List.of(GZIP, DEFLATE);
+
+    private final CompressedBodyCache cache;
+    private final int threshold;
+    private final List<PathPattern> patterns;
+    private final ThreadMXBean threads;
+    private final LongAdder requests;
+    private final LongAdder hits;
+    private final LongAdder uncompressedBytes;
+    private final LongAdder compressedBytes;
+    private final LongAdder compressions;
+    private final LongAdder compressionCpuNanos;
+
+    /**
+     * Creates a new filter.
+     *
+     * @param cache the cache of compressed bodies
+     * @param threshold minimum size in bytes of a body to be compressed
+     */
+    public PrecompressedResponseFilter(CompressedBodyCache cache, int threshold) {
+        Ensure.requireNonNull(cache, "cache must be non-null");
+        Ensure.require(threshold >= 0, "threshold must be non-negative");
+        this.cache = cache;
+        this.threshold = threshold;
+        this.patterns = ROUTES.stream().map(PathPatternParser.defaultInstance::parse).collect(Collectors.toList());
+        this.threads = ManagementFactory.getThreadMXBean();
+        this.requests = new LongAdder();
+        this.hits = new LongAdder();
+        this.uncompressedBytes = new LongAdder();
+        this.compressedBytes = new LongAdder();
+        this.compressions = new LongAdder();
+        this.compressionCpuNanos = new LongAdder();
+    }
+
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        return patterns.stream().noneMatch(x -> x.matches(path));
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String encoding = negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK
+                || body.length < threshold
+                || !ROUTES.contains(route)
+                || response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        requests.increment();
+        uncompressedBytes.add(body.length);
+        String key = Objects.isNull(request.getQueryString())
+                ? request.getRequestURI() + " " + response.getContentType()
+                : request.getRequestURI() + "?" + request.getQueryString() + " " + response.getContentType();
+        byte[] digest = CompressedBodyCache.digest(body);
+        byte[] compressed = cache.get(key, encoding, digest);
+        if (compressed != null) {
+            hits.increment();
+        }
+        else {
+            compressed = compress(body, encoding);
+            cache.put(key, encoding, digest, compressed);
+        }
+        compressedBytes.add(compressed.length);
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+        response.setContentLength(compressed.length);
+        response.getOutputStream().write(compressed);
+    }
+
+
+    /**
+     * Gets the number of compressed responses, the cache hit ratio, the bytes before and after compression and the
+     * mean CPU time spent per compression.
+     *
+     * @return the statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long requestCount = requests.sum();
+        long uncompressed = uncompressedBytes.sum();
+        long compressionCount = compressions.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requests", requestCount);
+        result.put("hits", hits.sum());
+        result.put("hitRatio", requestCount == 0 ? 0.0 : hits.sum() / (double) requestCount);
+        result.put("uncompressedBytes", uncompressed);
+        result.put("compressedBytes", compressedBytes.sum());
+        result.put("compressionRatio", uncompressed == 0 ? 0.0 : compressedBytes.sum() / (double) uncompressed);
+        result.put("compressions", compressionCount);
+        result.put("cpuMicrosPerCompression", compressionCount == 0 ? 0 : compressionCpuNanos.sum() / compressionCount / 1000);
+        result.put("cachedBodies", cache.size());
+        result.put("cachedBytes", cache.getBytes());
+        return result;
+    }
+
+
+    private byte[] compress(byte[] body, String encoding) throws IOException {
+        long start = threads.getCurrentThreadCpuTime();
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.length / 4);
+        try (OutputStream out = GZIP.equals(encoding) ? new GZIPOutputStream(result) : new DeflaterOutputStream(result)) {
+            out.write(body);
+        }
+        compressions.increment();
+        if (start >= 0) {
+            compressionCpuNanos.add(threads.getCurrentThreadCpuTime() - start);
+        }
+        return result.toByteArray();
+    }
+
+
+    /**
+     * Selects the supported encoding with the highest quality from an {@code Accept-Encoding} header. Ties are
+     * resolved in favor of gzip.
+     *
+     * @param acceptEncoding the value of the header, may be null
+     * @return the encoding, or null if none of the supported encodings is acceptable
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        String result = null;
+        double best = 0;
+        double wildcard = 0;
+        Map<String, Double> qualities = new LinkedHashMap<>();
+        for (String element: acceptEncoding.split(",")) {
+            String[] parts = element.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    }
+                    catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("*".equals(name)) {
+                wildcard = quality;
+            }
+            else {
+                qualities.put(name, quality);
+            }
+        }
+        for (String encoding: ENCODINGS) {
+            double quality = qualities.getOrDefault(encoding, wildcard);
+            if (quality > best) {
+                best = quality;
+                result = encoding;
+            }
+        }
+        return result;
+    }
+}
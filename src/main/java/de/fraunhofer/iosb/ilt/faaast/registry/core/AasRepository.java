@@ -16,9 +16,14 @@ package de.fraunhofer.iosb.ilt.faaast.registry.core;
 
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
 import java.util.List;
+import java.util.stream.Collectors;
 
 
 /**
@@ -34,6 +39,21 @@ public interface AasRepository {
     public List<AssetAdministrationShellDescriptor> getAASs();
 
 
+    /**
+     * Retrieves a list of all registered Asset Administration Shells containing only the selected attributes. The
+     * default implementation projects the complete descriptors, implementations should avoid loading attributes that
+     * are not selected.
+     *
+     * @param projection The selected attributes.
+     * @return The list of all registered Asset Administration Shells.
+     */
+    public default List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return getAASs().stream()
+                .map(projection::apply)
+                .collect(Collectors.toList());
+    }
+
+
     /**
      * Retrieves the Asset Administration Shell with the given ID.
      *
@@ -44,6 +64,21 @@ public interface AasRepository {
     public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException;
 
 
+    /**
+     * Retrieves the Asset Administration Shell with the given ID containing only the selected attributes. The default
+     * implementation projects the complete descriptor, implementations should avoid loading attributes that are not
+     * selected.
+     *
+     * @param aasId The ID of the desired Asset Administration Shell.
+     * @param projection The selected attributes.
+     * @return The desired Asset Administration Shell.
+     * @throws ResourceNotFoundException if the requested resource does not exist
+     */
+    public default AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        return projection.apply(getAAS(aasId));
+    }
+
+
     /**
      * Create the given Asset Administration Shell.
      *
@@ -152,4 +187,33 @@ public interface AasRepository {
      * @throws ResourceNotFoundException if the requested resource does not exist
      */
     public void deleteSubmodel(String submodelId) throws ResourceNotFoundException;
+
+
+    /**
+     * Searches the registered Asset Administration Shells.
+     *
+     * @param query The search criteria.
+     * @return The requested page of matching Asset Administration Shells ordered by ID.
+     */
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query);
+
+
+    /**
+     * Searches the registered Submodels. The asset kind criterion is ignored.
+     *
+     * @param query The search criteria.
+     * @return The requested page of matching Submodels ordered by ID.
+     */
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query);
+
+
+    /**
+     * Finds all Submodels carrying a semanticId with the given key value, together with the Asset Administration Shells
+     * exposing them.
+     *
+     * @param semanticId The key value of the semanticId.
+     * @return The matching Submodel IDs with the IDs of the exposing Asset Administration Shells. Submodels that are not
+     *         exposed by any Asset Administration Shell are reported without a shell ID.
+     */
+    public List<SemanticIdMatch> findBySemanticId(String semanticId);
 }
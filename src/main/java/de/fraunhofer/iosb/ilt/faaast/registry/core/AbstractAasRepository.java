@@ -89,6 +89,29 @@ public abstract class AbstractAasRepository implements AasRepository {
     }
 
 
+    /**
+     * Closes a wrapped repository if it holds resources, so that closing the outermost layer of a decorated repository
+     * closes all layers.
+     *
+     * @param delegate the wrapped repository
+     * @throws IllegalStateException if closing the wrapped repository fails
+     */
+    protected static void closeDelegate(AasRepository delegate) {
+        if (!(delegate instanceof AutoCloseable)) {
+            return;
+        }
+        try {
+            ((AutoCloseable) delegate).close();
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("closing the wrapped repository failed", e);
+        }
+    }
+
+
     /**
      * Helper method to ensure arguments are valid or correct exceptions are thrown.
      *
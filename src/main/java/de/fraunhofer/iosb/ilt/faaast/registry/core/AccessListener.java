@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core;
+
+/**
+ * Listener that is notified about every successful read of an individual descriptor. Notifications are delivered
+ * synchronously on the thread handling the request, so implementations must be cheap and thread-safe.
+ */
+public interface AccessListener {
+
+    /**
+     * Called after an Asset Administration Shell has been read.
+     *
+     * @param aasId The ID of the Asset Administration Shell.
+     */
+    public default void shellRead(String aasId) {}
+
+
+    /**
+     * Called after a Submodel has been read.
+     *
+     * @param aasId The ID of the Asset Administration Shell the Submodel has been read from, or null if the Submodel
+     *            has been read on its own.
+     * @param submodelId The ID of the Submodel.
+     */
+    public default void submodelRead(String aasId, String submodelId) {}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Listener that is notified about every successful modification of the registry. Notifications are delivered
+ * synchronously on the thread performing the modification after the repository has accepted it.
+ */
+public interface RegistryListener {
+
+    /**
+     * Called after an Asset Administration Shell has been created.
+     *
+     * @param aas The created Asset Administration Shell.
+     */
+    public default void shellCreated(AssetAdministrationShellDescriptor aas) {}
+
+
+    /**
+     * Called after an Asset Administration Shell has been updated.
+     *
+     * @param aasId The ID of the updated Asset Administration Shell.
+     * @param aas The new Asset Administration Shell.
+     */
+    public default void shellUpdated(String aasId, AssetAdministrationShellDescriptor aas) {}
+
+
+    /**
+     * Called after an Asset Administration Shell has been deleted.
+     *
+     * @param aasId The ID of the deleted Asset Administration Shell.
+     */
+    public default void shellDeleted(String aasId) {}
+
+
+    /**
+     * Called after a Submodel has been created.
+     *
+     * @param aasId The ID of the Asset Administration Shell the Submodel has been added to, or null if the Submodel has
+     *            been registered on its own.
+     * @param submodel The created Submodel.
+     */
+    public default void submodelCreated(String aasId, SubmodelDescriptor submodel) {}
+
+
+    /**
+     * Called after a Submodel has been deleted.
+     *
+     * @param aasId The ID of the Asset Administration Shell the Submodel has been removed from, or null if the
+     *            Submodel has been deleted on its own.
+     * @param submodelId The ID of the deleted Submodel.
+     */
+    public default void submodelDeleted(String aasId, String submodelId) {}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+/**
+ * Exception class for requests not supported by this instance, e.g. modifications on a read-only replica.
+ */
+@ResponseStatus(value = HttpStatus.METHOD_NOT_ALLOWED)
+public class MethodNotAllowedException extends RuntimeException {
+
+    public MethodNotAllowedException() {
+        super();
+    }
+
+
+    public MethodNotAllowedException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+
+    public MethodNotAllowedException(final String message) {
+        super(message);
+    }
+
+
+    public MethodNotAllowedException(final Throwable cause) {
+        super(cause);
+    }
+}
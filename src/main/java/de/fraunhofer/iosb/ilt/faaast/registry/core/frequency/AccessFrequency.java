@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.frequency;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AccessListener;
+
+
+/**
+ * Tracks how frequently individual shells and submodels are read. Submodels are tracked by their ID, regardless of
+ * whether they have been read via a shell or on their own.
+ */
+public class AccessFrequency implements AccessListener {
+
+    private final HotSet shells;
+    private final HotSet submodels;
+
+    /**
+     * Creates a new tracker.
+     *
+     * @param expectedSize the number of distinct shells and of submodels expected to be read frequently
+     * @param capacity maximum number of shells and of submodels retained for the top-K report
+     */
+    public AccessFrequency(int expectedSize, int capacity) {
+        this.shells = new HotSet(expectedSize, capacity);
+        this.submodels = new HotSet(expectedSize, capacity);
+    }
+
+
+    @Override
+    public void shellRead(String aasId) {
+        shells.record(aasId);
+    }
+
+
+    @Override
+    public void submodelRead(String aasId, String submodelId) {
+        submodels.record(submodelId);
+    }
+
+
+    /**
+     * The access frequencies of shells.
+     *
+     * @return the hot set of shells
+     */
+    public HotSet getShells() {
+        return shells;
+    }
+
+
+    /**
+     * The access frequencies of submodels.
+     *
+     * @return the hot set of submodels
+     */
+    public HotSet getSubmodels() {
+        return submodels;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.frequency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Approximate access frequency of keys in a Count-Min sketch with 4-bit counters, as used by the TinyLFU admission
+ * policy. Each key is counted in four counters, its frequency is estimated as the minimum of them, so estimates may
+ * be too high but never too low (up to 15). After {@code 10 * expectedSize} increments all counters are halved, so
+ * the sketch follows changes of the hot set instead of accumulating the whole history.
+ *
+ * <p>The sketch occupies about 8 bytes per expected key regardless of the number of distinct keys. The four counters
+ * of a key are located in the same 64-byte block, so an access touches a single cache line. All operations are
+ * lock-free; concurrent increments and halving may lose single increments, which only affects the approximation.
+ */
+public class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_COUNT = 15;
+    private static final int DEPTH = 4;
+    private static final int BLOCK_SHIFT = 3;
+
+    private final AtomicLongArray table;
+    private final int blockMask;
+    private final int sampleSize;
+    private final AtomicInteger size;
+    private final AtomicInteger resets;
+
+    /**
+     * Creates a new sketch.
+     *
+     * @param expectedSize the number of distinct keys expected to be tracked, e.g. the capacity of a cache
+     */
+    public FrequencySketch(int expectedSize) {
+        Ensure.require(expectedSize > 0, "expectedSize must be positive");
+        int tableSize = Math.max(1 << BLOCK_SHIFT, Integer.highestOneBit(Math.min(expectedSize, 1 << 30) - 1) << 1);
+        this.table = new AtomicLongArray(tableSize);
+        this.blockMask = (tableSize >>> BLOCK_SHIFT) - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * expectedSize);
+        this.size = new AtomicInteger();
+        this.resets = new AtomicInteger();
+    }
+
+
+    /**
+     * Increments the frequency of a key.
+     *
+     * @param key the key
+     * @return the estimated frequency after incrementing, between 1 and 15
+     */
+    public int increment(Object key) {
+        int blockHash = spread(key.hashCode());
+        int counterHash = rehash(blockHash);
+        int block = (blockHash & blockMask) << BLOCK_SHIFT;
+        boolean added = false;
+        int result = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            int hash = counterHash >>> (i << 3);
+            int count = incrementAt(block + (hash & 1) + (i << 1), ((hash >>> 1) & 15) << 2);
+            if (count >= 0) {
+                added = true;
+                result = Math.min(result, count);
+            }
+        }
+        if (added && size.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+        return result;
+    }
+
+
+    /**
+     * Estimates the frequency of a key.
+     *
+     * @param key the key
+     * @return the estimated frequency, between 0 and 15
+     */
+    public int frequency(Object key) {
+        int blockHash = spread(key.hashCode());
+        int counterHash = rehash(blockHash);
+        int block = (blockHash & blockMask) << BLOCK_SHIFT;
+        int result = MAX_COUNT;
+        for (int i = 0; i < DEPTH; i++) {
+            int hash = counterHash >>> (i << 3);
+            int offset = ((hash >>> 1) & 15) << 2;
+            int count = (int) ((table.get(block + (hash & 1) + (i << 1)) >>> offset) & 0xfL);
+            result = Math.min(result, count);
+        }
+        return result;
+    }
+
+
+    /**
+     * Counts how often the counters have been halved. Frequencies estimated before and after halving are not
+     * comparable.
+     *
+     * @return the number of resets
+     */
+    public int getResetCount() {
+        return resets.get();
+    }
+
+
+    /**
+     * Increments a counter unless it is saturated.
+     *
+     * @return the new value of the counter, or -1 if it is saturated
+     */
+    private int incrementAt(int index, int offset) {
+        long mask = 0xfL << offset;
+        long value;
+        do {
+            value = table.get(index);
+            if ((value & mask) == mask) {
+                return -1;
+            }
+        } while (!table.compareAndSet(index, value, value + (1L << offset)));
+        return (int) ((value >>> offset) & 0xfL) + 1;
+    }
+
+
+    private void reset() {
+        int current = size.get();
+        if (current < sampleSize || !size.compareAndSet(current, current / 2)) {
+            return;
+        }
+        int odd = 0;
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            long halved;
+            do {
+                value = table.get(i);
+                halved = (value >>> 1) & RESET_MASK;
+            } while (!table.compareAndSet(i, value, halved));
+            odd += Long.bitCount(value & ONE_MASK);
+        }
+        size.addAndGet(-(odd >>> 2) / 2);
+        resets.incrementAndGet();
+    }
+
+
+    private static int spread(int x) {
+        int result = ((x >>> 16) ^ x) * 0x45d9f3b;
+        result = ((result >>> 16) ^ result) * 0x45d9f3b;
+        return (result >>> 16) ^ result;
+    }
+
+
+    private static int rehash(int x) {
+        int result = x * 0x31848bab;
+        return result ^ (result >>> 14);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.frequency;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Tracks the most frequently accessed keys. Frequencies are estimated by a {@link FrequencySketch}; additionally up to
+ * {@code capacity} candidate keys with the highest estimates are retained, from which the top-K are reported.
+ *
+ * <p>Recording an access costs a sketch update and a map lookup. Only if a key that is not yet a candidate is
+ * estimated to be hotter than the coldest candidate, the candidates are updated under a lock.
+ */
+public class HotSet {
+
+    private final FrequencySketch sketch;
+    private final int capacity;
+    private final Map<String, Boolean> candidates;
+    private volatile int admissionThreshold;
+    private volatile int admissionThresholdResets;
+
+    /**
+     * Creates a new hot set.
+     *
+     * @param expectedSize the number of distinct keys expected to be accessed frequently
+     * @param capacity maximum number of candidates retained for the top-K report
+     */
+    public HotSet(int expectedSize, int capacity) {
+        Ensure.require(capacity > 0, "capacity must be positive");
+        this.sketch = new FrequencySketch(expectedSize);
+        this.capacity = capacity;
+        this.candidates = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Records an access of a key.
+     *
+     * @param key the key
+     */
+    public void record(String key) {
+        int frequency = sketch.increment(key);
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        if (candidates.size() < capacity
+                || frequency > admissionThreshold
+                || admissionThresholdResets != sketch.getResetCount()) {
+            admit(key, frequency);
+        }
+    }
+
+
+    /**
+     * Estimates the access frequency of a key.
+     *
+     * @param key the key
+     * @return the estimated frequency, between 0 and 15
+     */
+    public int frequency(String key) {
+        return sketch.frequency(key);
+    }
+
+
+    /**
+     * Gets the most frequently accessed keys.
+     *
+     * @param limit maximum number of keys
+     * @return the keys with their estimated frequency, most frequent first
+     */
+    public List<Map.Entry<String, Integer>> getTop(int limit) {
+        return estimateCandidates().stream()
+                .sorted(Map.Entry.<String, Integer> comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .toList();
+    }
+
+
+    /**
+     * Gets the sketch estimating the frequencies, e.g. to be used as admission policy.
+     *
+     * @return the sketch
+     */
+    public FrequencySketch getSketch() {
+        return sketch;
+    }
+
+
+    private synchronized void admit(String key, int frequency) {
+        if (candidates.containsKey(key)) {
+            return;
+        }
+        admissionThresholdResets = sketch.getResetCount();
+        if (candidates.size() >= capacity) {
+            Map.Entry<String, Integer> coldest = estimateCandidates().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            if (coldest.getValue() >= frequency) {
+                admissionThreshold = coldest.getValue();
+                return;
+            }
+            candidates.remove(coldest.getKey());
+        }
+        candidates.put(key, Boolean.TRUE);
+        if (candidates.size() >= capacity) {
+            admissionThreshold = estimateCandidates().stream()
+                    .mapToInt(Map.Entry::getValue)
+                    .min()
+                    .orElse(0);
+        }
+    }
+
+
+    private List<Map.Entry<String, Integer>> estimateCandidates() {
+        List<Map.Entry<String, Integer>> result = new ArrayList<>(candidates.size());
+        for (String key: candidates.keySet()) {
+            result.add(Map.entry(key, sketch.frequency(key)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.frequency;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * TinyLFU admission policy for caches of descriptors: a new entry only replaces the entry chosen for eviction if it
+ * has been accessed more frequently. This keeps one-off accesses, e.g. of a full listing, from flushing the hot
+ * entries out of the cache.
+ *
+ * <p>To keep an attacker from pinning entries by inflating their frequency, a candidate with a moderate frequency is
+ * admitted with a small probability even if it does not beat the victim.
+ */
+public class TinyLfuAdmission {
+
+    private static final int JITTER_THRESHOLD = 5;
+    private static final int JITTER_PROBABILITY = 128;
+
+    private final FrequencySketch sketch;
+
+    public TinyLfuAdmission(FrequencySketch sketch) {
+        Ensure.requireNonNull(sketch, "sketch must be non-null");
+        this.sketch = sketch;
+    }
+
+
+    /**
+     * Decides whether a candidate should replace a victim in the cache.
+     *
+     * @param candidate the key of the entry to add
+     * @param victim the key of the entry to evict
+     * @return true if the candidate should be admitted and the victim evicted
+     */
+    public boolean admit(Object candidate, Object victim) {
+        int candidateFrequency = sketch.frequency(candidate);
+        int victimFrequency = sketch.frequency(victim);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        else if (candidateFrequency <= JITTER_THRESHOLD) {
+            return false;
+        }
+        return ThreadLocalRandom.current().nextInt(JITTER_PROBABILITY) == 0;
+    }
+}
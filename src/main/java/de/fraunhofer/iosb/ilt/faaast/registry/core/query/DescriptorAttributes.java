@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AdministrativeInformation;
+import org.eclipse.digitaltwin.aas4j.v3.model.Key;
+import org.eclipse.digitaltwin.aas4j.v3.model.Reference;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.Endpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Helper class to extract the searchable attributes of descriptors and to evaluate a {@link DescriptorQuery} against
+ * a single descriptor.
+ */
+public class DescriptorAttributes {
+
+    private DescriptorAttributes() {}
+
+
+    /**
+     * Collects the key values of the semanticId of a submodel.
+     *
+     * @param submodel the submodel
+     * @return the key values of the semanticId, empty if there is none
+     */
+    public static Set<String> semanticIds(SubmodelDescriptor submodel) {
+        Set<String> result = new HashSet<>();
+        addKeyValues(submodel.getSemanticId(), result);
+        return result;
+    }
+
+
+    /**
+     * Collects the key values of the semanticIds of all submodels of a shell.
+     *
+     * @param aas the shell
+     * @return the key values of the semanticIds, empty if there are none
+     */
+    public static Set<String> semanticIds(AssetAdministrationShellDescriptor aas) {
+        Set<String> result = new HashSet<>();
+        if (Objects.nonNull(aas.getSubmodels())) {
+            for (SubmodelDescriptor submodel: aas.getSubmodels()) {
+                addKeyValues(submodel.getSemanticId(), result);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Collects the interface information of the given endpoints.
+     *
+     * @param endpoints the endpoints, may be null
+     * @return the interface information, empty if there is none
+     */
+    public static Set<String> endpointInterfaces(List<Endpoint> endpoints) {
+        Set<String> result = new HashSet<>();
+        if (Objects.nonNull(endpoints)) {
+            for (Endpoint endpoint: endpoints) {
+                if (Objects.nonNull(endpoint) && Objects.nonNull(endpoint.getInterfaceInformation())) {
+                    result.add(endpoint.getInterfaceInformation());
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Gets the version of the given administrative information.
+     *
+     * @param administration the administrative information, may be null
+     * @return the version or null if there is none
+     */
+    public static String administrationVersion(AdministrativeInformation administration) {
+        return Objects.nonNull(administration) ? administration.getVersion() : null;
+    }
+
+
+    /**
+     * Evaluates the criteria of a query against a shell. Paging information is ignored.
+     *
+     * @param query the query
+     * @param aas the shell
+     * @return true if the shell matches all criteria, false otherwise
+     */
+    public static boolean matches(DescriptorQuery query, AssetAdministrationShellDescriptor aas) {
+        return matchesPrefix(query.getIdShortPrefix(), aas.getIdShort())
+                && matchesAny(query.getSemanticId(), semanticIds(aas))
+                && matchesAny(query.getEndpointInterface(), endpointInterfaces(aas.getEndpoints()))
+                && matchesValue(query.getAdministrationVersion(), administrationVersion(aas.getAdministration()))
+                && matchesValue(query.getAssetKind(), aas.getAssetKind());
+    }
+
+
+    /**
+     * Evaluates the criteria of a query against a submodel. Paging information and the asset kind are ignored.
+     *
+     * @param query the query
+     * @param submodel the submodel
+     * @return true if the submodel matches all criteria, false otherwise
+     */
+    public static boolean matches(DescriptorQuery query, SubmodelDescriptor submodel) {
+        return matchesPrefix(query.getIdShortPrefix(), submodel.getIdShort())
+                && matchesAny(query.getSemanticId(), semanticIds(submodel))
+                && matchesAny(query.getEndpointInterface(), endpointInterfaces(submodel.getEndpoints()))
+                && matchesValue(query.getAdministrationVersion(), administrationVersion(submodel.getAdministration()));
+    }
+
+
+    private static void addKeyValues(Reference reference, Set<String> result) {
+        if (Objects.isNull(reference) || Objects.isNull(reference.getKeys())) {
+            return;
+        }
+        for (Key key: reference.getKeys()) {
+            if (Objects.nonNull(key) && Objects.nonNull(key.getValue())) {
+                result.add(key.getValue());
+            }
+        }
+    }
+
+
+    private static boolean matchesPrefix(String prefix, String value) {
+        return Objects.isNull(prefix) || (Objects.nonNull(value) && value.startsWith(prefix));
+    }
+
+
+    private static boolean matchesAny(String expected, Set<String> values) {
+        return Objects.isNull(expected) || values.contains(expected);
+    }
+
+
+    private static boolean matchesValue(Object expected, Object value) {
+        return Objects.isNull(expected) || Objects.equals(expected, value);
+    }
+}
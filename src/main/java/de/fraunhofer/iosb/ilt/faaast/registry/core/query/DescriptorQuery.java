@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import java.util.Objects;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Search criteria for Asset Administration Shell and Submodel descriptors. All criteria that are set must match
+ * (conjunction), criteria that are null are ignored. Results are ordered by descriptor ID and paged using offset and
+ * limit.
+ */
+public class DescriptorQuery {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 10000;
+
+    private String idShortPrefix;
+    private String semanticId;
+    private String endpointInterface;
+    private String administrationVersion;
+    private AssetKind assetKind;
+    private int offset;
+    private int limit;
+
+    public DescriptorQuery() {
+        offset = 0;
+        limit = DEFAULT_LIMIT;
+    }
+
+
+    /**
+     * Prefix the idShort of a descriptor must start with.
+     *
+     * @return the idShort prefix, or null if not constrained
+     */
+    public String getIdShortPrefix() {
+        return idShortPrefix;
+    }
+
+
+    /**
+     * Value of a key of the semanticId. For shells, any of its submodels must have a matching semanticId.
+     *
+     * @return the semanticId key value, or null if not constrained
+     */
+    public String getSemanticId() {
+        return semanticId;
+    }
+
+
+    /**
+     * Interface information of an endpoint of the descriptor, e.g. {@code SUBMODEL-3.0}.
+     *
+     * @return the endpoint interface, or null if not constrained
+     */
+    public String getEndpointInterface() {
+        return endpointInterface;
+    }
+
+
+    /**
+     * Version of the administrative information of the descriptor.
+     *
+     * @return the version, or null if not constrained
+     */
+    public String getAdministrationVersion() {
+        return administrationVersion;
+    }
+
+
+    /**
+     * Asset kind of a shell. Ignored for submodels.
+     *
+     * @return the asset kind, or null if not constrained
+     */
+    public AssetKind getAssetKind() {
+        return assetKind;
+    }
+
+
+    /**
+     * Index of the first result to return.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * Maximum number of results to return.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+
+    /**
+     * Checks whether this query contains any criteria at all.
+     *
+     * @return true if no criterion is set, false otherwise
+     */
+    public boolean isUnconstrained() {
+        return Objects.isNull(idShortPrefix)
+                && Objects.isNull(semanticId)
+                && Objects.isNull(endpointInterface)
+                && Objects.isNull(administrationVersion)
+                && Objects.isNull(assetKind);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idShortPrefix, semanticId, endpointInterface, administrationVersion, assetKind, offset, limit);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            DescriptorQuery other = (DescriptorQuery) obj;
+            return Objects.equals(this.idShortPrefix, other.idShortPrefix)
+                    && Objects.equals(this.semanticId, other.semanticId)
+                    && Objects.equals(this.endpointInterface, other.endpointInterface)
+                    && Objects.equals(this.administrationVersion, other.administrationVersion)
+                    && Objects.equals(this.assetKind, other.assetKind)
+                    && this.offset == other.offset
+                    && this.limit == other.limit;
+        }
+    }
+
+    public static class Builder {
+
+        private final DescriptorQuery query = new DescriptorQuery();
+
+        /**
+         * Copies all criteria and paging information of an existing query.
+         *
+         * @param other the query to copy
+         * @return this builder
+         */
+        public Builder from(DescriptorQuery other) {
+            query.idShortPrefix = other.idShortPrefix;
+            query.semanticId = other.semanticId;
+            query.endpointInterface = other.endpointInterface;
+            query.administrationVersion = other.administrationVersion;
+            query.assetKind = other.assetKind;
+            query.offset = other.offset;
+            query.limit = other.limit;
+            return this;
+        }
+
+
+        public Builder idShortPrefix(String value) {
+            query.idShortPrefix = value;
+            return this;
+        }
+
+
+        public Builder semanticId(String value) {
+            query.semanticId = value;
+            return this;
+        }
+
+
+        public Builder endpointInterface(String value) {
+            query.endpointInterface = value;
+            return this;
+        }
+
+
+        public Builder administrationVersion(String value) {
+            query.administrationVersion = value;
+            return this;
+        }
+
+
+        public Builder assetKind(AssetKind value) {
+            query.assetKind = value;
+            return this;
+        }
+
+
+        public Builder offset(int value) {
+            query.offset = value;
+            return this;
+        }
+
+
+        public Builder limit(int value) {
+            query.limit = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the query.
+         *
+         * @return the query
+         * @throws IllegalArgumentException if offset is negative or limit is not in range [1, {@link #MAX_LIMIT}]
+         */
+        public DescriptorQuery build() {
+            Ensure.require(query.offset >= 0, "offset must be non-negative");
+            Ensure.require(query.limit > 0 && query.limit <= MAX_LIMIT, String.format("limit must be between 1 and %d", MAX_LIMIT));
+            return query;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * One page of the results of a {@link DescriptorQuery}.
+ *
+ * @param <T> the type of the results
+ */
+public class PagedResult<T> {
+
+    private final List<T> items;
+    private final int offset;
+    private final int limit;
+    private final long total;
+
+    @JsonCreator
+    public PagedResult(@JsonProperty("items") List<T> items,
+                       @JsonProperty("offset") int offset,
+                       @JsonProperty("limit") int limit,
+                       @JsonProperty("total") long total) {
+        this.items = items;
+        this.offset = offset;
+        this.limit = limit;
+        this.total = total;
+    }
+
+
+    /**
+     * The results contained in this page.
+     *
+     * @return the results
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+
+    /**
+     * Index of the first result of this page within all results.
+     *
+     * @return the offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+
+    /**
+     * Maximum number of results per page.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+
+    /**
+     * Total number of results matching the query.
+     *
+     * @return the total number of results
+     */
+    public long getTotal() {
+        return total;
+    }
+
+
+    /**
+     * Checks whether there are more results after this page.
+     *
+     * @return true if there are more results, false otherwise
+     */
+    @JsonProperty("hasMore")
+    public boolean hasMore() {
+        return offset + items.size() < total;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(items, offset, limit, total);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            PagedResult<?> other = (PagedResult<?>) obj;
+            return Objects.equals(this.items, other.items)
+                    && this.offset == other.offset
+                    && this.limit == other.limit
+                    && this.total == other.total;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultAssetAdministrationShellDescriptor;
+
+
+/**
+ * Asset Administration Shell descriptor containing only the attributes selected by a {@link ShellProjection}.
+ * Attributes that are not set are omitted when serialized.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ProjectedAssetAdministrationShellDescriptor extends DefaultAssetAdministrationShellDescriptor {
+
+    public static class Builder extends DefaultAssetAdministrationShellDescriptor.AbstractBuilder<ProjectedAssetAdministrationShellDescriptor, Builder> {
+
+        @Override
+        protected Builder getSelf() {
+            return this;
+        }
+
+
+        @Override
+        protected ProjectedAssetAdministrationShellDescriptor newBuildingInstance() {
+            return new ProjectedAssetAdministrationShellDescriptor();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * A submodel carrying a requested semanticId together with the Asset Administration Shell exposing it.
+ */
+public class SemanticIdMatch {
+
+    private final String submodelId;
+    private final String aasId;
+
+    @JsonCreator
+    public SemanticIdMatch(@JsonProperty("submodelId") String submodelId, @JsonProperty("aasId") String aasId) {
+        this.submodelId = submodelId;
+        this.aasId = aasId;
+    }
+
+
+    /**
+     * The ID of the matching submodel.
+     *
+     * @return the submodel ID
+     */
+    public String getSubmodelId() {
+        return submodelId;
+    }
+
+
+    /**
+     * The ID of the shell exposing the submodel.
+     *
+     * @return the shell ID, or null if the submodel is registered without a shell
+     */
+    public String getAasId() {
+        return aasId;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(submodelId, aasId);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            SemanticIdMatch other = (SemanticIdMatch) obj;
+            return Objects.equals(this.submodelId, other.submodelId)
+                    && Objects.equals(this.aasId, other.aasId);
+        }
+    }
+}
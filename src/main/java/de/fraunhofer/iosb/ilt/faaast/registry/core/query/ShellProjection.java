@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Selection of the attributes of Asset Administration Shell descriptors a client is interested in (sparse fieldset).
+ * Attributes that are not selected are neither loaded by repositories supporting it nor serialized. The ID is always
+ * selected. Instead of the complete submodel descriptors, only their IDs can be selected ({@code submodels.id}).
+ */
+public class ShellProjection {
+
+    /**
+     * Attributes of a shell descriptor that can be selected, named like the attributes of the JSON serialization.
+     */
+    public enum Field {
+        ID("id"),
+        ID_SHORT("idShort"),
+        ASSET_KIND("assetKind"),
+        GLOBAL_ASSET_ID("globalAssetId"),
+        ADMINISTRATION("administration"),
+        ENDPOINTS("endpoints"),
+        DESCRIPTIONS("descriptions"),
+        DISPLAY_NAMES("displayNames"),
+        SPECIFIC_ASSET_IDS("specificAssetIds"),
+        SUBMODELS("submodels"),
+        SUBMODEL_IDS("submodels.id");
+
+        private final String name;
+
+        private Field(String name) {
+            this.name = name;
+        }
+
+
+        /**
+         * Gets the name of the attribute.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+
+        /**
+         * Looks up a field by the name of the attribute.
+         *
+         * @param name the name of the attribute
+         * @return the field
+         * @throws IllegalArgumentException if there is no attribute with that name
+         */
+        public static Field fromName(String name) {
+            return Arrays.stream(values())
+                    .filter(x -> x.name.equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException(String.format("unknown field '%s', supported fields: %s",
+                            name,
+                            Arrays.stream(values()).map(Field::getName).collect(Collectors.joining(", ")))));
+        }
+    }
+
+    public static final String LEVEL_CORE = "core";
+    public static final String LEVEL_FULL = "full";
+    public static final String SUBMODELS_NONE = "none";
+    public static final String SUBMODELS_IDS = "ids";
+    public static final String SUBMODELS_FULL = "full";
+
+    /**
+     * All attributes, i.e. the complete descriptor.
+     */
+    public static final ShellProjection FULL = new ShellProjection(EnumSet.complementOf(EnumSet.of(Field.SUBMODEL_IDS)));
+
+    /**
+     * ID, idShort and endpoints, i.e. the attributes needed to locate and connect to a shell.
+     */
+    public static final ShellProjection CORE = new ShellProjection(EnumSet.of(Field.ID, Field.ID_SHORT, Field.ENDPOINTS));
+
+    private final Set<Field> fields;
+
+    private ShellProjection(Set<Field> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+
+    /**
+     * Creates a projection selecting the given attributes and the ID. The submodel IDs are ignored if the complete
+     * submodels are selected.
+     *
+     * @param fields the attributes
+     * @return the projection
+     */
+    public static ShellProjection of(Set<Field> fields) {
+        Ensure.requireNonNull(fields, "fields must be non-null");
+        EnumSet<Field> result = EnumSet.of(Field.ID);
+        result.addAll(fields);
+        if (result.contains(Field.SUBMODELS)) {
+            result.remove(Field.SUBMODEL_IDS);
+        }
+        return new ShellProjection(result);
+    }
+
+
+    /**
+     * Parses a projection from request parameters. The selected attributes are the union of the level and the list of
+     * attributes. If neither is given, the complete descriptor is selected.
+     *
+     * @param fields comma-separated names of attributes, may be null
+     * @param level {@link #LEVEL_CORE} or {@link #LEVEL_FULL}, may be null
+     * @return the projection
+     * @throws IllegalArgumentException if the level or a name of an attribute is unknown
+     */
+    public static ShellProjection parse(String fields, String level) {
+        return parse(fields, level, null);
+    }
+
+
+    /**
+     * Parses a projection from request parameters. The selected attributes are the union of the level and the list of
+     * attributes, or the complete descriptor if neither is given. The submodel mode then replaces the selection of the
+     * submodels.
+     *
+     * @param fields comma-separated names of attributes, may be null
+     * @param level {@link #LEVEL_CORE} or {@link #LEVEL_FULL}, may be null
+     * @param submodels {@link #SUBMODELS_NONE}, {@link #SUBMODELS_IDS} or {@link #SUBMODELS_FULL}, may be null
+     * @return the projection
+     * @throws IllegalArgumentException if the level, the submodel mode or a name of an attribute is unknown
+     */
+    public static ShellProjection parse(String fields, String level, String submodels) {
+        EnumSet<Field> result = EnumSet.noneOf(Field.class);
+        if (Objects.isNull(fields) && Objects.isNull(level)) {
+            result.addAll(FULL.fields);
+        }
+        if (Objects.nonNull(level)) {
+            if (LEVEL_CORE.equals(level)) {
+                result.addAll(CORE.fields);
+            }
+            else if (LEVEL_FULL.equals(level)) {
+                result.addAll(FULL.fields);
+            }
+            else {
+                throw new IllegalArgumentException(String.format("unknown level '%s', supported levels: %s, %s", level, LEVEL_CORE, LEVEL_FULL));
+            }
+        }
+        if (Objects.nonNull(fields)) {
+            Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .filter(x -> !x.isEmpty())
+                    .map(Field::fromName)
+                    .forEach(result::add);
+        }
+        if (Objects.nonNull(submodels)) {
+            result.removeAll(EnumSet.of(Field.SUBMODELS, Field.SUBMODEL_IDS));
+            if (SUBMODELS_IDS.equals(submodels)) {
+                result.add(Field.SUBMODEL_IDS);
+            }
+            else if (SUBMODELS_FULL.equals(submodels)) {
+                result.add(Field.SUBMODELS);
+            }
+            else if (!SUBMODELS_NONE.equals(submodels)) {
+                throw new IllegalArgumentException(String.format("unknown submodel mode '%s', supported modes: %s, %s, %s",
+                        submodels, SUBMODELS_NONE, SUBMODELS_IDS, SUBMODELS_FULL));
+            }
+        }
+        return of(result);
+    }
+
+
+    /**
+     * Gets the selected attributes.
+     *
+     * @return the selected attributes
+     */
+    public Set<Field> getFields() {
+        return fields;
+    }
+
+
+    /**
+     * Checks whether an attribute is selected.
+     *
+     * @param field the attribute
+     * @return true if the attribute is selected, false otherwise
+     */
+    public boolean includes(Field field) {
+        return fields.contains(field);
+    }
+
+
+    /**
+     * Checks whether all attributes are selected.
+     *
+     * @return true if the complete descriptor is selected, false otherwise
+     */
+    public boolean isFull() {
+        return fields.equals(FULL.fields);
+    }
+
+
+    /**
+     * Creates a copy of a descriptor only containing the selected attributes. Nested objects are shared with the given
+     * descriptor.
+     *
+     * @param descriptor the descriptor
+     * @return the projected descriptor, or the given descriptor if all attributes are selected
+     */
+    public AssetAdministrationShellDescriptor apply(AssetAdministrationShellDescriptor descriptor) {
+        if (isFull() || Objects.isNull(descriptor)) {
+            return descriptor;
+        }
+        return apply(descriptor, includes(Field.SUBMODEL_IDS)
+                ? descriptor.getSubmodels().stream().map(SubmodelDescriptor::getId).collect(Collectors.toList())
+                : List.of());
+    }
+
+
+    /**
+     * Creates a copy of a descriptor only containing the selected attributes, taking the submodel IDs from the given
+     * list instead of the submodels of the descriptor. Used by repositories that load the IDs separately.
+     *
+     * @param descriptor the descriptor
+     * @param submodelIds the IDs of the submodels of the shell, only used if the submodel IDs are selected
+     * @return the projected descriptor, or the given descriptor if all attributes are selected
+     */
+    public AssetAdministrationShellDescriptor apply(AssetAdministrationShellDescriptor descriptor, List<String> submodelIds) {
+        if (isFull() || Objects.isNull(descriptor)) {
+            return descriptor;
+        }
+        ProjectedAssetAdministrationShellDescriptor.Builder builder = new ProjectedAssetAdministrationShellDescriptor.Builder()
+                .id(descriptor.getId());
+        if (includes(Field.ID_SHORT)) {
+            builder.idShort(descriptor.getIdShort());
+        }
+        if (includes(Field.ASSET_KIND)) {
+            builder.assetKind(descriptor.getAssetKind());
+        }
+        if (includes(Field.GLOBAL_ASSET_ID)) {
+            builder.globalAssetId(descriptor.getGlobalAssetId());
+        }
+        if (includes(Field.ADMINISTRATION)) {
+            builder.administration(descriptor.getAdministration());
+        }
+        if (includes(Field.ENDPOINTS)) {
+            builder.endpoints(descriptor.getEndpoints());
+        }
+        if (includes(Field.DESCRIPTIONS)) {
+            builder.descriptions(descriptor.getDescriptions());
+        }
+        if (includes(Field.DISPLAY_NAMES)) {
+            builder.displayNames(descriptor.getDisplayNames());
+        }
+        if (includes(Field.SPECIFIC_ASSET_IDS)) {
+            builder.specificAssetIds(descriptor.getSpecificAssetIds());
+        }
+        if (includes(Field.SUBMODELS)) {
+            builder.submodels(descriptor.getSubmodels());
+        }
+        else if (includes(Field.SUBMODEL_IDS)) {
+            builder.submodels(submodelIds.stream()
+                    .map(x -> new ProjectedSubmodelDescriptor.Builder()
+                            .id(x)
+                            .build())
+                    .collect(Collectors.toList()));
+        }
+        return builder.build();
+    }
+
+
+    /**
+     * Formats the selected attributes as accepted by {@link #parse(String, String)}.
+     *
+     * @return the comma-separated names of the selected attributes
+     */
+    @Override
+    public String toString() {
+        return fields.stream()
+                .map(Field::getName)
+                .collect(Collectors.joining(","));
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            ShellProjection other = (ShellProjection) obj;
+            return Objects.equals(this.fields, other.fields);
+        }
+    }
+}
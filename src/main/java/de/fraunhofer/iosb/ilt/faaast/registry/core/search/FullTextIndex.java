@@ -0,0 +1,477 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AbstractLangString;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.SearchHit.Kind;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Embedded full-text index over the idShort, displayNames and descriptions of shell and submodel descriptors.
+ *
+ * <p>Texts of all languages are tokenized into lower-case words; camel-case and letter/digit boundaries additionally
+ * produce indexed sub-words, so that {@code TechnicalData} is found by {@code technical}. Search texts are split into
+ * complete words only. Matches are ranked using BM25 with matches in the idShort weighted higher than matches in
+ * displayNames, which in turn are weighted higher than matches in descriptions. Postings are kept in primitive arrays; deleted documents are skipped at query time and purged once
+ * they outnumber the live documents.
+ *
+ * <p>This class is thread-safe.
+ */
+public class FullTextIndex {
+
+    private static final float WEIGHT_ID_SHORT = 3.0f;
+    private static final float WEIGHT_DISPLAY_NAME = 2.0f;
+    private static final float WEIGHT_DESCRIPTION = 1.0f;
+    private static final float BM25_K1 = 1.2f;
+    private static final float BM25_B = 0.75f;
+    private static final float MIN_IDF = 0.001f;
+    private static final int MIN_DELETED_FOR_COMPACTION = 1024;
+    private static final int MIN_SUB_WORD_LENGTH = 2;
+
+    private final ReadWriteLock lock;
+    private final Map<String, Postings> postings;
+    private final List<Document> documents;
+    private final Map<String, Integer> shellDocuments;
+    private final Map<String, Integer> submodelDocuments;
+    private final Map<String, Set<String>> submodelsByShell;
+    private int liveDocuments;
+    private int deletedDocuments;
+    private double totalLength;
+
+    public FullTextIndex() {
+        lock = new ReentrantReadWriteLock();
+        postings = new HashMap<>();
+        documents = new ArrayList<>();
+        shellDocuments = new HashMap<>();
+        submodelDocuments = new HashMap<>();
+        submodelsByShell = new HashMap<>();
+    }
+
+
+    /**
+     * Adds a shell and all of its submodels to the index. If the shell is already indexed, it is replaced including
+     * the submodels previously indexed for it.
+     *
+     * @param aas the shell
+     */
+    public void addShell(AssetAdministrationShellDescriptor aas) {
+        lock.writeLock().lock();
+        try {
+            removeShellInternal(aas.getId());
+            Map<String, Float> terms = new HashMap<>();
+            addTerms(terms, aas.getIdShort(), WEIGHT_ID_SHORT);
+            addTerms(terms, aas.getDisplayNames(), WEIGHT_DISPLAY_NAME);
+            addTerms(terms, aas.getDescriptions(), WEIGHT_DESCRIPTION);
+            shellDocuments.put(aas.getId(), addDocument(new Document(Kind.SHELL, aas.getId(), null, terms), terms));
+            if (Objects.nonNull(aas.getSubmodels())) {
+                for (SubmodelDescriptor submodel: aas.getSubmodels()) {
+                    addSubmodelInternal(aas.getId(), submodel);
+                }
+            }
+            compactIfNecessary();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes a shell and the submodels indexed for it.
+     *
+     * @param aasId the ID of the shell
+     */
+    public void removeShell(String aasId) {
+        lock.writeLock().lock();
+        try {
+            removeShellInternal(aasId);
+            compactIfNecessary();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Adds a submodel to the index. If the submodel is already indexed, it is replaced.
+     *
+     * @param aasId the ID of the shell exposing the submodel, or null if the submodel is registered on its own
+     * @param submodel the submodel
+     */
+    public void addSubmodel(String aasId, SubmodelDescriptor submodel) {
+        lock.writeLock().lock();
+        try {
+            addSubmodelInternal(aasId, submodel);
+            compactIfNecessary();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes a submodel from the index.
+     *
+     * @param submodelId the ID of the submodel
+     */
+    public void removeSubmodel(String submodelId) {
+        lock.writeLock().lock();
+        try {
+            removeSubmodelInternal(submodelId);
+            compactIfNecessary();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Removes all documents.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            shellDocuments.clear();
+            submodelDocuments.clear();
+            submodelsByShell.clear();
+            liveDocuments = 0;
+            deletedDocuments = 0;
+            totalLength = 0;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Gets the number of indexed descriptors.
+     *
+     * @return the number of indexed descriptors
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Searches the index. A descriptor matches if it contains any of the words of the search text.
+     *
+     * @param text the search text
+     * @param offset index of the first hit to return
+     * @param limit maximum number of hits to return
+     * @return the requested page of hits ordered by descending score
+     */
+    public PagedResult<SearchHit> search(String text, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(text, false));
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty() || liveDocuments == 0) {
+                return new PagedResult<>(List.of(), offset, limit, 0);
+            }
+            float averageLength = (float) (totalLength / liveDocuments);
+            float[] scores = new float[documents.size()];
+            int[] matches = new int[64];
+            int matchCount = 0;
+            for (String term: terms) {
+                Postings termPostings = postings.get(term);
+                if (Objects.isNull(termPostings)) {
+                    continue;
+                }
+                float idf = (float) Math.max(MIN_IDF,
+                        Math.log(1.0 + (liveDocuments - termPostings.size + 0.5) / (termPostings.size + 0.5)));
+                for (int i = 0; i < termPostings.size; i++) {
+                    int doc = termPostings.documents[i];
+                    Document document = documents.get(doc);
+                    if (Objects.isNull(document)) {
+                        continue;
+                    }
+                    float frequency = termPostings.weights[i];
+                    float norm = BM25_K1 * (1 - BM25_B + BM25_B * document.length / averageLength);
+                    if (scores[doc] == 0) {
+                        if (matchCount == matches.length) {
+                            matches = Arrays.copyOf(matches, matchCount * 2);
+                        }
+                        matches[matchCount++] = doc;
+                    }
+                    scores[doc] += idf * frequency * (BM25_K1 + 1) / (frequency + norm);
+                }
+            }
+            return new PagedResult<>(topHits(scores, matches, matchCount, offset, limit), offset, limit, matchCount);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Splits a text into lower-case words.
+     *
+     * @param text the text, may be null
+     * @param includeSubWords if true, camel-case and letter/digit boundaries within a word produce additional
+     *            sub-words of at least two characters besides the complete word
+     * @return the words in order of occurrence
+     */
+    public static List<String> tokenize(String text, boolean includeSubWords) {
+        List<String> result = new ArrayList<>();
+        if (Objects.isNull(text)) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordCharacter && start < 0) {
+                start = i;
+            }
+            else if (!isWordCharacter && start >= 0) {
+                addWord(text, start, i, includeSubWords, result);
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+
+    private static void addWord(String text, int start, int end, boolean includeSubWords, List<String> result) {
+        result.add(text.substring(start, end).toLowerCase(Locale.ROOT));
+        if (!includeSubWords) {
+            return;
+        }
+        int partStart = start;
+        for (int i = start + 1; i < end; i++) {
+            char previous = text.charAt(i - 1);
+            char current = text.charAt(i);
+            boolean isBoundary = (Character.isLowerCase(previous) && Character.isUpperCase(current))
+                    || (Character.isDigit(previous) != Character.isDigit(current));
+            if (isBoundary) {
+                addSubWord(text, partStart, i, result);
+                partStart = i;
+            }
+        }
+        if (partStart > start) {
+            addSubWord(text, partStart, end, result);
+        }
+    }
+
+
+    private static void addSubWord(String text, int start, int end, List<String> result) {
+        if (end - start >= MIN_SUB_WORD_LENGTH) {
+            result.add(text.substring(start, end).toLowerCase(Locale.ROOT));
+        }
+    }
+
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        for (String term: tokenize(text, true)) {
+            terms.merge(term, weight, Float::sum);
+        }
+    }
+
+
+    private static void addTerms(Map<String, Float> terms, List<? extends AbstractLangString> texts, float weight) {
+        if (Objects.isNull(texts)) {
+            return;
+        }
+        for (AbstractLangString text: texts) {
+            if (Objects.nonNull(text)) {
+                addTerms(terms, text.getText(), weight);
+            }
+        }
+    }
+
+
+    private List<SearchHit> topHits(float[] scores, int[] matches, int matchCount, int offset, int limit) {
+        int size = offset + limit;
+        if (matchCount <= offset) {
+            return List.of();
+        }
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(size, matchCount), (a, b) -> compareHits(scores, a, b));
+        for (int i = 0; i < matchCount; i++) {
+            top.add(matches[i]);
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ranked.add(top.poll());
+        }
+        List<SearchHit> result = new ArrayList<>(Math.min(limit, ranked.size() - offset));
+        for (int i = ranked.size() - 1 - offset; i >= 0; i--) {
+            Document document = documents.get(ranked.get(i));
+            result.add(new SearchHit(document.kind, document.id, document.aasId, scores[ranked.get(i)]));
+        }
+        return result;
+    }
+
+
+    /**
+     * Orders hits by ascending relevance, i.e. by ascending score and for equal scores by descending insertion order.
+     */
+    private static int compareHits(float[] scores, int a, int b) {
+        int result = Float.compare(scores[a], scores[b]);
+        return result != 0 ? result : Integer.compare(b, a);
+    }
+
+
+    private void addSubmodelInternal(String aasId, SubmodelDescriptor submodel) {
+        removeSubmodelInternal(submodel.getId());
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, submodel.getIdShort(), WEIGHT_ID_SHORT);
+        addTerms(terms, submodel.getDisplayNames(), WEIGHT_DISPLAY_NAME);
+        addTerms(terms, submodel.getDescriptions(), WEIGHT_DESCRIPTION);
+        submodelDocuments.put(submodel.getId(), addDocument(new Document(Kind.SUBMODEL, submodel.getId(), aasId, terms), terms));
+        if (Objects.nonNull(aasId)) {
+            submodelsByShell.computeIfAbsent(aasId, x -> new HashSet<>()).add(submodel.getId());
+        }
+    }
+
+
+    private void removeShellInternal(String aasId) {
+        removeDocument(shellDocuments.remove(aasId));
+        Set<String> submodelIds = submodelsByShell.remove(aasId);
+        if (Objects.nonNull(submodelIds)) {
+            submodelIds.forEach(this::removeSubmodelInternal);
+        }
+    }
+
+
+    private void removeSubmodelInternal(String submodelId) {
+        Integer doc = submodelDocuments.remove(submodelId);
+        if (Objects.isNull(doc)) {
+            return;
+        }
+        String aasId = documents.get(doc).aasId;
+        if (Objects.nonNull(aasId) && submodelsByShell.containsKey(aasId)) {
+            submodelsByShell.get(aasId).remove(submodelId);
+        }
+        removeDocument(doc);
+    }
+
+
+    private int addDocument(Document document, Map<String, Float> terms) {
+        int doc = documents.size();
+        documents.add(document);
+        for (Map.Entry<String, Float> term: terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), x -> new Postings()).add(doc, term.getValue());
+        }
+        liveDocuments++;
+        totalLength += document.length;
+        return doc;
+    }
+
+
+    private void removeDocument(Integer doc) {
+        if (Objects.isNull(doc)) {
+            return;
+        }
+        Document document = documents.set(doc, null);
+        liveDocuments--;
+        deletedDocuments++;
+        totalLength -= document.length;
+    }
+
+
+    private void compactIfNecessary() {
+        if (deletedDocuments < MIN_DELETED_FOR_COMPACTION || deletedDocuments < liveDocuments) {
+            return;
+        }
+        Iterator<Postings> iterator = postings.values().iterator();
+        while (iterator.hasNext()) {
+            Postings termPostings = iterator.next();
+            termPostings.retainLive(documents);
+            if (termPostings.size == 0) {
+                iterator.remove();
+            }
+        }
+        deletedDocuments = 0;
+    }
+
+    private static class Document {
+
+        private final Kind kind;
+        private final String id;
+        private final String aasId;
+        private final float length;
+
+        private Document(Kind kind, String id, String aasId, Map<String, Float> terms) {
+            this.kind = kind;
+            this.id = id;
+            this.aasId = aasId;
+            this.length = (float) terms.values().stream().mapToDouble(Float::doubleValue).sum();
+        }
+    }
+
+    private static class Postings {
+
+        private int[] documents = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        private void add(int document, float weight) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            documents[size] = document;
+            weights[size] = weight;
+            size++;
+        }
+
+
+        private void retainLive(List<Document> allDocuments) {
+            int retained = 0;
+            for (int i = 0; i < size; i++) {
+                if (Objects.nonNull(allDocuments.get(documents[i]))) {
+                    documents[retained] = documents[i];
+                    weights[retained] = weights[i];
+                    retained++;
+                }
+            }
+            size = retained;
+        }
+    }
+}
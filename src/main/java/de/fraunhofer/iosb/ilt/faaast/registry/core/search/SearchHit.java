@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core.search;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * A descriptor matching a full-text search together with its relevance score.
+ */
+public class SearchHit {
+
+    /**
+     * Kind of descriptor a hit refers to.
+     */
+    public enum Kind {
+        SHELL,
+        SUBMODEL
+    }
+
+    private final Kind kind;
+    private final String id;
+    private final String aasId;
+    private final float score;
+
+    @JsonCreator
+    public SearchHit(@JsonProperty("kind") Kind kind,
+                     @JsonProperty("id") String id,
+                     @JsonProperty("aasId") String aasId,
+                     @JsonProperty("score") float score) {
+        this.kind = kind;
+        this.id = id;
+        this.aasId = aasId;
+        this.score = score;
+    }
+
+
+    /**
+     * The kind of the matching descriptor.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+
+    /**
+     * The ID of the matching descriptor.
+     *
+     * @return the ID
+     */
+    public String getId() {
+        return id;
+    }
+
+
+    /**
+     * The ID of the shell exposing a matching submodel.
+     *
+     * @return the shell ID, or null for shells and submodels registered without a shell
+     */
+    public String getAasId() {
+        return aasId;
+    }
+
+
+    /**
+     * The relevance score, higher is better.
+     *
+     * @return the score
+     */
+    public float getScore() {
+        return score;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, id, aasId, score);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            SearchHit other = (SearchHit) obj;
+            return Objects.equals(this.kind, other.kind)
+                    && Objects.equals(this.id, other.id)
+                    && Objects.equals(this.aasId, other.aasId)
+                    && Float.compare(this.score, other.score) == 0;
+        }
+    }
+}
@@ -14,24 +14,43 @@
  */
 package de.fraunhofer.iosb.ilt.faaast.registry.jpa;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
 import org.springframework.stereotype.Repository;
 
 import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
 import de.fraunhofer.iosb.ilt.faaast.registry.jpa.model.JpaAssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.registry.jpa.model.JpaSubmodelDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.registry.jpa.util.EntityManagerHelper;
 import de.fraunhofer.iosb.ilt.faaast.registry.jpa.util.ModelTransformationHelper;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultAssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
 
 
@@ -42,6 +61,41 @@ import jakarta.transaction.Transactional;
 @Transactional
 public class AasRepositoryJpa extends AbstractAasRepository {
 
+    /**
+     * Associations of a shell that are initialized before a shell is handed out. Each path results in one query per
+     * page of shells.
+     */
+    private static final List<String> SHELL_FETCH_PATHS = List.of(
+            "administration",
+            "endpoints.protocolInformation",
+            "descriptions",
+            "displayNames",
+            "specificAssetIds",
+            "submodels");
+
+    /**
+     * Associations of a submodel that are initialized before a submodel is handed out. Each path results in one query
+     * per page of submodels.
+     */
+    private static final List<String> SUBMODEL_FETCH_PATHS = List.of(
+            "administration",
+            "endpoints.protocolInformation",
+            "descriptions",
+            "displayNames",
+            "semanticId.keys");
+
+    /**
+     * Associations of a shell that are initialized for a selected attribute of a projection. Attributes not contained
+     * are columns of the shell itself.
+     */
+    private static final Map<ShellProjection.Field, String> PROJECTION_FETCH_PATHS = Map.of(
+            ShellProjection.Field.ADMINISTRATION, "administration",
+            ShellProjection.Field.ENDPOINTS, "endpoints.protocolInformation",
+            ShellProjection.Field.DESCRIPTIONS, "descriptions",
+            ShellProjection.Field.DISPLAY_NAMES, "displayNames",
+            ShellProjection.Field.SPECIFIC_ASSET_IDS, "specificAssetIds",
+            ShellProjection.Field.SUBMODELS, "submodels");
+
     @PersistenceContext(name = "AASRepositoryJPA")
     private final EntityManager entityManager;
 
@@ -52,19 +106,72 @@ public class AasRepositoryJpa extends AbstractAasRepository {
 
     @Override
     public List<AssetAdministrationShellDescriptor> getAASs() {
-        return EntityManagerHelper.getAll(entityManager, JpaAssetAdministrationShellDescriptor.class, AssetAdministrationShellDescriptor.class);
+        List<JpaAssetAdministrationShellDescriptor> result = EntityManagerHelper.getAll(entityManager, JpaAssetAdministrationShellDescriptor.class);
+        fetchShells(result);
+        return new ArrayList<>(result);
+    }
+
+
+    /**
+     * Retrieves all shells containing only the selected attributes. Projections selecting only columns of the shell are
+     * answered by a tuple query without loading any entity, otherwise only the associations of the selected attributes
+     * are initialized. Submodel IDs are read by a tuple query without initializing the submodels.
+     *
+     * @param projection the selected attributes
+     * @return the projected shells
+     */
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        Ensure.requireNonNull(projection, "projection must be non-null");
+        if (projection.isFull()) {
+            return getAASs();
+        }
+        List<String> paths = fetchPaths(projection);
+        List<? extends AssetAdministrationShellDescriptor> shells;
+        if (paths.isEmpty()) {
+            shells = getShellColumns();
+        }
+        else {
+            List<JpaAssetAdministrationShellDescriptor> entities = EntityManagerHelper.getAll(entityManager, JpaAssetAdministrationShellDescriptor.class);
+            fetchShells(entities, paths);
+            shells = entities;
+        }
+        Map<String, List<String>> submodelIds = projection.includes(ShellProjection.Field.SUBMODEL_IDS)
+                ? getSubmodelIds(null)
+                : Map.of();
+        return shells.stream()
+                .map(x -> projection.apply(x, submodelIds.getOrDefault(x.getId(), List.of())))
+                .collect(Collectors.toList());
     }
 
 
     @Override
     public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
         Ensure.requireNonNull(aasId, "id must be non-null");
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+        JpaAssetAdministrationShellDescriptor aas = fetchAAS(aasId);
         Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+        fetchShells(List.of(aas));
         return aas;
     }
 
 
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        Ensure.requireNonNull(aasId, "id must be non-null");
+        Ensure.requireNonNull(projection, "projection must be non-null");
+        if (projection.isFull()) {
+            return getAAS(aasId);
+        }
+        JpaAssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+        fetchShells(List.of(aas), fetchPaths(projection));
+        List<String> submodelIds = projection.includes(ShellProjection.Field.SUBMODEL_IDS)
+                ? getSubmodelIds(List.of(aasId)).getOrDefault(aasId, List.of())
+                : List.of();
+        return projection.apply(aas, submodelIds);
+    }
+
+
     @Override
     public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
         ensureDescriptorId(descriptor);
@@ -89,7 +196,7 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
         ensureAasId(aasId);
         ensureDescriptorId(descriptor);
-        JpaAssetAdministrationShellDescriptor aas = fetchAAS(descriptor.getId());
+        JpaAssetAdministrationShellDescriptor aas = fetchAAS(aasId);
         Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
         return entityManager.merge(new JpaAssetAdministrationShellDescriptor.Builder()
                 .id(aas.getId())
@@ -101,15 +208,18 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     @Override
     public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
         ensureAasId(aasId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+        JpaAssetAdministrationShellDescriptor aas = fetchAAS(aasId);
         Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+        fetchShells(List.of(aas));
         return aas.getSubmodels();
     }
 
 
     @Override
     public List<SubmodelDescriptor> getSubmodels() {
-        return EntityManagerHelper.getAll(entityManager, JpaSubmodelDescriptor.class, SubmodelDescriptor.class);
+        List<JpaSubmodelDescriptor> result = EntityManagerHelper.getAll(entityManager, JpaSubmodelDescriptor.class);
+        fetchSubmodels(result);
+        return new ArrayList<>(result);
     }
 
 
@@ -117,8 +227,9 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
         ensureAasId(aasId);
         ensureSubmodelId(submodelId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+        JpaAssetAdministrationShellDescriptor aas = fetchAAS(aasId);
         Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+        fetchShells(List.of(aas));
 
         List<SubmodelDescriptor> submodels = aas.getSubmodels();
         Optional<SubmodelDescriptor> submodel = submodels.stream()
@@ -133,8 +244,9 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     @Override
     public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
         ensureSubmodelId(submodelId);
-        SubmodelDescriptor submodel = fetchSubmodel(submodelId);
+        JpaSubmodelDescriptor submodel = fetchSubmodel(submodelId);
         Ensure.requireNonNull(submodel, buildSubmodelNotFoundException(submodelId));
+        fetchSubmodels(List.of(submodel));
         return submodel;
     }
 
@@ -193,6 +305,213 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     }
 
 
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        PagedResult<String> ids = findIds(JpaAssetAdministrationShellDescriptor.class, query, true);
+        List<JpaAssetAdministrationShellDescriptor> result = fetchByIds(JpaAssetAdministrationShellDescriptor.class, JpaAssetAdministrationShellDescriptor::getId, ids.getItems());
+        fetchShells(result);
+        return new PagedResult<>(new ArrayList<>(result), ids.getOffset(), ids.getLimit(), ids.getTotal());
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        PagedResult<String> ids = findIds(JpaSubmodelDescriptor.class, query, false);
+        List<JpaSubmodelDescriptor> result = fetchByIds(JpaSubmodelDescriptor.class, JpaSubmodelDescriptor::getId, ids.getItems());
+        fetchSubmodels(result);
+        return new PagedResult<>(new ArrayList<>(result), ids.getOffset(), ids.getLimit(), ids.getTotal());
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        Ensure.requireNonNull(semanticId, "semanticId must be non-null");
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Object[]> exposedQuery = builder.createQuery(Object[].class);
+        Root<JpaAssetAdministrationShellDescriptor> aas = exposedQuery.from(JpaAssetAdministrationShellDescriptor.class);
+        Join<?, ?> exposedSubmodel = aas.join("submodels");
+        exposedQuery.multiselect(exposedSubmodel.get("id"), aas.get("id"))
+                .distinct(true)
+                .where(builder.equal(exposedSubmodel.join("semanticId").join("keys").get("value"), semanticId));
+
+        CriteriaQuery<String> submodelQuery = builder.createQuery(String.class);
+        Root<JpaSubmodelDescriptor> submodel = submodelQuery.from(JpaSubmodelDescriptor.class);
+        submodelQuery.select(submodel.<String> get("id"))
+                .distinct(true)
+                .where(builder.equal(submodel.join("semanticId").join("keys").get("value"), semanticId));
+
+        List<SemanticIdMatch> result = new ArrayList<>();
+        Set<String> exposed = new HashSet<>();
+        for (Object[] row: entityManager.createQuery(exposedQuery).getResultList()) {
+            exposed.add((String) row[0]);
+            result.add(new SemanticIdMatch((String) row[0], (String) row[1]));
+        }
+        for (String submodelId: entityManager.createQuery(submodelQuery).getResultList()) {
+            if (!exposed.contains(submodelId)) {
+                result.add(new SemanticIdMatch(submodelId, null));
+            }
+        }
+        return result;
+    }
+
+
+    private static List<String> fetchPaths(ShellProjection projection) {
+        return projection.getFields().stream()
+                .filter(PROJECTION_FETCH_PATHS::containsKey)
+                .map(PROJECTION_FETCH_PATHS::get)
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Reads the columns of all shells without loading any entity.
+     *
+     * @return unmanaged shells only containing the columns of the shell
+     */
+    private List<AssetAdministrationShellDescriptor> getShellColumns() {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+        Root<JpaAssetAdministrationShellDescriptor> root = criteria.from(JpaAssetAdministrationShellDescriptor.class);
+        criteria.multiselect(root.get("id"), root.get("idShort"), root.get("assetKind"), root.get("globalAssetId"));
+        return entityManager.createQuery(criteria).getResultList().stream()
+                .map(x -> new DefaultAssetAdministrationShellDescriptor.Builder()
+                        .id((String) x[0])
+                        .idShort((String) x[1])
+                        .assetKind((AssetKind) x[2])
+                        .globalAssetId((String) x[3])
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+
+    /**
+     * Reads the IDs of the submodels of shells without initializing the submodels.
+     *
+     * @param aasIds the IDs of the shells, null for all shells
+     * @return the submodel IDs by shell ID, shells without submodels are missing
+     */
+    private Map<String, List<String>> getSubmodelIds(List<String> aasIds) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+        Root<JpaAssetAdministrationShellDescriptor> root = criteria.from(JpaAssetAdministrationShellDescriptor.class);
+        Join<?, ?> submodel = root.join("submodels");
+        criteria.multiselect(root.get("id"), submodel.get("id"));
+        if (Objects.nonNull(aasIds)) {
+            criteria.where(root.get("id").in(aasIds));
+        }
+        Map<String, List<String>> result = new HashMap<>();
+        for (Object[] row: entityManager.createQuery(criteria).getResultList()) {
+            result.computeIfAbsent((String) row[0], x -> new ArrayList<>()).add((String) row[1]);
+        }
+        return result;
+    }
+
+
+    /**
+     * Evaluates a query on the database and returns the requested page of matching IDs ordered by ID.
+     *
+     * @param <T> the entity type
+     * @param type the entity type
+     * @param query the query
+     * @param isShell true if the entity type is a shell, false if it is a submodel
+     * @return the requested page of matching IDs
+     */
+    private <T> PagedResult<String> findIds(Class<T> type, DescriptorQuery query, boolean isShell) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+
+        CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+        Root<T> countRoot = countQuery.from(type);
+        countQuery.select(builder.countDistinct(countRoot))
+                .where(buildPredicates(builder, countRoot, query, isShell));
+        long total = entityManager.createQuery(countQuery).getSingleResult();
+        if (total <= query.getOffset()) {
+            return new PagedResult<>(List.of(), query.getOffset(), query.getLimit(), total);
+        }
+
+        CriteriaQuery<String> idQuery = builder.createQuery(String.class);
+        Root<T> idRoot = idQuery.from(type);
+        idQuery.select(idRoot.<String> get("id"))
+                .distinct(true)
+                .where(buildPredicates(builder, idRoot, query, isShell))
+                .orderBy(builder.asc(idRoot.get("id")));
+        List<String> ids = entityManager.createQuery(idQuery)
+                .setFirstResult(query.getOffset())
+                .setMaxResults(query.getLimit())
+                .getResultList();
+        return new PagedResult<>(ids, query.getOffset(), query.getLimit(), total);
+    }
+
+
+    /**
+     * Builds the filter predicates of a descriptor query. The tables of the JPA model are not mapped in this project, so
+     * no indexes are declared for the filtered columns. Without indexes on idShort, the key values of semantic IDs,
+     * the interface of endpoints, the version of the administrative information and the asset kind, every filter scans
+     * the corresponding table. Deployments with large registries should create these indexes in their database schema.
+     *
+     * @param builder the criteria builder
+     * @param root the root of the query
+     * @param query the query
+     * @param isShell true if the root is a shell, false if it is a submodel
+     * @return the predicates, all of which must hold
+     */
+    private static Predicate[] buildPredicates(CriteriaBuilder builder, Root<?> root, DescriptorQuery query, boolean isShell) {
+        List<Predicate> result = new ArrayList<>();
+        if (Objects.nonNull(query.getIdShortPrefix())) {
+            result.add(builder.like(root.<String> get("idShort"), escapeLike(query.getIdShortPrefix()) + "%", '\\'));
+        }
+        if (Objects.nonNull(query.getSemanticId())) {
+            From<?, ?> submodel = isShell ? root.join("submodels") : root;
+            result.add(builder.equal(submodel.join("semanticId").join("keys").get("value"), query.getSemanticId()));
+        }
+        if (Objects.nonNull(query.getEndpointInterface())) {
+            result.add(builder.equal(root.join("endpoints").get("interfaceInformation"), query.getEndpointInterface()));
+        }
+        if (Objects.nonNull(query.getAdministrationVersion())) {
+            result.add(builder.equal(root.join("administration").get("version"), query.getAdministrationVersion()));
+        }
+        if (isShell && Objects.nonNull(query.getAssetKind())) {
+            result.add(builder.equal(root.get("assetKind"), query.getAssetKind()));
+        }
+        return result.toArray(Predicate[]::new);
+    }
+
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+
+    /**
+     * Loads the entities with the given IDs preserving the order of the IDs.
+     *
+     * @param <T> the entity type
+     * @param type the entity type
+     * @param idGetter function to retrieve the ID of an entity
+     * @param ids the IDs to load
+     * @return the entities in the order of the IDs
+     */
+    private <T> List<T> fetchByIds(Class<T> type, Function<T, String> idGetter, List<String> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> criteria = builder.createQuery(type);
+        Root<T> root = criteria.from(type);
+        criteria.select(root).where(root.get("id").in(ids));
+        Map<String, T> entities = entityManager.createQuery(criteria).getResultList().stream()
+                .collect(Collectors.toMap(idGetter, Function.identity()));
+        return ids.stream()
+                .map(entities::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+
     private JpaAssetAdministrationShellDescriptor fetchAAS(String aasId) {
         try {
             return entityManager.find(JpaAssetAdministrationShellDescriptor.class, aasId);
@@ -206,4 +525,52 @@ public class AasRepositoryJpa extends AbstractAasRepository {
     private JpaSubmodelDescriptor fetchSubmodel(String submodelId) {
         return entityManager.find(JpaSubmodelDescriptor.class, submodelId);
     }
+
+
+    /**
+     * Initializes the complete descriptor graph of the given shells, including their submodels, using a bounded number
+     * of queries independent of the number of shells.
+     *
+     * @param shells the managed shells to initialize
+     */
+    private void fetchShells(List<JpaAssetAdministrationShellDescriptor> shells) {
+        fetchShells(shells, SHELL_FETCH_PATHS);
+    }
+
+
+    /**
+     * Initializes the given associations of the given shells. The submodels are initialized including their complete
+     * descriptor graph.
+     *
+     * @param shells the managed shells to initialize
+     * @param paths the association paths to initialize
+     */
+    private void fetchShells(List<JpaAssetAdministrationShellDescriptor> shells, List<String> paths) {
+        paths.forEach(x -> EntityManagerHelper.fetch(entityManager, JpaAssetAdministrationShellDescriptor.class, shells, x));
+        if (paths.contains("submodels")) {
+            fetchSubmodels(submodelsOf(shells));
+        }
+    }
+
+
+    private static List<JpaSubmodelDescriptor> submodelsOf(List<JpaAssetAdministrationShellDescriptor> shells) {
+        List<JpaSubmodelDescriptor> result = new ArrayList<>();
+        for (JpaAssetAdministrationShellDescriptor shell: shells) {
+            for (SubmodelDescriptor submodel: shell.getSubmodels()) {
+                result.add((JpaSubmodelDescriptor) submodel);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Initializes the complete descriptor graph of the given submodels using a bounded number of queries independent of
+     * the number of submodels.
+     *
+     * @param submodels the managed submodels to initialize
+     */
+    private void fetchSubmodels(List<JpaSubmodelDescriptor> submodels) {
+        SUBMODEL_FETCH_PATHS.forEach(x -> EntityManagerHelper.fetch(entityManager, JpaSubmodelDescriptor.class, submodels, x));
+    }
 }
@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} coalescing concurrent modifications into shared transactions (group commit).
+ *
+ * <p>Modifications are queued and executed by a small number of committer threads. Each committer takes all queued
+ * modifications up to {@code maxBatchSize}, optionally waiting up to {@code maxDelay} for more, and executes them one
+ * after another in a single transaction. The calling threads block until the transaction has been committed, so a
+ * successful return still means the modification is durable. Reads are passed through.
+ *
+ * <p>Expected failures such as {@link ResourceAlreadyExistsException} are detected before the database is modified
+ * and are reported to the affected caller only, the rest of the batch is committed. Modifications within a batch see
+ * the effects of the modifications before them, just as if they had been executed sequentially. If the transaction
+ * fails as a whole, e.g. because a concurrent batch violated a unique constraint, each modification of the batch is
+ * retried in its own transaction.
+ */
+public class GroupCommitAasRepository extends AbstractAasRepository implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitAasRepository.class);
+    private static final long POLL_INTERVAL = 100;
+
+    private final AasRepository delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final ExecutorService committers;
+    private final LongAdder writes;
+    private final LongAdder batches;
+    private final LongAdder fallbacks;
+    private volatile boolean running;
+
+    /**
+     * Creates a new group commit repository.
+     *
+     * @param delegate the repository executing the modifications, usually a {@link AasRepositoryJpa}
+     * @param transactionManager the transaction manager of the delegate
+     * @param maxBatchSize the maximum number of modifications per transaction
+     * @param maxDelay the time in milliseconds a committer waits for further modifications before committing a batch
+     *            that is not full, 0 to commit whatever is queued right away
+     * @param committerCount the number of transactions executed in parallel
+     */
+    public GroupCommitAasRepository(AasRepository delegate, PlatformTransactionManager transactionManager, int maxBatchSize, long maxDelay, int committerCount) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        Ensure.requireNonNull(transactionManager, "transactionManager must be non-null");
+        Ensure.require(maxBatchSize > 0, "maxBatchSize must be positive");
+        Ensure.require(maxDelay >= 0, "maxDelay must be non-negative");
+        Ensure.require(committerCount > 0, "committerCount must be positive");
+        this.delegate = delegate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+        this.queue = new LinkedBlockingQueue<>();
+        this.writes = new LongAdder();
+        this.batches = new LongAdder();
+        this.fallbacks = new LongAdder();
+        this.running = true;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.committers = Executors.newFixedThreadPool(committerCount, x -> {
+            Thread thread = new Thread(x, "group-commit-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < committerCount; i++) {
+            committers.execute(this::runCommitter);
+        }
+    }
+
+
+    /**
+     * Commits all queued modifications, stops the committer threads and closes the wrapped repository.
+     */
+    @Override
+    public void close() {
+        running = false;
+        committers.shutdown();
+        try {
+            if (!committers.awaitTermination(30, TimeUnit.SECONDS)) {
+                LOGGER.warn("group commit did not finish within 30 seconds, {} modifications are lost", queue.size());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeDelegate(delegate);
+    }
+
+
+    /**
+     * Gets the repository executing the modifications.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    /**
+     * Gets statistics about the committed modifications.
+     *
+     * @return the number of modifications, transactions, average batch size and batches retried individually
+     */
+    public Map<String, Object> getStatistics() {
+        long writeCount = writes.sum();
+        long batchCount = batches.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("writes", writeCount);
+        result.put("transactions", batchCount);
+        result.put("averageBatchSize", batchCount == 0 ? 0 : (double) writeCount / batchCount);
+        result.put("fallbacks", fallbacks.sum());
+        result.put("queued", queue.size());
+        return result;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return delegate.getAASs();
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return delegate.getAASs(projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId, projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        try {
+            return submit(() -> delegate.create(descriptor));
+        }
+        catch (ResourceNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        try {
+            submit(() -> {
+                delegate.deleteAAS(aasId);
+                return null;
+            });
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        try {
+            return submit(() -> delegate.update(aasId, descriptor));
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        return delegate.getSubmodels(aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return delegate.getSubmodels();
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        return submit(() -> delegate.addSubmodel(aasId, descriptor));
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        try {
+            return submit(() -> delegate.addSubmodel(descriptor));
+        }
+        catch (ResourceNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        try {
+            submit(() -> {
+                delegate.deleteSubmodel(aasId, submodelId);
+                return null;
+            });
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        try {
+            submit(() -> {
+                delegate.deleteSubmodel(submodelId);
+                return null;
+            });
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return delegate.findAASs(query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return delegate.findSubmodels(query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return delegate.findBySemanticId(semanticId);
+    }
+
+
+    private <T> T submit(Write<T> write) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        if (!running) {
+            throw new IllegalStateException("repository has been closed");
+        }
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        queue.add(pending);
+        return pending.await();
+    }
+
+
+    private void runCommitter() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                commit(batch);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(x -> x.fail(new IllegalStateException("group commit interrupted", e)));
+                return;
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("group commit failed unexpectedly", e);
+                batch.forEach(x -> x.fail(e));
+            }
+            finally {
+                batch.clear();
+            }
+        }
+    }
+
+
+    private void collect(List<PendingWrite<?>> batch) throws InterruptedException {
+        queue.drainTo(batch, maxBatchSize - batch.size());
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingWrite<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+
+    private void commit(List<PendingWrite<?>> batch) {
+        if (batch.size() > 1) {
+            try {
+                transactionTemplate.executeWithoutResult(x -> batch.forEach(PendingWrite::execute));
+                batches.increment();
+                writes.add(batch.size());
+                batch.forEach(PendingWrite::complete);
+                return;
+            }
+            catch (RuntimeException | Error e) {
+                LOGGER.debug("group commit of {} modifications failed, retrying them individually", batch.size(), e);
+                fallbacks.increment();
+            }
+        }
+        for (PendingWrite<?> pending: batch) {
+            try {
+                transactionTemplate.executeWithoutResult(x -> pending.execute());
+                batches.increment();
+                writes.increment();
+                pending.complete();
+            }
+            catch (RuntimeException | Error e) {
+                pending.fail(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Write<T> {
+
+        public T execute() throws ResourceNotFoundException, ResourceAlreadyExistsException;
+    }
+
+    private static class PendingWrite<T> {
+
+        private final Write<T> write;
+        private final CompletableFuture<T> future;
+        private T result;
+        private Exception failure;
+
+        private PendingWrite(Write<T> write) {
+            this.write = write;
+            this.future = new CompletableFuture<>();
+        }
+
+
+        /**
+         * Executes the modification within the current transaction. Expected failures are recorded, unexpected ones
+         * roll back the transaction.
+         */
+        private void execute() {
+            result = null;
+            failure = null;
+            try {
+                result = write.execute();
+            }
+            catch (ResourceNotFoundException | ResourceAlreadyExistsException e) {
+                failure = e;
+            }
+        }
+
+
+        /**
+         * Reports the outcome of the modification to the caller once the transaction has been committed.
+         */
+        private void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            }
+            else {
+                future.complete(result);
+            }
+        }
+
+
+        private void fail(Throwable error) {
+            future.completeExceptionally(error);
+        }
+
+
+        private T await() throws ResourceNotFoundException, ResourceAlreadyExistsException {
+            try {
+                return future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for commit", e);
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ResourceNotFoundException) {
+                    throw (ResourceNotFoundException) cause;
+                }
+                if (cause instanceof ResourceAlreadyExistsException) {
+                    throw (ResourceAlreadyExistsException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
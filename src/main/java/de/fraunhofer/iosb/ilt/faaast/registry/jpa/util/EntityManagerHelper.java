@@ -16,6 +16,8 @@ package de.fraunhofer.iosb.ilt.faaast.registry.jpa.util;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,6 +27,11 @@ import java.util.stream.Collectors;
  */
 public class EntityManagerHelper {
 
+    /**
+     * Maximum number of entities bound to a single IN-clause when initializing associations.
+     */
+    public static final int FETCH_BATCH_SIZE = 500;
+
     private EntityManagerHelper() {}
 
 
@@ -60,4 +67,53 @@ public class EntityManagerHelper {
                 .map(returnType::cast)
                 .collect(Collectors.toList());
     }
+
+
+    /**
+     * Initializes an association path of the given managed entities with a constant number of queries, i.e. one query
+     * per {@link #FETCH_BATCH_SIZE} entities instead of one query per entity. The path is given in dot notation, e.g.
+     * {@code endpoints.protocolInformation}, and may contain at most one collection-valued attribute as fetching
+     * multiple bags at once would produce a cartesian product. Associations that are already initialized are left
+     * untouched.
+     *
+     * @param <T> the entity type
+     * @param entityManager the entityManager to use
+     * @param type the entity type
+     * @param entities the managed entities to initialize
+     * @param path the association path to fetch
+     */
+    public static <T> void fetch(EntityManager entityManager, Class<T> type, Collection<? extends T> entities, String path) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        StringBuilder jpql = new StringBuilder("SELECT DISTINCT x FROM ")
+                .append(entityManager.getMetamodel().entity(type).getName())
+                .append(" x");
+        String alias = "x";
+        int depth = 0;
+        for (String attribute: path.split("\\.")) {
+            String next = "f" + depth++;
+            jpql.append(" LEFT JOIN FETCH ").append(alias).append('.').append(attribute).append(' ').append(next);
+            alias = next;
+        }
+        jpql.append(" WHERE x IN :entities");
+        List<T> batch = new ArrayList<>(Math.min(entities.size(), FETCH_BATCH_SIZE));
+        for (T entity: entities) {
+            batch.add(entity);
+            if (batch.size() == FETCH_BATCH_SIZE) {
+                fetchBatch(entityManager, type, jpql.toString(), batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            fetchBatch(entityManager, type, jpql.toString(), batch);
+        }
+    }
+
+
+    private static <T> void fetchBatch(EntityManager entityManager, Class<T> type, String jpql, List<T> batch) {
+        entityManager.createQuery(jpql, type)
+                .setParameter("entities", batch)
+                .getResultList();
+    }
 }
@@ -14,9 +14,10 @@
  */
 package de.fraunhofer.iosb.ilt.faaast.registry.jpa.util;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
 
 import org.eclipse.digitaltwin.aas4j.v3.model.AdministrativeInformation;
 import org.eclipse.digitaltwin.aas4j.v3.model.Key;
@@ -43,6 +44,10 @@ import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor
 
 /**
  * Helper class to transform AAS model classes to JPA model classes.
+ *
+ * <p>All conversions are done in a single pass without intermediate streams. Every element is copied into a new JPA
+ * instance, also if it already is of the target type, so that instances managed by an entity manager or lists owned by
+ * other entities are never shared.
  */
 public class ModelTransformationHelper {
 
@@ -82,14 +87,18 @@ public class ModelTransformationHelper {
      * @return The converted list of JPADescription.
      */
     public static List<LangStringTextType> convertDescriptions(List<LangStringTextType> descriptions) {
-        return descriptions.stream()
-                .map(x -> new JpaLangString.Builder().from(x).build())
-                .collect(Collectors.toList());
+        return convertList(descriptions, x -> new JpaLangString.Builder().from(x).build());
     }
-    public static List<LangStringNameType> convertName(List<LangStringNameType> descriptions) {
-        return descriptions.stream()
-                .map(x -> new JpaNameType.Builder().from(x).build())
-                .collect(Collectors.toList());
+
+
+    /**
+     * Converts a list of LangStringNameType to a list of JPANameType.
+     *
+     * @param names The list of LangStringNameType.
+     * @return The converted list of JPANameType.
+     */
+    public static List<LangStringNameType> convertName(List<LangStringNameType> names) {
+        return convertList(names, x -> new JpaNameType.Builder().from(x).build());
     }
 
 
@@ -100,12 +109,7 @@ public class ModelTransformationHelper {
      * @return The converted list of JPAEndpoint.
      */
     public static List<Endpoint> convertEndpoints(List<Endpoint> endpoints) {
-        if (Objects.isNull(endpoints)) {
-            return null;
-        }
-        return endpoints.stream()
-                .map(x -> new JpaEndpoint.Builder().from(x).build())
-                .collect(Collectors.toList());
+        return convertList(endpoints, x -> new JpaEndpoint.Builder().from(x).build());
     }
 
 
@@ -121,20 +125,14 @@ public class ModelTransformationHelper {
 
 
     /**
-     * Converts a list of IdentifierKeyValuePair to a list of JPAIdentifierKeyValuePair.
+     * Converts a list of IdentifierKeyValuePair to a list of JPAIdentifierKeyValuePair. Only name and value of the
+     * specific asset IDs are copied.
      *
      * @param pairs The list of IdentifierKeyValuePair.
      * @return The converted list of JPAIdentifierKeyValuePair.
      */
     public static List<SpecificAssetId> convertIdentifierKeyValuePairs(List<SpecificAssetId> pairs) {
-        if (Objects.isNull(pairs)) {
-            return null;
-        }
-        
-        return pairs.stream()
-                .map(x -> new DefaultSpecificAssetId.Builder().name(x.getName()).value(x.getValue()).build())
-//                .map(x -> new JpaIdentifierKeyValuePair.Builder().from(x).build())
-                .collect(Collectors.toList());
+        return convertList(pairs, x -> new DefaultSpecificAssetId.Builder().name(x.getName()).value(x.getValue()).build());
     }
 
 
@@ -145,12 +143,7 @@ public class ModelTransformationHelper {
      * @return The converted list of JPAKey.
      */
     public static List<Key> convertKeys(List<Key> keys) {
-        if (Objects.isNull(keys)) {
-            return null;
-        }
-        return keys.stream()
-                .map(x -> new JpaKey.Builder().from(x).build())
-                .collect(Collectors.toList());
+        return convertList(keys, x -> new JpaKey.Builder().from(x).build());
     }
 
 
@@ -196,12 +189,26 @@ public class ModelTransformationHelper {
      * @return The converted list of JPASubmodelDescriptor.
      */
     public static List<SubmodelDescriptor> convertSubmodels(List<SubmodelDescriptor> submodels) {
-        if (Objects.isNull(submodels)) {
+        return convertList(submodels, x -> new JpaSubmodelDescriptor.Builder().from(x).build());
+    }
+
+
+    /**
+     * Converts all elements of a list into a new list of the exact size.
+     *
+     * @param <T> the element type
+     * @param list the list to convert, may be null
+     * @param converter the converter for a single element
+     * @return the converted list, or null if list is null
+     */
+    private static <T> List<T> convertList(List<T> list, UnaryOperator<T> converter) {
+        if (Objects.isNull(list)) {
             return null;
         }
-        return submodels.stream()
-                .map(x -> new JpaSubmodelDescriptor.Builder().from(x).build())
-                .collect(Collectors.toList());
+        List<T> result = new ArrayList<>(list.size());
+        for (T element: list) {
+            result.add(converter.apply(element));
+        }
+        return result;
     }
-
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
+import org.eclipse.digitaltwin.aas4j.v3.model.KeyTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.LangStringNameType;
+import org.eclipse.digitaltwin.aas4j.v3.model.LangStringTextType;
+import org.eclipse.digitaltwin.aas4j.v3.model.ReferenceTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.SpecificAssetId;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultKey;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultLangStringNameType;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultLangStringTextType;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultReference;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSpecificAssetId;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.Endpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultAssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultEndpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultProtocolInformation;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultSubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Synthesizes Asset Administration Shell descriptors shaped like the ones registered in production: a number of
+ * submodels per shell, endpoints per descriptor, specific asset IDs and display names and descriptions of a given
+ * length. Descriptors are derived from their index and the seed only, so that the same index always yields the same
+ * descriptor and runs are reproducible.
+ */
+public class WorkloadGenerator {
+
+    private static final String ID_PREFIX = "urn:loadtest:";
+    private static final String[] LANGUAGES = {
+            "en",
+            "de",
+            "fr"
+    };
+    private static final int SEMANTIC_IDS = 20;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    private int submodelsPerShell;
+    private int endpointsPerDescriptor;
+    private int specificAssetIds;
+    private int langStringLength;
+    private long seed;
+
+    private WorkloadGenerator() {
+        submodelsPerShell = 5;
+        endpointsPerDescriptor = 1;
+        specificAssetIds = 2;
+        langStringLength = 64;
+        seed = 0;
+    }
+
+
+    /**
+     * Generates the shell with the given index, including its submodels.
+     *
+     * @param index the index of the shell
+     * @return the shell
+     */
+    public AssetAdministrationShellDescriptor shell(int index) {
+        Random random = random(index, -1);
+        List<SubmodelDescriptor> submodels = new ArrayList<>(submodelsPerShell);
+        for (int i = 0; i < submodelsPerShell; i++) {
+            submodels.add(submodel(index, i));
+        }
+        List<SpecificAssetId> assetIds = new ArrayList<>(specificAssetIds);
+        for (int i = 0; i < specificAssetIds; i++) {
+            assetIds.add(new DefaultSpecificAssetId.Builder()
+                    .name("assetId" + i)
+                    .value(ID_PREFIX + "asset:" + index + ":" + i)
+                    .build());
+        }
+        return new DefaultAssetAdministrationShellDescriptor.Builder()
+                .id(shellId(index))
+                .idShort(String.format("shell%08d", index))
+                .assetKind(index % 2 == 0 ? AssetKind.INSTANCE : AssetKind.TYPE)
+                .globalAssetId(ID_PREFIX + "asset:" + index)
+                .specificAssetIds(assetIds)
+                .displayNames(displayNames(random))
+                .descriptions(descriptions(random))
+                .endpoints(endpoints(shellId(index), "AAS-3.0"))
+                .submodels(submodels)
+                .build();
+    }
+
+
+    /**
+     * Generates a submodel of a shell.
+     *
+     * @param shell the index of the shell
+     * @param index the index of the submodel within the shell
+     * @return the submodel
+     */
+    public SubmodelDescriptor submodel(int shell, int index) {
+        Random random = random(shell, index);
+        return new DefaultSubmodelDescriptor.Builder()
+                .id(submodelId(shell, index))
+                .idShort("submodel" + index)
+                .semanticId(new DefaultReference.Builder()
+                        .type(ReferenceTypes.EXTERNAL_REFERENCE)
+                        .keys(new DefaultKey.Builder()
+                                .type(KeyTypes.GLOBAL_REFERENCE)
+                                .value(semanticId(random.nextInt(SEMANTIC_IDS)))
+                                .build())
+                        .build())
+                .displayNames(displayNames(random))
+                .descriptions(descriptions(random))
+                .endpoints(endpoints(submodelId(shell, index), "SUBMODEL-3.0"))
+                .build();
+    }
+
+
+    /**
+     * Gets the number of submodels per shell.
+     *
+     * @return the number of submodels
+     */
+    public int getSubmodelsPerShell() {
+        return submodelsPerShell;
+    }
+
+
+    /**
+     * Gets the ID of the shell with the given index.
+     *
+     * @param index the index of the shell
+     * @return the ID
+     */
+    public static String shellId(int index) {
+        return ID_PREFIX + "shell:" + index;
+    }
+
+
+    /**
+     * Gets the ID of a submodel of a shell.
+     *
+     * @param shell the index of the shell
+     * @param index the index of the submodel within the shell
+     * @return the ID
+     */
+    public static String submodelId(int shell, int index) {
+        return ID_PREFIX + "submodel:" + shell + ":" + index;
+    }
+
+
+    /**
+     * Gets one of the semanticIds used by the generated submodels.
+     *
+     * @param index the index of the semanticId
+     * @return the semanticId
+     */
+    public static String semanticId(int index) {
+        return ID_PREFIX + "semantic-id:" + index;
+    }
+
+
+    private Random random(int shell, int submodel) {
+        return new Random(seed * 31 * 31 + shell * 31L + submodel);
+    }
+
+
+    private List<Endpoint> endpoints(String id, String interfaceInformation) {
+        List<Endpoint> result = new ArrayList<>(endpointsPerDescriptor);
+        for (int i = 0; i < endpointsPerDescriptor; i++) {
+            result.add(new DefaultEndpoint.Builder()
+                    .interfaceInformation(interfaceInformation)
+                    .protocolInformation(new DefaultProtocolInformation.Builder()
+                            .href(String.format("https://node%d.example.org/api/v3.0/%s", i, id))
+                            .endpointProtocol("HTTP")
+                            .build())
+                    .build());
+        }
+        return result;
+    }
+
+
+    private List<LangStringNameType> displayNames(Random random) {
+        List<LangStringNameType> result = new ArrayList<>(LANGUAGES.length);
+        for (String language: LANGUAGES) {
+            result.add(new DefaultLangStringNameType.Builder()
+                    .language(language)
+                    .text(text(random, Math.min(langStringLength, 128)))
+                    .build());
+        }
+        return result;
+    }
+
+
+    private List<LangStringTextType> descriptions(Random random) {
+        List<LangStringTextType> result = new ArrayList<>(LANGUAGES.length);
+        for (String language: LANGUAGES) {
+            result.add(new DefaultLangStringTextType.Builder()
+                    .language(language)
+                    .text(text(random, langStringLength))
+                    .build());
+        }
+        return result;
+    }
+
+
+    private static String text(Random random, int length) {
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            result.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return result.toString().trim();
+    }
+
+    public static class Builder {
+
+        private final WorkloadGenerator generator = new WorkloadGenerator();
+
+        public Builder submodelsPerShell(int value) {
+            generator.submodelsPerShell = value;
+            return this;
+        }
+
+
+        public Builder endpointsPerDescriptor(int value) {
+            generator.endpointsPerDescriptor = value;
+            return this;
+        }
+
+
+        public Builder specificAssetIds(int value) {
+            generator.specificAssetIds = value;
+            return this;
+        }
+
+
+        public Builder langStringLength(int value) {
+            generator.langStringLength = value;
+            return this;
+        }
+
+
+        public Builder seed(long value) {
+            generator.seed = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the generator.
+         *
+         * @return the generator
+         * @throws IllegalArgumentException if a count is negative or the lang-string length is not positive
+         */
+        public WorkloadGenerator build() {
+            Ensure.require(generator.submodelsPerShell >= 0, "submodelsPerShell must be non-negative");
+            Ensure.require(generator.endpointsPerDescriptor >= 0, "endpointsPerDescriptor must be non-negative");
+            Ensure.require(generator.specificAssetIds >= 0, "specificAssetIds must be non-negative");
+            Ensure.require(generator.langStringLength > 0, "langStringLength must be positive");
+            return generator;
+        }
+    }
+}
@@ -15,30 +15,58 @@
 package de.fraunhofer.iosb.ilt.faaast.registry.memory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
 
 
 /**
- * In-memory implementation of the Repository.
+ * In-memory implementation of the Repository. Searches are answered from inverted indexes that are maintained on
+ * every modification.
+ *
+ * <p>The descriptors are held by {@link DescriptorStore}s, by default as objects on the heap. With
+ * {@link OffHeapDescriptorStore}s they are kept serialized outside the heap instead, which keeps garbage collection
+ * pauses independent of the size of the registry at the cost of deserializing descriptors on access.
+ *
+ * <p>This class is thread-safe; reads run concurrently, modifications are exclusive.
  */
 public class AasRepositoryMemory extends AbstractAasRepository {
-    private final Map<String, AssetAdministrationShellDescriptor> shellDescriptors;
-    private final Map<String, SubmodelDescriptor> submodelDescriptors;
+    private final DescriptorStore<AssetAdministrationShellDescriptor> shellDescriptors;
+    private final DescriptorStore<SubmodelDescriptor> submodelDescriptors;
+    private final DescriptorIndex index;
+    private final ReadWriteLock lock;
 
     public AasRepositoryMemory() {
-        shellDescriptors = new HashMap<>();
-        submodelDescriptors = new HashMap<>();
+        this(new HeapDescriptorStore<>(), new HeapDescriptorStore<>());
+    }
+
+
+    /**
+     * Creates a new in-memory repository using the given stores.
+     *
+     * @param shellDescriptors the store of the shell descriptors
+     * @param submodelDescriptors the store of the submodel descriptors
+     */
+    public AasRepositoryMemory(DescriptorStore<AssetAdministrationShellDescriptor> shellDescriptors, DescriptorStore<SubmodelDescriptor> submodelDescriptors) {
+        Ensure.requireNonNull(shellDescriptors, "shellDescriptors must be non-null");
+        Ensure.requireNonNull(submodelDescriptors, "submodelDescriptors must be non-null");
+        this.shellDescriptors = shellDescriptors;
+        this.submodelDescriptors = submodelDescriptors;
+        index = new DescriptorIndex();
+        lock = new ReentrantReadWriteLock();
     }
 
 
@@ -46,44 +74,77 @@ public class AasRepositoryMemory extends AbstractAasRepository {
      * Clear the repository.
      */
     public void clear() {
-        shellDescriptors.clear();
-        submodelDescriptors.clear();
+        lock.writeLock().lock();
+        try {
+            shellDescriptors.clear();
+            submodelDescriptors.clear();
+            index.clear();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
     @Override
     public List<AssetAdministrationShellDescriptor> getAASs() {
-        return new ArrayList<>(shellDescriptors.values());
+        lock.readLock().lock();
+        try {
+            return shellDescriptors.values();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
     @Override
     public AssetAdministrationShellDescriptor getAAS(String id) throws ResourceNotFoundException {
         Ensure.requireNonNull(id, "id must be non-null");
-        AssetAdministrationShellDescriptor aas = fetchAAS(id);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(id));
-        return aas;
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(id);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(id));
+            return aas;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
     @Override
     public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
         ensureDescriptorId(descriptor);
-        AssetAdministrationShellDescriptor aas = fetchAAS(descriptor.getId());
-        Ensure.require(Objects.isNull(aas), buildAASAlreadyExistsException(descriptor.getId()));
-        shellDescriptors.put(descriptor.getId(), descriptor);
-        descriptor.getSubmodels().forEach(s -> submodelDescriptors.putIfAbsent(s.getId(), s));
-        return descriptor;
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(descriptor.getId());
+            Ensure.require(Objects.isNull(aas), buildAASAlreadyExistsException(descriptor.getId()));
+            shellDescriptors.put(descriptor.getId(), descriptor);
+            index.indexShell(descriptor);
+            descriptor.getSubmodels().forEach(this::putSubmodelIfAbsent);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
     @Override
     public void deleteAAS(String aasId) throws ResourceNotFoundException {
         ensureAasId(aasId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
-        shellDescriptors.remove(aasId);
-        aas.getSubmodels().forEach(s -> submodelDescriptors.remove(s.getId()));
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            shellDescriptors.remove(aasId);
+            index.unindexShell(aasId);
+            aas.getSubmodels().forEach(s -> removeSubmodel(s.getId()));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
@@ -91,27 +152,47 @@ public class AasRepositoryMemory extends AbstractAasRepository {
     public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
         ensureAasId(aasId);
         ensureDescriptorId(descriptor);
-        AssetAdministrationShellDescriptor oldAAS = getAAS(aasId);
-        if (Objects.nonNull(oldAAS)) {
-            shellDescriptors.remove(aasId);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor oldAAS = getAAS(aasId);
+            if (Objects.nonNull(oldAAS)) {
+                shellDescriptors.remove(aasId);
+                index.unindexShell(aasId);
+            }
+            shellDescriptors.put(descriptor.getId(), descriptor);
+            index.indexShell(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
         }
-        shellDescriptors.put(descriptor.getId(), descriptor);
-        return descriptor;
     }
 
 
     @Override
     public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
         ensureAasId(aasId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
-        return aas.getSubmodels();
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            return new ArrayList<>(aas.getSubmodels());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
     @Override
     public List<SubmodelDescriptor> getSubmodels() {
-        return new ArrayList<>(submodelDescriptors.values());
+        lock.readLock().lock();
+        try {
+            return submodelDescriptors.values();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
@@ -119,20 +200,33 @@ public class AasRepositoryMemory extends AbstractAasRepository {
     public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
         ensureAasId(aasId);
         ensureSubmodelId(submodelId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
-        List<SubmodelDescriptor> submodels = aas.getSubmodels();
-        Optional<SubmodelDescriptor> submodel = getSubmodelInternal(submodels, submodelId);
-        Ensure.require(submodel.isPresent(), buildSubmodelNotFoundInAASException(aasId, submodelId));
-        return submodel.get();
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            List<SubmodelDescriptor> submodels = aas.getSubmodels();
+            Optional<SubmodelDescriptor> submodel = getSubmodelInternal(submodels, submodelId);
+            Ensure.require(submodel.isPresent(), buildSubmodelNotFoundInAASException(aasId, submodelId));
+            return submodel.get();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
     @Override
     public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
         ensureSubmodelId(submodelId);
-        Ensure.require(submodelDescriptors.containsKey(submodelId), buildSubmodelNotFoundException(submodelId));
-        return submodelDescriptors.get(submodelId);
+        lock.readLock().lock();
+        try {
+            SubmodelDescriptor submodel = submodelDescriptors.get(submodelId);
+            Ensure.requireNonNull(submodel, buildSubmodelNotFoundException(submodelId));
+            return submodel;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
 
@@ -140,25 +234,40 @@ public class AasRepositoryMemory extends AbstractAasRepository {
     public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
         ensureAasId(aasId);
         ensureDescriptorId(descriptor);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
-        if (getSubmodelInternal(aas.getSubmodels(), descriptor.getId()).isPresent()) {
-            throw buildSubmodelAlreadyExistsException(descriptor.getId());
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            if (getSubmodelInternal(aas.getSubmodels(), descriptor.getId()).isPresent()) {
+                throw buildSubmodelAlreadyExistsException(descriptor.getId());
+            }
+            aas.getSubmodels().add(descriptor);
+            shellDescriptors.put(aasId, aas);
+            index.indexShell(aas);
+            putSubmodelIfAbsent(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
         }
-        aas.getSubmodels().add(descriptor);
-        submodelDescriptors.putIfAbsent(descriptor.getId(), descriptor);
-        return descriptor;
     }
 
 
     @Override
     public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
         ensureDescriptorId(descriptor);
-        Ensure.require(
-                !submodelDescriptors.containsKey(descriptor.getId()),
-                buildSubmodelAlreadyExistsException(descriptor.getId()));
-        submodelDescriptors.put(descriptor.getId(), descriptor);
-        return descriptor;
+        lock.writeLock().lock();
+        try {
+            Ensure.require(
+                    !submodelDescriptors.contains(descriptor.getId()),
+                    buildSubmodelAlreadyExistsException(descriptor.getId()));
+            submodelDescriptors.put(descriptor.getId(), descriptor);
+            index.indexSubmodel(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
@@ -166,24 +275,101 @@ public class AasRepositoryMemory extends AbstractAasRepository {
     public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
         ensureAasId(aasId);
         ensureSubmodelId(submodelId);
-        AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
-        Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
-        boolean found = aas.getSubmodels().removeIf(x -> Objects.equals(x.getId(), submodelId));
-        Ensure.require(found, buildSubmodelNotFoundException(submodelId));
-        submodelDescriptors.remove(submodelId);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            boolean found = aas.getSubmodels().removeIf(x -> Objects.equals(x.getId(), submodelId));
+            Ensure.require(found, buildSubmodelNotFoundException(submodelId));
+            shellDescriptors.put(aasId, aas);
+            index.indexShell(aas);
+            removeSubmodel(submodelId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
     @Override
     public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
         ensureSubmodelId(submodelId);
-        Ensure.require(submodelDescriptors.containsKey(submodelId), buildSubmodelNotFoundException(submodelId));
+        lock.writeLock().lock();
+        try {
+            Ensure.require(submodelDescriptors.contains(submodelId), buildSubmodelNotFoundException(submodelId));
+            removeSubmodel(submodelId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        lock.readLock().lock();
+        try {
+            PagedResult<String> ids = index.findShells(query);
+            return new PagedResult<>(
+                    ids.getItems().stream().map(shellDescriptors::get).collect(Collectors.toList()),
+                    ids.getOffset(),
+                    ids.getLimit(),
+                    ids.getTotal());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        lock.readLock().lock();
+        try {
+            PagedResult<String> ids = index.findSubmodels(query);
+            return new PagedResult<>(
+                    ids.getItems().stream().map(submodelDescriptors::get).collect(Collectors.toList()),
+                    ids.getOffset(),
+                    ids.getLimit(),
+                    ids.getTotal());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        Ensure.requireNonNull(semanticId, "semanticId must be non-null");
+        lock.readLock().lock();
+        try {
+            return index.findBySemanticId(semanticId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private void putSubmodelIfAbsent(SubmodelDescriptor submodel) {
+        if (!submodelDescriptors.contains(submodel.getId())) {
+            submodelDescriptors.put(submodel.getId(), submodel);
+            index.indexSubmodel(submodel);
+        }
+    }
+
+
+    private void removeSubmodel(String submodelId) {
         submodelDescriptors.remove(submodelId);
+        index.unindexSubmodel(submodelId);
     }
 
 
     private AssetAdministrationShellDescriptor fetchAAS(String aasId) {
         ensureAasId(aasId);
-        return shellDescriptors.getOrDefault(aasId, null);
+        return shellDescriptors.get(aasId);
     }
 }
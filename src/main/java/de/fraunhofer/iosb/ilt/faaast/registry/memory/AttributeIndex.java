@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+
+/**
+ * Inverted index mapping attribute values to the IDs of the descriptors carrying them. The values indexed for a
+ * descriptor are remembered so that they can be removed even if the descriptor has been modified in the meantime.
+ */
+class AttributeIndex {
+
+    private final NavigableMap<String, Set<String>> postings;
+    private final Map<String, Set<String>> valuesById;
+
+    AttributeIndex() {
+        postings = new TreeMap<>();
+        valuesById = new HashMap<>();
+    }
+
+
+    /**
+     * Replaces the values indexed for a descriptor.
+     *
+     * @param id the ID of the descriptor
+     * @param values the values of the descriptor, null values are ignored
+     */
+    void put(String id, Set<String> values) {
+        remove(id);
+        Set<String> indexed = new HashSet<>(values);
+        indexed.remove(null);
+        if (indexed.isEmpty()) {
+            return;
+        }
+        valuesById.put(id, indexed);
+        for (String value: indexed) {
+            postings.computeIfAbsent(value, x -> new HashSet<>()).add(id);
+        }
+    }
+
+
+    /**
+     * Replaces the value indexed for a descriptor.
+     *
+     * @param id the ID of the descriptor
+     * @param value the value of the descriptor, may be null
+     */
+    void put(String id, String value) {
+        put(id, Objects.isNull(value) ? Set.of() : Set.of(value));
+    }
+
+
+    /**
+     * Removes all values indexed for a descriptor.
+     *
+     * @param id the ID of the descriptor
+     */
+    void remove(String id) {
+        Set<String> values = valuesById.remove(id);
+        if (Objects.isNull(values)) {
+            return;
+        }
+        for (String value: values) {
+            Set<String> ids = postings.get(value);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                postings.remove(value);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the IDs of all descriptors carrying the given value.
+     *
+     * @param value the value
+     * @return an unmodifiable view of the matching IDs
+     */
+    Set<String> get(String value) {
+        return Collections.unmodifiableSet(postings.getOrDefault(value, Set.of()));
+    }
+
+
+    /**
+     * Gets the IDs of all descriptors carrying a value starting with the given prefix.
+     *
+     * @param prefix the prefix
+     * @return the matching IDs
+     */
+    Set<String> getByPrefix(String prefix) {
+        Set<String> result = new HashSet<>();
+        postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values().forEach(result::addAll);
+        return result;
+    }
+
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        postings.clear();
+        valuesById.clear();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorAttributes;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Inverted indexes over the searchable attributes of the descriptors held by {@link AasRepositoryMemory}. Queries are
+ * answered by intersecting the posting sets of all given criteria, starting with the smallest one. Also used by
+ * repositories that store descriptors elsewhere but answer searches from memory.
+ *
+ * <p>This class is not thread-safe.
+ */
+public class DescriptorIndex {
+
+    private final NavigableSet<String> shellIds;
+    private final AttributeIndex shellIdShorts;
+    private final AttributeIndex shellSemanticIds;
+    private final AttributeIndex shellEndpointInterfaces;
+    private final AttributeIndex shellVersions;
+    private final AttributeIndex shellAssetKinds;
+    private final NavigableSet<String> submodelIds;
+    private final AttributeIndex submodelIdShorts;
+    private final AttributeIndex submodelSemanticIds;
+    private final AttributeIndex submodelEndpointInterfaces;
+    private final AttributeIndex submodelVersions;
+    private final SemanticIdIndex semanticIdMatches;
+
+    public DescriptorIndex() {
+        shellIds = new TreeSet<>();
+        shellIdShorts = new AttributeIndex();
+        shellSemanticIds = new AttributeIndex();
+        shellEndpointInterfaces = new AttributeIndex();
+        shellVersions = new AttributeIndex();
+        shellAssetKinds = new AttributeIndex();
+        submodelIds = new TreeSet<>();
+        submodelIdShorts = new AttributeIndex();
+        submodelSemanticIds = new AttributeIndex();
+        submodelEndpointInterfaces = new AttributeIndex();
+        submodelVersions = new AttributeIndex();
+        semanticIdMatches = new SemanticIdIndex();
+    }
+
+
+    /**
+     * Adds a shell to the index or replaces the indexed values of an already indexed shell.
+     *
+     * @param aas the shell
+     */
+    public void indexShell(AssetAdministrationShellDescriptor aas) {
+        String id = aas.getId();
+        shellIds.add(id);
+        shellIdShorts.put(id, aas.getIdShort());
+        shellSemanticIds.put(id, DescriptorAttributes.semanticIds(aas));
+        shellEndpointInterfaces.put(id, DescriptorAttributes.endpointInterfaces(aas.getEndpoints()));
+        shellVersions.put(id, DescriptorAttributes.administrationVersion(aas.getAdministration()));
+        shellAssetKinds.put(id, Objects.nonNull(aas.getAssetKind()) ? aas.getAssetKind().name() : null);
+        semanticIdMatches.indexShell(aas);
+    }
+
+
+    /**
+     * Removes a shell from the index.
+     *
+     * @param aasId the ID of the shell
+     */
+    public void unindexShell(String aasId) {
+        shellIds.remove(aasId);
+        shellIdShorts.remove(aasId);
+        shellSemanticIds.remove(aasId);
+        shellEndpointInterfaces.remove(aasId);
+        shellVersions.remove(aasId);
+        shellAssetKinds.remove(aasId);
+        semanticIdMatches.unindexShell(aasId);
+    }
+
+
+    /**
+     * Adds a submodel to the index or replaces the indexed values of an already indexed submodel.
+     *
+     * @param submodel the submodel
+     */
+    public void indexSubmodel(SubmodelDescriptor submodel) {
+        String id = submodel.getId();
+        submodelIds.add(id);
+        submodelIdShorts.put(id, submodel.getIdShort());
+        submodelSemanticIds.put(id, DescriptorAttributes.semanticIds(submodel));
+        submodelEndpointInterfaces.put(id, DescriptorAttributes.endpointInterfaces(submodel.getEndpoints()));
+        submodelVersions.put(id, DescriptorAttributes.administrationVersion(submodel.getAdministration()));
+        semanticIdMatches.indexSubmodel(submodel);
+    }
+
+
+    /**
+     * Removes a submodel from the index.
+     *
+     * @param submodelId the ID of the submodel
+     */
+    public void unindexSubmodel(String submodelId) {
+        submodelIds.remove(submodelId);
+        submodelIdShorts.remove(submodelId);
+        submodelSemanticIds.remove(submodelId);
+        submodelEndpointInterfaces.remove(submodelId);
+        submodelVersions.remove(submodelId);
+        semanticIdMatches.unindexSubmodel(submodelId);
+    }
+
+
+    /**
+     * Finds the IDs of all shells matching a query.
+     *
+     * @param query the query
+     * @return the requested page of matching shell IDs
+     */
+    public PagedResult<String> findShells(DescriptorQuery query) {
+        List<Set<String>> criteria = new ArrayList<>();
+        if (Objects.nonNull(query.getIdShortPrefix())) {
+            criteria.add(shellIdShorts.getByPrefix(query.getIdShortPrefix()));
+        }
+        if (Objects.nonNull(query.getSemanticId())) {
+            criteria.add(shellSemanticIds.get(query.getSemanticId()));
+        }
+        if (Objects.nonNull(query.getEndpointInterface())) {
+            criteria.add(shellEndpointInterfaces.get(query.getEndpointInterface()));
+        }
+        if (Objects.nonNull(query.getAdministrationVersion())) {
+            criteria.add(shellVersions.get(query.getAdministrationVersion()));
+        }
+        if (Objects.nonNull(query.getAssetKind())) {
+            criteria.add(shellAssetKinds.get(query.getAssetKind().name()));
+        }
+        return evaluate(criteria, shellIds, query);
+    }
+
+
+    /**
+     * Finds the IDs of all submodels matching a query.
+     *
+     * @param query the query
+     * @return the requested page of matching submodel IDs
+     */
+    public PagedResult<String> findSubmodels(DescriptorQuery query) {
+        List<Set<String>> criteria = new ArrayList<>();
+        if (Objects.nonNull(query.getIdShortPrefix())) {
+            criteria.add(submodelIdShorts.getByPrefix(query.getIdShortPrefix()));
+        }
+        if (Objects.nonNull(query.getSemanticId())) {
+            criteria.add(submodelSemanticIds.get(query.getSemanticId()));
+        }
+        if (Objects.nonNull(query.getEndpointInterface())) {
+            criteria.add(submodelEndpointInterfaces.get(query.getEndpointInterface()));
+        }
+        if (Objects.nonNull(query.getAdministrationVersion())) {
+            criteria.add(submodelVersions.get(query.getAdministrationVersion()));
+        }
+        return evaluate(criteria, submodelIds, query);
+    }
+
+
+    /**
+     * Finds all submodels with the given semanticId key value together with the shells exposing them.
+     *
+     * @param semanticId the semanticId key value
+     * @return the matches
+     */
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return semanticIdMatches.find(semanticId);
+    }
+
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        shellIds.clear();
+        shellIdShorts.clear();
+        shellSemanticIds.clear();
+        shellEndpointInterfaces.clear();
+        shellVersions.clear();
+        shellAssetKinds.clear();
+        submodelIds.clear();
+        submodelIdShorts.clear();
+        submodelSemanticIds.clear();
+        submodelEndpointInterfaces.clear();
+        submodelVersions.clear();
+        semanticIdMatches.clear();
+    }
+
+
+    private static PagedResult<String> evaluate(List<Set<String>> criteria, NavigableSet<String> allIds, DescriptorQuery query) {
+        if (criteria.isEmpty()) {
+            return page(allIds, allIds.size(), query);
+        }
+        criteria.sort(Comparator.comparingInt(Set::size));
+        List<String> matches = new ArrayList<>();
+        for (String id: criteria.get(0)) {
+            if (criteria.stream().skip(1).allMatch(x -> x.contains(id))) {
+                matches.add(id);
+            }
+        }
+        Collections.sort(matches);
+        return page(matches, matches.size(), query);
+    }
+
+
+    private static PagedResult<String> page(Iterable<String> sortedIds, int total, DescriptorQuery query) {
+        List<String> items = new ArrayList<>(Math.max(0, Math.min(query.getLimit(), total - query.getOffset())));
+        int index = 0;
+        for (String id: sortedIds) {
+            if (items.size() == query.getLimit()) {
+                break;
+            }
+            if (index++ >= query.getOffset()) {
+                items.add(id);
+            }
+        }
+        return new PagedResult<>(items, query.getOffset(), query.getLimit(), total);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.util.List;
+
+
+/**
+ * Storage of the descriptors of one kind held by {@link AasRepositoryMemory}, keyed by descriptor ID.
+ *
+ * <p>Implementations must support concurrent reads. Modifications are never executed concurrently with other
+ * modifications or reads.
+ *
+ * @param <T> the type of descriptor
+ */
+public interface DescriptorStore<T> {
+
+    /**
+     * Gets a descriptor.
+     *
+     * @param id the ID of the descriptor
+     * @return the descriptor, or null if there is no descriptor with the ID
+     */
+    public T get(String id);
+
+
+    /**
+     * Checks whether a descriptor exists.
+     *
+     * @param id the ID of the descriptor
+     * @return true if there is a descriptor with the ID, false otherwise
+     */
+    public boolean contains(String id);
+
+
+    /**
+     * Adds or replaces a descriptor. A descriptor that has been modified after reading it must be put again for the
+     * modification to take effect.
+     *
+     * @param id the ID of the descriptor
+     * @param descriptor the descriptor
+     */
+    public void put(String id, T descriptor);
+
+
+    /**
+     * Removes a descriptor if it exists.
+     *
+     * @param id the ID of the descriptor
+     */
+    public void remove(String id);
+
+
+    /**
+     * Gets all descriptors in no particular order.
+     *
+     * @return the descriptors
+     */
+    public List<T> values();
+
+
+    /**
+     * Gets the number of descriptors.
+     *
+     * @return the number of descriptors
+     */
+    public int size();
+
+
+    /**
+     * Removes all descriptors.
+     */
+    public void clear();
+}
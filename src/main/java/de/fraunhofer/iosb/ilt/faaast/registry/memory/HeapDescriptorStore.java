@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * {@link DescriptorStore} keeping the descriptor objects on the heap. Fastest, but every descriptor adds to the live
+ * set the garbage collector has to trace.
+ *
+ * @param <T> the type of descriptor
+ */
+public class HeapDescriptorStore<T> implements DescriptorStore<T> {
+
+    private final Map<String, T> descriptors;
+
+    public HeapDescriptorStore() {
+        descriptors = new HashMap<>();
+    }
+
+
+    @Override
+    public T get(String id) {
+        return descriptors.get(id);
+    }
+
+
+    @Override
+    public boolean contains(String id) {
+        return descriptors.containsKey(id);
+    }
+
+
+    @Override
+    public void put(String id, T descriptor) {
+        descriptors.put(id, descriptor);
+    }
+
+
+    @Override
+    public void remove(String id) {
+        descriptors.remove(id);
+    }
+
+
+    @Override
+    public List<T> values() {
+        return new ArrayList<>(descriptors.values());
+    }
+
+
+    @Override
+    public int size() {
+        return descriptors.size();
+    }
+
+
+    @Override
+    public void clear() {
+        descriptors.clear();
+    }
+}
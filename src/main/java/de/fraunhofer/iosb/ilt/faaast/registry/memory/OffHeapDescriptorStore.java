@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.FrequencySketch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.TinyLfuAdmission;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link DescriptorStore} keeping serialized descriptors in direct memory, so the number of descriptors does not
+ * affect garbage collection. Descriptors are deserialized on every read unless they are held by the optional on-heap
+ * cache of frequently read descriptors.
+ *
+ * <p>Records are appended to chunks of direct memory, each record consisting of the lengths of key and value, the
+ * UTF-8 encoded ID and the serialized descriptor. The location of the record of an ID is looked up in an
+ * {@link OffHeapIndex}. Replacing or removing a descriptor leaves its old record as garbage; once less than half of a
+ * chunk is live, the live records are moved to the current chunk and the chunk is released.
+ *
+ * <p>Direct memory is limited by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ *
+ * @param <T> the type of descriptor
+ */
+public class OffHeapDescriptorStore<T> implements DescriptorStore<T> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 << 20;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+    private static final int CHUNK_SHIFT = 32;
+    private static final long OFFSET_MASK = 0xFFFFFFFFL;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Class<T> type;
+    private final ObjectMapper mapper;
+    private final int chunkSize;
+    private final OffHeapIndex index;
+    private final List<Chunk> chunks;
+    private Chunk current;
+    private final int cacheCapacity;
+    private final Map<String, T> cache;
+    private final FrequencySketch sketch;
+    private final TinyLfuAdmission admission;
+
+    /**
+     * Creates a new off-heap store.
+     *
+     * @param type the type of descriptor, used for deserialization
+     * @param mapper the mapper serializing the descriptors
+     * @param chunkSize the size of the chunks of direct memory in bytes
+     * @param cacheCapacity maximum number of deserialized descriptors cached on the heap, 0 to disable the cache
+     */
+    public OffHeapDescriptorStore(Class<T> type, ObjectMapper mapper, int chunkSize, int cacheCapacity) {
+        Ensure.requireNonNull(type, "type must be non-null");
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        Ensure.require(chunkSize > HEADER_SIZE, "chunkSize must be larger than the record header");
+        Ensure.require(cacheCapacity >= 0, "cacheCapacity must be non-negative");
+        this.type = type;
+        this.mapper = mapper;
+        this.chunkSize = chunkSize;
+        this.index = new OffHeapIndex(0);
+        this.chunks = new ArrayList<>();
+        this.cacheCapacity = cacheCapacity;
+        this.cache = new ConcurrentHashMap<>();
+        this.sketch = cacheCapacity > 0 ? new FrequencySketch(cacheCapacity) : null;
+        this.admission = cacheCapacity > 0 ? new TinyLfuAdmission(sketch) : null;
+    }
+
+
+    @Override
+    public T get(String id) {
+        if (cacheCapacity > 0) {
+            sketch.increment(id);
+            T cached = cache.get(id);
+            if (Objects.nonNull(cached)) {
+                return cached;
+            }
+        }
+        byte[] key = encode(id);
+        long address = index.get(hash(key), x -> matches(x, key));
+        if (address == OffHeapIndex.NOT_FOUND) {
+            return null;
+        }
+        T result = deserialize(address);
+        if (cacheCapacity > 0) {
+            addToCache(id, result);
+        }
+        return result;
+    }
+
+
+    @Override
+    public boolean contains(String id) {
+        if (cacheCapacity > 0 && cache.containsKey(id)) {
+            return true;
+        }
+        byte[] key = encode(id);
+        return index.get(hash(key), x -> matches(x, key)) != OffHeapIndex.NOT_FOUND;
+    }
+
+
+    @Override
+    public void put(String id, T descriptor) {
+        byte[] key = encode(id);
+        byte[] value;
+        try {
+            value = mapper.writeValueAsBytes(descriptor);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(String.format("serializing descriptor failed (id: %s)", id), e);
+        }
+        cache.remove(id);
+        long address = append(key, value);
+        long previous = index.put(hash(key), address, x -> matches(x, key));
+        if (previous != OffHeapIndex.NOT_FOUND) {
+            release(previous);
+        }
+    }
+
+
+    @Override
+    public void remove(String id) {
+        cache.remove(id);
+        byte[] key = encode(id);
+        long address = index.remove(hash(key), x -> matches(x, key));
+        if (address != OffHeapIndex.NOT_FOUND) {
+            release(address);
+        }
+    }
+
+
+    @Override
+    public List<T> values() {
+        List<T> result = new ArrayList<>(index.size());
+        index.forEach(x -> result.add(deserialize(x)));
+        return result;
+    }
+
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+
+    @Override
+    public void clear() {
+        cache.clear();
+        index.clear();
+        chunks.clear();
+        current = null;
+    }
+
+
+    /**
+     * Gets the amount of direct memory allocated for records, including garbage not yet compacted.
+     *
+     * @return the allocated memory in bytes
+     */
+    public long getAllocatedBytes() {
+        return chunks.stream().filter(Objects::nonNull).mapToLong(x -> x.buffer.capacity()).sum();
+    }
+
+
+    /**
+     * Gets the size of all live records.
+     *
+     * @return the size of the live records in bytes
+     */
+    public long getLiveBytes() {
+        return chunks.stream().filter(Objects::nonNull).mapToLong(x -> x.live).sum();
+    }
+
+
+    private void addToCache(String id, T descriptor) {
+        if (cache.size() < cacheCapacity) {
+            cache.put(id, descriptor);
+            return;
+        }
+        Iterator<String> candidates = cache.keySet().iterator();
+        if (!candidates.hasNext()) {
+            return;
+        }
+        String victim = candidates.next();
+        if (admission.admit(id, victim)) {
+            cache.remove(victim);
+            cache.put(id, descriptor);
+        }
+    }
+
+
+    private T deserialize(long address) {
+        ByteBuffer buffer = chunks.get(chunkIndex(address)).buffer;
+        int offset = offset(address);
+        byte[] value = new byte[buffer.getInt(offset + Integer.BYTES)];
+        buffer.get(offset + HEADER_SIZE + buffer.getInt(offset), value);
+        try {
+            return mapper.readValue(value, type);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("deserializing descriptor failed", e);
+        }
+    }
+
+
+    private boolean matches(long address, byte[] key) {
+        ByteBuffer buffer = chunks.get(chunkIndex(address)).buffer;
+        int offset = offset(address);
+        return buffer.getInt(offset) == key.length
+                && buffer.slice(offset + HEADER_SIZE, key.length).equals(ByteBuffer.wrap(key));
+    }
+
+
+    private long append(byte[] key, byte[] value) {
+        int size = HEADER_SIZE + key.length + value.length;
+        if (Objects.isNull(current) || current.buffer.capacity() - current.used < size) {
+            current = allocateChunk(Math.max(chunkSize, size));
+        }
+        int offset = current.used;
+        current.buffer.putInt(offset, key.length);
+        current.buffer.putInt(offset + Integer.BYTES, value.length);
+        current.buffer.put(offset + HEADER_SIZE, key);
+        current.buffer.put(offset + HEADER_SIZE + key.length, value);
+        current.used += size;
+        current.live += size;
+        return address(current.index, offset);
+    }
+
+
+    private void release(long address) {
+        Chunk chunk = chunks.get(chunkIndex(address));
+        int offset = offset(address);
+        chunk.live -= HEADER_SIZE + chunk.buffer.getInt(offset) + chunk.buffer.getInt(offset + Integer.BYTES);
+        if (chunk != current && chunk.live < chunk.used * COMPACTION_THRESHOLD) {
+            compact(chunk);
+        }
+    }
+
+
+    private void compact(Chunk chunk) {
+        int offset = 0;
+        while (offset < chunk.used && chunk.live > 0) {
+            int keyLength = chunk.buffer.getInt(offset);
+            int valueLength = chunk.buffer.getInt(offset + Integer.BYTES);
+            int size = HEADER_SIZE + keyLength + valueLength;
+            long address = address(chunk.index, offset);
+            byte[] key = new byte[keyLength];
+            chunk.buffer.get(offset + HEADER_SIZE, key);
+            long hash = hash(key);
+            if (index.get(hash, x -> x == address) != OffHeapIndex.NOT_FOUND) {
+                byte[] value = new byte[valueLength];
+                chunk.buffer.get(offset + HEADER_SIZE + keyLength, value);
+                index.replace(hash, address, append(key, value));
+                chunk.live -= size;
+            }
+            offset += size;
+        }
+        chunks.set(chunk.index, null);
+    }
+
+
+    private Chunk allocateChunk(int size) {
+        int chunkIndex = chunks.indexOf(null);
+        if (chunkIndex < 0) {
+            chunkIndex = chunks.size();
+            chunks.add(null);
+        }
+        Chunk result = new Chunk(chunkIndex, ByteBuffer.allocateDirect(size));
+        chunks.set(chunkIndex, result);
+        return result;
+    }
+
+
+    private static byte[] encode(String id) {
+        return id.getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    private static long hash(byte[] key) {
+        long result = FNV_OFFSET_BASIS;
+        for (byte b: key) {
+            result = (result ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return result == 0 ? 1 : result;
+    }
+
+
+    private static long address(int chunkIndex, int offset) {
+        return ((long) chunkIndex << CHUNK_SHIFT) | offset;
+    }
+
+
+    private static int chunkIndex(long address) {
+        return (int) (address >>> CHUNK_SHIFT);
+    }
+
+
+    private static int offset(long address) {
+        return (int) (address & OFFSET_MASK);
+    }
+
+    private static class Chunk {
+
+        private final int index;
+        private final ByteBuffer buffer;
+        private int used;
+        private long live;
+
+        private Chunk(int index, ByteBuffer buffer) {
+            this.index = index;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Hash table mapping 64-bit key hashes to record addresses, stored in direct memory. Uses open addressing with linear
+ * probing; removals shift the following entries back instead of leaving tombstones, so lookups never degrade.
+ *
+ * <p>Each slot takes 16 bytes: the hash, with 0 marking an empty slot, and the address. Keys are not stored in the
+ * table, callers check candidates with equal hash against the key stored at the address.
+ *
+ * <p>This class is not thread-safe for modifications; lookups may run concurrently.
+ */
+class OffHeapIndex {
+
+    static final long NOT_FOUND = -1;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+
+    private LongBuffer slots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    /**
+     * Creates a new index.
+     *
+     * @param expectedSize number of entries to allocate space for
+     */
+    OffHeapIndex(int expectedSize) {
+        Ensure.require(expectedSize >= 0, "expectedSize must be non-negative");
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    /**
+     * Gets the address of a key.
+     *
+     * @param hash the hash of the key, not 0
+     * @param matches checks whether the key stored at an address is the key looked for
+     * @return the address, or {@link #NOT_FOUND}
+     */
+    long get(long hash, LongPredicate matches) {
+        int slot = find(hash, matches);
+        return slot < 0 ? NOT_FOUND : slots.get(2 * slot + 1);
+    }
+
+
+    /**
+     * Sets the address of a key.
+     *
+     * @param hash the hash of the key, not 0
+     * @param address the address, non-negative
+     * @param matches checks whether the key stored at an address is the key to set
+     * @return the previous address, or {@link #NOT_FOUND}
+     */
+    long put(long hash, long address, LongPredicate matches) {
+        int slot = find(hash, matches);
+        if (slot >= 0) {
+            long previous = slots.get(2 * slot + 1);
+            slots.put(2 * slot + 1, address);
+            return previous;
+        }
+        insert(slots, mask, hash, address);
+        size++;
+        if (size > resizeThreshold) {
+            resize(2 * (mask + 1));
+        }
+        return NOT_FOUND;
+    }
+
+
+    /**
+     * Replaces an address, e.g. after moving a record.
+     *
+     * @param hash the hash of the key, not 0
+     * @param address the current address
+     * @param newAddress the new address
+     * @return true if the address has been replaced, false if it was not found
+     */
+    boolean replace(long hash, long address, long newAddress) {
+        int slot = find(hash, x -> x == address);
+        if (slot < 0) {
+            return false;
+        }
+        slots.put(2 * slot + 1, newAddress);
+        return true;
+    }
+
+
+    /**
+     * Removes a key.
+     *
+     * @param hash the hash of the key, not 0
+     * @param matches checks whether the key stored at an address is the key to remove
+     * @return the address of the removed key, or {@link #NOT_FOUND}
+     */
+    long remove(long hash, LongPredicate matches) {
+        int slot = find(hash, matches);
+        if (slot < 0) {
+            return NOT_FOUND;
+        }
+        long address = slots.get(2 * slot + 1);
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long nextHash = slots.get(2 * next);
+            if (nextHash == 0) {
+                break;
+            }
+            int home = home(nextHash, mask);
+            boolean reachable = gap <= next ? gap < home && home <= next : gap < home || home <= next;
+            if (!reachable) {
+                slots.put(2 * gap, nextHash);
+                slots.put(2 * gap + 1, slots.get(2 * next + 1));
+                gap = next;
+            }
+        }
+        slots.put(2 * gap, 0);
+        slots.put(2 * gap + 1, 0);
+        size--;
+        return address;
+    }
+
+
+    /**
+     * Calls a consumer for the address of every key.
+     *
+     * @param consumer the consumer
+     */
+    void forEach(LongConsumer consumer) {
+        for (int slot = 0; slot <= mask; slot++) {
+            if (slots.get(2 * slot) != 0) {
+                consumer.accept(slots.get(2 * slot + 1));
+            }
+        }
+    }
+
+
+    /**
+     * Gets the number of keys.
+     *
+     * @return the number of keys
+     */
+    int size() {
+        return size;
+    }
+
+
+    /**
+     * Removes all keys and releases the memory of a grown table.
+     */
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+
+    private int find(long hash, LongPredicate matches) {
+        int slot = home(hash, mask);
+        while (true) {
+            long slotHash = slots.get(2 * slot);
+            if (slotHash == 0) {
+                return -1;
+            }
+            if (slotHash == hash && matches.test(slots.get(2 * slot + 1))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+
+    private void resize(int capacity) {
+        Ensure.require(capacity <= MAX_CAPACITY, String.format("off-heap index must not exceed %d slots", MAX_CAPACITY));
+        LongBuffer oldSlots = slots;
+        int oldMask = mask;
+        int oldSize = size;
+        allocate(capacity);
+        for (int slot = 0; slot <= oldMask; slot++) {
+            long hash = oldSlots.get(2 * slot);
+            if (hash != 0) {
+                insert(slots, mask, hash, oldSlots.get(2 * slot + 1));
+            }
+        }
+        size = oldSize;
+    }
+
+
+    private void allocate(int capacity) {
+        slots = ByteBuffer.allocateDirect(capacity * 2 * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        mask = capacity - 1;
+        size = 0;
+        resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+
+    private static void insert(LongBuffer slots, int mask, long hash, long address) {
+        int slot = home(hash, mask);
+        while (slots.get(2 * slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.put(2 * slot, hash);
+        slots.put(2 * slot + 1, address);
+    }
+
+
+    private static int home(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+
+    private static int capacityFor(int expectedSize) {
+        long required = (long) Math.ceil(expectedSize / MAX_LOAD_FACTOR);
+        return (int) Math.max(MIN_CAPACITY, Math.min(MAX_CAPACITY, Long.highestOneBit(Math.max(1, required - 1)) << 1));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorAttributes;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Inverted index mapping semanticId key values to the submodels carrying them and the shells exposing these submodels.
+ * Lookups take time proportional to the number of matches.
+ */
+class SemanticIdIndex {
+
+    private final Map<String, Set<SemanticIdMatch>> matchesBySemanticId;
+    private final Map<String, List<Entry>> entriesByShell;
+    private final Map<String, List<Entry>> entriesBySubmodel;
+
+    SemanticIdIndex() {
+        matchesBySemanticId = new HashMap<>();
+        entriesByShell = new HashMap<>();
+        entriesBySubmodel = new HashMap<>();
+    }
+
+
+    /**
+     * Adds the submodels of a shell to the index, replacing any entries previously added for this shell.
+     *
+     * @param aas the shell
+     */
+    void indexShell(AssetAdministrationShellDescriptor aas) {
+        unindexShell(aas.getId());
+        List<Entry> entries = new ArrayList<>();
+        if (Objects.nonNull(aas.getSubmodels())) {
+            for (SubmodelDescriptor submodel: aas.getSubmodels()) {
+                for (String semanticId: DescriptorAttributes.semanticIds(submodel)) {
+                    entries.add(add(semanticId, new SemanticIdMatch(submodel.getId(), aas.getId())));
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            entriesByShell.put(aas.getId(), entries);
+        }
+    }
+
+
+    /**
+     * Removes all entries added for a shell.
+     *
+     * @param aasId the ID of the shell
+     */
+    void unindexShell(String aasId) {
+        removeAll(entriesByShell.remove(aasId));
+    }
+
+
+    /**
+     * Adds a registered submodel to the index, replacing any entries previously added for this submodel.
+     *
+     * @param submodel the submodel
+     */
+    void indexSubmodel(SubmodelDescriptor submodel) {
+        unindexSubmodel(submodel.getId());
+        List<Entry> entries = new ArrayList<>();
+        for (String semanticId: DescriptorAttributes.semanticIds(submodel)) {
+            entries.add(add(semanticId, new SemanticIdMatch(submodel.getId(), null)));
+        }
+        if (!entries.isEmpty()) {
+            entriesBySubmodel.put(submodel.getId(), entries);
+        }
+    }
+
+
+    /**
+     * Removes all entries added for a registered submodel.
+     *
+     * @param submodelId the ID of the submodel
+     */
+    void unindexSubmodel(String submodelId) {
+        removeAll(entriesBySubmodel.remove(submodelId));
+    }
+
+
+    /**
+     * Finds all submodels with the given semanticId key value. Submodels exposed by a shell are reported once per shell,
+     * submodels not exposed by any shell are reported without a shell ID.
+     *
+     * @param semanticId the semanticId key value
+     * @return the matches
+     */
+    List<SemanticIdMatch> find(String semanticId) {
+        Set<SemanticIdMatch> matches = matchesBySemanticId.getOrDefault(semanticId, Set.of());
+        Set<String> exposed = new LinkedHashSet<>();
+        List<SemanticIdMatch> result = new ArrayList<>(matches.size());
+        for (SemanticIdMatch match: matches) {
+            if (Objects.nonNull(match.getAasId())) {
+                exposed.add(match.getSubmodelId());
+                result.add(match);
+            }
+        }
+        for (SemanticIdMatch match: matches) {
+            if (Objects.isNull(match.getAasId()) && !exposed.contains(match.getSubmodelId())) {
+                result.add(match);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        matchesBySemanticId.clear();
+        entriesByShell.clear();
+        entriesBySubmodel.clear();
+    }
+
+
+    private Entry add(String semanticId, SemanticIdMatch match) {
+        matchesBySemanticId.computeIfAbsent(semanticId, x -> new LinkedHashSet<>()).add(match);
+        return new Entry(semanticId, match);
+    }
+
+
+    private void removeAll(List<Entry> entries) {
+        if (Objects.isNull(entries)) {
+            return;
+        }
+        for (Entry entry: entries) {
+            Set<SemanticIdMatch> matches = matchesBySemanticId.get(entry.semanticId);
+            if (Objects.nonNull(matches)) {
+                matches.remove(entry.match);
+                if (matches.isEmpty()) {
+                    matchesBySemanticId.remove(entry.semanticId);
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String semanticId;
+        private final SemanticIdMatch match;
+
+        private Entry(String semanticId, SemanticIdMatch match) {
+            this.semanticId = semanticId;
+            this.match = match;
+        }
+    }
+}
@@ -0,0 +1,563 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.mvstore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.DescriptorIndex;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Implementation of the Repository persisting the descriptors in an embedded key-value store (H2 MVStore). Needs
+ * neither a database server nor an object-relational mapping.
+ *
+ * <p>The store consists of the following maps:
+ * <ul>
+ * <li>{@code shells}: shell ID to the serialized shell, including its submodels</li>
+ * <li>{@code submodels}: submodel ID to the serialized submodel, for submodels registered without a shell</li>
+ * <li>{@code submodel-shells}: submodel ID to the ID of the shell it belongs to</li>
+ * <li>{@code asset-ids}: global or specific asset ID and shell ID, separated by {@code \0}, to an empty value</li>
+ * </ul>
+ *
+ * <p>Descriptors are serialized by the given mapper, e.g. a Smile mapper for a compact binary encoding, and the store
+ * compresses its pages. Every modification changes all affected maps and is then committed as one new version of the
+ * store, so it is applied completely or not at all, even if the process crashes. Searches are answered from a
+ * {@link DescriptorIndex} in memory that is built when the store is opened.
+ *
+ * <p>This class is thread-safe; reads run concurrently, modifications are exclusive.
+ */
+public class AasRepositoryMvStore extends AbstractAasRepository implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AasRepositoryMvStore.class);
+    private static final String MAP_SHELLS = "shells";
+    private static final String MAP_SUBMODELS = "submodels";
+    private static final String MAP_SUBMODEL_SHELLS = "submodel-shells";
+    private static final String MAP_ASSET_IDS = "asset-ids";
+    private static final char KEY_SEPARATOR = '\0';
+
+    private final MVStore store;
+    private final MVMap<String, byte[]> shells;
+    private final MVMap<String, byte[]> submodels;
+    private final MVMap<String, String> submodelShells;
+    private final MVMap<String, String> assetIds;
+    private final ObjectMapper mapper;
+    private final DescriptorIndex index;
+    private final ReadWriteLock lock;
+
+    /**
+     * Opens or creates a store.
+     *
+     * @param fileName the file of the store, or null for a store that is kept in memory only
+     * @param cacheSize the size of the page cache in MB
+     * @param mapper the mapper serializing the descriptors
+     */
+    public AasRepositoryMvStore(String fileName, int cacheSize, ObjectMapper mapper) {
+        Ensure.require(cacheSize > 0, "cacheSize must be positive");
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        MVStore.Builder builder = new MVStore.Builder()
+                .cacheSize(cacheSize)
+                .compress()
+                .autoCommitDisabled();
+        if (Objects.nonNull(fileName)) {
+            builder.fileName(fileName);
+        }
+        this.store = builder.open();
+        this.shells = store.openMap(MAP_SHELLS);
+        this.submodels = store.openMap(MAP_SUBMODELS);
+        this.submodelShells = store.openMap(MAP_SUBMODEL_SHELLS);
+        this.assetIds = store.openMap(MAP_ASSET_IDS);
+        this.mapper = mapper;
+        this.index = new DescriptorIndex();
+        this.lock = new ReentrantReadWriteLock();
+        buildIndex();
+    }
+
+
+    /**
+     * Commits pending changes, if any, and closes the store.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            store.close();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Finds the shells having the given global or specific asset ID.
+     *
+     * @param assetId the asset ID
+     * @return the shells, ordered by ID
+     */
+    public List<AssetAdministrationShellDescriptor> findAASsByAssetId(String assetId) {
+        Ensure.requireNonNull(assetId, "assetId must be non-null");
+        String prefix = assetId + KEY_SEPARATOR;
+        lock.readLock().lock();
+        try {
+            List<AssetAdministrationShellDescriptor> result = new ArrayList<>();
+            Iterator<String> keys = assetIds.keyIterator(prefix);
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                result.add(fetchAAS(key.substring(prefix.length())));
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        lock.readLock().lock();
+        try {
+            return shells.values().stream()
+                    .map(x -> decode(x, AssetAdministrationShellDescriptor.class))
+                    .collect(Collectors.toList());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            return aas;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        lock.writeLock().lock();
+        try {
+            Ensure.require(!shells.containsKey(descriptor.getId()), buildAASAlreadyExistsException(descriptor.getId()));
+            commit(() -> putShell(descriptor));
+            indexShell(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            commit(() -> removeShell(aas));
+            unindexShell(aas);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            commit(() -> {
+                removeShell(aas);
+                putShell(descriptor);
+            });
+            unindexShell(aas);
+            indexShell(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            return new ArrayList<>(aas.getSubmodels());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        lock.readLock().lock();
+        try {
+            List<SubmodelDescriptor> result = submodels.values().stream()
+                    .map(x -> decode(x, SubmodelDescriptor.class))
+                    .collect(Collectors.toList());
+            for (byte[] shell: shells.values()) {
+                decode(shell, AssetAdministrationShellDescriptor.class).getSubmodels().stream()
+                        .filter(x -> !submodels.containsKey(x.getId()))
+                        .forEach(result::add);
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        lock.readLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            Optional<SubmodelDescriptor> submodel = getSubmodelInternal(aas.getSubmodels(), submodelId);
+            Ensure.require(submodel.isPresent(), buildSubmodelNotFoundInAASException(aasId, submodelId));
+            return submodel.get();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        lock.readLock().lock();
+        try {
+            SubmodelDescriptor submodel = fetchSubmodel(submodelId);
+            Ensure.requireNonNull(submodel, buildSubmodelNotFoundException(submodelId));
+            return submodel;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            if (getSubmodelInternal(aas.getSubmodels(), descriptor.getId()).isPresent()) {
+                throw buildSubmodelAlreadyExistsException(descriptor.getId());
+            }
+            aas.getSubmodels().add(descriptor);
+            commit(() -> {
+                shells.put(aasId, encode(aas));
+                submodelShells.put(descriptor.getId(), aasId);
+            });
+            index.indexShell(aas);
+            if (!submodels.containsKey(descriptor.getId())) {
+                index.indexSubmodel(descriptor);
+            }
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        lock.writeLock().lock();
+        try {
+            Ensure.require(
+                    !submodels.containsKey(descriptor.getId()) && !submodelShells.containsKey(descriptor.getId()),
+                    buildSubmodelAlreadyExistsException(descriptor.getId()));
+            commit(() -> submodels.put(descriptor.getId(), encode(descriptor)));
+            index.indexSubmodel(descriptor);
+            return descriptor;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        lock.writeLock().lock();
+        try {
+            AssetAdministrationShellDescriptor aas = fetchAAS(aasId);
+            Ensure.requireNonNull(aas, buildAASNotFoundException(aasId));
+            removeSubmodelFromShell(aas, submodelId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        lock.writeLock().lock();
+        try {
+            if (submodels.containsKey(submodelId)) {
+                commit(() -> submodels.remove(submodelId));
+                index.unindexSubmodel(submodelId);
+                SubmodelDescriptor nested = fetchSubmodel(submodelId);
+                if (Objects.nonNull(nested)) {
+                    index.indexSubmodel(nested);
+                }
+                return;
+            }
+            String aasId = submodelShells.get(submodelId);
+            Ensure.requireNonNull(aasId, buildSubmodelNotFoundException(submodelId));
+            removeSubmodelFromShell(fetchAAS(aasId), submodelId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        lock.readLock().lock();
+        try {
+            PagedResult<String> ids = index.findShells(query);
+            return new PagedResult<>(
+                    ids.getItems().stream().map(this::fetchAAS).collect(Collectors.toList()),
+                    ids.getOffset(),
+                    ids.getLimit(),
+                    ids.getTotal());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        Ensure.requireNonNull(query, "query must be non-null");
+        lock.readLock().lock();
+        try {
+            PagedResult<String> ids = index.findSubmodels(query);
+            return new PagedResult<>(
+                    ids.getItems().stream().map(this::fetchSubmodel).collect(Collectors.toList()),
+                    ids.getOffset(),
+                    ids.getLimit(),
+                    ids.getTotal());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        Ensure.requireNonNull(semanticId, "semanticId must be non-null");
+        lock.readLock().lock();
+        try {
+            return index.findBySemanticId(semanticId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    private void buildIndex() {
+        long start = System.currentTimeMillis();
+        for (byte[] submodel: submodels.values()) {
+            index.indexSubmodel(decode(submodel, SubmodelDescriptor.class));
+        }
+        for (byte[] shell: shells.values()) {
+            indexShell(decode(shell, AssetAdministrationShellDescriptor.class));
+        }
+        LOGGER.info("indexed {} shells and {} submodels without shell in {} ms", shells.size(), submodels.size(), System.currentTimeMillis() - start);
+    }
+
+
+    private void commit(Runnable changes) {
+        try {
+            changes.run();
+            store.commit();
+        }
+        catch (RuntimeException e) {
+            store.rollback();
+            throw e;
+        }
+    }
+
+
+    private void putShell(AssetAdministrationShellDescriptor aas) {
+        shells.put(aas.getId(), encode(aas));
+        aas.getSubmodels().forEach(x -> submodelShells.put(x.getId(), aas.getId()));
+        getAssetIds(aas).forEach(x -> assetIds.put(x + KEY_SEPARATOR + aas.getId(), ""));
+    }
+
+
+    private void removeShell(AssetAdministrationShellDescriptor aas) {
+        shells.remove(aas.getId());
+        aas.getSubmodels().forEach(x -> submodelShells.remove(x.getId(), aas.getId()));
+        getAssetIds(aas).forEach(x -> assetIds.remove(x + KEY_SEPARATOR + aas.getId()));
+    }
+
+
+    private void removeSubmodelFromShell(AssetAdministrationShellDescriptor aas, String submodelId) throws ResourceNotFoundException {
+        boolean found = aas.getSubmodels().removeIf(x -> Objects.equals(x.getId(), submodelId));
+        Ensure.require(found, buildSubmodelNotFoundException(submodelId));
+        commit(() -> {
+            shells.put(aas.getId(), encode(aas));
+            submodelShells.remove(submodelId, aas.getId());
+        });
+        index.indexShell(aas);
+        if (!submodels.containsKey(submodelId)) {
+            index.unindexSubmodel(submodelId);
+        }
+    }
+
+
+    private void indexShell(AssetAdministrationShellDescriptor aas) {
+        index.indexShell(aas);
+        aas.getSubmodels().stream()
+                .filter(x -> !submodels.containsKey(x.getId()))
+                .forEach(index::indexSubmodel);
+    }
+
+
+    private void unindexShell(AssetAdministrationShellDescriptor aas) {
+        index.unindexShell(aas.getId());
+        aas.getSubmodels().stream()
+                .filter(x -> !submodels.containsKey(x.getId()))
+                .forEach(x -> index.unindexSubmodel(x.getId()));
+    }
+
+
+    private AssetAdministrationShellDescriptor fetchAAS(String aasId) {
+        byte[] value = shells.get(aasId);
+        return Objects.isNull(value) ? null : decode(value, AssetAdministrationShellDescriptor.class);
+    }
+
+
+    private SubmodelDescriptor fetchSubmodel(String submodelId) {
+        byte[] value = submodels.get(submodelId);
+        if (Objects.nonNull(value)) {
+            return decode(value, SubmodelDescriptor.class);
+        }
+        String aasId = submodelShells.get(submodelId);
+        if (Objects.isNull(aasId)) {
+            return null;
+        }
+        return getSubmodelInternal(fetchAAS(aasId).getSubmodels(), submodelId).orElse(null);
+    }
+
+
+    private static Set<String> getAssetIds(AssetAdministrationShellDescriptor aas) {
+        Set<String> result = new HashSet<>();
+        if (Objects.nonNull(aas.getGlobalAssetId())) {
+            result.add(aas.getGlobalAssetId());
+        }
+        if (Objects.nonNull(aas.getSpecificAssetIds())) {
+            aas.getSpecificAssetIds().stream()
+                    .filter(x -> Objects.nonNull(x) && Objects.nonNull(x.getValue()))
+                    .forEach(x -> result.add(x.getValue()));
+        }
+        return result;
+    }
+
+
+    private byte[] encode(Object descriptor) {
+        try {
+            return mapper.writeValueAsBytes(descriptor);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("serializing descriptor failed", e);
+        }
+    }
+
+
+    private <T> T decode(byte[] value, Class<T> type) {
+        try {
+            return mapper.readValue(value, type);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("deserializing descriptor failed", e);
+        }
+    }
+}
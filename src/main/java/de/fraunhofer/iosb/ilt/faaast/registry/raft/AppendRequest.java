@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * AppendEntries RPC sent by the leader to replicate entries; without entries it serves as heartbeat.
+ */
+public class AppendRequest {
+
+    private final long term;
+    private final String leaderId;
+    private final long prevLogIndex;
+    private final long prevLogTerm;
+    private final List<LogEntry> entries;
+    private final long leaderCommit;
+
+    @JsonCreator
+    public AppendRequest(@JsonProperty("term") long term,
+                         @JsonProperty("leaderId") String leaderId,
+                         @JsonProperty("prevLogIndex") long prevLogIndex,
+                         @JsonProperty("prevLogTerm") long prevLogTerm,
+                         @JsonProperty("entries") List<LogEntry> entries,
+                         @JsonProperty("leaderCommit") long leaderCommit) {
+        this.term = term;
+        this.leaderId = leaderId;
+        this.prevLogIndex = prevLogIndex;
+        this.prevLogTerm = prevLogTerm;
+        this.entries = entries;
+        this.leaderCommit = leaderCommit;
+    }
+
+
+    /**
+     * The term of the leader.
+     *
+     * @return the term of the leader
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * The ID of the leader.
+     *
+     * @return the ID of the leader
+     */
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+
+    /**
+     * The index of the entry immediately preceding the new entries.
+     *
+     * @return the index of the entry immediately preceding the new entries
+     */
+    public long getPrevLogIndex() {
+        return prevLogIndex;
+    }
+
+
+    /**
+     * The term of the entry immediately preceding the new entries.
+     *
+     * @return the term of the entry immediately preceding the new entries
+     */
+    public long getPrevLogTerm() {
+        return prevLogTerm;
+    }
+
+
+    /**
+     * The entries to append.
+     *
+     * @return the entries to append
+     */
+    public List<LogEntry> getEntries() {
+        return entries;
+    }
+
+
+    /**
+     * The commit index of the leader.
+     *
+     * @return the commit index of the leader
+     */
+    public long getLeaderCommit() {
+        return leaderCommit;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * Reply to an {@link AppendRequest} or {@link InstallSnapshotRequest}.
+ */
+public class AppendResponse {
+
+    private final long term;
+    private final boolean success;
+    private final long matchIndex;
+
+    @JsonCreator
+    public AppendResponse(@JsonProperty("term") long term,
+                          @JsonProperty("success") boolean success,
+                          @JsonProperty("matchIndex") long matchIndex) {
+        this.term = term;
+        this.success = success;
+        this.matchIndex = matchIndex;
+    }
+
+
+    /**
+     * The current term of the follower.
+     *
+     * @return the current term of the follower
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * Whether the entries have been appended.
+     *
+     * @return whether the entries have been appended
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+
+    /**
+     * On success the index of the last entry known to match the leader, otherwise the index after which the leader should retry.
+     *
+     * @return the match index
+     */
+    public long getMatchIndex() {
+        return matchIndex;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Outcome of applying a {@link RaftCommand}. Failures are part of the result rather than exceptions so that they can
+ * be reported to the node that forwarded the command.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CommandResult {
+
+    /**
+     * Kind of failure.
+     */
+    public enum Error {
+        NOT_FOUND,
+        ALREADY_EXISTS,
+        INVALID
+    }
+
+    private final AssetAdministrationShellDescriptor shell;
+    private final SubmodelDescriptor submodel;
+    private final Error error;
+    private final String message;
+
+    @JsonCreator
+    public CommandResult(@JsonProperty("shell") AssetAdministrationShellDescriptor shell,
+                         @JsonProperty("submodel") SubmodelDescriptor submodel,
+                         @JsonProperty("error") Error error,
+                         @JsonProperty("message") String message) {
+        this.shell = shell;
+        this.submodel = submodel;
+        this.error = error;
+        this.message = message;
+    }
+
+
+    /**
+     * Creates a successful result.
+     *
+     * @param shell the resulting shell, if any
+     * @param submodel the resulting submodel, if any
+     * @return the result
+     */
+    public static CommandResult success(AssetAdministrationShellDescriptor shell, SubmodelDescriptor submodel) {
+        return new CommandResult(shell, submodel, null, null);
+    }
+
+
+    /**
+     * Creates a failed result.
+     *
+     * @param error the kind of failure
+     * @param message the error message
+     * @return the result
+     */
+    public static CommandResult failure(Error error, String message) {
+        return new CommandResult(null, null, error, message);
+    }
+
+
+    /**
+     * The resulting shell.
+     *
+     * @return the shell, or null if not applicable
+     */
+    public AssetAdministrationShellDescriptor getShell() {
+        return shell;
+    }
+
+
+    /**
+     * The resulting submodel.
+     *
+     * @return the submodel, or null if not applicable
+     */
+    public SubmodelDescriptor getSubmodel() {
+        return submodel;
+    }
+
+
+    /**
+     * The kind of failure.
+     *
+     * @return the error, or null on success
+     */
+    public Error getError() {
+        return error;
+    }
+
+
+    /**
+     * The error message.
+     *
+     * @return the message, or null on success
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+
+
+/**
+ * {@link RaftTransport} sending RPCs as JSON over HTTP to the Raft endpoint ({@value #BASE_PATH}) of other nodes.
+ * Node IDs are the base URLs of the nodes, e.g. http://localhost:8090.
+ */
+public class HttpRaftTransport implements RaftTransport {
+
+    /**
+     * Path of the Raft endpoint relative to the base URL of a node.
+     */
+    public static final String BASE_PATH = "/registry/raft";
+
+    private final ObjectMapper mapper;
+    private final int rpcTimeout;
+    private final int requestTimeout;
+    private final Map<String, RestClient> rpcClients;
+    private final Map<String, RestClient> requestClients;
+
+    /**
+     * Creates a new transport.
+     *
+     * @param mapper the mapper used to read and write messages
+     * @param rpcTimeout connect and read timeout in milliseconds for votes, log replication and snapshots
+     * @param requestTimeout connect and read timeout in milliseconds for forwarded commands and reads
+     */
+    public HttpRaftTransport(ObjectMapper mapper, int rpcTimeout, int requestTimeout) {
+        this.mapper = mapper;
+        this.rpcTimeout = rpcTimeout;
+        this.requestTimeout = requestTimeout;
+        this.rpcClients = new ConcurrentHashMap<>();
+        this.requestClients = new ConcurrentHashMap<>();
+    }
+
+
+    @Override
+    public VoteResponse requestVote(String node, VoteRequest request) {
+        return rpcClient(node).post().uri("/vote").body(request).retrieve().body(VoteResponse.class);
+    }
+
+
+    @Override
+    public AppendResponse appendEntries(String node, AppendRequest request) {
+        return rpcClient(node).post().uri("/append").body(request).retrieve().body(AppendResponse.class);
+    }
+
+
+    @Override
+    public AppendResponse installSnapshot(String node, InstallSnapshotRequest request) {
+        return requestClient(node).post().uri("/install-snapshot").body(request).retrieve().body(AppendResponse.class);
+    }
+
+
+    @Override
+    public CommandResult propose(String leader, RaftCommand command) {
+        try {
+            return requestClient(leader).post().uri("/propose").body(command).retrieve().body(CommandResult.class);
+        }
+        catch (HttpServerErrorException.ServiceUnavailable e) {
+            throw new ServiceUnavailableException(String.format("leader could not commit the command (leader: %s)", leader), e);
+        }
+    }
+
+
+    @Override
+    public long readIndex(String leader) {
+        try {
+            return requestClient(leader).get().uri("/read-index").retrieve().body(Long.class);
+        }
+        catch (HttpServerErrorException.ServiceUnavailable e) {
+            throw new ServiceUnavailableException(String.format("leader could not confirm its leadership (leader: %s)", leader), e);
+        }
+    }
+
+
+    private RestClient rpcClient(String node) {
+        return rpcClients.computeIfAbsent(node, x -> createClient(x, rpcTimeout));
+    }
+
+
+    private RestClient requestClient(String node) {
+        return requestClients.computeIfAbsent(node, x -> createClient(x, requestTimeout));
+    }
+
+
+    private RestClient createClient(String node, int timeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        return RestClient.builder()
+                .baseUrl(node + BASE_PATH)
+                .requestFactory(requestFactory)
+                .messageConverters(x -> {
+                    x.removeIf(MappingJackson2HttpMessageConverter.class::isInstance);
+                    x.add(new MappingJackson2HttpMessageConverter(mapper));
+                })
+                .build();
+    }
+}
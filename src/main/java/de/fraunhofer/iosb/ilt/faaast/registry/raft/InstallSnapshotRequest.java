@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+
+
+/**
+ * InstallSnapshot RPC sent by the leader to followers lagging behind the start of its log.
+ */
+public class InstallSnapshotRequest {
+
+    private final long term;
+    private final String leaderId;
+    private final long lastIncludedIndex;
+    private final long lastIncludedTerm;
+    private final Snapshot snapshot;
+
+    @JsonCreator
+    public InstallSnapshotRequest(@JsonProperty("term") long term,
+                                  @JsonProperty("leaderId") String leaderId,
+                                  @JsonProperty("lastIncludedIndex") long lastIncludedIndex,
+                                  @JsonProperty("lastIncludedTerm") long lastIncludedTerm,
+                                  @JsonProperty("snapshot") Snapshot snapshot) {
+        this.term = term;
+        this.leaderId = leaderId;
+        this.lastIncludedIndex = lastIncludedIndex;
+        this.lastIncludedTerm = lastIncludedTerm;
+        this.snapshot = snapshot;
+    }
+
+
+    /**
+     * The term of the leader.
+     *
+     * @return the term of the leader
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * The ID of the leader.
+     *
+     * @return the ID of the leader
+     */
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+
+    /**
+     * The index of the last entry covered by the snapshot.
+     *
+     * @return the index of the last entry covered by the snapshot
+     */
+    public long getLastIncludedIndex() {
+        return lastIncludedIndex;
+    }
+
+
+    /**
+     * The term of the last entry covered by the snapshot.
+     *
+     * @return the term of the last entry covered by the snapshot
+     */
+    public long getLastIncludedTerm() {
+        return lastIncludedTerm;
+    }
+
+
+    /**
+     * The state of the registry after applying all entries up to the last included index.
+     *
+     * @return the state of the registry after applying all entries up to the last included index
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+}
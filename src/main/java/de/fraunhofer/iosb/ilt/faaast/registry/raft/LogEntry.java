@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * An entry of the Raft log. Entries without a command are no-ops appended by a new leader to commit the entries of previous terms.
+ */
+public class LogEntry {
+
+    private final long term;
+    private final long index;
+    private final RaftCommand command;
+
+    @JsonCreator
+    public LogEntry(@JsonProperty("term") long term,
+                    @JsonProperty("index") long index,
+                    @JsonProperty("command") RaftCommand command) {
+        this.term = term;
+        this.index = index;
+        this.command = command;
+    }
+
+
+    /**
+     * The term in which the entry was created.
+     *
+     * @return the term in which the entry was created
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * The position of the entry in the log, starting at 1.
+     *
+     * @return the position of the entry in the log, starting at 1
+     */
+    public long getIndex() {
+        return index;
+    }
+
+
+    /**
+     * The replicated command, null for no-op entries.
+     *
+     * @return the replicated command, null for no-op entries
+     */
+    public RaftCommand getCommand() {
+        return command;
+    }
+}
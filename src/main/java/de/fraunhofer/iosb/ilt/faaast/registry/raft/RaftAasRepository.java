@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} replicating an in-memory repository across a Raft cluster.
+ *
+ * <p>Modifications are committed through the log of the leader and are durable as long as a majority of the nodes
+ * is alive. Reads are served from the local copy after {@link RaftNode#awaitReadable()} guaranteed that it reflects
+ * all modifications committed before.
+ */
+public class RaftAasRepository extends AbstractAasRepository implements AutoCloseable {
+
+    private final RaftNode node;
+    private final AasRepositoryMemory local;
+
+    public RaftAasRepository(RaftNode node, AasRepositoryMemory local) {
+        Ensure.requireNonNull(node, "node must be non-null");
+        Ensure.requireNonNull(local, "local must be non-null");
+        this.node = node;
+        this.local = local;
+    }
+
+
+    /**
+     * Gets the Raft node.
+     *
+     * @return the node
+     */
+    public RaftNode getNode() {
+        return node;
+    }
+
+
+    /**
+     * Gets the local repository the committed modifications are applied to.
+     *
+     * @return the local repository
+     */
+    public AasRepositoryMemory getLocal() {
+        return local;
+    }
+
+
+    @Override
+    public void close() {
+        node.stop();
+        closeDelegate(local);
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        node.awaitReadable();
+        return local.getAASs();
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        node.awaitReadable();
+        return local.getAASs(projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        node.awaitReadable();
+        return local.getAAS(aasId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        node.awaitReadable();
+        return local.getAAS(aasId, projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        CommandResult result = propose(RaftCommand.createShell(descriptor));
+        requireAbsent(result);
+        requireSuccess(result);
+        return result.getShell();
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        CommandResult result = propose(RaftCommand.deleteShell(aasId));
+        requireFound(result);
+        requireSuccess(result);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        CommandResult result = propose(RaftCommand.updateShell(aasId, descriptor));
+        requireFound(result);
+        requireSuccess(result);
+        return result.getShell();
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        node.awaitReadable();
+        return local.getSubmodels(aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        node.awaitReadable();
+        return local.getSubmodels();
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        node.awaitReadable();
+        return local.getSubmodel(aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        node.awaitReadable();
+        return local.getSubmodel(submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        CommandResult result = propose(RaftCommand.addSubmodel(aasId, descriptor));
+        requireFound(result);
+        requireAbsent(result);
+        requireSuccess(result);
+        return result.getSubmodel();
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        CommandResult result = propose(RaftCommand.addSubmodel(null, descriptor));
+        requireAbsent(result);
+        requireSuccess(result);
+        return result.getSubmodel();
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        CommandResult result = propose(RaftCommand.deleteSubmodel(aasId, submodelId));
+        requireFound(result);
+        requireSuccess(result);
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        CommandResult result = propose(RaftCommand.deleteSubmodel(null, submodelId));
+        requireFound(result);
+        requireSuccess(result);
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        node.awaitReadable();
+        return local.findAASs(query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        node.awaitReadable();
+        return local.findSubmodels(query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        node.awaitReadable();
+        return local.findBySemanticId(semanticId);
+    }
+
+
+    private CommandResult propose(RaftCommand command) {
+        return node.propose(command.withOrigin(node.getSelf()));
+    }
+
+
+    private static void requireFound(CommandResult result) throws ResourceNotFoundException {
+        if (result.getError() == CommandResult.Error.NOT_FOUND) {
+            throw new ResourceNotFoundException(result.getMessage());
+        }
+    }
+
+
+    private static void requireAbsent(CommandResult result) throws ResourceAlreadyExistsException {
+        if (result.getError() == CommandResult.Error.ALREADY_EXISTS) {
+            throw new ResourceAlreadyExistsException(result.getMessage());
+        }
+    }
+
+
+    private static void requireSuccess(CommandResult result) {
+        if (result.getError() == CommandResult.Error.INVALID) {
+            throw new IllegalArgumentException(result.getMessage());
+        }
+        if (Objects.nonNull(result.getError())) {
+            throw new IllegalStateException(String.format("unexpected result of command (error: %s, message: %s)", result.getError(), result.getMessage()));
+        }
+    }
+}
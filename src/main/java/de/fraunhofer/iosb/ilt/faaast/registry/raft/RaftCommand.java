@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * A modification of the registry replicated through the Raft log.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RaftCommand {
+
+    /**
+     * Kind of modification.
+     */
+    public enum Type {
+        CREATE_SHELL,
+        UPDATE_SHELL,
+        DELETE_SHELL,
+        ADD_SUBMODEL,
+        DELETE_SUBMODEL
+    }
+
+    private final Type type;
+    private final String aasId;
+    private final String submodelId;
+    private final AssetAdministrationShellDescriptor shell;
+    private final SubmodelDescriptor submodel;
+    private final String origin;
+
+    @JsonCreator
+    public RaftCommand(@JsonProperty("type") Type type,
+                       @JsonProperty("aasId") String aasId,
+                       @JsonProperty("submodelId") String submodelId,
+                       @JsonProperty("shell") AssetAdministrationShellDescriptor shell,
+                       @JsonProperty("submodel") SubmodelDescriptor submodel,
+                       @JsonProperty("origin") String origin) {
+        this.type = type;
+        this.aasId = aasId;
+        this.submodelId = submodelId;
+        this.shell = shell;
+        this.submodel = submodel;
+        this.origin = origin;
+    }
+
+
+    /**
+     * Creates a command creating a shell.
+     *
+     * @param shell the shell
+     * @return the command
+     */
+    public static RaftCommand createShell(AssetAdministrationShellDescriptor shell) {
+        return new RaftCommand(Type.CREATE_SHELL, null, null, shell, null, null);
+    }
+
+
+    /**
+     * Creates a command updating a shell.
+     *
+     * @param aasId the ID of the shell to update
+     * @param shell the new shell
+     * @return the command
+     */
+    public static RaftCommand updateShell(String aasId, AssetAdministrationShellDescriptor shell) {
+        return new RaftCommand(Type.UPDATE_SHELL, aasId, null, shell, null, null);
+    }
+
+
+    /**
+     * Creates a command deleting a shell.
+     *
+     * @param aasId the ID of the shell
+     * @return the command
+     */
+    public static RaftCommand deleteShell(String aasId) {
+        return new RaftCommand(Type.DELETE_SHELL, aasId, null, null, null, null);
+    }
+
+
+    /**
+     * Creates a command adding a submodel.
+     *
+     * @param aasId the ID of the shell to add the submodel to, or null to register the submodel on its own
+     * @param submodel the submodel
+     * @return the command
+     */
+    public static RaftCommand addSubmodel(String aasId, SubmodelDescriptor submodel) {
+        return new RaftCommand(Type.ADD_SUBMODEL, aasId, null, null, submodel, null);
+    }
+
+
+    /**
+     * Creates a command deleting a submodel.
+     *
+     * @param aasId the ID of the shell to remove the submodel from, or null for submodels registered on their own
+     * @param submodelId the ID of the submodel
+     * @return the command
+     */
+    public static RaftCommand deleteSubmodel(String aasId, String submodelId) {
+        return new RaftCommand(Type.DELETE_SUBMODEL, aasId, submodelId, null, null, null);
+    }
+
+
+    /**
+     * Creates a copy of this command recording the node that received it from a client.
+     *
+     * @param value the ID of the node
+     * @return the copy
+     */
+    public RaftCommand withOrigin(String value) {
+        return new RaftCommand(type, aasId, submodelId, shell, submodel, value);
+    }
+
+
+    /**
+     * The kind of modification.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+
+    /**
+     * The ID of the affected shell.
+     *
+     * @return the shell ID, or null if not applicable
+     */
+    public String getAasId() {
+        return aasId;
+    }
+
+
+    /**
+     * The ID of the submodel to delete.
+     *
+     * @return the submodel ID, or null if not applicable
+     */
+    public String getSubmodelId() {
+        return submodelId;
+    }
+
+
+    /**
+     * The shell to create or the new shell of an update.
+     *
+     * @return the shell, or null if not applicable
+     */
+    public AssetAdministrationShellDescriptor getShell() {
+        return shell;
+    }
+
+
+    /**
+     * The submodel to add.
+     *
+     * @return the submodel, or null if not applicable
+     */
+    public SubmodelDescriptor getSubmodel() {
+        return submodel;
+    }
+
+
+    /**
+     * The node that received the command from a client. This node has already notified its listeners about the
+     * modification.
+     *
+     * @return the node ID, or null if unknown
+     */
+    public String getOrigin() {
+        return origin;
+    }
+}
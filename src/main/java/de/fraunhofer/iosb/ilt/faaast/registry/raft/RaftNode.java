@@ -0,0 +1,1317 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * A member of a Raft cluster replicating a {@link StateMachine}.
+ *
+ * <p>Writes are appended to the log of the leader (followers forward them) and acknowledged once they are committed
+ * on a majority and applied. Proposals do not wait for each other, so many of them are in flight at once; the leader
+ * replicates them to each follower in batches of up to {@code maxBatchSize} entries with up to {@code maxInflight}
+ * outstanding AppendEntries requests per follower.
+ *
+ * <p>Reads are linearizable without a round trip through the log: the leader answers locally while it holds a lease,
+ * i.e. while a majority has acknowledged it within the last election timeout, because followers refuse to vote for a
+ * new leader during that time. Followers ask the leader for its commit index and wait until they have applied it.
+ *
+ * <p>The log is compacted into a snapshot of the state machine every {@code snapshotThreshold} entries; followers
+ * lagging behind the start of the log receive the snapshot. Term, vote, log and snapshot are persisted in a
+ * {@link RaftStorage}: a node forces its term and vote to disk before it asks for or grants votes, and new log entries
+ * before it acknowledges them. The leader forces the entries of concurrent proposals to disk together and counts
+ * itself towards the majority of an entry only afterwards. A restarted node recovers the snapshot and the entries known
+ * to be committed and is brought up to date by the leader.
+ */
+public class RaftNode {
+
+    /**
+     * Role of a node.
+     */
+    public enum Role {
+        FOLLOWER,
+        CANDIDATE,
+        LEADER
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaftNode.class);
+    private static final long TICK_INTERVAL = 10;
+    private static final double LEASE_FACTOR = 0.9;
+
+    private final String self;
+    private final List<String> peers;
+    private final StateMachine stateMachine;
+    private final RaftTransport transport;
+    private final RaftStorage storage;
+    private final long electionTimeoutMin;
+    private final long electionTimeoutMax;
+    private final long heartbeatInterval;
+    private final long requestTimeout;
+    private final int maxBatchSize;
+    private final int maxInflight;
+    private final int snapshotThreshold;
+    private final boolean staleReads;
+
+    private final ReentrantLock lock;
+    private final Condition changed;
+    private final ReentrantLock applyLock;
+    private final ReentrantLock syncLock;
+    private final ExecutorService rpcExecutor;
+    private final Map<String, Peer> peerStates;
+    private final Map<Long, Pending> pending;
+    private final List<LogEntry> log;
+    private Snapshot snapshot;
+    private long snapshotIndex;
+    private long snapshotTerm;
+    private long logStart;
+    private long logStartTerm;
+    private Role role;
+    private long currentTerm;
+    private String votedFor;
+    private String leaderId;
+    private Set<String> votes;
+    private long commitIndex;
+    private long lastApplied;
+    private long writtenIndex;
+    private long syncedIndex;
+    private long logRewrites;
+    private long electionDeadline;
+    private long leaderSince;
+    private long lastHeardFromLeader;
+    private long outageStart;
+    private long lastFailoverMillis;
+    private long leaderChanges;
+    private volatile boolean running;
+
+    private RaftNode(Builder builder) {
+        Ensure.requireNonNull(builder.self, "self must be non-null");
+        Ensure.requireNonNull(builder.nodes, "nodes must be non-null");
+        Ensure.require(builder.nodes.contains(builder.self), "nodes must contain self");
+        Ensure.requireNonNull(builder.stateMachine, "stateMachine must be non-null");
+        Ensure.requireNonNull(builder.transport, "transport must be non-null");
+        Ensure.requireNonNull(builder.storage, "storage must be non-null");
+        Ensure.require(builder.heartbeatInterval > 0 && builder.heartbeatInterval < builder.electionTimeoutMin,
+                "heartbeatInterval must be positive and less than electionTimeoutMin");
+        Ensure.require(builder.electionTimeoutMin < builder.electionTimeoutMax, "electionTimeoutMin must be less than electionTimeoutMax");
+        Ensure.require(builder.maxBatchSize > 0, "maxBatchSize must be positive");
+        Ensure.require(builder.maxInflight > 0, "maxInflight must be positive");
+        Ensure.require(builder.snapshotThreshold > 0, "snapshotThreshold must be positive");
+        this.self = builder.self;
+        this.peers = builder.nodes.stream().filter(x -> !Objects.equals(x, builder.self)).distinct().toList();
+        this.stateMachine = builder.stateMachine;
+        this.transport = builder.transport;
+        this.storage = builder.storage;
+        this.electionTimeoutMin = builder.electionTimeoutMin;
+        this.electionTimeoutMax = builder.electionTimeoutMax;
+        this.heartbeatInterval = builder.heartbeatInterval;
+        this.requestTimeout = builder.requestTimeout;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxInflight = builder.maxInflight;
+        this.snapshotThreshold = builder.snapshotThreshold;
+        this.staleReads = builder.staleReads;
+        this.lock = new ReentrantLock();
+        this.changed = lock.newCondition();
+        this.applyLock = new ReentrantLock();
+        this.syncLock = new ReentrantLock();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.rpcExecutor = Executors.newCachedThreadPool(x -> daemon(x, "raft-rpc-" + threadCount.incrementAndGet()));
+        this.peerStates = new HashMap<>();
+        peers.forEach(x -> peerStates.put(x, new Peer(x)));
+        this.pending = new HashMap<>();
+        this.log = new ArrayList<>(storage.getLog());
+        this.currentTerm = storage.getTerm();
+        this.votedFor = storage.getVotedFor();
+        this.snapshot = storage.getSnapshot();
+        this.snapshotIndex = storage.getSnapshotIndex();
+        this.snapshotTerm = storage.getSnapshotTerm();
+        this.logStart = storage.getLogStart();
+        this.logStartTerm = storage.getLogStartTerm();
+        this.writtenIndex = lastLogIndex();
+        this.syncedIndex = lastLogIndex();
+        this.commitIndex = Math.max(snapshotIndex, Math.min(storage.getCommitIndex(), lastLogIndex()));
+        this.role = Role.FOLLOWER;
+        this.votes = new HashSet<>();
+        this.lastFailoverMillis = -1;
+    }
+
+
+    /**
+     * Recovers the persisted state and starts the election timer and the thread applying committed entries.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            recover();
+            running = true;
+            resetElectionDeadline();
+        }
+        finally {
+            lock.unlock();
+        }
+        daemon(this::runTicker, "raft-ticker").start();
+        daemon(this::runApplier, "raft-applier").start();
+        LOGGER.info("raft node started (self: {}, peers: {})", self, peers);
+    }
+
+
+    /**
+     * Stops all activity of the node and closes its storage. Pending proposals fail.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            failPending("raft node stopped");
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        rpcExecutor.shutdownNow();
+        applyLock.lock();
+        lock.lock();
+        try {
+            storage.close();
+        }
+        finally {
+            lock.unlock();
+            applyLock.unlock();
+        }
+    }
+
+
+    /**
+     * Gets the ID of this node.
+     *
+     * @return the ID
+     */
+    public String getSelf() {
+        return self;
+    }
+
+
+    /**
+     * Replicates a command and waits until it has been applied. Followers forward the command to the leader.
+     *
+     * @param command the command
+     * @return the outcome of the command
+     * @throws ServiceUnavailableException if there is no leader or the command could not be committed in time; the
+     *             command may or may not have been applied in the latter case
+     */
+    public CommandResult propose(RaftCommand command) {
+        return propose(command, true);
+    }
+
+
+    /**
+     * Replicates a command forwarded by another node. In contrast to {@link #propose(RaftCommand)}, the command is not
+     * forwarded again if this node is not the leader.
+     *
+     * @param command the command
+     * @return the outcome of the command
+     * @throws ServiceUnavailableException if this node is not the leader or the command could not be committed in
+     *             time
+     */
+    public CommandResult proposeForwarded(RaftCommand command) {
+        return propose(command, false);
+    }
+
+
+    /**
+     * Blocks until a subsequent read of the local state machine reflects all modifications committed before this call.
+     * With stale reads enabled, followers return immediately.
+     *
+     * @throws ServiceUnavailableException if this cannot be guaranteed in time
+     */
+    public void awaitReadable() {
+        long deadline = now() + requestTimeout;
+        String leader = null;
+        long readIndex = -1;
+        lock.lock();
+        try {
+            while (readIndex < 0 && Objects.isNull(leader)) {
+                ensureRunning();
+                if (role == Role.LEADER && isReadable()) {
+                    readIndex = commitIndex;
+                }
+                else if (role != Role.LEADER && Objects.nonNull(leaderId)) {
+                    if (staleReads) {
+                        return;
+                    }
+                    leader = leaderId;
+                }
+                else {
+                    awaitChange(deadline, "no leader with a valid lease available");
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if (Objects.nonNull(leader)) {
+            try {
+                readIndex = transport.readIndex(leader);
+            }
+            catch (RuntimeException e) {
+                throw new ServiceUnavailableException(String.format("leader could not be reached (leader: %s)", leader), e);
+            }
+        }
+        awaitApplied(readIndex, deadline);
+    }
+
+
+    /**
+     * Gets the index a follower has to apply before answering a read. Only the leader can answer this.
+     *
+     * @return the commit index of the leader
+     * @throws ServiceUnavailableException if this node is not the leader or does not hold a lease
+     */
+    public long getReadIndex() {
+        long deadline = now() + requestTimeout;
+        lock.lock();
+        try {
+            while (true) {
+                ensureRunning();
+                if (role != Role.LEADER) {
+                    throw new ServiceUnavailableException(String.format("not the leader (leader: %s)", leaderId));
+                }
+                if (isReadable()) {
+                    return commitIndex;
+                }
+                awaitChange(deadline, "leader does not hold a valid lease");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Handles a RequestVote RPC.
+     *
+     * @param request the request
+     * @return the response
+     */
+    public VoteResponse handleVote(VoteRequest request) {
+        lock.lock();
+        try {
+            long now = now();
+            boolean leaderAlive = (role == Role.FOLLOWER && Objects.nonNull(leaderId) && now - lastHeardFromLeader < electionTimeoutMin)
+                    || (role == Role.LEADER && hasLease(now));
+            if (request.getTerm() < currentTerm || leaderAlive) {
+                // a current leader is still alive, refusing keeps its lease valid
+                return new VoteResponse(currentTerm, false);
+            }
+            if (request.getTerm() > currentTerm) {
+                becomeFollower(request.getTerm());
+            }
+            boolean upToDate = request.getLastLogTerm() > lastLogTerm()
+                    || (request.getLastLogTerm() == lastLogTerm() && request.getLastLogIndex() >= lastLogIndex());
+            if ((Objects.isNull(votedFor) || Objects.equals(votedFor, request.getCandidateId())) && upToDate) {
+                saveTerm(currentTerm, request.getCandidateId());
+                votedFor = request.getCandidateId();
+                resetElectionDeadline();
+                return new VoteResponse(currentTerm, true);
+            }
+            return new VoteResponse(currentTerm, false);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Handles an AppendEntries RPC.
+     *
+     * @param request the request
+     * @return the response
+     */
+    public AppendResponse handleAppend(AppendRequest request) {
+        lock.lock();
+        try {
+            if (request.getTerm() < currentTerm) {
+                return new AppendResponse(currentTerm, false, lastLogIndex());
+            }
+            acceptLeader(request.getTerm(), request.getLeaderId());
+            long prevIndex = request.getPrevLogIndex();
+            List<LogEntry> entries = Objects.nonNull(request.getEntries()) ? request.getEntries() : List.of();
+            if (prevIndex < logStart) {
+                // compacted entries are committed and thus known to match
+                int skip = (int) Math.min(entries.size(), logStart - prevIndex);
+                entries = entries.subList(skip, entries.size());
+                prevIndex = logStart;
+            }
+            else if (prevIndex > lastLogIndex()) {
+                return new AppendResponse(currentTerm, false, lastLogIndex());
+            }
+            else if (termAt(prevIndex) != request.getPrevLogTerm()) {
+                // skip the whole conflicting term at once
+                long conflictTerm = termAt(prevIndex);
+                long index = prevIndex;
+                while (index - 1 > logStart && termAt(index - 1) == conflictTerm) {
+                    index--;
+                }
+                return new AppendResponse(currentTerm, false, Math.max(commitIndex, index - 1));
+            }
+            long firstNewIndex = -1;
+            for (LogEntry entry: entries) {
+                if (entry.getIndex() <= lastLogIndex()) {
+                    if (termAt(entry.getIndex()) == entry.getTerm()) {
+                        continue;
+                    }
+                    log.subList(position(entry.getIndex()), log.size()).clear();
+                }
+                log.add(entry);
+                if (firstNewIndex < 0) {
+                    firstNewIndex = entry.getIndex();
+                }
+            }
+            long lastNewIndex = prevIndex + entries.size();
+            if (request.getLeaderCommit() > commitIndex) {
+                commitIndex = Math.max(commitIndex, Math.min(request.getLeaderCommit(), lastNewIndex));
+                storage.setCommitIndex(commitIndex);
+                changed.signalAll();
+            }
+            if (firstNewIndex > 0 || writtenIndex < lastLogIndex()) {
+                // the entries have to be on disk before the leader counts them as stored
+                persistLog(firstNewIndex > 0 ? firstNewIndex : lastLogIndex() + 1);
+            }
+            return new AppendResponse(currentTerm, true, lastNewIndex);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Handles an InstallSnapshot RPC.
+     *
+     * @param request the request
+     * @return the response
+     */
+    public AppendResponse handleInstallSnapshot(InstallSnapshotRequest request) {
+        applyLock.lock();
+        try {
+            lock.lock();
+            try {
+                if (request.getTerm() < currentTerm) {
+                    return new AppendResponse(currentTerm, false, lastLogIndex());
+                }
+                acceptLeader(request.getTerm(), request.getLeaderId());
+                long lastIncluded = request.getLastIncludedIndex();
+                if (lastIncluded <= lastApplied) {
+                    return new AppendResponse(currentTerm, true, lastIncluded);
+                }
+                boolean keepLog = lastIncluded <= lastLogIndex() && termAt(lastIncluded) == request.getLastIncludedTerm();
+                storage.saveSnapshot(request.getSnapshot(), lastIncluded, request.getLastIncludedTerm(), lastIncluded, request.getLastIncludedTerm());
+                if (!keepLog) {
+                    storage.truncate(lastIncluded + 1);
+                }
+                storage.sync();
+                if (keepLog) {
+                    log.subList(0, position(lastIncluded) + 1).clear();
+                }
+                else {
+                    log.clear();
+                }
+                stateMachine.restore(request.getSnapshot());
+                snapshot = request.getSnapshot();
+                snapshotIndex = lastIncluded;
+                snapshotTerm = request.getLastIncludedTerm();
+                logStart = lastIncluded;
+                logStartTerm = request.getLastIncludedTerm();
+                lastApplied = lastIncluded;
+                commitIndex = Math.max(commitIndex, lastIncluded);
+                writtenIndex = lastLogIndex();
+                syncedIndex = lastLogIndex();
+                logRewrites++;
+                changed.signalAll();
+                LOGGER.info("installed snapshot from leader {} (last included index: {})", request.getLeaderId(), lastIncluded);
+                return new AppendResponse(currentTerm, true, lastIncluded);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        finally {
+            applyLock.unlock();
+        }
+    }
+
+
+    /**
+     * Gets the status of this node.
+     *
+     * @return the role, term, leader, log indexes, the time the last failover took and, on the leader, the match index
+     *         of every follower
+     */
+    public Map<String, Object> getStatus() {
+        lock.lock();
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("self", self);
+            result.put("role", role);
+            result.put("term", currentTerm);
+            result.put("leader", leaderId);
+            result.put("lastLogIndex", lastLogIndex());
+            result.put("syncedIndex", syncedIndex);
+            result.put("commitIndex", commitIndex);
+            result.put("lastApplied", lastApplied);
+            result.put("firstLogIndex", logStart + 1);
+            result.put("snapshotIndex", snapshotIndex);
+            result.put("leaderChanges", leaderChanges);
+            result.put("lastFailoverMillis", lastFailoverMillis < 0 ? null : lastFailoverMillis);
+            if (role == Role.LEADER) {
+                Map<String, Long> matchIndexes = new LinkedHashMap<>();
+                peers.forEach(x -> matchIndexes.put(x, peerStates.get(x).matchIndex));
+                result.put("matchIndexes", matchIndexes);
+                result.put("lease", hasLease(now()));
+            }
+            return result;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private CommandResult propose(RaftCommand command, boolean forward) {
+        Ensure.requireNonNull(command, "command must be non-null");
+        long deadline = now() + requestTimeout;
+        CompletableFuture<CommandResult> future = null;
+        String leader = null;
+        lock.lock();
+        try {
+            while (Objects.isNull(future) && Objects.isNull(leader)) {
+                ensureRunning();
+                if (role == Role.LEADER) {
+                    LogEntry entry = new LogEntry(currentTerm, lastLogIndex() + 1, command);
+                    log.add(entry);
+                    future = new CompletableFuture<>();
+                    pending.put(entry.getIndex(), new Pending(entry.getTerm(), future));
+                    advanceCommitIndex();
+                    changed.signalAll();
+                }
+                else if (Objects.nonNull(leaderId) && forward) {
+                    leader = leaderId;
+                }
+                else if (Objects.nonNull(leaderId)) {
+                    throw new ServiceUnavailableException(String.format("not the leader (leader: %s)", leaderId));
+                }
+                else {
+                    awaitChange(deadline, "no leader available");
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if (Objects.nonNull(leader)) {
+            try {
+                return transport.propose(leader, command);
+            }
+            catch (ServiceUnavailableException e) {
+                throw e;
+            }
+            catch (RuntimeException e) {
+                throw new ServiceUnavailableException(String.format("forwarding to leader failed (leader: %s)", leader), e);
+            }
+        }
+        syncLog();
+        try {
+            return future.get(Math.max(1, deadline - now()), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            throw new ServiceUnavailableException("command has not been committed in time, it may or may not be applied later", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("interrupted while waiting for commit", e);
+        }
+    }
+
+
+    private void awaitApplied(long index, long deadline) {
+        lock.lock();
+        try {
+            while (lastApplied < index) {
+                ensureRunning();
+                awaitChange(deadline, "log not applied in time");
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void awaitChange(long deadline, String timeoutMessage) {
+        long remaining = deadline - now();
+        if (remaining <= 0) {
+            throw new ServiceUnavailableException(timeoutMessage);
+        }
+        try {
+            changed.await(Math.min(remaining, TICK_INTERVAL * 10), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("interrupted", e);
+        }
+    }
+
+
+    private void runTicker() {
+        while (running) {
+            lock.lock();
+            try {
+                long now = now();
+                if (role != Role.LEADER && now >= electionDeadline) {
+                    startElection(now);
+                }
+                else if (role == Role.LEADER && !peers.isEmpty() && now - Math.max(leaseStart(now), leaderSince) > electionTimeoutMax) {
+                    LOGGER.warn("stepping down as leader, no contact to a majority (term: {})", currentTerm);
+                    becomeFollower(currentTerm);
+                    leaderId = null;
+                }
+            }
+            catch (RuntimeException e) {
+                // e.g. the term could not be persisted, the election is retried after the next timeout
+                LOGGER.error("raft timer failed", e);
+                resetElectionDeadline();
+            }
+            finally {
+                lock.unlock();
+            }
+            try {
+                Thread.sleep(TICK_INTERVAL);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    private void startElection(long now) {
+        if (outageStart == 0) {
+            outageStart = lastHeardFromLeader > 0 ? lastHeardFromLeader : now;
+        }
+        saveTerm(currentTerm + 1, self);
+        currentTerm++;
+        role = Role.CANDIDATE;
+        votedFor = self;
+        leaderId = null;
+        votes = new HashSet<>(Set.of(self));
+        resetElectionDeadline();
+        LOGGER.debug("starting election (term: {})", currentTerm);
+        if (votes.size() >= majority()) {
+            becomeLeader();
+            return;
+        }
+        VoteRequest request = new VoteRequest(currentTerm, self, lastLogIndex(), lastLogTerm());
+        for (String peer: peers) {
+            rpcExecutor.execute(() -> {
+                try {
+                    handleVoteResponse(peer, request, transport.requestVote(peer, request));
+                }
+                catch (RuntimeException e) {
+                    LOGGER.trace("vote request failed (peer: {})", peer, e);
+                }
+            });
+        }
+    }
+
+
+    private void handleVoteResponse(String peer, VoteRequest request, VoteResponse response) {
+        lock.lock();
+        try {
+            if (response.getTerm() > currentTerm) {
+                becomeFollower(response.getTerm());
+            }
+            else if (role == Role.CANDIDATE && currentTerm == request.getTerm() && response.isVoteGranted()) {
+                votes.add(peer);
+                if (votes.size() >= majority()) {
+                    becomeLeader();
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void becomeLeader() {
+        role = Role.LEADER;
+        leaderId = self;
+        leaderSince = now();
+        leaderChanged();
+        long term = currentTerm;
+        for (Peer peer: peerStates.values()) {
+            peer.nextIndex = lastLogIndex() + 1;
+            peer.matchIndex = 0;
+            peer.generation++;
+            peer.lastAck = 0;
+            peer.lastSent = 0;
+            peer.sentCommit = 0;
+            peer.retryAt = 0;
+        }
+        // committing an entry of the own term also commits all entries of previous terms
+        log.add(new LogEntry(term, lastLogIndex() + 1, null));
+        rpcExecutor.execute(this::syncLog);
+        for (String peer: peers) {
+            daemon(() -> runReplicator(peerStates.get(peer), term), "raft-replicator-" + peer).start();
+        }
+        changed.signalAll();
+        LOGGER.info("became leader (term: {})", term);
+    }
+
+
+    private void becomeFollower(long term) {
+        if (term > currentTerm) {
+            saveTerm(term, null);
+            currentTerm = term;
+            votedFor = null;
+            leaderId = null;
+        }
+        if (role == Role.LEADER) {
+            failPending("leadership lost, the command may or may not be applied");
+        }
+        role = Role.FOLLOWER;
+        changed.signalAll();
+    }
+
+
+    private void acceptLeader(long term, String leader) {
+        if (term > currentTerm || role != Role.FOLLOWER) {
+            becomeFollower(term);
+        }
+        if (!Objects.equals(leaderId, leader)) {
+            leaderId = leader;
+            leaderChanged();
+            LOGGER.info("following leader {} (term: {})", leader, term);
+        }
+        lastHeardFromLeader = now();
+        resetElectionDeadline();
+    }
+
+
+    private void leaderChanged() {
+        leaderChanges++;
+        if (outageStart > 0) {
+            lastFailoverMillis = now() - outageStart;
+            outageStart = 0;
+        }
+    }
+
+
+    private void runReplicator(Peer peer, long term) {
+        lock.lock();
+        try {
+            while (running && role == Role.LEADER && currentTerm == term) {
+                long now = now();
+                boolean canSend = peer.inflight < maxInflight && now >= peer.retryAt;
+                boolean hasEntries = peer.nextIndex <= lastLogIndex();
+                boolean heartbeatDue = peer.inflight == 0 && now - peer.lastSent >= heartbeatInterval;
+                // propagate a new commit index right away so that followers can answer reads
+                boolean commitDue = peer.inflight == 0 && peer.sentCommit < commitIndex;
+                if (canSend && peer.nextIndex <= logStart && !peer.snapshotInflight) {
+                    sendSnapshot(peer, term, now);
+                }
+                else if (canSend && peer.nextIndex > logStart && (hasEntries || heartbeatDue || commitDue)) {
+                    sendEntries(peer, term, now);
+                }
+                else {
+                    long wait = Math.max(1, Math.min(heartbeatInterval - (now - peer.lastSent), Math.max(peer.retryAt - now, TICK_INTERVAL)));
+                    changed.await(wait, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void sendEntries(Peer peer, long term, long now) {
+        long prevIndex = peer.nextIndex - 1;
+        int from = position(peer.nextIndex);
+        int to = Math.min(log.size(), from + maxBatchSize);
+        AppendRequest request = new AppendRequest(term, self, prevIndex, termAt(prevIndex), new ArrayList<>(log.subList(from, to)), commitIndex);
+        peer.nextIndex += to - from;
+        peer.sentCommit = commitIndex;
+        peer.inflight++;
+        peer.lastSent = now;
+        long generation = peer.generation;
+        rpcExecutor.execute(() -> {
+            AppendResponse response = null;
+            try {
+                response = transport.appendEntries(peer.id, request);
+            }
+            catch (RuntimeException e) {
+                LOGGER.trace("append request failed (peer: {})", peer.id, e);
+            }
+            handleAppendResponse(peer, request.getTerm(), request.getPrevLogIndex(), response, generation, now);
+        });
+    }
+
+
+    private void sendSnapshot(Peer peer, long term, long now) {
+        InstallSnapshotRequest request = new InstallSnapshotRequest(term, self, snapshotIndex, snapshotTerm, snapshot);
+        peer.nextIndex = snapshotIndex + 1;
+        peer.inflight++;
+        peer.snapshotInflight = true;
+        peer.lastSent = now;
+        long generation = peer.generation;
+        LOGGER.debug("sending snapshot to {} (last included index: {})", peer.id, snapshotIndex);
+        rpcExecutor.execute(() -> {
+            AppendResponse response = null;
+            try {
+                response = transport.installSnapshot(peer.id, request);
+            }
+            catch (RuntimeException e) {
+                LOGGER.debug("install snapshot request failed (peer: {})", peer.id, e);
+            }
+            lock.lock();
+            try {
+                peer.snapshotInflight = false;
+            }
+            finally {
+                lock.unlock();
+            }
+            handleAppendResponse(peer, request.getTerm(), request.getLastIncludedIndex(), response, generation, now);
+        });
+    }
+
+
+    private void handleAppendResponse(Peer peer, long term, long prevIndex, AppendResponse response, long generation, long sentAt) {
+        lock.lock();
+        try {
+            peer.inflight--;
+            if (Objects.nonNull(response) && response.getTerm() > currentTerm) {
+                becomeFollower(response.getTerm());
+                return;
+            }
+            if (role != Role.LEADER || currentTerm != term) {
+                return;
+            }
+            if (Objects.nonNull(response)) {
+                // any answer in the current term acknowledges the leadership
+                peer.lastAck = Math.max(peer.lastAck, sentAt);
+            }
+            if (Objects.nonNull(response) && response.isSuccess()) {
+                peer.matchIndex = Math.max(peer.matchIndex, response.getMatchIndex());
+                peer.nextIndex = Math.max(peer.nextIndex, peer.matchIndex + 1);
+                advanceCommitIndex();
+            }
+            else if (generation == peer.generation) {
+                // restart from the last known match, responses to requests sent before are ignored
+                peer.generation++;
+                if (Objects.isNull(response)) {
+                    peer.nextIndex = peer.matchIndex + 1;
+                    peer.retryAt = now() + heartbeatInterval;
+                }
+                else {
+                    peer.nextIndex = Math.max(peer.matchIndex + 1, Math.min(response.getMatchIndex() + 1, prevIndex));
+                }
+            }
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void advanceCommitIndex() {
+        long[] matchIndexes = new long[peers.size() + 1];
+        // the leader counts itself only for the entries it has forced to disk
+        matchIndexes[0] = Math.min(syncedIndex, lastLogIndex());
+        int i = 1;
+        for (Peer peer: peerStates.values()) {
+            matchIndexes[i++] = peer.matchIndex;
+        }
+        Arrays.sort(matchIndexes);
+        long majorityIndex = matchIndexes[matchIndexes.length - majority()];
+        if (majorityIndex > commitIndex && termAt(majorityIndex) == currentTerm) {
+            commitIndex = majorityIndex;
+            storage.setCommitIndex(commitIndex);
+            changed.signalAll();
+        }
+    }
+
+
+    private void runApplier() {
+        while (running) {
+            lock.lock();
+            try {
+                while (running && lastApplied >= commitIndex) {
+                    changed.await();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            finally {
+                lock.unlock();
+            }
+            applyLock.lock();
+            try {
+                applyCommitted();
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("applying committed entries failed", e);
+            }
+            finally {
+                applyLock.unlock();
+            }
+        }
+    }
+
+
+    private void applyCommitted() {
+        List<LogEntry> entries;
+        lock.lock();
+        try {
+            if (lastApplied >= commitIndex) {
+                return;
+            }
+            entries = new ArrayList<>(log.subList(position(lastApplied + 1), position(commitIndex) + 1));
+        }
+        finally {
+            lock.unlock();
+        }
+        List<CommandResult> results = new ArrayList<>(entries.size());
+        for (LogEntry entry: entries) {
+            results.add(apply(entry));
+        }
+        lock.lock();
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                LogEntry entry = entries.get(i);
+                lastApplied = entry.getIndex();
+                Pending proposal = pending.remove(entry.getIndex());
+                if (Objects.nonNull(proposal)) {
+                    if (proposal.term == entry.getTerm()) {
+                        proposal.future.complete(results.get(i));
+                    }
+                    else {
+                        proposal.future.completeExceptionally(new ServiceUnavailableException("command has been overwritten by a new leader"));
+                    }
+                }
+            }
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        if (lastApplied - snapshotIndex >= snapshotThreshold) {
+            takeSnapshot();
+        }
+    }
+
+
+    private CommandResult apply(LogEntry entry) {
+        if (Objects.isNull(entry.getCommand())) {
+            return null;
+        }
+        try {
+            return stateMachine.apply(entry.getCommand());
+        }
+        catch (RuntimeException e) {
+            LOGGER.warn("applying command failed (index: {})", entry.getIndex(), e);
+            return CommandResult.failure(CommandResult.Error.INVALID, e.getMessage());
+        }
+    }
+
+
+    private void takeSnapshot() {
+        long index = lastApplied;
+        Snapshot newSnapshot = stateMachine.snapshot(index);
+        long newSnapshotTerm;
+        long newLogStart;
+        long newLogStartTerm;
+        lock.lock();
+        try {
+            newSnapshotTerm = termAt(index);
+            // keep recent entries so that slightly lagging followers do not need the snapshot
+            newLogStart = Math.max(logStart, index - snapshotThreshold / 2);
+            newLogStartTerm = termAt(newLogStart);
+        }
+        finally {
+            lock.unlock();
+        }
+        // the entries up to the snapshot are committed and never rewritten, so the lock is not needed while storing it
+        storage.saveSnapshot(newSnapshot, index, newSnapshotTerm, newLogStart, newLogStartTerm);
+        lock.lock();
+        try {
+            snapshot = newSnapshot;
+            snapshotIndex = index;
+            snapshotTerm = newSnapshotTerm;
+            log.subList(0, position(newLogStart) + 1).clear();
+            logStart = newLogStart;
+            logStartTerm = newLogStartTerm;
+            LOGGER.debug("log compacted (snapshot index: {}, first log index: {})", index, logStart + 1);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+
+    private void recover() {
+        List<RaftCommand> commands = new ArrayList<>();
+        for (long index = snapshotIndex + 1; index <= commitIndex; index++) {
+            LogEntry entry = log.get(position(index));
+            if (Objects.nonNull(entry.getCommand())) {
+                commands.add(entry.getCommand());
+            }
+        }
+        if (Objects.nonNull(snapshot) || !commands.isEmpty()) {
+            stateMachine.recover(snapshot, commands);
+            LOGGER.info("recovered raft state (term: {}, snapshot index: {}, applied index: {}, last log index: {})",
+                    currentTerm, snapshotIndex, commitIndex, lastLogIndex());
+        }
+        lastApplied = commitIndex;
+    }
+
+
+    private void saveTerm(long term, String vote) {
+        storage.saveTerm(term, vote);
+        storage.sync();
+    }
+
+
+    private void persistLog(long from) {
+        long start = Math.max(logStart + 1, Math.min(from, writtenIndex + 1));
+        try {
+            if (start <= lastLogIndex()) {
+                storage.append(new ArrayList<>(log.subList(position(start), log.size())));
+            }
+            else {
+                storage.truncate(start);
+            }
+            storage.sync();
+        }
+        catch (RuntimeException e) {
+            // the stored log may still contain entries removed from memory, rewrite it from here next time
+            writtenIndex = Math.min(writtenIndex, start - 1);
+            throw e;
+        }
+        writtenIndex = lastLogIndex();
+        syncedIndex = lastLogIndex();
+        logRewrites++;
+    }
+
+
+    private void syncLog() {
+        syncLock.lock();
+        try {
+            long target;
+            long rewrites;
+            lock.lock();
+            try {
+                if (syncedIndex >= lastLogIndex()) {
+                    return;
+                }
+                // entries are written in log order while holding the lock, only forcing them to disk happens outside
+                long start = Math.max(logStart, writtenIndex) + 1;
+                if (start <= lastLogIndex()) {
+                    storage.append(new ArrayList<>(log.subList(position(start), log.size())));
+                }
+                writtenIndex = lastLogIndex();
+                target = writtenIndex;
+                rewrites = logRewrites;
+            }
+            finally {
+                lock.unlock();
+            }
+            storage.sync();
+            lock.lock();
+            try {
+                // a follower may have rewritten the log in the meantime, then it has synced it itself
+                if (rewrites == logRewrites) {
+                    syncedIndex = Math.max(syncedIndex, target);
+                    if (role == Role.LEADER) {
+                        advanceCommitIndex();
+                    }
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+        catch (RuntimeException e) {
+            LOGGER.error("persisting raft log failed", e);
+        }
+        finally {
+            syncLock.unlock();
+        }
+    }
+
+
+    private void failPending(String message) {
+        for (Pending proposal: pending.values()) {
+            proposal.future.completeExceptionally(new ServiceUnavailableException(message));
+        }
+        pending.clear();
+    }
+
+
+    private boolean isReadable() {
+        return hasLease(now()) && termAt(commitIndex) == currentTerm && lastApplied >= commitIndex;
+    }
+
+
+    private boolean hasLease(long now) {
+        return role == Role.LEADER && now < leaseStart(now) + (long) (electionTimeoutMin * LEASE_FACTOR);
+    }
+
+
+    private long leaseStart(long now) {
+        long[] acks = new long[peers.size() + 1];
+        acks[0] = now;
+        int i = 1;
+        for (Peer peer: peerStates.values()) {
+            acks[i++] = peer.lastAck;
+        }
+        Arrays.sort(acks);
+        return acks[acks.length - majority()];
+    }
+
+
+    private int majority() {
+        return (peers.size() + 1) / 2 + 1;
+    }
+
+
+    private long lastLogIndex() {
+        return logStart + log.size();
+    }
+
+
+    private long lastLogTerm() {
+        return log.isEmpty() ? logStartTerm : log.get(log.size() - 1).getTerm();
+    }
+
+
+    private long termAt(long index) {
+        if (index == logStart) {
+            return logStartTerm;
+        }
+        if (index < logStart || index > lastLogIndex()) {
+            return -1;
+        }
+        return log.get(position(index)).getTerm();
+    }
+
+
+    private int position(long index) {
+        return (int) (index - logStart - 1);
+    }
+
+
+    private void resetElectionDeadline() {
+        electionDeadline = now() + ThreadLocalRandom.current().nextLong(electionTimeoutMin, electionTimeoutMax + 1);
+    }
+
+
+    private void ensureRunning() {
+        if (!running) {
+            throw new ServiceUnavailableException("raft node not running");
+        }
+    }
+
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class Peer {
+
+        private final String id;
+        private long nextIndex = 1;
+        private long matchIndex;
+        private int inflight;
+        private long generation;
+        private long lastAck;
+        private long lastSent;
+        private long sentCommit;
+        private long retryAt;
+        private boolean snapshotInflight;
+
+        private Peer(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class Pending {
+
+        private final long term;
+        private final CompletableFuture<CommandResult> future;
+
+        private Pending(long term, CompletableFuture<CommandResult> future) {
+            this.term = term;
+            this.future = future;
+        }
+    }
+
+    public static class Builder {
+
+        private String self;
+        private List<String> nodes;
+        private StateMachine stateMachine;
+        private RaftTransport transport;
+        private RaftStorage storage;
+        private long electionTimeoutMin = 300;
+        private long electionTimeoutMax = 600;
+        private long heartbeatInterval = 50;
+        private long requestTimeout = 5000;
+        private int maxBatchSize = 512;
+        private int maxInflight = 2;
+        private int snapshotThreshold = 10000;
+        private boolean staleReads;
+
+        public Builder self(String value) {
+            self = value;
+            return this;
+        }
+
+
+        public Builder nodes(List<String> value) {
+            nodes = value;
+            return this;
+        }
+
+
+        public Builder stateMachine(StateMachine value) {
+            stateMachine = value;
+            return this;
+        }
+
+
+        public Builder transport(RaftTransport value) {
+            transport = value;
+            return this;
+        }
+
+
+        public Builder storage(RaftStorage value) {
+            storage = value;
+            return this;
+        }
+
+
+        public Builder electionTimeout(long min, long max) {
+            electionTimeoutMin = min;
+            electionTimeoutMax = max;
+            return this;
+        }
+
+
+        public Builder heartbeatInterval(long value) {
+            heartbeatInterval = value;
+            return this;
+        }
+
+
+        public Builder requestTimeout(long value) {
+            requestTimeout = value;
+            return this;
+        }
+
+
+        public Builder maxBatchSize(int value) {
+            maxBatchSize = value;
+            return this;
+        }
+
+
+        public Builder maxInflight(int value) {
+            maxInflight = value;
+            return this;
+        }
+
+
+        public Builder snapshotThreshold(int value) {
+            snapshotThreshold = value;
+            return this;
+        }
+
+
+        public Builder staleReads(boolean value) {
+            staleReads = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the node. The node has to be started using {@link RaftNode#start()}.
+         *
+         * @return the node
+         * @throws IllegalArgumentException if the configuration is invalid
+         */
+        public RaftNode build() {
+            return new RaftNode(this);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Durable state of a {@link RaftNode} in an embedded key-value store (H2 MVStore): the current term and vote, the
+ * latest snapshot and the log entries following the start of the log.
+ *
+ * <p>The store consists of the following maps:
+ * <ul>
+ * <li>{@code state}: term, vote, commit index, start of the log and the serialized snapshot</li>
+ * <li>{@code log}: index to the serialized log entry</li>
+ * </ul>
+ *
+ * <p>Every modification is committed as one new version of the store, so it is applied completely or not at all.
+ * Committing writes to the file without forcing it to disk; {@link #sync()} does the latter and thereby makes all
+ * preceding modifications durable, so that the leader can sync the entries of many concurrent proposals at once. The
+ * commit index is only a hint for recovery and is written along with the next modification.
+ *
+ * <p>This class is thread-safe.
+ */
+public class RaftStorage implements AutoCloseable {
+
+    private static final String MAP_STATE = "state";
+    private static final String MAP_LOG = "log";
+    private static final String KEY_TERM = "term";
+    private static final String KEY_VOTED_FOR = "votedFor";
+    private static final String KEY_COMMIT_INDEX = "commitIndex";
+    private static final String KEY_LOG_START = "logStart";
+    private static final String KEY_LOG_START_TERM = "logStartTerm";
+    private static final String KEY_SNAPSHOT = "snapshot";
+    private static final String KEY_SNAPSHOT_INDEX = "snapshotIndex";
+    private static final String KEY_SNAPSHOT_TERM = "snapshotTerm";
+
+    private final MVStore store;
+    private final MVMap<String, Object> state;
+    private final MVMap<Long, byte[]> log;
+    private final ObjectMapper mapper;
+
+    /**
+     * Opens or creates a store.
+     *
+     * @param fileName the file of the store, or null for a store that is kept in memory only
+     * @param mapper the mapper serializing log entries and snapshots
+     */
+    public RaftStorage(String fileName, ObjectMapper mapper) {
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        MVStore.Builder builder = new MVStore.Builder()
+                .compress()
+                .autoCommitDisabled();
+        if (Objects.nonNull(fileName)) {
+            builder.fileName(fileName);
+        }
+        this.store = builder.open();
+        this.state = store.openMap(MAP_STATE);
+        this.log = store.openMap(MAP_LOG);
+        this.mapper = mapper;
+    }
+
+
+    /**
+     * Gets the latest persisted term.
+     *
+     * @return the term, 0 for a new store
+     */
+    public long getTerm() {
+        return getLong(KEY_TERM);
+    }
+
+
+    /**
+     * Gets the node voted for in the latest persisted term.
+     *
+     * @return the ID of the node, or null if no vote has been cast in that term
+     */
+    public String getVotedFor() {
+        return (String) state.get(KEY_VOTED_FOR);
+    }
+
+
+    /**
+     * Gets the latest persisted commit index. All entries up to this index are known to be committed, later ones may
+     * be committed as well.
+     *
+     * @return the commit index, 0 for a new store
+     */
+    public long getCommitIndex() {
+        return getLong(KEY_COMMIT_INDEX);
+    }
+
+
+    /**
+     * Gets the index preceding the first entry of the log.
+     *
+     * @return the index, 0 for a new store
+     */
+    public long getLogStart() {
+        return getLong(KEY_LOG_START);
+    }
+
+
+    /**
+     * Gets the term of the entry at {@link #getLogStart()}.
+     *
+     * @return the term, 0 for a new store
+     */
+    public long getLogStartTerm() {
+        return getLong(KEY_LOG_START_TERM);
+    }
+
+
+    /**
+     * Gets the latest snapshot.
+     *
+     * @return the snapshot, or null if none has been taken yet
+     */
+    public Snapshot getSnapshot() {
+        byte[] value = (byte[]) state.get(KEY_SNAPSHOT);
+        return Objects.isNull(value) ? null : decode(value, Snapshot.class);
+    }
+
+
+    /**
+     * Gets the index of the last entry included in the latest snapshot.
+     *
+     * @return the index, 0 if no snapshot has been taken yet
+     */
+    public long getSnapshotIndex() {
+        return getLong(KEY_SNAPSHOT_INDEX);
+    }
+
+
+    /**
+     * Gets the term of the last entry included in the latest snapshot.
+     *
+     * @return the term, 0 if no snapshot has been taken yet
+     */
+    public long getSnapshotTerm() {
+        return getLong(KEY_SNAPSHOT_TERM);
+    }
+
+
+    /**
+     * Gets the entries of the log.
+     *
+     * @return the entries following the start of the log in index order
+     */
+    public List<LogEntry> getLog() {
+        List<LogEntry> result = new ArrayList<>();
+        Iterator<Long> keys = log.keyIterator(getLogStart() + 1);
+        while (keys.hasNext()) {
+            result.add(decode(log.get(keys.next()), LogEntry.class));
+        }
+        return result;
+    }
+
+
+    /**
+     * Saves the current term and the vote cast in it.
+     *
+     * @param term the term
+     * @param votedFor the ID of the node voted for, or null if no vote has been cast yet
+     */
+    public synchronized void saveTerm(long term, String votedFor) {
+        commit(() -> {
+            state.put(KEY_TERM, term);
+            if (Objects.isNull(votedFor)) {
+                state.remove(KEY_VOTED_FOR);
+            }
+            else {
+                state.put(KEY_VOTED_FOR, votedFor);
+            }
+        });
+    }
+
+
+    /**
+     * Sets the commit index. It is written along with the next modification.
+     *
+     * @param commitIndex the commit index
+     */
+    public synchronized void setCommitIndex(long commitIndex) {
+        state.put(KEY_COMMIT_INDEX, commitIndex);
+    }
+
+
+    /**
+     * Appends entries to the log, replacing any existing entries from the index of the first one on.
+     *
+     * @param entries the consecutive entries
+     */
+    public synchronized void append(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        commit(() -> {
+            removeFrom(entries.get(0).getIndex());
+            for (LogEntry entry: entries) {
+                log.put(entry.getIndex(), encode(entry));
+            }
+        });
+    }
+
+
+    /**
+     * Removes the entries from a given index on.
+     *
+     * @param index the index of the first entry to remove
+     */
+    public synchronized void truncate(long index) {
+        commit(() -> removeFrom(index));
+    }
+
+
+    /**
+     * Saves a snapshot and compacts the log. Entries up to the new start of the log are removed.
+     *
+     * @param snapshot the snapshot
+     * @param snapshotIndex the index of the last entry included in the snapshot
+     * @param snapshotTerm the term of the last entry included in the snapshot
+     * @param logStart the index preceding the first entry to keep
+     * @param logStartTerm the term of the entry at the new start of the log
+     */
+    public void saveSnapshot(Snapshot snapshot, long snapshotIndex, long snapshotTerm, long logStart, long logStartTerm) {
+        Ensure.requireNonNull(snapshot, "snapshot must be non-null");
+        // serializing a large snapshot takes long, appending to the log must not wait for it
+        byte[] value = encode(snapshot);
+        saveSnapshot(value, snapshotIndex, snapshotTerm, logStart, logStartTerm);
+    }
+
+
+    private synchronized void saveSnapshot(byte[] value, long snapshotIndex, long snapshotTerm, long logStart, long logStartTerm) {
+        commit(() -> {
+            state.put(KEY_SNAPSHOT, value);
+            state.put(KEY_SNAPSHOT_INDEX, snapshotIndex);
+            state.put(KEY_SNAPSHOT_TERM, snapshotTerm);
+            state.put(KEY_LOG_START, logStart);
+            state.put(KEY_LOG_START_TERM, logStartTerm);
+            List<Long> removed = new ArrayList<>();
+            Iterator<Long> keys = log.keyIterator(null);
+            while (keys.hasNext()) {
+                Long key = keys.next();
+                if (key > logStart) {
+                    break;
+                }
+                removed.add(key);
+            }
+            removed.forEach(log::remove);
+        });
+    }
+
+
+    /**
+     * Forces all committed modifications to disk. Does nothing for a store kept in memory.
+     */
+    public void sync() {
+        store.sync();
+    }
+
+
+    /**
+     * Commits pending changes, if any, and closes the store.
+     */
+    @Override
+    public synchronized void close() {
+        store.close();
+    }
+
+
+    private void removeFrom(long index) {
+        List<Long> removed = new ArrayList<>();
+        log.keyIterator(index).forEachRemaining(removed::add);
+        removed.forEach(log::remove);
+    }
+
+
+    private void commit(Runnable changes) {
+        try {
+            changes.run();
+            store.commit();
+        }
+        catch (RuntimeException e) {
+            store.rollback();
+            throw e;
+        }
+    }
+
+
+    private long getLong(String key) {
+        Object value = state.get(key);
+        return Objects.isNull(value) ? 0 : ((Number) value).longValue();
+    }
+
+
+    private byte[] encode(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("serializing raft state failed", e);
+        }
+    }
+
+
+    private <T> T decode(byte[] value, Class<T> type) {
+        try {
+            return mapper.readValue(value, type);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("deserializing raft state failed", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+/**
+ * Sends Raft RPCs to other nodes. Implementations throw a {@link RuntimeException} if a node cannot be reached.
+ */
+public interface RaftTransport {
+
+    /**
+     * Sends a RequestVote RPC.
+     *
+     * @param node the ID of the receiving node
+     * @param request the request
+     * @return the response
+     */
+    public VoteResponse requestVote(String node, VoteRequest request);
+
+
+    /**
+     * Sends an AppendEntries RPC.
+     *
+     * @param node the ID of the receiving node
+     * @param request the request
+     * @return the response
+     */
+    public AppendResponse appendEntries(String node, AppendRequest request);
+
+
+    /**
+     * Sends an InstallSnapshot RPC.
+     *
+     * @param node the ID of the receiving node
+     * @param request the request
+     * @return the response
+     */
+    public AppendResponse installSnapshot(String node, InstallSnapshotRequest request);
+
+
+    /**
+     * Forwards a command to the leader.
+     *
+     * @param leader the ID of the leader
+     * @param command the command
+     * @return the outcome of the command
+     */
+    public CommandResult propose(String leader, RaftCommand command);
+
+
+    /**
+     * Asks the leader for the index up to which entries must be applied before a read reflects all committed
+     * modifications.
+     *
+     * @param leader the ID of the leader
+     * @return the read index
+     */
+    public long readIndex(String leader);
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link StateMachine} applying registry modifications to an in-memory repository.
+ *
+ * <p>The repository stores descriptors by reference and modifies them in place, e.g. when adding submodels to a shell.
+ * Descriptors are therefore copied when they enter or leave the repository so that log entries and snapshots are not
+ * changed by later commands.
+ *
+ * <p>Listeners are notified about modifications received by other nodes; the node that received a modification from
+ * a client notifies its listeners through the registry service.
+ */
+public class RepositoryStateMachine implements StateMachine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryStateMachine.class);
+
+    private final String self;
+    private final AasRepositoryMemory repository;
+    private final ObjectMapper mapper;
+    private final Supplier<List<RegistryListener>> listenerSupplier;
+    private volatile List<RegistryListener> listeners;
+    private boolean recovering;
+
+    /**
+     * Creates a new state machine.
+     *
+     * @param self the ID of this node
+     * @param repository the repository holding the state
+     * @param mapper the mapper used to copy descriptors
+     * @param listeners supplies the listeners to notify; called once on the first notification so that listeners
+     *            depending on the repository can be created after it
+     */
+    public RepositoryStateMachine(String self, AasRepositoryMemory repository, ObjectMapper mapper, Supplier<List<RegistryListener>> listeners) {
+        Ensure.requireNonNull(repository, "repository must be non-null");
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        this.self = self;
+        this.repository = repository;
+        this.mapper = mapper;
+        this.listenerSupplier = Objects.nonNull(listeners) ? listeners : List::of;
+    }
+
+
+    @Override
+    public CommandResult apply(RaftCommand command) {
+        boolean notify = !Objects.equals(self, command.getOrigin());
+        try {
+            switch (command.getType()) {
+                case CREATE_SHELL: {
+                    AssetAdministrationShellDescriptor result = repository.create(copy(command.getShell()));
+                    notifyListeners(notify, x -> x.shellCreated(result));
+                    return CommandResult.success(result, null);
+                }
+                case UPDATE_SHELL: {
+                    AssetAdministrationShellDescriptor result = repository.update(command.getAasId(), copy(command.getShell()));
+                    notifyListeners(notify, x -> x.shellUpdated(command.getAasId(), result));
+                    return CommandResult.success(result, null);
+                }
+                case DELETE_SHELL:
+                    repository.deleteAAS(command.getAasId());
+                    notifyListeners(notify, x -> x.shellDeleted(command.getAasId()));
+                    return CommandResult.success(null, null);
+                case ADD_SUBMODEL: {
+                    SubmodelDescriptor result = Objects.isNull(command.getAasId())
+                            ? repository.addSubmodel(copy(command.getSubmodel()))
+                            : repository.addSubmodel(command.getAasId(), copy(command.getSubmodel()));
+                    notifyListeners(notify, x -> x.submodelCreated(command.getAasId(), result));
+                    return CommandResult.success(null, result);
+                }
+                case DELETE_SUBMODEL:
+                    if (Objects.isNull(command.getAasId())) {
+                        repository.deleteSubmodel(command.getSubmodelId());
+                    }
+                    else {
+                        repository.deleteSubmodel(command.getAasId(), command.getSubmodelId());
+                    }
+                    notifyListeners(notify, x -> x.submodelDeleted(command.getAasId(), command.getSubmodelId()));
+                    return CommandResult.success(null, null);
+                default:
+                    return CommandResult.failure(CommandResult.Error.INVALID, String.format("unsupported command type: %s", command.getType()));
+            }
+        }
+        catch (ResourceNotFoundException e) {
+            return CommandResult.failure(CommandResult.Error.NOT_FOUND, e.getMessage());
+        }
+        catch (ResourceAlreadyExistsException e) {
+            return CommandResult.failure(CommandResult.Error.ALREADY_EXISTS, e.getMessage());
+        }
+        catch (IllegalArgumentException e) {
+            return CommandResult.failure(CommandResult.Error.INVALID, e.getMessage());
+        }
+    }
+
+
+    @Override
+    public Snapshot snapshot(long lastIncludedIndex) {
+        return new Snapshot(lastIncludedIndex,
+                repository.getAASs().stream().map(this::copy).toList(),
+                repository.getSubmodels().stream().map(this::copy).toList());
+    }
+
+
+    @Override
+    public void restore(Snapshot snapshot) {
+        Set<String> removedShells = new HashSet<>();
+        repository.getAASs().forEach(x -> removedShells.add(x.getId()));
+        Set<String> removedSubmodels = new HashSet<>();
+        repository.getSubmodels().forEach(x -> removedSubmodels.add(x.getId()));
+        repository.clear();
+        for (AssetAdministrationShellDescriptor aas: snapshot.getShells()) {
+            try {
+                repository.create(copy(aas));
+                removedShells.remove(aas.getId());
+            }
+            catch (ResourceAlreadyExistsException e) {
+                throw new IllegalStateException(String.format("snapshot contains duplicate shell (id: %s)", aas.getId()), e);
+            }
+        }
+        for (SubmodelDescriptor submodel: snapshot.getSubmodels()) {
+            try {
+                repository.addSubmodel(copy(submodel));
+            }
+            catch (ResourceAlreadyExistsException e) {
+                // already added as part of a shell
+            }
+            removedSubmodels.remove(submodel.getId());
+        }
+        // listeners cannot tell what changed, so they are told about the full content
+        notifyListeners(true, x -> removedShells.forEach(x::shellDeleted));
+        notifyListeners(true, x -> removedSubmodels.forEach(y -> x.submodelDeleted(null, y)));
+        notifyListeners(true, x -> snapshot.getShells().forEach(x::shellCreated));
+        notifyListeners(true, x -> snapshot.getSubmodels().forEach(y -> x.submodelCreated(null, y)));
+    }
+
+
+    @Override
+    public void recover(Snapshot snapshot, List<RaftCommand> commands) {
+        // listeners are not available yet and build their initial state from the repository anyway
+        recovering = true;
+        try {
+            if (Objects.nonNull(snapshot)) {
+                restore(snapshot);
+            }
+            commands.forEach(this::apply);
+        }
+        finally {
+            recovering = false;
+        }
+    }
+
+
+    private AssetAdministrationShellDescriptor copy(AssetAdministrationShellDescriptor aas) {
+        return mapper.convertValue(aas, AssetAdministrationShellDescriptor.class);
+    }
+
+
+    private SubmodelDescriptor copy(SubmodelDescriptor submodel) {
+        return mapper.convertValue(submodel, SubmodelDescriptor.class);
+    }
+
+
+    private void notifyListeners(boolean notify, Consumer<RegistryListener> notification) {
+        if (!notify || recovering) {
+            return;
+        }
+        if (Objects.isNull(listeners)) {
+            listeners = listenerSupplier.get();
+        }
+        for (RegistryListener listener: listeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("registry listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+
+
+/**
+ * The state replicated by a {@link RaftNode}. Commands are applied in log order by a single thread; applying a command
+ * must be deterministic so that all nodes end up in the same state.
+ */
+public interface StateMachine {
+
+    /**
+     * Applies a committed command.
+     *
+     * @param command the command
+     * @return the outcome, including expected failures such as already existing descriptors
+     */
+    public CommandResult apply(RaftCommand command);
+
+
+    /**
+     * Captures the current state.
+     *
+     * @param lastIncludedIndex the index of the last applied entry, stored as sequence of the snapshot
+     * @return the snapshot
+     */
+    public Snapshot snapshot(long lastIncludedIndex);
+
+
+    /**
+     * Replaces the current state with a snapshot.
+     *
+     * @param snapshot the snapshot
+     */
+    public void restore(Snapshot snapshot);
+
+
+    /**
+     * Rebuilds the state persisted before a restart. Called once before the node starts, listeners are not notified.
+     *
+     * @param snapshot the persisted snapshot, may be null
+     * @param commands the committed commands following the snapshot
+     */
+    public void recover(Snapshot snapshot, List<RaftCommand> commands);
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * RequestVote RPC sent by candidates.
+ */
+public class VoteRequest {
+
+    private final long term;
+    private final String candidateId;
+    private final long lastLogIndex;
+    private final long lastLogTerm;
+
+    @JsonCreator
+    public VoteRequest(@JsonProperty("term") long term,
+                       @JsonProperty("candidateId") String candidateId,
+                       @JsonProperty("lastLogIndex") long lastLogIndex,
+                       @JsonProperty("lastLogTerm") long lastLogTerm) {
+        this.term = term;
+        this.candidateId = candidateId;
+        this.lastLogIndex = lastLogIndex;
+        this.lastLogTerm = lastLogTerm;
+    }
+
+
+    /**
+     * The term of the candidate.
+     *
+     * @return the term of the candidate
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * The ID of the candidate.
+     *
+     * @return the ID of the candidate
+     */
+    public String getCandidateId() {
+        return candidateId;
+    }
+
+
+    /**
+     * The index of the last entry in the log of the candidate.
+     *
+     * @return the index of the last entry in the log of the candidate
+     */
+    public long getLastLogIndex() {
+        return lastLogIndex;
+    }
+
+
+    /**
+     * The term of the last entry in the log of the candidate.
+     *
+     * @return the term of the last entry in the log of the candidate
+     */
+    public long getLastLogTerm() {
+        return lastLogTerm;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.raft;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * Reply to a {@link VoteRequest}.
+ */
+public class VoteResponse {
+
+    private final long term;
+    private final boolean voteGranted;
+
+    @JsonCreator
+    public VoteResponse(@JsonProperty("term") long term,
+                        @JsonProperty("voteGranted") boolean voteGranted) {
+        this.term = term;
+        this.voteGranted = voteGranted;
+    }
+
+
+    /**
+     * The current term of the voter.
+     *
+     * @return the current term of the voter
+     */
+    public long getTerm() {
+        return term;
+    }
+
+
+    /**
+     * Whether the vote has been granted.
+     *
+     * @return whether the vote has been granted
+     */
+    public boolean isVoteGranted() {
+        return voteGranted;
+    }
+}
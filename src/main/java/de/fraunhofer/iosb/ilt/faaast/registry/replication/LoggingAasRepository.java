@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Mutation.Type;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} recording every successful modification of the wrapped repository in a {@link MutationLog}.
+ * Modifications are serialized and each one is appended to the log before the next one is applied, so that replicas
+ * apply them in the same order as the primary. If the entry cannot be appended, the modification fails even though it
+ * has been applied, and the log forces replicas to catch up from a snapshot.
+ */
+public class LoggingAasRepository extends AbstractAasRepository {
+
+    private final AasRepository delegate;
+    private final MutationLog log;
+    private final Object writeLock;
+
+    public LoggingAasRepository(AasRepository delegate, MutationLog log) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        Ensure.requireNonNull(log, "log must be non-null");
+        this.delegate = delegate;
+        this.log = log;
+        this.writeLock = new Object();
+    }
+
+
+    /**
+     * The wrapped repository.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return delegate.getAASs();
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return delegate.getAASs(projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId, projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        synchronized (writeLock) {
+            AssetAdministrationShellDescriptor result = delegate.create(descriptor);
+            log.append(Type.SHELL_CREATED, result.getId(), null, result, null);
+            return result;
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        synchronized (writeLock) {
+            delegate.deleteAAS(aasId);
+            log.append(Type.SHELL_DELETED, aasId, null, null, null);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        synchronized (writeLock) {
+            AssetAdministrationShellDescriptor result = delegate.update(aasId, descriptor);
+            log.append(Type.SHELL_UPDATED, aasId, null, result, null);
+            return result;
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        return delegate.getSubmodels(aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return delegate.getSubmodels();
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        synchronized (writeLock) {
+            SubmodelDescriptor result = delegate.addSubmodel(aasId, descriptor);
+            log.append(Type.SUBMODEL_CREATED, aasId, result.getId(), null, result);
+            return result;
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        synchronized (writeLock) {
+            SubmodelDescriptor result = delegate.addSubmodel(descriptor);
+            log.append(Type.SUBMODEL_CREATED, null, result.getId(), null, result);
+            return result;
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        synchronized (writeLock) {
+            delegate.deleteSubmodel(aasId, submodelId);
+            log.append(Type.SUBMODEL_DELETED, aasId, submodelId, null, null);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        synchronized (writeLock) {
+            delegate.deleteSubmodel(submodelId);
+            log.append(Type.SUBMODEL_DELETED, null, submodelId, null, null);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return delegate.findAASs(query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return delegate.findSubmodels(query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return delegate.findBySemanticId(semanticId);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * A single entry of the {@link MutationLog}, describing one successful modification of the registry.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Mutation {
+
+    /**
+     * Kind of modification.
+     */
+    public enum Type {
+        SHELL_CREATED,
+        SHELL_UPDATED,
+        SHELL_DELETED,
+        SUBMODEL_CREATED,
+        SUBMODEL_DELETED
+    }
+
+    private final long sequence;
+    private final long timestamp;
+    private final Type type;
+    private final String aasId;
+    private final String submodelId;
+    private final AssetAdministrationShellDescriptor shell;
+    private final SubmodelDescriptor submodel;
+
+    @JsonCreator
+    public Mutation(@JsonProperty("sequence") long sequence,
+                    @JsonProperty("timestamp") long timestamp,
+                    @JsonProperty("type") Type type,
+                    @JsonProperty("aasId") String aasId,
+                    @JsonProperty("submodelId") String submodelId,
+                    @JsonProperty("shell") AssetAdministrationShellDescriptor shell,
+                    @JsonProperty("submodel") SubmodelDescriptor submodel) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.aasId = aasId;
+        this.submodelId = submodelId;
+        this.shell = shell;
+        this.submodel = submodel;
+    }
+
+
+    /**
+     * Position of the modification in the log, starting at 1.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+
+    /**
+     * Time of the modification on the primary in milliseconds since the epoch.
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+
+    /**
+     * Kind of the modification.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+
+    /**
+     * ID of the affected shell; for submodel modifications the ID of the shell containing the submodel.
+     *
+     * @return the shell ID, or null for submodels registered on their own
+     */
+    public String getAasId() {
+        return aasId;
+    }
+
+
+    /**
+     * ID of the affected submodel.
+     *
+     * @return the submodel ID, or null for shell modifications
+     */
+    public String getSubmodelId() {
+        return submodelId;
+    }
+
+
+    /**
+     * The created or updated shell.
+     *
+     * @return the shell, or null if not applicable
+     */
+    public AssetAdministrationShellDescriptor getShell() {
+        return shell;
+    }
+
+
+    /**
+     * The created submodel.
+     *
+     * @return the submodel, or null if not applicable
+     */
+    public SubmodelDescriptor getSubmodel() {
+        return submodel;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sequence, timestamp, type, aasId, submodelId, shell, submodel);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        else if (obj == null) {
+            return false;
+        }
+        else if (this.getClass() != obj.getClass()) {
+            return false;
+        }
+        else {
+            Mutation other = (Mutation) obj;
+            return this.sequence == other.sequence
+                    && this.timestamp == other.timestamp
+                    && Objects.equals(this.type, other.type)
+                    && Objects.equals(this.aasId, other.aasId)
+                    && Objects.equals(this.submodelId, other.submodelId)
+                    && Objects.equals(this.shell, other.shell)
+                    && Objects.equals(this.submodel, other.submodel);
+        }
+    }
+}
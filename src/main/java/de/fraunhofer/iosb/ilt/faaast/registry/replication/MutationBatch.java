@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+
+/**
+ * A consecutive range of entries of the {@link MutationLog} as shipped to replicas.
+ */
+public class MutationBatch {
+
+    private final List<Mutation> mutations;
+    private final long lastSequence;
+
+    @JsonCreator
+    public MutationBatch(@JsonProperty("mutations") List<Mutation> mutations, @JsonProperty("lastSequence") long lastSequence) {
+        this.mutations = mutations;
+        this.lastSequence = lastSequence;
+    }
+
+
+    /**
+     * The entries in log order.
+     *
+     * @return the entries
+     */
+    public List<Mutation> getMutations() {
+        return mutations;
+    }
+
+
+    /**
+     * The sequence number of the latest entry of the log at the time the batch was read.
+     *
+     * @return the latest sequence number of the log
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.LogTruncatedException;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Mutation.Type;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Ordered log of all modifications of the primary registry, shipped to replicas. Only the most recent entries are
+ * retained; replicas that fall further behind catch up from a {@link Snapshot}.
+ *
+ * <p>Entries are numbered in the order they are appended. To match the order in which the modifications were applied,
+ * entries are appended by a {@link LoggingAasRepository} while it holds the lock serializing the modifications. This
+ * class is thread-safe.
+ */
+public class MutationLog {
+
+    private final Mutation[] entries;
+    private long lastSequence;
+    private long lastFailedSequence;
+
+    /**
+     * Creates a new log.
+     *
+     * @param capacity the maximum number of retained entries
+     */
+    public MutationLog(int capacity) {
+        Ensure.require(capacity > 0, "capacity must be positive");
+        this.entries = new Mutation[capacity];
+    }
+
+
+    /**
+     * Gets the sequence number of the latest entry.
+     *
+     * @return the latest sequence number, or 0 if the log is empty
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+
+    /**
+     * Reads the entries following a given sequence number.
+     *
+     * @param after the sequence number of the last entry already known to the caller
+     * @param limit the maximum number of entries to return
+     * @return the entries
+     * @throws LogTruncatedException if entries following the given sequence number are no longer retained or an entry
+     *             following it could not be appended
+     */
+    public synchronized MutationBatch read(long after, int limit) {
+        Ensure.require(after >= 0, "after must be non-negative");
+        Ensure.require(limit > 0, "limit must be positive");
+        // the log does not describe a modification whose entry could not be appended, so replicas that have not read
+        // past it have to catch up from a snapshot
+        long firstRetained = Math.max(Math.max(1, lastSequence - entries.length + 1), lastFailedSequence + 1);
+        if (after + 1 < firstRetained) {
+            throw new LogTruncatedException(String.format("log entries no longer retained (requested: %d, first retained: %d)", after + 1, firstRetained));
+        }
+        long end = Math.min(lastSequence, after + limit);
+        List<Mutation> result = new ArrayList<>((int) Math.max(0, end - after));
+        for (long sequence = after + 1; sequence <= end; sequence++) {
+            result.add(entries[index(sequence)]);
+        }
+        return new MutationBatch(result, lastSequence);
+    }
+
+
+    /**
+     * Takes a snapshot of the repository. The snapshot is based on the current end of the log and may additionally
+     * reflect modifications logged while it is taken.
+     *
+     * @param repository the repository the log belongs to
+     * @return the snapshot
+     */
+    public Snapshot snapshot(AasRepository repository) {
+        long sequence = getLastSequence();
+        return new Snapshot(sequence, repository.getAASs(), repository.getSubmodels());
+    }
+
+
+    /**
+     * Appends an entry for a modification that has been applied to the repository. If the entry cannot be appended,
+     * its sequence number is skipped and replicas that have not read past it are forced to catch up from a snapshot.
+     *
+     * @param type the kind of modification
+     * @param aasId the ID of the affected shell, if any
+     * @param submodelId the ID of the affected submodel, if any
+     * @param shell the created or updated shell, if any
+     * @param submodel the created submodel, if any
+     * @return the sequence number of the entry
+     */
+    public synchronized long append(Type type, String aasId, String submodelId, AssetAdministrationShellDescriptor shell, SubmodelDescriptor submodel) {
+        long sequence = lastSequence + 1;
+        try {
+            Ensure.requireNonNull(type, "type must be non-null");
+            entries[index(sequence)] = new Mutation(sequence, System.currentTimeMillis(), type, aasId, submodelId, shell, submodel);
+        }
+        catch (RuntimeException e) {
+            entries[index(sequence)] = null;
+            lastFailedSequence = sequence;
+            throw e;
+        }
+        finally {
+            lastSequence = sequence;
+        }
+        return sequence;
+    }
+
+
+    private int index(long sequence) {
+        return (int) ((sequence - 1) % entries.length);
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Keeps the repository of a replica in sync with the primary by periodically pulling the {@link MutationLog} of the
+ * primary and applying new entries. Starts from a {@link Snapshot} and falls back to a new snapshot whenever the
+ * primary no longer retains the entries needed.
+ *
+ * <p>All entries are applied idempotently, i.e. creating an existing descriptor replaces it and deleting a missing
+ * descriptor is ignored, so re-applying entries already reflected in a snapshot is harmless. The registered
+ * {@link RegistryListener}s are notified about every applied modification just like on the primary.
+ */
+public class ReplicaSynchronizer {
+
+    /**
+     * Path of the replication endpoint relative to the base URL of a node.
+     */
+    public static final String BASE_PATH = "/registry/replication";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaSynchronizer.class);
+
+    private final String primary;
+    private final AasRepository repository;
+    private final List<RegistryListener> listeners;
+    private final RestClient client;
+    private final long pollInterval;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+    private volatile long appliedSequence = -1;
+    private volatile long primarySequence = -1;
+    private volatile long lastCaughtUp;
+    private volatile long lastAppliedTimestamp;
+    private volatile long snapshotsLoaded;
+    private volatile String lastError;
+
+    /**
+     * Creates a new synchronizer.
+     *
+     * @param primary the base URL of the primary, e.g. http://localhost:8090
+     * @param repository the local repository to apply the modifications to
+     * @param listeners the listeners to notify about applied modifications
+     * @param mapper the mapper used to read descriptors
+     * @param pollInterval the delay between two polls in milliseconds
+     * @param batchSize the maximum number of entries to fetch at once
+     * @param timeout connect and read timeout in milliseconds
+     */
+    public ReplicaSynchronizer(String primary,
+                               AasRepository repository,
+                               List<RegistryListener> listeners,
+                               ObjectMapper mapper,
+                               long pollInterval,
+                               int batchSize,
+                               int timeout) {
+        this.primary = primary;
+        this.repository = repository;
+        this.listeners = listeners;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.client = RestClient.builder()
+                .baseUrl(primary + BASE_PATH)
+                .requestFactory(requestFactory)
+                .messageConverters(x -> {
+                    x.removeIf(MappingJackson2HttpMessageConverter.class::isInstance);
+                    x.add(new MappingJackson2HttpMessageConverter(mapper));
+                })
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(x -> {
+            Thread thread = new Thread(x, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Starts polling the primary.
+     */
+    public void start() {
+        LOGGER.info("replicating from primary {} (poll interval: {} ms)", primary, pollInterval);
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stops polling the primary.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+
+    /**
+     * Gets the time since the replica was last known to reflect all modifications of the primary.
+     *
+     * @return the staleness in milliseconds, or {@link Long#MAX_VALUE} if the replica has never been in sync
+     */
+    public long getStaleness() {
+        return lastCaughtUp == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - lastCaughtUp;
+    }
+
+
+    /**
+     * Gets the replication status.
+     *
+     * @return the primary, the sequence numbers applied locally and known from the primary, the lag in entries, the
+     *         staleness, the number of snapshots loaded and the last error, if any
+     */
+    public Map<String, Object> getStatus() {
+        long applied = appliedSequence;
+        long known = primarySequence;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("role", "replica");
+        result.put("primary", primary);
+        result.put("appliedSequence", applied);
+        result.put("primarySequence", known);
+        result.put("lag", applied < 0 || known < 0 ? null : known - applied);
+        result.put("stalenessMillis", lastCaughtUp == 0 ? null : getStaleness());
+        result.put("lastAppliedTimestamp", lastAppliedTimestamp == 0 ? null : lastAppliedTimestamp);
+        result.put("snapshotsLoaded", snapshotsLoaded);
+        result.put("lastError", lastError);
+        return result;
+    }
+
+
+    private void poll() {
+        try {
+            if (appliedSequence < 0) {
+                loadSnapshot();
+            }
+            MutationBatch batch;
+            do {
+                long pollStart = System.currentTimeMillis();
+                batch = fetch(appliedSequence);
+                if (Objects.isNull(batch)) {
+                    loadSnapshot();
+                    return;
+                }
+                for (Mutation mutation: batch.getMutations()) {
+                    apply(mutation);
+                    appliedSequence = mutation.getSequence();
+                    lastAppliedTimestamp = mutation.getTimestamp();
+                }
+                primarySequence = Math.max(primarySequence, batch.getLastSequence());
+                if (appliedSequence >= batch.getLastSequence()) {
+                    lastCaughtUp = pollStart;
+                }
+            }
+            while (batch.getMutations().size() == batchSize);
+            lastError = null;
+        }
+        catch (RuntimeException e) {
+            if (!Objects.equals(lastError, e.getMessage())) {
+                LOGGER.warn("replication from primary {} failed", primary, e);
+            }
+            lastError = e.getMessage();
+        }
+    }
+
+
+    private MutationBatch fetch(long after) {
+        try {
+            return client.get()
+                    .uri(x -> x.path("/log").queryParam("after", after).queryParam("limit", batchSize).build())
+                    .retrieve()
+                    .body(MutationBatch.class);
+        }
+        catch (HttpClientErrorException.Gone e) {
+            LOGGER.info("primary no longer retains log entries after {}, loading snapshot", after);
+            return null;
+        }
+    }
+
+
+    private void loadSnapshot() {
+        long start = System.currentTimeMillis();
+        Snapshot snapshot = client.get().uri("/snapshot").retrieve().body(Snapshot.class);
+        Set<String> shellIds = new HashSet<>();
+        snapshot.getShells().forEach(x -> shellIds.add(x.getId()));
+        Set<String> submodelIds = new HashSet<>();
+        snapshot.getSubmodels().forEach(x -> submodelIds.add(x.getId()));
+        for (AssetAdministrationShellDescriptor aas: repository.getAASs()) {
+            if (!shellIds.contains(aas.getId())) {
+                deleteShell(aas.getId());
+            }
+        }
+        for (SubmodelDescriptor submodel: repository.getSubmodels()) {
+            if (!submodelIds.contains(submodel.getId())) {
+                deleteSubmodel(null, submodel.getId());
+            }
+        }
+        snapshot.getShells().forEach(this::putShell);
+        snapshot.getSubmodels().forEach(x -> putSubmodel(null, x));
+        appliedSequence = snapshot.getSequence();
+        primarySequence = Math.max(primarySequence, snapshot.getSequence());
+        lastCaughtUp = start;
+        snapshotsLoaded++;
+        LOGGER.info("loaded snapshot from primary {} (sequence: {}, shells: {}, submodels: {}, duration: {} ms)",
+                primary, snapshot.getSequence(), snapshot.getShells().size(), snapshot.getSubmodels().size(), System.currentTimeMillis() - start);
+    }
+
+
+    private void apply(Mutation mutation) {
+        switch (mutation.getType()) {
+            case SHELL_CREATED:
+                putShell(mutation.getShell());
+                break;
+            case SHELL_UPDATED:
+                if (!Objects.equals(mutation.getAasId(), mutation.getShell().getId())) {
+                    deleteShell(mutation.getAasId());
+                }
+                putShell(mutation.getShell());
+                break;
+            case SHELL_DELETED:
+                deleteShell(mutation.getAasId());
+                break;
+            case SUBMODEL_CREATED:
+                putSubmodel(mutation.getAasId(), mutation.getSubmodel());
+                break;
+            case SUBMODEL_DELETED:
+                deleteSubmodel(mutation.getAasId(), mutation.getSubmodelId());
+                break;
+            default:
+                throw new IllegalStateException(String.format("unsupported mutation type: %s", mutation.getType()));
+        }
+    }
+
+
+    private void putShell(AssetAdministrationShellDescriptor aas) {
+        try {
+            repository.create(aas);
+            notifyListeners(x -> x.shellCreated(aas));
+        }
+        catch (ResourceAlreadyExistsException e) {
+            try {
+                repository.update(aas.getId(), aas);
+                notifyListeners(x -> x.shellUpdated(aas.getId(), aas));
+            }
+            catch (ResourceNotFoundException e2) {
+                throw new IllegalStateException(String.format("shell vanished while being replaced (id: %s)", aas.getId()), e2);
+            }
+        }
+    }
+
+
+    private void deleteShell(String aasId) {
+        try {
+            repository.deleteAAS(aasId);
+            notifyListeners(x -> x.shellDeleted(aasId));
+        }
+        catch (ResourceNotFoundException e) {
+            // already deleted
+        }
+    }
+
+
+    private void putSubmodel(String aasId, SubmodelDescriptor submodel) {
+        try {
+            add(aasId, submodel);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            deleteSubmodel(aasId, submodel.getId());
+            try {
+                add(aasId, submodel);
+            }
+            catch (ResourceAlreadyExistsException e2) {
+                throw new IllegalStateException(String.format("submodel reappeared while being replaced (id: %s)", submodel.getId()), e2);
+            }
+        }
+    }
+
+
+    private void add(String aasId, SubmodelDescriptor submodel) throws ResourceAlreadyExistsException {
+        try {
+            if (Objects.isNull(aasId)) {
+                repository.addSubmodel(submodel);
+            }
+            else {
+                repository.addSubmodel(aasId, submodel);
+            }
+            notifyListeners(x -> x.submodelCreated(aasId, submodel));
+        }
+        catch (ResourceNotFoundException e) {
+            // the shell has been deleted by a later entry
+        }
+    }
+
+
+    private void deleteSubmodel(String aasId, String submodelId) {
+        try {
+            if (Objects.isNull(aasId)) {
+                repository.deleteSubmodel(submodelId);
+            }
+            else {
+                repository.deleteSubmodel(aasId, submodelId);
+            }
+            notifyListeners(x -> x.submodelDeleted(aasId, submodelId));
+        }
+        catch (ResourceNotFoundException e) {
+            // already deleted
+        }
+    }
+
+
+    private void notifyListeners(Consumer<RegistryListener> notification) {
+        for (RegistryListener listener: listeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("registry listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
+    }
+}
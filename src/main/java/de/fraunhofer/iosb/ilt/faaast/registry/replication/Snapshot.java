@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.replication;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * The full content of the primary, used by replicas to catch up when the entries they need are no longer in the log.
+ * The content reflects at least all entries up to {@link #getSequence()}; later entries may be reflected as well,
+ * which is harmless because replicas apply entries idempotently.
+ */
+public class Snapshot {
+
+    private final long sequence;
+    private final List<AssetAdministrationShellDescriptor> shells;
+    private final List<SubmodelDescriptor> submodels;
+
+    @JsonCreator
+    public Snapshot(@JsonProperty("sequence") long sequence,
+                    @JsonProperty("shells") List<AssetAdministrationShellDescriptor> shells,
+                    @JsonProperty("submodels") List<SubmodelDescriptor> submodels) {
+        this.sequence = sequence;
+        this.shells = shells;
+        this.submodels = submodels;
+    }
+
+
+    /**
+     * The sequence number of the log the snapshot is based on.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+
+    /**
+     * All shells.
+     *
+     * @return the shells
+     */
+    public List<AssetAdministrationShellDescriptor> getShells() {
+        return shells;
+    }
+
+
+    /**
+     * All submodels.
+     *
+     * @return the submodels
+     */
+    public List<SubmodelDescriptor> getSubmodels() {
+        return submodels;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.AdaptiveConcurrencyLimiter;
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.RateLimiter;
+
+
+/**
+ * REST controller exposing the numbers of requests accepted and rejected by admission control. Only available if
+ * rate limiting or concurrency limiting is enabled.
+ */
+@RestController
+@RequestMapping("/registry/admission")
+@ConditionalOnExpression("${registry.rate-limit.enabled:false} or ${registry.concurrency-limit.enabled:false}")
+public class AdmissionController {
+
+    @Autowired(required = false)
+    RateLimiter rateLimiter;
+
+    @Autowired(required = false)
+    AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * Gets the accepted and rejected requests per endpoint class of the rate limiter and the current limit, the calls
+     * in flight and the latency averages of the concurrency limiter.
+     *
+     * @return The statistics.
+     */
+    @GetMapping(value = "/statistics")
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (Objects.nonNull(rateLimiter)) {
+            result.put("rateLimit", rateLimiter.getStatistics());
+        }
+        if (Objects.nonNull(concurrencyLimiter)) {
+            result.put("concurrencyLimit", concurrencyLimiter.getStatistics());
+        }
+        return result;
+    }
+}
@@ -17,16 +17,31 @@ package de.fraunhofer.iosb.ilt.faaast.registry.service;
 import static de.fraunhofer.iosb.ilt.faaast.registry.service.App.APP_NAME;
 
 import ch.qos.logback.classic.Level;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.CompressionConfig;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.RepositoryConfig;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.WarmUpConfig;
 import de.fraunhofer.iosb.ilt.faaast.registry.service.logging.FaaastFilter;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.Banner.Mode;
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.builder.SpringApplicationBuilder;
-import org.springframework.context.annotation.ImportResource;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
@@ -39,10 +54,17 @@ import picocli.CommandLine.Option;
 @EntityScan(basePackages = {
         "de.fraunhofer.iosb.ilt.faaast.service.model.descriptor"
 })
-@ImportResource("classpath:applicationContext.xml")
 @Command(name = APP_NAME, mixinStandardHelpOptions = true, description = "Starts a FA³ST Registry", usageHelpAutoWidth = true)
 public class App implements Runnable {
     protected static final String APP_NAME = "FA³ST Registry Starter";
+
+    /**
+     * If true, the application exits as soon as it is ready, after logging its startup time. Used by the startup
+     * benchmark of the build.
+     */
+    public static final String PROPERTY_EXIT_WHEN_READY = "registry.startup.exit-when-ready";
+
+    private static final String PROPERTY_AUTOCONFIGURE_EXCLUDE = "spring.autoconfigure.exclude";
     private static final Logger LOGGER = LoggerFactory.getLogger(App.class);
 
     @Option(names = {
@@ -63,17 +85,41 @@ public class App implements Runnable {
     @Option(names = "-vvv", description = "Enables very very verbose logging (TRACE for FA³ST packages, DEBUG for all other packages).")
     public boolean veryVeryVerbose = false;
 
+    @Option(names = "--fast-start", description = "Initializes beans lazily on first use instead of at startup to reduce the time until the registry accepts requests.")
+    public boolean fastStart = false;
+
+    @Option(names = "--warmup", description = "Warms up caches and the JIT compiler before the registry is reported ready.")
+    public boolean warmUp = false;
+
+    @Option(names = "--warmup-access-log", paramLabel = "<file>", description = "Counts descriptor reads in this file and preloads the most frequently read descriptors during warm-up.")
+    public Path warmUpAccessLog;
+
+    @Option(names = "--warmup-max-descriptors", paramLabel = "<count>", description = "Maximum number of shells and of submodels preloaded during warm-up (default: 10000).")
+    public Integer warmUpMaxDescriptors;
+
+    @Option(names = "--warmup-iterations", paramLabel = "<count>", description = "Number of times the preloaded descriptors are looked up and serialized during warm-up (default: 3).")
+    public Integer warmUpIterations;
+
+    @Option(names = "--warmup-timeout", paramLabel = "<ms>", description = "Time budget of the warm-up in milliseconds (default: 60000).")
+    public Long warmUpTimeout;
+
     /**
      * Entry point of the application.
      *
      * @param args The command line arguments.
      */
     public static void main(String[] args) {
-        new CommandLine(new App()).execute(args);
+        App app = new App();
+        new CommandLine(app)
+                .setUnmatchedArgumentsAllowed(true)
+                .execute(args);
 
         new SpringApplicationBuilder(App.class)
                 .bannerMode(Mode.CONSOLE)
                 .banner(App::printBanner)
+                .lazyInitialization(app.fastStart)
+                .properties(app.getProperties())
+                .listeners(App::onApplicationEvent)
                 .run(args);
     }
 
@@ -84,6 +130,60 @@ public class App implements Runnable {
     }
 
 
+    /**
+     * Gets the Spring properties corresponding to the given command line options, together with the defaults of the
+     * server properties. They serve as defaults, i.e. they are overridden by properties passed to Spring directly.
+     *
+     * @return The properties.
+     */
+    public Map<String, Object> getProperties() {
+        Map<String, Object> result = new HashMap<>(CompressionConfig.DEFAULT_PROPERTIES);
+        if (warmUp) {
+            result.put(WarmUpConfig.PROPERTY_ENABLED, true);
+        }
+        if (warmUpAccessLog != null) {
+            result.put(WarmUpConfig.PROPERTY_ACCESS_LOG, warmUpAccessLog.toString());
+        }
+        if (warmUpMaxDescriptors != null) {
+            result.put(WarmUpConfig.PROPERTY_MAX_DESCRIPTORS, warmUpMaxDescriptors);
+        }
+        if (warmUpIterations != null) {
+            result.put(WarmUpConfig.PROPERTY_ITERATIONS, warmUpIterations);
+        }
+        if (warmUpTimeout != null) {
+            result.put(WarmUpConfig.PROPERTY_TIMEOUT, warmUpTimeout);
+        }
+        return result;
+    }
+
+
+    private static void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            excludeUnusedAutoConfigurations(((ApplicationEnvironmentPreparedEvent) event).getEnvironment());
+        }
+        else if (event instanceof ApplicationReadyEvent) {
+            ApplicationReadyEvent readyEvent = (ApplicationReadyEvent) event;
+            long startupTime = ManagementFactory.getRuntimeMXBean().getUptime();
+            LOGGER.info("FA³ST Registry ready (startup time: {} ms)", startupTime);
+            if (readyEvent.getApplicationContext().getEnvironment().getProperty(PROPERTY_EXIT_WHEN_READY, Boolean.class, false)) {
+                System.exit(SpringApplication.exit(readyEvent.getApplicationContext()));
+            }
+        }
+    }
+
+
+    private static void excludeUnusedAutoConfigurations(ConfigurableEnvironment environment) {
+        if (RepositoryConfig.TYPE_JPA.equals(environment.getProperty(RepositoryConfig.PROPERTY_TYPE, RepositoryConfig.TYPE_JPA))) {
+            return;
+        }
+        String excludes = Stream.concat(
+                Stream.of(environment.getProperty(PROPERTY_AUTOCONFIGURE_EXCLUDE)).filter(Objects::nonNull),
+                RepositoryConfig.JPA_AUTO_CONFIGURATIONS.stream().map(Class::getName))
+                .collect(Collectors.joining(","));
+        environment.getPropertySources().addFirst(new MapPropertySource("registryRepository", Map.of(PROPERTY_AUTOCONFIGURE_EXCLUDE, excludes)));
+    }
+
+
     private static void printBanner(Environment environment, Class<?> sourceClass, PrintStream out) {
         out.println("            _____                                                       ");
         out.println("           |___ /                                                       ");
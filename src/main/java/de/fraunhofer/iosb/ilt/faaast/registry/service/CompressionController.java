@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.compression.PrecompressedResponseFilter;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.CompressionConfig;
+
+
+/**
+ * REST controller exposing the bytes saved by compressing single-descriptor responses and the effectiveness of the
+ * cache of compressed bodies. Only available if compression is enabled.
+ */
+@RestController
+@RequestMapping("/registry/compression")
+@ConditionalOnProperty(name = CompressionConfig.PROPERTY_COMPRESSION_ENABLED, havingValue = "true")
+public class CompressionController {
+
+    @Autowired
+    PrecompressedResponseFilter filter;
+
+    /**
+     * Gets the number of compressed responses, the cache hit ratio, the bytes before and after compression and the
+     * CPU time spent per compression.
+     *
+     * @return The statistics.
+     */
+    @GetMapping(value = "/statistics")
+    public Map<String, Object> getStatistics() {
+        return filter.getStatistics();
+    }
+}
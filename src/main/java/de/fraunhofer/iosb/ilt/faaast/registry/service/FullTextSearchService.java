@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.FullTextIndex;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.SearchHit;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ShardedAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Keeps a {@link FullTextIndex} in sync with the registry and answers full-text searches. The index is built from the
+ * repository on startup and afterwards updated on every modification. A rebuild fills a new index while searches are
+ * still answered by the current one. Modifications arriving during the rebuild are applied to the current index and
+ * queued, and the queue is replayed onto the new index before it replaces the current one, so no modification is lost.
+ *
+ * <p>If the registry is sharded, the index of a node only covers its own shard. Searches are then sent to all nodes and
+ * their hits are merged by score. As the scores are computed from the statistics of each shard, they are comparable
+ * only as long as the descriptors are spread evenly, which the hashing of the IDs ensures for larger registries.
+ */
+@Service
+public class FullTextSearchService implements RegistryListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FullTextSearchService.class);
+
+    @Autowired
+    private AasRepository aasRepository;
+
+    private final Object updateLock = new Object();
+    private volatile FullTextIndex index = new FullTextIndex();
+    private List<Consumer<FullTextIndex>> pendingUpdates;
+
+    /**
+     * Rebuilds the index from the content of the repository.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (updateLock) {
+            if (Objects.nonNull(pendingUpdates)) {
+                LOGGER.debug("full-text index rebuild already in progress");
+                return;
+            }
+            pendingUpdates = new ArrayList<>();
+        }
+        FullTextIndex rebuilt = new FullTextIndex();
+        AasRepository source = aasRepository instanceof ShardedAasRepository
+                ? ((ShardedAasRepository) aasRepository).getLocal()
+                : aasRepository;
+        try {
+            for (AssetAdministrationShellDescriptor aas: source.getAASs()) {
+                rebuilt.addShell(aas);
+            }
+            for (SubmodelDescriptor submodel: source.getSubmodels()) {
+                rebuilt.addSubmodel(null, submodel);
+            }
+        }
+        catch (RuntimeException e) {
+            // e.g. the repository not reachable yet, the current index then only covers later modifications
+            LOGGER.warn("building full-text index failed", e);
+            synchronized (updateLock) {
+                pendingUpdates = null;
+            }
+            return;
+        }
+        synchronized (updateLock) {
+            pendingUpdates.forEach(x -> x.accept(rebuilt));
+            index = rebuilt;
+            pendingUpdates = null;
+        }
+        LOGGER.info("full-text index built with {} descriptors in {} ms", rebuilt.size(), System.currentTimeMillis() - start);
+    }
+
+
+    /**
+     * Searches the idShort, displayNames and descriptions of all shells and submodels.
+     *
+     * @param text The search text.
+     * @param offset The index of the first hit to return.
+     * @param limit The maximum number of hits to return.
+     * @return The requested page of hits ordered by descending relevance.
+     * @throws BadRequestException When the search text or the paging information is invalid.
+     */
+    public PagedResult<SearchHit> search(String text, int offset, int limit) throws BadRequestException {
+        if (text == null || text.isBlank()) {
+            throw new BadRequestException("search text must be non-empty");
+        }
+        if (offset < 0 || limit < 1 || limit > DescriptorQuery.MAX_LIMIT) {
+            throw new BadRequestException(String.format("offset must be >= 0 and limit must be between 1 and %d", DescriptorQuery.MAX_LIMIT));
+        }
+        if (aasRepository instanceof ShardedAasRepository) {
+            return searchShards((ShardedAasRepository) aasRepository, text, offset, limit);
+        }
+        return index.search(text, offset, limit);
+    }
+
+
+    /**
+     * Searches the index of this node only. If the registry is sharded, this covers the local shard.
+     *
+     * @param text The search text.
+     * @param limit The maximum number of hits to return.
+     * @return The best hits ordered by descending relevance.
+     * @throws BadRequestException When the search text or the limit is invalid.
+     */
+    public PagedResult<SearchHit> searchLocal(String text, int limit) throws BadRequestException {
+        if (text == null || text.isBlank()) {
+            throw new BadRequestException("search text must be non-empty");
+        }
+        if (limit < 1) {
+            throw new BadRequestException("limit must be >= 1");
+        }
+        return index.search(text, 0, limit);
+    }
+
+
+    @Override
+    public void shellCreated(AssetAdministrationShellDescriptor aas) {
+        update(x -> x.addShell(aas));
+    }
+
+
+    @Override
+    public void shellUpdated(String aasId, AssetAdministrationShellDescriptor aas) {
+        update(x -> {
+            if (!aasId.equals(aas.getId())) {
+                x.removeShell(aasId);
+            }
+            x.addShell(aas);
+        });
+    }
+
+
+    @Override
+    public void shellDeleted(String aasId) {
+        update(x -> x.removeShell(aasId));
+    }
+
+
+    @Override
+    public void submodelCreated(String aasId, SubmodelDescriptor submodel) {
+        update(x -> x.addSubmodel(aasId, submodel));
+    }
+
+
+    @Override
+    public void submodelDeleted(String aasId, String submodelId) {
+        update(x -> x.removeSubmodel(submodelId));
+    }
+
+
+    private PagedResult<SearchHit> searchShards(ShardedAasRepository sharded, String text, int offset, int limit) {
+        int window = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        List<PagedResult<SearchHit>> pages = sharded.fanOut(() -> index.search(text, 0, window), x -> x.search(text, window));
+        Map<List<Object>, SearchHit> hits = new HashMap<>();
+        long total = 0;
+        for (PagedResult<SearchHit> page: pages) {
+            total += page.getTotal();
+            for (SearchHit hit: page.getItems()) {
+                // a descriptor may be indexed on two nodes while it is being moved
+                hits.merge(Arrays.asList(hit.getKind(), hit.getId(), hit.getAasId()), hit, (a, b) -> a.getScore() >= b.getScore() ? a : b);
+            }
+        }
+        List<SearchHit> items = hits.values().stream()
+                .sorted(Comparator.comparingDouble((SearchHit x) -> x.getScore()).reversed()
+                        .thenComparing(SearchHit::getKind)
+                        .thenComparing(SearchHit::getId))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+        return new PagedResult<>(items, offset, limit, total);
+    }
+
+
+    private void update(Consumer<FullTextIndex> update) {
+        synchronized (updateLock) {
+            update.accept(index);
+            if (Objects.nonNull(pendingUpdates)) {
+                pendingUpdates.add(update);
+            }
+        }
+    }
+}
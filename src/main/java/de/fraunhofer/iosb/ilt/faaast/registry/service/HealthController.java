@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+
+/**
+ * REST controller providing liveness and readiness probes. The registry is ready once startup, including an optional
+ * warm-up, has finished.
+ */
+@RestController
+@RequestMapping("/registry/health")
+public class HealthController {
+
+    @Autowired
+    ApplicationAvailability availability;
+
+    /**
+     * Checks whether the registry is alive.
+     *
+     * @return 200 with the liveness state if the registry is alive, 503 otherwise.
+     */
+    @GetMapping(value = "/liveness")
+    public ResponseEntity<Map<String, String>> liveness() {
+        LivenessState state = availability.getLivenessState();
+        return ResponseEntity.status(state == LivenessState.CORRECT ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("status", state.name()));
+    }
+
+
+    /**
+     * Checks whether the registry accepts traffic.
+     *
+     * @return 200 with the readiness state if the registry accepts traffic, 503 otherwise.
+     */
+    @GetMapping(value = "/readiness")
+    public ResponseEntity<Map<String, String>> readiness() {
+        ReadinessState state = availability.getReadinessState();
+        return ResponseEntity.status(state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("status", state.name()));
+    }
+}
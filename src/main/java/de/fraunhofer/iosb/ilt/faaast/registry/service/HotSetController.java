@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.AccessFrequency;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.HotSet;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.AccessFrequencyConfig;
+
+
+/**
+ * REST controller reporting the most frequently read shells and submodels. Frequencies are estimates between 0 and 15
+ * that decay over time, so they rank descriptors rather than count reads.
+ */
+@RestController
+@RequestMapping("/registry/hot-set")
+@ConditionalOnProperty(name = AccessFrequencyConfig.PROPERTY_ENABLED, havingValue = "true", matchIfMissing = true)
+public class HotSetController {
+
+    private static final String DEFAULT_LIMIT = "100";
+
+    @Autowired
+    AccessFrequency accessFrequency;
+
+    /**
+     * Gets the most frequently read shells.
+     *
+     * @param limit The maximum number of shells to return.
+     * @return The IDs of the shells with their estimated frequency, most frequent first.
+     * @throws BadRequestException When the limit is not positive.
+     */
+    @GetMapping(value = "/shells")
+    public List<Map<String, Object>> getShells(@RequestParam(name = "limit", defaultValue = DEFAULT_LIMIT) int limit) throws BadRequestException {
+        return getTop(accessFrequency.getShells(), limit);
+    }
+
+
+    /**
+     * Gets the most frequently read submodels.
+     *
+     * @param limit The maximum number of submodels to return.
+     * @return The IDs of the submodels with their estimated frequency, most frequent first.
+     * @throws BadRequestException When the limit is not positive.
+     */
+    @GetMapping(value = "/submodels")
+    public List<Map<String, Object>> getSubmodels(@RequestParam(name = "limit", defaultValue = DEFAULT_LIMIT) int limit) throws BadRequestException {
+        return getTop(accessFrequency.getSubmodels(), limit);
+    }
+
+
+    private static List<Map<String, Object>> getTop(HotSet hotSet, int limit) throws BadRequestException {
+        if (limit <= 0) {
+            throw new BadRequestException("limit must be positive");
+        }
+        return hotSet.getTop(limit).stream()
+                .map(x -> {
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    result.put("id", x.getKey());
+                    result.put("frequency", x.getValue());
+                    return result;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import ch.qos.logback.classic.Level;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.logging.FaaastFilter;
+
+
+/**
+ * REST controller for changing log levels at run-time. Can be disabled by setting {@value #PROPERTY_ENABLED} to
+ * false.
+ */
+@RestController
+@RequestMapping("/registry/admin/logging")
+@ConditionalOnProperty(name = LoggingController.PROPERTY_ENABLED, havingValue = "true", matchIfMissing = true)
+public class LoggingController {
+
+    /**
+     * Whether the logging endpoint is available.
+     */
+    public static final String PROPERTY_ENABLED = "registry.logging.admin.enabled";
+
+    /**
+     * Gets the current log levels.
+     *
+     * @return The levels for FA³ST packages, all other packages and the overridden loggers.
+     */
+    @GetMapping
+    public Map<String, Object> getLevels() {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        FaaastFilter.getLevelOverrides().forEach((name, level) -> overrides.put(name, level.toString()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("faaast", FaaastFilter.getLevelFaaast().toString());
+        result.put("external", FaaastFilter.getLevelExternal().toString());
+        result.put("loggers", overrides);
+        return result;
+    }
+
+
+    /**
+     * Sets the log level for FA³ST packages.
+     *
+     * @param level The level, e.g. DEBUG.
+     * @return The current log levels.
+     */
+    @PutMapping(value = "/faaast")
+    public Map<String, Object> setLevelFaaast(@RequestParam(name = "level") String level) {
+        FaaastFilter.setLevelFaaast(parseLevel(level));
+        return getLevels();
+    }
+
+
+    /**
+     * Sets the log level for all other packages.
+     *
+     * @param level The level, e.g. DEBUG.
+     * @return The current log levels.
+     */
+    @PutMapping(value = "/external")
+    public Map<String, Object> setLevelExternal(@RequestParam(name = "level") String level) {
+        FaaastFilter.setLevelExternal(parseLevel(level));
+        return getLevels();
+    }
+
+
+    /**
+     * Overrides the log level of a logger or package.
+     *
+     * @param name The name of the logger or package.
+     * @param level The level, e.g. DEBUG.
+     * @return The current log levels.
+     */
+    @PutMapping(value = "/loggers/{name}")
+    public Map<String, Object> setLevelOverride(@PathVariable("name") String name, @RequestParam(name = "level") String level) {
+        FaaastFilter.setLevelOverride(name, parseLevel(level));
+        return getLevels();
+    }
+
+
+    /**
+     * Removes the override of the log level of a logger or package.
+     *
+     * @param name The name of the logger or package.
+     * @return The current log levels.
+     */
+    @DeleteMapping(value = "/loggers/{name}")
+    public Map<String, Object> removeLevelOverride(@PathVariable("name") String name) {
+        FaaastFilter.setLevelOverride(name, null);
+        return getLevels();
+    }
+
+
+    private static Level parseLevel(String level) {
+        Level result = Level.toLevel(level, null);
+        if (Objects.isNull(result)) {
+            throw new BadRequestException(String.format("invalid log level '%s'", level));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+
+
+/**
+ * REST controller for reverse lookups across the registry.
+ */
+@RestController
+@RequestMapping("/registry/lookup")
+public class LookupController {
+
+    @Autowired
+    RegistryService service;
+
+    /**
+     * Finds all Submodels carrying the given semanticId together with the Asset Administration Shells exposing them.
+     *
+     * @param semanticId The key value of the semanticId (base64url-encoded).
+     * @return The matching Submodel and Asset Administration Shell IDs.
+     */
+    @GetMapping(value = "/semantic-ids/{semanticId}")
+    public List<SemanticIdMatch> findBySemanticId(@PathVariable("semanticId") String semanticId) {
+        return service.findBySemanticId(semanticId);
+    }
+}
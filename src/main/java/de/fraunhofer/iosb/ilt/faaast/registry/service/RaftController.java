@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.AppendRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.AppendResponse;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.CommandResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.HttpRaftTransport;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.InstallSnapshotRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftCommand;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftNode;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.VoteRequest;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.VoteResponse;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.RaftConfig;
+
+
+/**
+ * REST controller receiving the Raft RPCs of the other nodes. Only available if Raft replication is enabled.
+ */
+@RestController
+@RequestMapping(HttpRaftTransport.BASE_PATH)
+@ConditionalOnProperty(name = RaftConfig.PROPERTY_NODES)
+public class RaftController {
+
+    @Autowired
+    AasRepository aasRepository;
+
+    /**
+     * Handles a vote request of a candidate.
+     *
+     * @param request The request.
+     * @return The response.
+     */
+    @PostMapping(value = "/vote")
+    public VoteResponse vote(@RequestBody VoteRequest request) {
+        return node().handleVote(request);
+    }
+
+
+    /**
+     * Handles log entries or a heartbeat sent by the leader.
+     *
+     * @param request The request.
+     * @return The response.
+     */
+    @PostMapping(value = "/append")
+    public AppendResponse append(@RequestBody AppendRequest request) {
+        return node().handleAppend(request);
+    }
+
+
+    /**
+     * Handles a snapshot sent by the leader.
+     *
+     * @param request The request.
+     * @return The response.
+     */
+    @PostMapping(value = "/install-snapshot")
+    public AppendResponse installSnapshot(@RequestBody InstallSnapshotRequest request) {
+        return node().handleInstallSnapshot(request);
+    }
+
+
+    /**
+     * Commits a command forwarded by a follower. Only the leader accepts commands.
+     *
+     * @param command The command.
+     * @return The outcome of the command.
+     */
+    @PostMapping(value = "/propose")
+    public CommandResult propose(@RequestBody RaftCommand command) {
+        return node().proposeForwarded(command);
+    }
+
+
+    /**
+     * Retrieves the index a follower has to apply before answering a read. Only the leader answers this.
+     *
+     * @return The commit index of the leader.
+     */
+    @GetMapping(value = "/read-index")
+    public long readIndex() {
+        return node().getReadIndex();
+    }
+
+
+    /**
+     * Retrieves the status of this node.
+     *
+     * @return The role, term, leader, log indexes and the duration of the last failover.
+     */
+    @GetMapping(value = "/status")
+    public Map<String, Object> getStatus() {
+        return node().getStatus();
+    }
+
+
+    private RaftNode node() {
+        if (!(aasRepository instanceof RaftAasRepository)) {
+            throw new IllegalStateException("raft replication is enabled but the repository is not replicated");
+        }
+        return ((RaftAasRepository) aasRepository).getNode();
+    }
+}
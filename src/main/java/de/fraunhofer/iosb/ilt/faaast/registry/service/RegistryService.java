@@ -16,14 +16,35 @@ package de.fraunhofer.iosb.ilt.faaast.registry.service;
 
 import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.AdaptiveConcurrencyLimiter;
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.ConcurrencyLimitedAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.coalescing.CoalescingAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.coalescing.SingleFlight;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AccessListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.LoggingAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.MutationLog;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ShardedAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.SpanScope;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.Tracing;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TracingAasRepository;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
@@ -35,11 +56,52 @@ import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
 @Service
 public class RegistryService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RegistryService.class);
     private static final String AAS_NOT_NULL_TXT = "aas must be non-null";
     private static final String SUBMODEL_NOT_NULL_TXT = "submodel must be non-null";
+    private static final String VALIDATION_SPAN = "validation";
 
-    @Autowired
     private AasRepository aasRepository;
+    private boolean sharded;
+
+    @Autowired(required = false)
+    private List<RegistryListener> listeners = List.of();
+
+    @Autowired(required = false)
+    private List<AccessListener> accessListeners = List.of();
+
+    /**
+     * Sets the repository. Calls are traced as {@code repository.<method>} spans of the current request. If a
+     * single-flight group is configured, concurrent identical reads share one call. If a concurrency limiter is
+     * configured, calls are rejected while too many of them are in progress. On a replication primary, modifications
+     * are serialized and recorded in the mutation log. If the repository is sharded, the listeners are notified by the
+     * node owning the modified descriptor instead of this service.
+     *
+     * @param aasRepository The repository.
+     * @param singleFlight The group coalescing concurrent identical reads, if configured.
+     * @param concurrencyLimiter The limiter of concurrent repository calls, if configured.
+     * @param mutationLog The log of a replication primary, if configured.
+     */
+    @Autowired
+    public void setAasRepository(AasRepository aasRepository, ObjectProvider<SingleFlight> singleFlight,
+                                 ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter, ObjectProvider<MutationLog> mutationLog) {
+        this.sharded = aasRepository instanceof ShardedAasRepository;
+        AasRepository repository = aasRepository;
+        MutationLog log = mutationLog.getIfAvailable();
+        if (Objects.nonNull(log)) {
+            repository = new LoggingAasRepository(repository, log);
+        }
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        if (Objects.nonNull(limiter)) {
+            repository = new ConcurrencyLimitedAasRepository(repository, limiter);
+        }
+        SingleFlight group = singleFlight.getIfAvailable();
+        if (Objects.nonNull(group)) {
+            repository = new CoalescingAasRepository(repository, group);
+        }
+        this.aasRepository = new TracingAasRepository(repository);
+    }
+
 
     /**
      * Retrieves a list of all registered Asset Administration Shells.
@@ -51,6 +113,21 @@ public class RegistryService {
     }
 
 
+    /**
+     * Retrieves a list of all registered Asset Administration Shells containing only the selected attributes.
+     *
+     * @param fields Comma-separated names of the attributes to return, may be null.
+     * @param level Predefined set of attributes to return, e.g. {@code core}, may be null.
+     * @param submodels Whether to return no submodels ({@code none}), only their IDs ({@code ids}) or the complete
+     *            submodels ({@code full}), may be null.
+     * @return The list of all registered Asset Administration Shells.
+     * @throws BadRequestException When the level, the submodel mode or a name of an attribute is unknown.
+     */
+    public List<AssetAdministrationShellDescriptor> getAASs(String fields, String level, String submodels) throws BadRequestException {
+        return aasRepository.getAASs(buildProjection(fields, level, submodels));
+    }
+
+
     /**
      * Retrieves the Asset Administration Shell with the given ID.
      *
@@ -59,7 +136,34 @@ public class RegistryService {
      * @throws ResourceNotFoundException When the AAS was not found.
      */
     public AssetAdministrationShellDescriptor getAAS(String id) throws ResourceNotFoundException {
-        return aasRepository.getAAS(decode(id));
+        String idDecoded = decode(id);
+        AssetAdministrationShellDescriptor result = aasRepository.getAAS(idDecoded);
+        notifyAccessListeners(x -> x.shellRead(idDecoded));
+        return result;
+    }
+
+
+    /**
+     * Retrieves the Asset Administration Shell with the given ID containing only the selected attributes.
+     *
+     * @param id The ID of the desired Asset Administration Shell.
+     * @param fields Comma-separated names of the attributes to return, may be null.
+     * @param level Predefined set of attributes to return, e.g. {@code core}, may be null.
+     * @param submodels Whether to return no submodels ({@code none}), only their IDs ({@code ids}) or the complete
+     *            submodels ({@code full}), may be null.
+     * @return The desired Asset Administration Shell.
+     * @throws ResourceNotFoundException When the AAS was not found.
+     * @throws BadRequestException When the level, the submodel mode or a name of an attribute is unknown.
+     */
+    public AssetAdministrationShellDescriptor getAAS(String id, String fields, String level, String submodels) throws ResourceNotFoundException, BadRequestException {
+        ShellProjection projection = buildProjection(fields, level, submodels);
+        if (projection.isFull()) {
+            return getAAS(id);
+        }
+        String idDecoded = decode(id);
+        AssetAdministrationShellDescriptor result = aasRepository.getAAS(idDecoded, projection);
+        notifyAccessListeners(x -> x.shellRead(idDecoded));
+        return result;
     }
 
 
@@ -72,11 +176,15 @@ public class RegistryService {
      */
     public AssetAdministrationShellDescriptor createAAS(AssetAdministrationShellDescriptor aas) throws ResourceAlreadyExistsException {
         Ensure.requireNonNull(aas, AAS_NOT_NULL_TXT);
-        checkShellIdentifiers(aas);
-        if (aas.getSubmodels() != null) {
-            aas.getSubmodels().stream().forEach(this::checkSubmodelIdentifiers);
+        try (SpanScope scope = Tracing.span(VALIDATION_SPAN)) {
+            checkShellIdentifiers(aas);
+            if (aas.getSubmodels() != null) {
+                aas.getSubmodels().stream().forEach(this::checkSubmodelIdentifiers);
+            }
         }
-        return aasRepository.create(aas);
+        AssetAdministrationShellDescriptor result = aasRepository.create(aas);
+        notifyListeners(x -> x.shellCreated(result));
+        return result;
     }
 
 
@@ -89,6 +197,7 @@ public class RegistryService {
     public void deleteAAS(String id) throws ResourceNotFoundException {
         String idDecoded = decode(id);
         aasRepository.deleteAAS(idDecoded);
+        notifyListeners(x -> x.shellDeleted(idDecoded));
     }
 
 
@@ -103,9 +212,13 @@ public class RegistryService {
     public AssetAdministrationShellDescriptor updateAAS(String id, AssetAdministrationShellDescriptor aas) throws ResourceNotFoundException {
         Ensure.requireNonNull(aas, AAS_NOT_NULL_TXT);
         String idDecoded = decode(id);
-        checkShellIdentifiers(aas);
-        aas.getSubmodels().stream().forEach(this::checkSubmodelIdentifiers);
-        return aasRepository.update(idDecoded, aas);
+        try (SpanScope scope = Tracing.span(VALIDATION_SPAN)) {
+            checkShellIdentifiers(aas);
+            aas.getSubmodels().stream().forEach(this::checkSubmodelIdentifiers);
+        }
+        AssetAdministrationShellDescriptor result = aasRepository.update(idDecoded, aas);
+        notifyListeners(x -> x.shellUpdated(idDecoded, result));
+        return result;
     }
 
 
@@ -160,13 +273,12 @@ public class RegistryService {
      */
     public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
         String submodelIdDecoded = decode(submodelId);
-        if (aasId == null) {
-            return aasRepository.getSubmodel(submodelIdDecoded);
-        }
-        else {
-            String aasIdDecoded = decode(aasId);
-            return aasRepository.getSubmodel(aasIdDecoded, submodelIdDecoded);
-        }
+        String aasIdDecoded = aasId == null ? null : decode(aasId);
+        SubmodelDescriptor result = aasIdDecoded == null
+                ? aasRepository.getSubmodel(submodelIdDecoded)
+                : aasRepository.getSubmodel(aasIdDecoded, submodelIdDecoded);
+        notifyAccessListeners(x -> x.submodelRead(aasIdDecoded, submodelIdDecoded));
+        return result;
     }
 
 
@@ -194,14 +306,15 @@ public class RegistryService {
      */
     public SubmodelDescriptor createSubmodel(String aasId, SubmodelDescriptor submodel) throws ResourceNotFoundException, ResourceAlreadyExistsException {
         Ensure.requireNonNull(submodel, SUBMODEL_NOT_NULL_TXT);
-        checkSubmodelIdentifiers(submodel);
-        if (aasId == null) {
-            return aasRepository.addSubmodel(submodel);
-        }
-        else {
-            String aasIdDecoded = decode(aasId);
-            return aasRepository.addSubmodel(aasIdDecoded, submodel);
+        try (SpanScope scope = Tracing.span(VALIDATION_SPAN)) {
+            checkSubmodelIdentifiers(submodel);
         }
+        String aasIdDecoded = aasId == null ? null : decode(aasId);
+        SubmodelDescriptor result = aasIdDecoded == null
+                ? aasRepository.addSubmodel(submodel)
+                : aasRepository.addSubmodel(aasIdDecoded, submodel);
+        notifyListeners(x -> x.submodelCreated(aasIdDecoded, result));
+        return result;
     }
 
 
@@ -225,13 +338,14 @@ public class RegistryService {
      */
     public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
         String submodelIdDecoded = decode(submodelId);
-        if (aasId == null) {
+        String aasIdDecoded = aasId == null ? null : decode(aasId);
+        if (aasIdDecoded == null) {
             aasRepository.deleteSubmodel(submodelIdDecoded);
         }
         else {
-            String aasIdDecoded = decode(aasId);
             aasRepository.deleteSubmodel(aasIdDecoded, submodelIdDecoded);
         }
+        notifyListeners(x -> x.submodelDeleted(aasIdDecoded, submodelIdDecoded));
     }
 
 
@@ -247,9 +361,14 @@ public class RegistryService {
     public SubmodelDescriptor updateSubmodel(String submodelId, SubmodelDescriptor submodel) throws ResourceNotFoundException, ResourceAlreadyExistsException {
         Ensure.requireNonNull(submodel, SUBMODEL_NOT_NULL_TXT);
         String submodelIdDecoded = decode(submodelId);
-        checkSubmodelIdentifiers(submodel);
+        try (SpanScope scope = Tracing.span(VALIDATION_SPAN)) {
+            checkSubmodelIdentifiers(submodel);
+        }
         aasRepository.deleteSubmodel(submodelIdDecoded);
-        return aasRepository.addSubmodel(submodel);
+        notifyListeners(x -> x.submodelDeleted(null, submodelIdDecoded));
+        SubmodelDescriptor result = aasRepository.addSubmodel(submodel);
+        notifyListeners(x -> x.submodelCreated(null, result));
+        return result;
     }
 
 
@@ -267,9 +386,96 @@ public class RegistryService {
         Ensure.requireNonNull(submodel, SUBMODEL_NOT_NULL_TXT);
         String aasIdDecoded = decode(aasId);
         String submodelIdDecoded = decode(submodelId);
-        checkSubmodelIdentifiers(submodel);
+        try (SpanScope scope = Tracing.span(VALIDATION_SPAN)) {
+            checkSubmodelIdentifiers(submodel);
+        }
         aasRepository.deleteSubmodel(aasIdDecoded, submodelIdDecoded);
-        return aasRepository.addSubmodel(aasIdDecoded, submodel);
+        notifyListeners(x -> x.submodelDeleted(aasIdDecoded, submodelIdDecoded));
+        SubmodelDescriptor result = aasRepository.addSubmodel(aasIdDecoded, submodel);
+        notifyListeners(x -> x.submodelCreated(aasIdDecoded, result));
+        return result;
+    }
+
+
+    /**
+     * Searches the registered Asset Administration Shells.
+     *
+     * @param query The search criteria.
+     * @return The requested page of matching Asset Administration Shells.
+     * @throws BadRequestException When the paging information is invalid.
+     */
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery.Builder query) throws BadRequestException {
+        return aasRepository.findAASs(buildQuery(query));
+    }
+
+
+    /**
+     * Searches the registered Submodels.
+     *
+     * @param query The search criteria.
+     * @return The requested page of matching Submodels.
+     * @throws BadRequestException When the paging information is invalid.
+     */
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery.Builder query) throws BadRequestException {
+        return aasRepository.findSubmodels(buildQuery(query));
+    }
+
+
+    /**
+     * Finds all Submodels carrying the given semanticId together with the Asset Administration Shells exposing them.
+     *
+     * @param semanticId The key value of the semanticId (base64url-encoded).
+     * @return The matching Submodel and Asset Administration Shell IDs.
+     */
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return aasRepository.findBySemanticId(decode(semanticId));
+    }
+
+
+    private static ShellProjection buildProjection(String fields, String level, String submodels) throws BadRequestException {
+        try {
+            return ShellProjection.parse(fields, level, submodels);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    private static DescriptorQuery buildQuery(DescriptorQuery.Builder query) throws BadRequestException {
+        try {
+            return query.build();
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    private void notifyListeners(Consumer<RegistryListener> notification) {
+        if (sharded) {
+            return;
+        }
+        for (RegistryListener listener: listeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("registry listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+
+    private void notifyAccessListeners(Consumer<AccessListener> notification) {
+        for (AccessListener listener: accessListeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("access listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
     }
 
 
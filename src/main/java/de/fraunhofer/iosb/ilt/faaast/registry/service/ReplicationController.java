@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.MethodNotAllowedException;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.MutationBatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.MutationLog;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.ReplicaSynchronizer;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.Snapshot;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.ReplicationConfig;
+
+
+/**
+ * REST controller for primary/replica replication. The primary serves its mutation log and snapshots, every node
+ * reports its replication status. Only available if replication is enabled.
+ */
+@RestController
+@RequestMapping(ReplicaSynchronizer.BASE_PATH)
+@ConditionalOnProperty(name = ReplicationConfig.PROPERTY_ROLE)
+public class ReplicationController {
+
+    private static final String DEFAULT_LIMIT = "1000";
+
+    @Autowired
+    AasRepository aasRepository;
+
+    @Autowired(required = false)
+    MutationLog mutationLog;
+
+    @Autowired(required = false)
+    ReplicaSynchronizer synchronizer;
+
+    /**
+     * Reads the entries of the mutation log following a given sequence number.
+     *
+     * @param after The sequence number of the last entry already applied by the caller.
+     * @param limit The maximum number of entries to return.
+     * @return The entries and the latest sequence number of the log.
+     */
+    @GetMapping(value = "/log")
+    public MutationBatch getLog(@RequestParam(name = "after", defaultValue = "0") long after,
+                                @RequestParam(name = "limit", defaultValue = DEFAULT_LIMIT) int limit) {
+        MutationLog log = primaryLog();
+        try {
+            return log.read(after, limit);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Takes a snapshot of the whole registry.
+     *
+     * @return The snapshot.
+     */
+    @GetMapping(value = "/snapshot")
+    public Snapshot getSnapshot() {
+        return primaryLog().snapshot(aasRepository);
+    }
+
+
+    /**
+     * Retrieves the replication status of this node. For replicas, this includes the lag in log entries and the
+     * staleness in milliseconds.
+     *
+     * @return The status.
+     */
+    @GetMapping(value = "/status")
+    public Map<String, Object> getStatus() {
+        if (Objects.nonNull(synchronizer)) {
+            return synchronizer.getStatus();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("role", ReplicationConfig.ROLE_PRIMARY);
+        result.put("lastSequence", primaryLog().getLastSequence());
+        return result;
+    }
+
+
+    private MutationLog primaryLog() {
+        if (Objects.isNull(mutationLog)) {
+            throw new MethodNotAllowedException("this node is not a replication primary");
+        }
+        return mutationLog;
+    }
+}
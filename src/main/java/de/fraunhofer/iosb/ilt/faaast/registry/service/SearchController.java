@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.SearchHit;
+
+
+/**
+ * REST controller for the full-text search.
+ */
+@RestController
+@RequestMapping("/registry/search")
+public class SearchController {
+
+    private static final String DEFAULT_LIMIT = "20";
+
+    @Autowired
+    FullTextSearchService service;
+
+    /**
+     * Searches the idShort, displayNames and descriptions of all Asset Administration Shells and Submodels.
+     *
+     * @param text The search text.
+     * @param offset The index of the first hit to return.
+     * @param limit The maximum number of hits to return.
+     * @return The requested page of hits ordered by descending relevance.
+     * @throws BadRequestException When the search text or the paging information is invalid.
+     */
+    @GetMapping
+    public PagedResult<SearchHit> search(@RequestParam(name = "q") String text,
+                                         @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                         @RequestParam(name = "limit", defaultValue = DEFAULT_LIMIT) int limit)
+            throws BadRequestException {
+        return service.search(text, offset, limit);
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.BadRequestException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.SearchHit;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.ShardingConfig;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.RemoteAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ShardedAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * REST controller exposing the local shard of a sharded registry to the other nodes. Requests are executed on the
+ * local repository only and are never routed further. Only available if sharding is enabled.
+ */
+@RestController
+@RequestMapping(RemoteAasRepository.BASE_PATH)
+@ConditionalOnProperty(name = ShardingConfig.PROPERTY_NODES)
+public class ShardController {
+
+    @Autowired
+    AasRepository aasRepository;
+
+    @Autowired
+    FullTextSearchService searchService;
+
+    /**
+     * Retrieves the status of this node.
+     *
+     * @return The own base URL, the known nodes and whether rebalancing is in progress.
+     */
+    @GetMapping(value = "/status")
+    public Map<String, Object> getStatus() {
+        ShardedAasRepository sharded = sharded();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("self", sharded.getSelf());
+        result.put("nodes", sharded.getNodes());
+        result.put("rebalancing", sharded.isRebalancing());
+        return result;
+    }
+
+
+    /**
+     * Retrieves the cluster membership.
+     *
+     * @return The base URLs of all nodes.
+     */
+    @GetMapping(value = "/nodes")
+    public List<String> getNodes() {
+        return sharded().getNodes();
+    }
+
+
+    /**
+     * Changes the cluster membership. Descriptors this node is no longer responsible for are moved in the background.
+     *
+     * @param nodes The base URLs of all nodes.
+     * @param propagate Whether to send the new membership to all other old and new nodes as well.
+     */
+    @PutMapping(value = "/nodes")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void setNodes(@RequestBody List<String> nodes, @RequestParam(name = "propagate", defaultValue = "true") boolean propagate) {
+        try {
+            sharded().setNodes(nodes, propagate);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Retrieves all Asset Administration Shells of the local shard.
+     *
+     * @param fields Comma-separated names of the attributes to return, all attributes if not given.
+     * @return The list of Asset Administration Shells.
+     */
+    @GetMapping(value = "/shells")
+    public List<AssetAdministrationShellDescriptor> getAASs(@RequestParam(name = "fields", required = false) String fields) {
+        return local().getAASs(projection(fields));
+    }
+
+
+    /**
+     * Searches the Asset Administration Shells of the local shard.
+     *
+     * @param idShortPrefix Prefix of the idShort.
+     * @param semanticId Key value of the semanticId of any submodel of the shell.
+     * @param endpointInterface Interface information of any endpoint.
+     * @param version Version of the administrative information.
+     * @param assetKind Asset kind of the shell.
+     * @param offset Index of the first result to return.
+     * @param limit Maximum number of results to return.
+     * @return The requested page of matching Asset Administration Shells.
+     */
+    @GetMapping(value = "/shells/search")
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(@RequestParam(name = "idShortPrefix", required = false) String idShortPrefix,
+                                                                    @RequestParam(name = "semanticId", required = false) String semanticId,
+                                                                    @RequestParam(name = "endpointInterface", required = false) String endpointInterface,
+                                                                    @RequestParam(name = "version", required = false) String version,
+                                                                    @RequestParam(name = "assetKind", required = false) AssetKind assetKind,
+                                                                    @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                                    @RequestParam(name = "limit", defaultValue = "" + DescriptorQuery.DEFAULT_LIMIT) int limit) {
+        return local().findAASs(buildQuery(new DescriptorQuery.Builder()
+                .idShortPrefix(idShortPrefix)
+                .semanticId(semanticId)
+                .endpointInterface(endpointInterface)
+                .administrationVersion(version)
+                .assetKind(assetKind)
+                .offset(offset)
+                .limit(limit)));
+    }
+
+
+    /**
+     * Retrieves an Asset Administration Shell of the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @param fields Comma-separated names of the attributes to return, all attributes if not given.
+     * @return The Asset Administration Shell.
+     * @throws ResourceNotFoundException When the AAS was not found.
+     */
+    @GetMapping(value = "/shells/{aasId}")
+    public AssetAdministrationShellDescriptor getAAS(@PathVariable("aasId") String aasId, @RequestParam(name = "fields", required = false) String fields)
+            throws ResourceNotFoundException {
+        return local().getAAS(decode(aasId), projection(fields));
+    }
+
+
+    /**
+     * Creates an Asset Administration Shell in the local shard.
+     *
+     * @param aas The Asset Administration Shell.
+     * @return The created Asset Administration Shell.
+     * @throws ResourceAlreadyExistsException When the AAS already exists.
+     */
+    @PostMapping(value = "/shells")
+    @ResponseStatus(HttpStatus.CREATED)
+    public AssetAdministrationShellDescriptor create(@RequestBody AssetAdministrationShellDescriptor aas) throws ResourceAlreadyExistsException {
+        return local().create(aas);
+    }
+
+
+    /**
+     * Updates an Asset Administration Shell in the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @param aas The new Asset Administration Shell.
+     * @return The updated Asset Administration Shell.
+     * @throws ResourceNotFoundException When the AAS was not found.
+     */
+    @PutMapping(value = "/shells/{aasId}")
+    public AssetAdministrationShellDescriptor update(@PathVariable("aasId") String aasId, @RequestBody AssetAdministrationShellDescriptor aas)
+            throws ResourceNotFoundException {
+        return local().update(decode(aasId), aas);
+    }
+
+
+    /**
+     * Deletes an Asset Administration Shell from the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @throws ResourceNotFoundException When the AAS was not found.
+     */
+    @DeleteMapping(value = "/shells/{aasId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteAAS(@PathVariable("aasId") String aasId) throws ResourceNotFoundException {
+        local().deleteAAS(decode(aasId));
+    }
+
+
+    /**
+     * Retrieves the Submodels of an Asset Administration Shell of the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @return The list of Submodels.
+     * @throws ResourceNotFoundException When the AAS was not found.
+     */
+    @GetMapping(value = "/shells/{aasId}/submodels")
+    public List<SubmodelDescriptor> getSubmodels(@PathVariable("aasId") String aasId) throws ResourceNotFoundException {
+        return local().getSubmodels(decode(aasId));
+    }
+
+
+    /**
+     * Retrieves a Submodel of an Asset Administration Shell of the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @param submodelId The ID of the Submodel (base64url-encoded).
+     * @return The Submodel.
+     * @throws ResourceNotFoundException When the AAS or Submodel was not found.
+     */
+    @GetMapping(value = "/shells/{aasId}/submodels/{submodelId}")
+    public SubmodelDescriptor getSubmodel(@PathVariable("aasId") String aasId, @PathVariable("submodelId") String submodelId)
+            throws ResourceNotFoundException {
+        return local().getSubmodel(decode(aasId), decode(submodelId));
+    }
+
+
+    /**
+     * Adds a Submodel to an Asset Administration Shell of the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @param submodel The Submodel.
+     * @return The created Submodel.
+     * @throws ResourceNotFoundException When the AAS was not found.
+     * @throws ResourceAlreadyExistsException When the Submodel already exists.
+     */
+    @PostMapping(value = "/shells/{aasId}/submodels")
+    @ResponseStatus(HttpStatus.CREATED)
+    public SubmodelDescriptor addSubmodel(@PathVariable("aasId") String aasId, @RequestBody SubmodelDescriptor submodel)
+            throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        return local().addSubmodel(decode(aasId), submodel);
+    }
+
+
+    /**
+     * Removes a Submodel from an Asset Administration Shell of the local shard.
+     *
+     * @param aasId The ID of the Asset Administration Shell (base64url-encoded).
+     * @param submodelId The ID of the Submodel (base64url-encoded).
+     * @throws ResourceNotFoundException When the AAS or Submodel was not found.
+     */
+    @DeleteMapping(value = "/shells/{aasId}/submodels/{submodelId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteSubmodel(@PathVariable("aasId") String aasId, @PathVariable("submodelId") String submodelId)
+            throws ResourceNotFoundException {
+        local().deleteSubmodel(decode(aasId), decode(submodelId));
+    }
+
+
+    /**
+     * Retrieves all Submodels registered on their own in the local shard.
+     *
+     * @return The list of Submodels.
+     */
+    @GetMapping(value = "/submodels")
+    public List<SubmodelDescriptor> getSubmodels() {
+        return local().getSubmodels();
+    }
+
+
+    /**
+     * Searches the Submodels of the local shard.
+     *
+     * @param idShortPrefix Prefix of the idShort.
+     * @param semanticId Key value of the semanticId.
+     * @param endpointInterface Interface information of any endpoint.
+     * @param version Version of the administrative information.
+     * @param offset Index of the first result to return.
+     * @param limit Maximum number of results to return.
+     * @return The requested page of matching Submodels.
+     */
+    @GetMapping(value = "/submodels/search")
+    public PagedResult<SubmodelDescriptor> findSubmodels(@RequestParam(name = "idShortPrefix", required = false) String idShortPrefix,
+                                                         @RequestParam(name = "semanticId", required = false) String semanticId,
+                                                         @RequestParam(name = "endpointInterface", required = false) String endpointInterface,
+                                                         @RequestParam(name = "version", required = false) String version,
+                                                         @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                         @RequestParam(name = "limit", defaultValue = "" + DescriptorQuery.DEFAULT_LIMIT) int limit) {
+        return local().findSubmodels(buildQuery(new DescriptorQuery.Builder()
+                .idShortPrefix(idShortPrefix)
+                .semanticId(semanticId)
+                .endpointInterface(endpointInterface)
+                .administrationVersion(version)
+                .offset(offset)
+                .limit(limit)));
+    }
+
+
+    /**
+     * Retrieves a Submodel registered on its own in the local shard.
+     *
+     * @param submodelId The ID of the Submodel (base64url-encoded).
+     * @return The Submodel.
+     * @throws ResourceNotFoundException When the Submodel was not found.
+     */
+    @GetMapping(value = "/submodels/{submodelId}")
+    public SubmodelDescriptor getSubmodel(@PathVariable("submodelId") String submodelId) throws ResourceNotFoundException {
+        return local().getSubmodel(decode(submodelId));
+    }
+
+
+    /**
+     * Registers a Submodel on its own in the local shard.
+     *
+     * @param submodel The Submodel.
+     * @return The created Submodel.
+     * @throws ResourceAlreadyExistsException When the Submodel already exists.
+     */
+    @PostMapping(value = "/submodels")
+    @ResponseStatus(HttpStatus.CREATED)
+    public SubmodelDescriptor addSubmodel(@RequestBody SubmodelDescriptor submodel) throws ResourceAlreadyExistsException {
+        return local().addSubmodel(submodel);
+    }
+
+
+    /**
+     * Deletes a Submodel registered on its own from the local shard.
+     *
+     * @param submodelId The ID of the Submodel (base64url-encoded).
+     * @throws ResourceNotFoundException When the Submodel was not found.
+     */
+    @DeleteMapping(value = "/submodels/{submodelId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void deleteSubmodel(@PathVariable("submodelId") String submodelId) throws ResourceNotFoundException {
+        local().deleteSubmodel(decode(submodelId));
+    }
+
+
+    /**
+     * Finds the Submodels of the local shard carrying the given semanticId.
+     *
+     * @param semanticId The key value of the semanticId (base64url-encoded).
+     * @return The matching Submodel and Asset Administration Shell IDs.
+     */
+    @GetMapping(value = "/semantic-ids/{semanticId}")
+    public List<SemanticIdMatch> findBySemanticId(@PathVariable("semanticId") String semanticId) {
+        return local().findBySemanticId(decode(semanticId));
+    }
+
+
+    /**
+     * Searches the full-text index of this node, which covers the local shard.
+     *
+     * @param text The search text.
+     * @param limit The maximum number of hits to return.
+     * @return The best hits of the local shard ordered by descending relevance.
+     */
+    @GetMapping(value = "/search")
+    public PagedResult<SearchHit> search(@RequestParam(name = "q") String text, @RequestParam(name = "limit") int limit) {
+        return searchService.searchLocal(text, limit);
+    }
+
+
+    /**
+     * Reports already existing resources as HTTP 409 so that other nodes can tell them apart from invalid requests.
+     */
+    @ExceptionHandler(ResourceAlreadyExistsException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void handleAlreadyExists() {
+        // status only
+    }
+
+
+    private ShardedAasRepository sharded() {
+        if (!(aasRepository instanceof ShardedAasRepository)) {
+            throw new IllegalStateException("sharding is enabled but the repository is not sharded");
+        }
+        return (ShardedAasRepository) aasRepository;
+    }
+
+
+    private AasRepository local() {
+        return sharded().getLocal();
+    }
+
+
+    private static DescriptorQuery buildQuery(DescriptorQuery.Builder query) {
+        try {
+            return query.build();
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    private static ShellProjection projection(String fields) {
+        try {
+            return ShellProjection.parse(fields, null);
+        }
+        catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+    }
+
+
+    private static String decode(String encoded) {
+        return new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+    }
+}
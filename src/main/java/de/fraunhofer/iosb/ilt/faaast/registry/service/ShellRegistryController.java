@@ -16,6 +16,7 @@ package de.fraunhofer.iosb.ilt.faaast.registry.service;
 
 import java.util.List;
 
+import org.eclipse.digitaltwin.aas4j.v3.model.AssetKind;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -25,11 +26,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
 
@@ -45,26 +49,73 @@ public class ShellRegistryController {
     RegistryService service;
 
     /**
-     * Retrieves a list of all registered Asset Administration Shells.
+     * Retrieves a list of all registered Asset Administration Shells. The returned attributes can be restricted to a
+     * predefined level, e.g. {@code level=core} for ID, idShort and endpoints, and/or a list of attributes, e.g.
+     * {@code fields=id,idShort,endpoints}. The submodels can be omitted ({@code submodels=none}) or reduced to their IDs
+     * ({@code submodels=ids}), they are available separately via the submodel descriptors of each shell.
      *
+     * @param fields Comma-separated names of the attributes to return.
+     * @param level Predefined set of attributes to return, core or full.
+     * @param submodels Whether to return no submodels, only their IDs or the complete submodels: none, ids or full.
      * @return The list of all registered Asset Administration Shells.
      */
     @GetMapping()
-    public List<AssetAdministrationShellDescriptor> getAASs() {
-        return service.getAASs();
+    public List<AssetAdministrationShellDescriptor> getAASs(@RequestParam(name = "fields", required = false) String fields,
+                                                            @RequestParam(name = "level", required = false) String level,
+                                                            @RequestParam(name = "submodels", required = false) String submodels) {
+        return service.getAASs(fields, level, submodels);
     }
 
 
     /**
-     * Retrieves the Asset Administration Shell with the given ID.
+     * Searches the registered Asset Administration Shells. All given criteria must match.
+     *
+     * @param idShortPrefix Prefix of the idShort.
+     * @param semanticId Key value of the semanticId of any submodel of the shell.
+     * @param endpointInterface Interface information of any endpoint, e.g. SUBMODEL-3.0.
+     * @param version Version of the administrative information.
+     * @param assetKind Asset kind of the shell.
+     * @param offset Index of the first result to return.
+     * @param limit Maximum number of results to return.
+     * @return The requested page of matching Asset Administration Shells.
+     */
+    @GetMapping(value = "/search")
+    public PagedResult<AssetAdministrationShellDescriptor> search(@RequestParam(name = "idShortPrefix", required = false) String idShortPrefix,
+                                                                  @RequestParam(name = "semanticId", required = false) String semanticId,
+                                                                  @RequestParam(name = "endpointInterface", required = false) String endpointInterface,
+                                                                  @RequestParam(name = "version", required = false) String version,
+                                                                  @RequestParam(name = "assetKind", required = false) AssetKind assetKind,
+                                                                  @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                                  @RequestParam(name = "limit", defaultValue = "" + DescriptorQuery.DEFAULT_LIMIT) int limit) {
+        return service.findAASs(new DescriptorQuery.Builder()
+                .idShortPrefix(idShortPrefix)
+                .semanticId(semanticId)
+                .endpointInterface(endpointInterface)
+                .administrationVersion(version)
+                .assetKind(assetKind)
+                .offset(offset)
+                .limit(limit));
+    }
+
+
+    /**
+     * Retrieves the Asset Administration Shell with the given ID. The returned attributes can be restricted like for
+     * the list of all Asset Administration Shells.
      *
      * @param aasIdentifier The ID of the desired Asset Administration Shell.
+     * @param fields Comma-separated names of the attributes to return.
+     * @param level Predefined set of attributes to return, core or full.
+     * @param submodels Whether to return no submodels, only their IDs or the complete submodels: none, ids or full.
      * @return The desired Asset Administration Shell.
      * @throws ResourceNotFoundException When the AAS was not found.
      */
     @GetMapping(value = "/{aasIdentifier}")
-    public AssetAdministrationShellDescriptor getAAS(@PathVariable("aasIdentifier") String aasIdentifier) throws ResourceNotFoundException {
-        return service.getAAS(aasIdentifier);
+    public AssetAdministrationShellDescriptor getAAS(@PathVariable("aasIdentifier") String aasIdentifier,
+                                                     @RequestParam(name = "fields", required = false) String fields,
+                                                     @RequestParam(name = "level", required = false) String level,
+                                                     @RequestParam(name = "submodels", required = false) String submodels)
+            throws ResourceNotFoundException {
+        return service.getAAS(aasIdentifier, fields, level, submodels);
     }
 
 
@@ -16,6 +16,8 @@ package de.fraunhofer.iosb.ilt.faaast.registry.service;
 
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
 import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +29,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -53,6 +56,34 @@ public class SubmodelRegistryController {
     }
 
 
+    /**
+     * Searches the registered Submodels. All given criteria must match.
+     *
+     * @param idShortPrefix Prefix of the idShort.
+     * @param semanticId Key value of the semanticId.
+     * @param endpointInterface Interface information of any endpoint, e.g. SUBMODEL-3.0.
+     * @param version Version of the administrative information.
+     * @param offset Index of the first result to return.
+     * @param limit Maximum number of results to return.
+     * @return The requested page of matching Submodels.
+     */
+    @GetMapping(value = "/search")
+    public PagedResult<SubmodelDescriptor> search(@RequestParam(name = "idShortPrefix", required = false) String idShortPrefix,
+                                                  @RequestParam(name = "semanticId", required = false) String semanticId,
+                                                  @RequestParam(name = "endpointInterface", required = false) String endpointInterface,
+                                                  @RequestParam(name = "version", required = false) String version,
+                                                  @RequestParam(name = "offset", defaultValue = "0") int offset,
+                                                  @RequestParam(name = "limit", defaultValue = "" + DescriptorQuery.DEFAULT_LIMIT) int limit) {
+        return service.findSubmodels(new DescriptorQuery.Builder()
+                .idShortPrefix(idShortPrefix)
+                .semanticId(semanticId)
+                .endpointInterface(endpointInterface)
+                .administrationVersion(version)
+                .offset(offset)
+                .limit(limit));
+    }
+
+
     /**
      * Retrieves the Submodel with given Submodel ID.
      *
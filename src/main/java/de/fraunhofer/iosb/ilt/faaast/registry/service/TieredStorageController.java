@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.RepositoryDecorator;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.TieredStorageConfig;
+import de.fraunhofer.iosb.ilt.faaast.registry.tiered.TieredAasRepository;
+
+
+/**
+ * REST controller exposing the hit ratio and occupancy of the in-memory tier. Only available if tiered storage is
+ * enabled.
+ */
+@RestController
+@RequestMapping("/registry/tiered")
+@ConditionalOnProperty(name = TieredStorageConfig.PROPERTY_ENABLED, havingValue = "true")
+public class TieredStorageController {
+
+    @Autowired
+    AasRepository aasRepository;
+
+    /**
+     * Gets size, capacity, hit ratio, promotions and evictions of the resident shells and submodels.
+     *
+     * @return The statistics by kind of descriptor.
+     */
+    @GetMapping(value = "/statistics")
+    public Map<String, Object> getStatistics() {
+        return RepositoryDecorator.find(aasRepository, TieredAasRepository.class)
+                .orElseThrow(() -> new IllegalStateException("tiered storage is enabled but the repository is not tiered"))
+                .getStatistics();
+    }
+}
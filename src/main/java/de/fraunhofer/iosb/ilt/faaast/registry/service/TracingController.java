@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.service.config.TracingConfig;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.OtlpJson;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TraceCollector;
+
+
+/**
+ * REST controller exposing the collected latency statistics and sampled traces. Only available if tracing is enabled.
+ */
+@RestController
+@RequestMapping("/registry/tracing")
+@ConditionalOnProperty(name = TracingConfig.PROPERTY_ENABLED, havingValue = "true")
+public class TracingController {
+
+    @Autowired
+    TraceCollector collector;
+
+    /**
+     * Gets count, error count, request rate and latency percentiles of every endpoint.
+     *
+     * @return The statistics by route.
+     */
+    @GetMapping(value = "/endpoints")
+    public Map<String, Map<String, Object>> getEndpointStatistics() {
+        return collector.getEndpointStatistics();
+    }
+
+
+    /**
+     * Gets the most recently sampled traces.
+     *
+     * @return The traces as OTLP/JSON export request.
+     */
+    @GetMapping(value = "/traces")
+    public Map<String, Object> getTraces() {
+        return OtlpJson.toExportRequest(collector.getRecentTraces());
+    }
+
+
+    /**
+     * Gets counters of sampled, dropped and exported traces.
+     *
+     * @return The counters by name.
+     */
+    @GetMapping(value = "/statistics")
+    public Map<String, Object> getStatistics() {
+        return collector.getStatistics();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.AccessFrequency;
+
+
+/**
+ * Tracks the access frequency of shells and submodels unless {@value #PROPERTY_ENABLED} is false. The hot sets are
+ * reported at {@code /registry/hot-set} and serve as admission policy of descriptor caches.
+ */
+@Configuration
+@ConditionalOnProperty(name = AccessFrequencyConfig.PROPERTY_ENABLED, havingValue = "true", matchIfMissing = true)
+public class AccessFrequencyConfig {
+
+    /**
+     * Whether access frequencies are tracked.
+     */
+    public static final String PROPERTY_ENABLED = "registry.access-frequency.enabled";
+
+    /**
+     * Number of distinct shells and of submodels expected to be read frequently. Determines the size of the sketches,
+     * which take 8 bytes per expected descriptor.
+     */
+    public static final String PROPERTY_EXPECTED_SIZE = "registry.access-frequency.expected-size";
+
+    /**
+     * Maximum number of shells and of submodels retained for the hot set report.
+     */
+    public static final String PROPERTY_CAPACITY = "registry.access-frequency.capacity";
+
+    private static final int DEFAULT_EXPECTED_SIZE = 100000;
+    private static final int DEFAULT_CAPACITY = 1000;
+
+    /**
+     * Creates the tracker. It is registered as access listener and thus sees all reads.
+     *
+     * @param environment The environment providing the access frequency properties.
+     * @return The tracker.
+     */
+    @Bean
+    public AccessFrequency accessFrequency(Environment environment) {
+        return new AccessFrequency(
+                environment.getProperty(PROPERTY_EXPECTED_SIZE, Integer.class, DEFAULT_EXPECTED_SIZE),
+                environment.getProperty(PROPERTY_CAPACITY, Integer.class, DEFAULT_CAPACITY));
+    }
+}
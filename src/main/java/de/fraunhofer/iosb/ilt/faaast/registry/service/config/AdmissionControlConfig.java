@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.HandlerMapping;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.AdaptiveConcurrencyLimiter;
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.RateLimitFilter;
+import de.fraunhofer.iosb.ilt.faaast.registry.admission.RateLimiter;
+
+
+/**
+ * Configures admission control. If {@value #PROPERTY_RATE_LIMIT_ENABLED} is true, the request rate of each client is
+ * limited separately for listings, lookups and modifications of descriptors; exceeding requests are answered with
+ * {@code 429 Too Many Requests}. If {@value #PROPERTY_CONCURRENCY_LIMIT_ENABLED} is true, the number of concurrent
+ * repository calls is limited by an {@link AdaptiveConcurrencyLimiter}; calls beyond the limit are answered with
+ * {@code 503 Service Unavailable}. Example limiting listings to one request per second and client:
+ *
+ * <pre>
+ * --registry.rate-limit.enabled=true --registry.rate-limit.list.rate=1 --registry.rate-limit.list.burst=5
+ * --registry.concurrency-limit.enabled=true --registry.concurrency-limit.max=100
+ * </pre>
+ */
+@Configuration
+public class AdmissionControlConfig {
+
+    /**
+     * Whether the request rate of clients is limited.
+     */
+    public static final String PROPERTY_RATE_LIMIT_ENABLED = "registry.rate-limit.enabled";
+
+    /**
+     * Prefix of the rate ({@code <prefix><class>.rate}, requests per second, 0 for unlimited) and burst
+     * ({@code <prefix><class>.burst}) of the endpoint classes list, lookup and write.
+     */
+    public static final String PROPERTY_RATE_LIMIT_PREFIX = "registry.rate-limit.";
+
+    /**
+     * Header identifying the client, e.g. X-Forwarded-For behind a proxy. The IP address is used if not set.
+     */
+    public static final String PROPERTY_RATE_LIMIT_CLIENT_HEADER = "registry.rate-limit.client-header";
+
+    /**
+     * Maximum number of tracked combinations of client and endpoint class.
+     */
+    public static final String PROPERTY_RATE_LIMIT_MAX_BUCKETS = "registry.rate-limit.max-buckets";
+
+    /**
+     * Whether the number of concurrent repository calls is limited.
+     */
+    public static final String PROPERTY_CONCURRENCY_LIMIT_ENABLED = "registry.concurrency-limit.enabled";
+
+    /**
+     * Limit of concurrent repository calls at startup.
+     */
+    public static final String PROPERTY_CONCURRENCY_LIMIT_INITIAL = "registry.concurrency-limit.initial";
+
+    /**
+     * Lower bound of the limit of concurrent repository calls.
+     */
+    public static final String PROPERTY_CONCURRENCY_LIMIT_MIN = "registry.concurrency-limit.min";
+
+    /**
+     * Upper bound of the limit of concurrent repository calls, should not exceed the size of the connection pool by
+     * much.
+     */
+    public static final String PROPERTY_CONCURRENCY_LIMIT_MAX = "registry.concurrency-limit.max";
+
+    /**
+     * Factor by which the latency may exceed its long-term average before the limit shrinks.
+     */
+    public static final String PROPERTY_CONCURRENCY_LIMIT_TOLERANCE = "registry.concurrency-limit.tolerance";
+
+    private static final Map<RateLimiter.EndpointClass, RateLimiter.Limit> DEFAULT_LIMITS = Map.of(
+            RateLimiter.EndpointClass.LIST, new RateLimiter.Limit(2, 10),
+            RateLimiter.EndpointClass.LOOKUP, new RateLimiter.Limit(100, 200),
+            RateLimiter.EndpointClass.WRITE, new RateLimiter.Limit(20, 50));
+    private static final int DEFAULT_MAX_BUCKETS = 100000;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_INITIAL = 20;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MIN = 4;
+    private static final int DEFAULT_CONCURRENCY_LIMIT_MAX = 200;
+    private static final double DEFAULT_CONCURRENCY_LIMIT_TOLERANCE = 2.0;
+
+    /**
+     * Creates the rate limiter.
+     *
+     * @param environment The environment providing the rate limit properties.
+     * @return The rate limiter.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_RATE_LIMIT_ENABLED, havingValue = "true")
+    public RateLimiter rateLimiter(Environment environment) {
+        Map<RateLimiter.EndpointClass, RateLimiter.Limit> limits = new EnumMap<>(RateLimiter.EndpointClass.class);
+        for (RateLimiter.EndpointClass endpointClass: RateLimiter.EndpointClass.values()) {
+            String prefix = PROPERTY_RATE_LIMIT_PREFIX + endpointClass.name().toLowerCase();
+            RateLimiter.Limit defaults = DEFAULT_LIMITS.get(endpointClass);
+            double rate = environment.getProperty(prefix + ".rate", Double.class, defaults.getRate());
+            if (rate > 0) {
+                limits.put(endpointClass, new RateLimiter.Limit(rate, environment.getProperty(prefix + ".burst", Integer.class, defaults.getBurst())));
+            }
+        }
+        return new RateLimiter(limits, environment.getProperty(PROPERTY_RATE_LIMIT_MAX_BUCKETS, Integer.class, DEFAULT_MAX_BUCKETS));
+    }
+
+
+    /**
+     * Registers the filter applying the rate limiter to the descriptor endpoints. It runs after the tracing and
+     * compression filters and before the coalescing of identical reads, so that rejected requests are traced and
+     * coalesced requests are limited like all others.
+     *
+     * @param environment The environment providing the rate limit properties.
+     * @param rateLimiter The rate limiter.
+     * @param handlerMapping The handler mapping of the controllers, used to classify reads.
+     * @return The filter registration.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_RATE_LIMIT_ENABLED, havingValue = "true")
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(Environment environment, RateLimiter rateLimiter,
+                                                                               @Qualifier("requestMappingHandlerMapping") ObjectProvider<HandlerMapping> handlerMapping) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(rateLimiter, environment.getProperty(PROPERTY_RATE_LIMIT_CLIENT_HEADER), handlerMapping::getObject));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+
+    /**
+     * Creates the limiter of concurrent repository calls, which is applied by the {@code RegistryService}.
+     *
+     * @param environment The environment providing the concurrency limit properties.
+     * @return The limiter.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_CONCURRENCY_LIMIT_ENABLED, havingValue = "true")
+    public AdaptiveConcurrencyLimiter concurrencyLimiter(Environment environment) {
+        return new AdaptiveConcurrencyLimiter(
+                environment.getProperty(PROPERTY_CONCURRENCY_LIMIT_INITIAL, Integer.class, DEFAULT_CONCURRENCY_LIMIT_INITIAL),
+                environment.getProperty(PROPERTY_CONCURRENCY_LIMIT_MIN, Integer.class, DEFAULT_CONCURRENCY_LIMIT_MIN),
+                environment.getProperty(PROPERTY_CONCURRENCY_LIMIT_MAX, Integer.class, DEFAULT_CONCURRENCY_LIMIT_MAX),
+                environment.getProperty(PROPERTY_CONCURRENCY_LIMIT_TOLERANCE, Double.class, DEFAULT_CONCURRENCY_LIMIT_TOLERANCE));
+    }
+}
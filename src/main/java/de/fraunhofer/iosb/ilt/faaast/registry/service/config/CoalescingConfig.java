@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.coalescing.CoalescingResponseFilter;
+import de.fraunhofer.iosb.ilt.faaast.registry.coalescing.SingleFlight;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AccessListener;
+
+
+/**
+ * Configures the coalescing of concurrent identical reads, which is applied to the repository by the
+ * {@code RegistryService} and to the serialized responses of the descriptor endpoints by the
+ * {@link CoalescingResponseFilter}. Disabled by default; enable with:
+ *
+ * <pre>
+ * --registry.coalescing.enabled=true
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = CoalescingConfig.PROPERTY_COALESCING_ENABLED, havingValue = "true")
+public class CoalescingConfig {
+
+    /**
+     * Whether concurrent identical reads share a single repository call.
+     */
+    public static final String PROPERTY_COALESCING_ENABLED = "registry.coalescing.enabled";
+
+    /**
+     * Creates the single-flight group coalescing the reads.
+     *
+     * @return The single-flight group.
+     */
+    @Bean
+    public SingleFlight singleFlight() {
+        return new SingleFlight();
+    }
+
+
+    /**
+     * Creates the filter coalescing the responses of the descriptor endpoints.
+     *
+     * @param singleFlight The single-flight group, shared with the repository.
+     * @param accessListeners The listeners to notify about reads answered by a shared response.
+     * @return The filter.
+     */
+    @Bean
+    public CoalescingResponseFilter coalescingResponseFilter(SingleFlight singleFlight, ObjectProvider<AccessListener> accessListeners) {
+        return new CoalescingResponseFilter(singleFlight, () -> accessListeners.orderedStream().toList());
+    }
+
+
+    /**
+     * Registers the filter coalescing the responses. It runs after the tracing, compression and rate limiting filters,
+     * so that each coalesced request is traced, limited and its shared response compressed according to its own
+     * {@code Accept-Encoding}.
+     *
+     * @param filter The filter.
+     * @return The filter registration.
+     */
+    @Bean
+    public FilterRegistrationBean<CoalescingResponseFilter> coalescingResponseFilterRegistration(CoalescingResponseFilter filter) {
+        FilterRegistrationBean<CoalescingResponseFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 3);
+        return registration;
+    }
+}
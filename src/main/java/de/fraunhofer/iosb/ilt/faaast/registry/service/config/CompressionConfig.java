@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.util.unit.DataSize;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.compression.CompressedBodyCache;
+import de.fraunhofer.iosb.ilt.faaast.registry.compression.PrecompressedResponseFilter;
+
+
+/**
+ * Configures HTTP/2 and compression of responses. By default, the registry enables HTTP/2 (including h2c, i.e.
+ * without TLS) and gzip compression of JSON, CBOR and Smile responses from {@value #DEFAULT_MIN_RESPONSE_SIZE} on using the standard
+ * {@code server.http2.*} and {@code server.compression.*} properties, which can be overridden as usual. In addition,
+ * responses of the endpoints returning a single descriptor are compressed by the
+ * {@link PrecompressedResponseFilter}, which caches the compressed bodies of frequently requested descriptors. The
+ * number of cached bodies is limited by {@value #PROPERTY_CACHE_SIZE}.
+ */
+@Configuration
+@ConditionalOnProperty(name = CompressionConfig.PROPERTY_COMPRESSION_ENABLED, havingValue = "true")
+public class CompressionConfig {
+
+    /**
+     * Whether responses are compressed.
+     */
+    public static final String PROPERTY_COMPRESSION_ENABLED = "server.compression.enabled";
+
+    /**
+     * Minimum size of a response to be compressed.
+     */
+    public static final String PROPERTY_MIN_RESPONSE_SIZE = "server.compression.min-response-size";
+
+    /**
+     * Maximum number of compressed single-descriptor responses cached, 0 to leave them to the servlet container.
+     */
+    public static final String PROPERTY_CACHE_SIZE = "registry.compression.cache-size";
+
+    private static final String DEFAULT_MIN_RESPONSE_SIZE = "2KB";
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * Defaults of the server properties, overridden by properties passed to the application.
+     */
+    public static final Map<String, Object> DEFAULT_PROPERTIES = Map.of(
+            "server.http2.enabled", true,
+            PROPERTY_COMPRESSION_ENABLED, true,
+            "server.compression.mime-types", "application/json,application/cbor,application/x-jackson-smile",
+            PROPERTY_MIN_RESPONSE_SIZE, DEFAULT_MIN_RESPONSE_SIZE);
+
+    /**
+     * Creates the filter compressing single-descriptor responses.
+     *
+     * @param environment The environment providing the compression properties.
+     * @return The filter.
+     */
+    @Bean
+    public PrecompressedResponseFilter precompressedResponseFilter(Environment environment) {
+        return new PrecompressedResponseFilter(
+                new CompressedBodyCache(Math.max(1, environment.getProperty(PROPERTY_CACHE_SIZE, Integer.class, DEFAULT_CACHE_SIZE))),
+                (int) environment.getProperty(PROPERTY_MIN_RESPONSE_SIZE, DataSize.class, DataSize.parse(DEFAULT_MIN_RESPONSE_SIZE)).toBytes());
+    }
+
+
+    /**
+     * Registers the filter compressing single-descriptor responses unless the cache is disabled. It runs after the
+     * tracing filter, so that compression is part of the traced request.
+     *
+     * @param filter The filter.
+     * @param environment The environment providing the compression properties.
+     * @return The filter registration.
+     */
+    @Bean
+    public FilterRegistrationBean<PrecompressedResponseFilter> precompressedResponseFilterRegistration(PrecompressedResponseFilter filter, Environment environment) {
+        FilterRegistrationBean<PrecompressedResponseFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        registration.setEnabled(environment.getProperty(PROPERTY_CACHE_SIZE, Integer.class, DEFAULT_CACHE_SIZE) > 0);
+        return registration;
+    }
+}
@@ -14,21 +14,32 @@
  */
 package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
 
+import java.util.List;
+
 import org.eclipse.digitaltwin.aas4j.v3.model.AdministrativeInformation;
 import org.eclipse.digitaltwin.aas4j.v3.model.Key;
+import org.eclipse.digitaltwin.aas4j.v3.model.LangStringNameType;
+import org.eclipse.digitaltwin.aas4j.v3.model.LangStringTextType;
 import org.eclipse.digitaltwin.aas4j.v3.model.Reference;
 import org.eclipse.digitaltwin.aas4j.v3.model.SpecificAssetId;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultAdministrativeInformation;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultKey;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultLangStringNameType;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultLangStringTextType;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultReference;
 import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultSpecificAssetId;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.module.SimpleAbstractTypeResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 
 import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
@@ -42,7 +53,10 @@ import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultSubmod
 
 
 /**
- * Class for configuring the classes to use for the descriptor interfaces.
+ * Class for configuring the classes to use for the descriptor interfaces. Besides JSON, request and response bodies
+ * can be encoded in the binary formats CBOR ({@code application/cbor}) and Smile ({@code application/x-jackson-smile}),
+ * selected by the {@code Content-Type} and {@code Accept} headers. JSON stays the default if a client accepts any
+ * format.
  */
 @Configuration
 public class DescriptorMapperConfig {
@@ -55,6 +69,61 @@ public class DescriptorMapperConfig {
     @Bean
     @Primary
     public Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder() {
+        return new Jackson2ObjectMapperBuilder()
+                .modules(descriptorModule());
+    }
+
+
+    /**
+     * Registers the converters for the binary formats after the JSON converter, replacing the default ones that do not
+     * know the descriptor mappings.
+     *
+     * @return The configurer adding the converters.
+     */
+    @Bean
+    public WebMvcConfigurer binaryMessageConverters() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.removeIf(x -> x instanceof MappingJackson2SmileHttpMessageConverter || x instanceof MappingJackson2CborHttpMessageConverter);
+                converters.add(new MappingJackson2CborHttpMessageConverter(cborMapper()));
+                converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper()));
+            }
+        };
+    }
+
+
+    /**
+     * Creates a mapper reading and writing descriptors in the Smile format.
+     *
+     * @return The mapper.
+     */
+    public static ObjectMapper smileMapper() {
+        return Jackson2ObjectMapperBuilder.smile()
+                .modules(descriptorModule())
+                .build();
+    }
+
+
+    /**
+     * Creates a mapper reading and writing descriptors in the CBOR format.
+     *
+     * @return The mapper.
+     */
+    public static ObjectMapper cborMapper() {
+        return Jackson2ObjectMapperBuilder.cbor()
+                .modules(descriptorModule())
+                .build();
+    }
+
+
+    /**
+     * Creates the Jackson module mapping the descriptor interfaces to their default implementations. Used for all
+     * mappers that read descriptors, including the clients talking to other registry nodes.
+     *
+     * @return The module.
+     */
+    public static SimpleModule descriptorModule() {
         SimpleModule module = new SimpleModule("AasModel", Version.unknownVersion());
 
         SimpleAbstractTypeResolver resolver = new SimpleAbstractTypeResolver();
@@ -65,11 +134,12 @@ public class DescriptorMapperConfig {
         resolver.addMapping(ProtocolInformation.class, DefaultProtocolInformation.class);
         resolver.addMapping(SpecificAssetId.class, DefaultSpecificAssetId.class);
         resolver.addMapping(Key.class, DefaultKey.class);
+        resolver.addMapping(LangStringNameType.class, DefaultLangStringNameType.class);
+        resolver.addMapping(LangStringTextType.class, DefaultLangStringTextType.class);
         resolver.addMapping(Reference.class, DefaultReference.class);
         resolver.addMapping(SubmodelDescriptor.class, DefaultSubmodelDescriptor.class);
 
         module.setAbstractTypes(resolver);
-        return new Jackson2ObjectMapperBuilder()
-                .modules(module);
+        return module;
     }
 }
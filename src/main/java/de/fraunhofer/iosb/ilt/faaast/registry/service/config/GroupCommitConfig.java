@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.AasRepositoryJpa;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.GroupCommitAasRepository;
+
+
+/**
+ * Enables group commit for the JPA repository if {@value #PROPERTY_ENABLED} is true. Concurrent modifications are
+ * then coalesced into shared transactions, trading a little latency at low load for much higher write throughput
+ * under load.
+ */
+@Configuration
+@ConditionalOnProperty(name = GroupCommitConfig.PROPERTY_ENABLED, havingValue = "true")
+public class GroupCommitConfig {
+
+    /**
+     * Whether group commit is enabled.
+     */
+    public static final String PROPERTY_ENABLED = "registry.jpa.group-commit.enabled";
+
+    /**
+     * Maximum number of modifications committed in one transaction.
+     */
+    public static final String PROPERTY_MAX_BATCH_SIZE = "registry.jpa.group-commit.max-batch-size";
+
+    /**
+     * Time in milliseconds to wait for further modifications before committing a batch that is not full.
+     */
+    public static final String PROPERTY_MAX_DELAY = "registry.jpa.group-commit.max-delay";
+
+    /**
+     * Number of transactions executed in parallel.
+     */
+    public static final String PROPERTY_COMMITTERS = "registry.jpa.group-commit.committers";
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+    private static final long DEFAULT_MAX_DELAY = 0;
+    private static final int DEFAULT_COMMITTERS = 4;
+
+    /**
+     * Wraps the JPA repository into a {@link GroupCommitAasRepository}, directly around the JPA repository. Rejects
+     * all other repository types.
+     *
+     * @param environment The environment providing the group commit properties.
+     * @param transactionManager The transaction manager of the JPA repository.
+     * @return The decorator.
+     */
+    @Bean
+    public RepositoryDecorator groupCommitDecorator(Environment environment, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        return new RepositoryDecorator() {
+            @Override
+            public int getOrder() {
+                return ORDER_GROUP_COMMIT;
+            }
+
+
+            @Override
+            public AasRepository decorate(AasRepository repository) {
+                if (!(repository instanceof AasRepositoryJpa)) {
+                    throw new IllegalStateException(String.format("group commit requires the JPA repository (found: %s)", repository.getClass().getName()));
+                }
+                return new GroupCommitAasRepository(
+                        repository,
+                        transactionManager.getObject(),
+                        environment.getProperty(PROPERTY_MAX_BATCH_SIZE, Integer.class, DEFAULT_MAX_BATCH_SIZE),
+                        environment.getProperty(PROPERTY_MAX_DELAY, Long.class, DEFAULT_MAX_DELAY),
+                        environment.getProperty(PROPERTY_COMMITTERS, Integer.class, DEFAULT_COMMITTERS));
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import ch.qos.logback.classic.LoggerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.service.logging.AsyncLogging;
+import de.fraunhofer.iosb.ilt.faaast.registry.service.logging.FaaastTurboFilter;
+
+
+/**
+ * Tunes the logging pipeline once Spring Boot has initialized logback.
+ *
+ * <p>The {@link FaaastTurboFilter} rejects disabled log statements before an event is created; it can be turned off
+ * using {@value #PROPERTY_EARLY_FILTER}. If {@value #PROPERTY_ASYNC_ENABLED} is true, all appenders of the root logger
+ * are additionally made asynchronous, so request threads only enqueue events. With
+ * {@value #PROPERTY_ASYNC_NEVER_BLOCK} (default), events are dropped rather than blocking request threads if the queue
+ * of {@value #PROPERTY_ASYNC_QUEUE_SIZE} events is full.
+ */
+@Configuration
+public class LoggingConfig {
+
+    /**
+     * Whether disabled log statements are rejected before an event is created.
+     */
+    public static final String PROPERTY_EARLY_FILTER = "registry.logging.early-filter";
+
+    /**
+     * Whether log events are written asynchronously.
+     */
+    public static final String PROPERTY_ASYNC_ENABLED = "registry.logging.async.enabled";
+
+    /**
+     * Maximum number of buffered log events.
+     */
+    public static final String PROPERTY_ASYNC_QUEUE_SIZE = "registry.logging.async.queue-size";
+
+    /**
+     * Whether events are dropped instead of blocking if the buffer is full.
+     */
+    public static final String PROPERTY_ASYNC_NEVER_BLOCK = "registry.logging.async.never-block";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingConfig.class);
+    private static final int DEFAULT_ASYNC_QUEUE_SIZE = 8192;
+
+    /**
+     * Installs the early filter and asynchronous appenders after startup.
+     *
+     * @param environment The environment providing the logging properties.
+     * @return The listener applying the configuration.
+     */
+    @Bean
+    public ApplicationListener<ApplicationStartedEvent> loggingPipelineConfigurer(Environment environment) {
+        return event -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+                return;
+            }
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            if (environment.getProperty(PROPERTY_EARLY_FILTER, Boolean.class, true)
+                    && context.getTurboFilterList().stream().noneMatch(FaaastTurboFilter.class::isInstance)) {
+                FaaastTurboFilter filter = new FaaastTurboFilter();
+                filter.setContext(context);
+                filter.start();
+                context.addTurboFilter(filter);
+            }
+            if (environment.getProperty(PROPERTY_ASYNC_ENABLED, Boolean.class, false)) {
+                int wrapped = AsyncLogging.enable(
+                        environment.getProperty(PROPERTY_ASYNC_QUEUE_SIZE, Integer.class, DEFAULT_ASYNC_QUEUE_SIZE),
+                        environment.getProperty(PROPERTY_ASYNC_NEVER_BLOCK, Boolean.class, true));
+                LOGGER.info("asynchronous logging enabled ({} appenders)", wrapped);
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.HttpRaftTransport;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftNode;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftStorage;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RepositoryStateMachine;
+
+
+/**
+ * Enables Raft replication if {@value #PROPERTY_NODES} is set. The configured in-memory repository is then replicated
+ * to all nodes: modifications are accepted by every node, committed through the leader once a majority has stored
+ * them, and reads are linearizable on every node.
+ *
+ * <p>Term, vote, log and snapshots are persisted in the file {@value #PROPERTY_STORAGE_FILE} before a node acknowledges
+ * them, so committed modifications survive the restart of any number of nodes. A restarted node recovers its state
+ * from the file and is brought up to date by the leader. Raft replication requires the in-memory repository and
+ * cannot be combined with sharding or primary/replica replication.
+ *
+ * <p>Example for three nodes on localhost, started once per port:
+ *
+ * <pre>
+ * --server.port=8090 --registry.raft.self=http://localhost:8090
+ * --registry.raft.nodes=http://localhost:8090,http://localhost:8091,http://localhost:8092
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = RaftConfig.PROPERTY_NODES)
+public class RaftConfig {
+
+    /**
+     * Comma-separated base URLs of all nodes.
+     */
+    public static final String PROPERTY_NODES = "registry.raft.nodes";
+
+    /**
+     * Base URL of this node, must be contained in {@value #PROPERTY_NODES}.
+     */
+    public static final String PROPERTY_SELF = "registry.raft.self";
+
+    /**
+     * Lower bound of the randomized election timeout in milliseconds.
+     */
+    public static final String PROPERTY_ELECTION_TIMEOUT_MIN = "registry.raft.election-timeout-min";
+
+    /**
+     * Upper bound of the randomized election timeout in milliseconds.
+     */
+    public static final String PROPERTY_ELECTION_TIMEOUT_MAX = "registry.raft.election-timeout-max";
+
+    /**
+     * Interval in milliseconds in which the leader contacts idle followers.
+     */
+    public static final String PROPERTY_HEARTBEAT_INTERVAL = "registry.raft.heartbeat-interval";
+
+    /**
+     * Connect and read timeout in milliseconds for votes and log replication.
+     */
+    public static final String PROPERTY_RPC_TIMEOUT = "registry.raft.rpc-timeout";
+
+    /**
+     * Time in milliseconds a request waits for a leader and for its modification to be committed.
+     */
+    public static final String PROPERTY_REQUEST_TIMEOUT = "registry.raft.request-timeout";
+
+    /**
+     * Maximum number of log entries sent to a follower in one request.
+     */
+    public static final String PROPERTY_MAX_BATCH_SIZE = "registry.raft.max-batch-size";
+
+    /**
+     * Maximum number of unacknowledged requests per follower.
+     */
+    public static final String PROPERTY_MAX_INFLIGHT = "registry.raft.max-inflight";
+
+    /**
+     * Number of applied log entries after which the log is compacted into a snapshot.
+     */
+    public static final String PROPERTY_SNAPSHOT_THRESHOLD = "registry.raft.snapshot-threshold";
+
+    /**
+     * Whether followers answer reads from their local state without contacting the leader. Reads may then miss
+     * modifications committed shortly before.
+     */
+    public static final String PROPERTY_STALE_READS = "registry.raft.stale-reads";
+
+    /**
+     * File persisting the Raft state of this node. Defaults to a file in the working directory named after
+     * {@value #PROPERTY_SELF}, so that several nodes can run in the same directory.
+     */
+    public static final String PROPERTY_STORAGE_FILE = "registry.raft.storage-file";
+
+    private static final long DEFAULT_ELECTION_TIMEOUT_MIN = 300;
+    private static final long DEFAULT_ELECTION_TIMEOUT_MAX = 600;
+    private static final long DEFAULT_HEARTBEAT_INTERVAL = 50;
+    private static final int DEFAULT_RPC_TIMEOUT = 1000;
+    private static final int DEFAULT_REQUEST_TIMEOUT = 5000;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 512;
+    private static final int DEFAULT_MAX_INFLIGHT = 2;
+    private static final int DEFAULT_SNAPSHOT_THRESHOLD = 10000;
+
+    /**
+     * Wraps the configured in-memory repository into a {@link RaftAasRepository} and starts the Raft node. Rejects
+     * sharding and primary/replica replication before the node is started.
+     *
+     * @param environment The environment providing the Raft properties.
+     * @param listeners The listeners to notify about modifications received by other nodes.
+     * @return The decorator.
+     */
+    @Bean
+    public RepositoryDecorator raftDecorator(Environment environment, ObjectProvider<RegistryListener> listeners) {
+        return new RepositoryDecorator() {
+            @Override
+            public int getOrder() {
+                return ORDER_RAFT;
+            }
+
+
+            @Override
+            public AasRepository decorate(AasRepository repository) {
+                if (!(repository instanceof AasRepositoryMemory)) {
+                    throw new IllegalStateException(String.format("raft replication requires the in-memory repository (found: %s)", repository.getClass().getName()));
+                }
+                for (String property: List.of(ShardingConfig.PROPERTY_NODES, ReplicationConfig.PROPERTY_ROLE)) {
+                    if (environment.containsProperty(property)) {
+                        throw new IllegalStateException(String.format("raft replication cannot be combined with %s", property));
+                    }
+                }
+                List<String> nodes = Arrays.stream(environment.getRequiredProperty(PROPERTY_NODES).split(","))
+                        .map(String::trim)
+                        .filter(x -> !x.isEmpty())
+                        .toList();
+                String self = environment.getRequiredProperty(PROPERTY_SELF).trim();
+                if (!nodes.contains(self)) {
+                    throw new IllegalStateException(String.format("%s must be one of %s (self: %s, nodes: %s)", PROPERTY_SELF, PROPERTY_NODES, self, nodes));
+                }
+                int requestTimeout = environment.getProperty(PROPERTY_REQUEST_TIMEOUT, Integer.class, DEFAULT_REQUEST_TIMEOUT);
+                ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                        .modules(DescriptorMapperConfig.descriptorModule())
+                        .build();
+                AasRepositoryMemory local = (AasRepositoryMemory) repository;
+                String storageFile = environment.getProperty(PROPERTY_STORAGE_FILE, String.format("raft-%s.mv.db", self.replaceAll("[^A-Za-z0-9]+", "-")));
+                RaftNode node = new RaftNode.Builder()
+                        .self(self)
+                        .nodes(nodes)
+                        .stateMachine(new RepositoryStateMachine(self, local, mapper, () -> listeners.orderedStream().toList()))
+                        .storage(new RaftStorage(storageFile, mapper))
+                        .transport(new HttpRaftTransport(mapper, environment.getProperty(PROPERTY_RPC_TIMEOUT, Integer.class, DEFAULT_RPC_TIMEOUT), requestTimeout))
+                        .electionTimeout(
+                                environment.getProperty(PROPERTY_ELECTION_TIMEOUT_MIN, Long.class, DEFAULT_ELECTION_TIMEOUT_MIN),
+                                environment.getProperty(PROPERTY_ELECTION_TIMEOUT_MAX, Long.class, DEFAULT_ELECTION_TIMEOUT_MAX))
+                        .heartbeatInterval(environment.getProperty(PROPERTY_HEARTBEAT_INTERVAL, Long.class, DEFAULT_HEARTBEAT_INTERVAL))
+                        .requestTimeout(requestTimeout)
+                        .maxBatchSize(environment.getProperty(PROPERTY_MAX_BATCH_SIZE, Integer.class, DEFAULT_MAX_BATCH_SIZE))
+                        .maxInflight(environment.getProperty(PROPERTY_MAX_INFLIGHT, Integer.class, DEFAULT_MAX_INFLIGHT))
+                        .snapshotThreshold(environment.getProperty(PROPERTY_SNAPSHOT_THRESHOLD, Integer.class, DEFAULT_SNAPSHOT_THRESHOLD))
+                        .staleReads(environment.getProperty(PROPERTY_STALE_READS, Boolean.class, false))
+                        .build();
+                node.start();
+                return new RaftAasRepository(node, local);
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.Set;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.MethodNotAllowedException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ServiceUnavailableException;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.MutationLog;
+import de.fraunhofer.iosb.ilt.faaast.registry.replication.ReplicaSynchronizer;
+
+
+/**
+ * Configures primary/replica replication if {@value #PROPERTY_ROLE} is set.
+ *
+ * <p>The primary records every modification in a {@link MutationLog}. Replicas pull the log from the primary given by
+ * {@value #PROPERTY_PRIMARY}, reject modifications and answer reads only while they are at most
+ * {@value #PROPERTY_MAX_STALENESS} milliseconds behind the primary. Example for a primary and two replicas on
+ * localhost:
+ *
+ * <pre>
+ * --server.port=8090 --registry.replication.role=primary
+ * --server.port=8091 --registry.replication.role=replica --registry.replication.primary=http://localhost:8090
+ * --server.port=8092 --registry.replication.role=replica --registry.replication.primary=http://localhost:8090
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = ReplicationConfig.PROPERTY_ROLE)
+public class ReplicationConfig {
+
+    /**
+     * Role of this node, either {@value #ROLE_PRIMARY} or {@value #ROLE_REPLICA}.
+     */
+    public static final String PROPERTY_ROLE = "registry.replication.role";
+
+    /**
+     * Base URL of the primary, required for replicas.
+     */
+    public static final String PROPERTY_PRIMARY = "registry.replication.primary";
+
+    /**
+     * Number of log entries retained by the primary.
+     */
+    public static final String PROPERTY_LOG_CAPACITY = "registry.replication.log-capacity";
+
+    /**
+     * Delay between two polls of a replica in milliseconds.
+     */
+    public static final String PROPERTY_POLL_INTERVAL = "registry.replication.poll-interval";
+
+    /**
+     * Maximum number of log entries fetched by a replica at once.
+     */
+    public static final String PROPERTY_BATCH_SIZE = "registry.replication.batch-size";
+
+    /**
+     * Maximum staleness in milliseconds up to which a replica answers reads.
+     */
+    public static final String PROPERTY_MAX_STALENESS = "registry.replication.max-staleness";
+
+    /**
+     * Connect and read timeout for requests to the primary in milliseconds.
+     */
+    public static final String PROPERTY_TIMEOUT = "registry.replication.timeout";
+
+    /**
+     * Role of the node accepting modifications.
+     */
+    public static final String ROLE_PRIMARY = "primary";
+
+    /**
+     * Role of the read-only nodes.
+     */
+    public static final String ROLE_REPLICA = "replica";
+
+    private static final int DEFAULT_LOG_CAPACITY = 100000;
+    private static final long DEFAULT_POLL_INTERVAL = 200;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long DEFAULT_MAX_STALENESS = 5000;
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    /**
+     * Creates the log of the primary. The registry service records all modifications in it.
+     *
+     * @param environment The environment providing the replication properties.
+     * @return The log.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_ROLE, havingValue = ROLE_PRIMARY)
+    public MutationLog mutationLog(Environment environment) {
+        return new MutationLog(environment.getProperty(PROPERTY_LOG_CAPACITY, Integer.class, DEFAULT_LOG_CAPACITY));
+    }
+
+
+    /**
+     * Creates the synchronizer of a replica.
+     *
+     * @param environment The environment providing the replication properties.
+     * @param aasRepository The local repository.
+     * @param listeners The listeners to notify about replicated modifications.
+     * @return The synchronizer.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = PROPERTY_ROLE, havingValue = ROLE_REPLICA)
+    public ReplicaSynchronizer replicaSynchronizer(Environment environment, AasRepository aasRepository, ObjectProvider<RegistryListener> listeners) {
+        return new ReplicaSynchronizer(
+                environment.getRequiredProperty(PROPERTY_PRIMARY),
+                aasRepository,
+                listeners.orderedStream().toList(),
+                new Jackson2ObjectMapperBuilder()
+                        .modules(DescriptorMapperConfig.descriptorModule())
+                        .build(),
+                environment.getProperty(PROPERTY_POLL_INTERVAL, Long.class, DEFAULT_POLL_INTERVAL),
+                environment.getProperty(PROPERTY_BATCH_SIZE, Integer.class, DEFAULT_BATCH_SIZE),
+                environment.getProperty(PROPERTY_TIMEOUT, Integer.class, DEFAULT_TIMEOUT));
+    }
+
+
+    /**
+     * Keeps the synchronizer of a replica eager if lazy initialization is enabled, so that it starts replicating at
+     * startup rather than on the first request.
+     *
+     * @return The filter excluding the synchronizer from lazy initialization.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter replicaSynchronizerEagerInitialization() {
+        return LazyInitializationExcludeFilter.forBeanTypes(ReplicaSynchronizer.class);
+    }
+
+
+    /**
+     * Makes a replica read-only and rejects reads while it is too far behind the primary.
+     *
+     * @param environment The environment providing the replication properties.
+     * @param synchronizer The synchronizer of the replica.
+     * @return The configurer registering the corresponding interceptor.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_ROLE, havingValue = ROLE_REPLICA)
+    public WebMvcConfigurer replicaRequestGuard(Environment environment, ReplicaSynchronizer synchronizer) {
+        String primary = environment.getRequiredProperty(PROPERTY_PRIMARY);
+        long maxStaleness = environment.getProperty(PROPERTY_MAX_STALENESS, Long.class, DEFAULT_MAX_STALENESS);
+        HandlerInterceptor interceptor = new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (!READ_METHODS.contains(request.getMethod())) {
+                    throw new MethodNotAllowedException(String.format("this node is a read-only replica, send modifications to the primary (primary: %s)", primary));
+                }
+                long staleness = synchronizer.getStaleness();
+                if (staleness > maxStaleness) {
+                    throw new ServiceUnavailableException(String.format("replica is too far behind the primary (staleness: %s, max staleness: %d ms)",
+                            staleness == Long.MAX_VALUE ? "never in sync" : staleness + " ms", maxStaleness));
+                }
+                return true;
+            }
+        };
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor)
+                        .addPathPatterns("/registry/**")
+                        .excludePathPatterns(ReplicaSynchronizer.BASE_PATH + "/**");
+            }
+        };
+    }
+}
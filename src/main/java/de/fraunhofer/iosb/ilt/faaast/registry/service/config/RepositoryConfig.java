@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.List;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.AasRepositoryJpa;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.OffHeapDescriptorStore;
+import de.fraunhofer.iosb.ilt.faaast.registry.mvstore.AasRepositoryMvStore;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Selects the repository implementation based on {@value #PROPERTY_TYPE}, either {@value #TYPE_JPA} (default),
+ * {@value #TYPE_MEMORY} or {@value #TYPE_MVSTORE}. Replaces the former XML application context, so the whole context is defined in code and can
+ * be processed ahead of time. Note that ahead-of-time processing evaluates the condition at build time, i.e. a native
+ * image is bound to the repository type selected when it was built.
+ *
+ * <p>The repository is then wrapped by all enabled {@link RepositoryDecorator}s in their fixed order.
+ */
+@Configuration
+public class RepositoryConfig {
+
+    /**
+     * Type of the repository.
+     */
+    public static final String PROPERTY_TYPE = "registry.repository.type";
+
+    /**
+     * Relational database accessed via JPA, configured by the {@code spring.datasource.*} properties.
+     */
+    public static final String TYPE_JPA = "jpa";
+
+    /**
+     * Volatile in-memory repository.
+     */
+    public static final String TYPE_MEMORY = "memory";
+
+    /**
+     * Embedded key-value store persisted to a local file, configured by the {@code registry.repository.mvstore.*}
+     * properties.
+     */
+    public static final String TYPE_MVSTORE = "mvstore";
+
+    /**
+     * Where the in-memory repository keeps the descriptors, either {@value #STORAGE_HEAP} (default) or
+     * {@value #STORAGE_OFF_HEAP}.
+     */
+    public static final String PROPERTY_MEMORY_STORAGE = "registry.repository.memory.storage";
+
+    /**
+     * Descriptors are kept as objects on the heap.
+     */
+    public static final String STORAGE_HEAP = "heap";
+
+    /**
+     * Descriptors are kept serialized in direct memory, so that garbage collection pauses do not grow with the
+     * registry. Requires {@code -XX:MaxDirectMemorySize} to be large enough for all descriptors.
+     */
+    public static final String STORAGE_OFF_HEAP = "off-heap";
+
+    /**
+     * Size in bytes of the chunks of direct memory allocated by the off-heap storage.
+     */
+    public static final String PROPERTY_MEMORY_CHUNK_SIZE = "registry.repository.memory.chunk-size";
+
+    /**
+     * Maximum number of frequently read shells and of submodels cached on the heap by the off-heap storage, 0 to
+     * disable the cache.
+     */
+    public static final String PROPERTY_MEMORY_CACHE_SIZE = "registry.repository.memory.cache-size";
+
+    /**
+     * File of the embedded key-value store.
+     */
+    public static final String PROPERTY_MVSTORE_FILE = "registry.repository.mvstore.file";
+
+    /**
+     * Size in MB of the page cache of the embedded key-value store.
+     */
+    public static final String PROPERTY_MVSTORE_CACHE_SIZE = "registry.repository.mvstore.cache-size";
+
+    private static final int DEFAULT_MEMORY_CACHE_SIZE = 10000;
+    private static final String DEFAULT_MVSTORE_FILE = "registry.mv.db";
+    private static final int DEFAULT_MVSTORE_CACHE_SIZE = 64;
+
+    /**
+     * Auto-configurations not needed without JPA. Excluding them saves most of the startup time of the in-memory
+     * repository.
+     */
+    public static final List<Class<?>> JPA_AUTO_CONFIGURATIONS = List.of(
+            DataSourceAutoConfiguration.class,
+            DataSourceTransactionManagerAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            JpaRepositoriesAutoConfiguration.class);
+
+    /**
+     * Creates the JPA repository.
+     *
+     * @param entityManagerFactory The entity manager factory created by Spring Boot.
+     * @return The repository.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_TYPE, havingValue = TYPE_JPA, matchIfMissing = true)
+    public AasRepositoryJpa aasRepositoryJpa(EntityManagerFactory entityManagerFactory) {
+        return new AasRepositoryJpa(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+    }
+
+
+    /**
+     * Creates the in-memory repository.
+     *
+     * @param environment The environment providing the storage properties.
+     * @return The repository.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_TYPE, havingValue = TYPE_MEMORY)
+    public AasRepositoryMemory aasRepositoryMemory(Environment environment) {
+        String storage = environment.getProperty(PROPERTY_MEMORY_STORAGE, STORAGE_HEAP);
+        if (STORAGE_HEAP.equals(storage)) {
+            return new AasRepositoryMemory();
+        }
+        if (!STORAGE_OFF_HEAP.equals(storage)) {
+            throw new IllegalStateException(String.format("unsupported value for %s: %s (supported: %s, %s)", PROPERTY_MEMORY_STORAGE, storage, STORAGE_HEAP, STORAGE_OFF_HEAP));
+        }
+        ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                .modules(DescriptorMapperConfig.descriptorModule())
+                .build();
+        int chunkSize = environment.getProperty(PROPERTY_MEMORY_CHUNK_SIZE, Integer.class, OffHeapDescriptorStore.DEFAULT_CHUNK_SIZE);
+        int cacheSize = environment.getProperty(PROPERTY_MEMORY_CACHE_SIZE, Integer.class, DEFAULT_MEMORY_CACHE_SIZE);
+        return new AasRepositoryMemory(
+                new OffHeapDescriptorStore<>(AssetAdministrationShellDescriptor.class, mapper, chunkSize, cacheSize),
+                new OffHeapDescriptorStore<>(SubmodelDescriptor.class, mapper, chunkSize, cacheSize));
+    }
+
+
+    /**
+     * Creates the repository based on the embedded key-value store. Descriptors are stored in the binary Smile
+     * encoding of their JSON representation.
+     *
+     * @param environment The environment providing the store properties.
+     * @return The repository.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = PROPERTY_TYPE, havingValue = TYPE_MVSTORE)
+    public AasRepositoryMvStore aasRepositoryMvStore(Environment environment) {
+        return new AasRepositoryMvStore(
+                environment.getProperty(PROPERTY_MVSTORE_FILE, DEFAULT_MVSTORE_FILE),
+                environment.getProperty(PROPERTY_MVSTORE_CACHE_SIZE, Integer.class, DEFAULT_MVSTORE_CACHE_SIZE),
+                DescriptorMapperConfig.smileMapper());
+    }
+
+
+    /**
+     * Applies all enabled {@link RepositoryDecorator}s to the repository, ordered by {@link RepositoryDecorator#getOrder()}.
+     * This is the only place wrapping the repository, so the layers are always composed in the same order.
+     *
+     * @param decorators The enabled decorators.
+     * @return The post processor.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryDecoration(ObjectProvider<RepositoryDecorator> decorators) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof AasRepository)) {
+                    return bean;
+                }
+                AasRepository result = (AasRepository) bean;
+                for (RepositoryDecorator decorator: decorators.orderedStream().toList()) {
+                    result = decorator.decorate(result);
+                }
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.Optional;
+
+import org.springframework.core.Ordered;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.GroupCommitAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.raft.RaftAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.NotifyingAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ShardedAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.tiered.TieredAasRepository;
+
+
+/**
+ * Wraps the configured repository into an additional layer. All decorators are applied by
+ * {@link RepositoryConfig#repositoryDecoration} in the order given by {@link #getOrder()}, i.e. the decorator with
+ * the lowest order is applied first and ends up innermost. Each decorator validates the repository it receives and
+ * throws an {@link IllegalStateException} if it cannot be combined with it, so unsupported combinations fail at
+ * startup.
+ */
+public interface RepositoryDecorator extends Ordered {
+
+    /**
+     * Order of group commit, which requires the JPA repository and therefore is applied first.
+     */
+    int ORDER_GROUP_COMMIT = 100;
+
+    /**
+     * Order of tiered storage, which caches the descriptors read from a persistent repository including its group
+     * commit layer.
+     */
+    int ORDER_TIERED_STORAGE = 200;
+
+    /**
+     * Order of Raft replication, which requires the in-memory repository and replicates the modifications before they
+     * reach it.
+     */
+    int ORDER_RAFT = 300;
+
+    /**
+     * Order of sharding, the outermost layer, so that requests for other nodes are forwarded before any local layer
+     * is involved.
+     */
+    int ORDER_SHARDING = 400;
+
+    /**
+     * Wraps the repository.
+     *
+     * @param repository the repository built by the decorators applied before
+     * @return the wrapped repository
+     * @throws IllegalStateException if the decorator cannot be combined with the repository
+     */
+    AasRepository decorate(AasRepository repository);
+
+
+    /**
+     * Finds a layer of the given type in a decorated repository.
+     *
+     * @param <T> the type of the layer
+     * @param repository the outermost layer
+     * @param type the type of the layer
+     * @return the layer, empty if the repository does not contain a layer of the given type
+     */
+    static <T extends AasRepository> Optional<T> find(AasRepository repository, Class<T> type) {
+        AasRepository current = repository;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return Optional.of(type.cast(current));
+            }
+            current = unwrap(current);
+        }
+        return Optional.empty();
+    }
+
+
+    /**
+     * Gets the repository wrapped by a layer.
+     *
+     * @param repository the layer
+     * @return the wrapped repository, null if the repository is not a known layer
+     */
+    private static AasRepository unwrap(AasRepository repository) {
+        if (repository instanceof ShardedAasRepository) {
+            return ((ShardedAasRepository) repository).getLocal();
+        }
+        if (repository instanceof RaftAasRepository) {
+            return ((RaftAasRepository) repository).getLocal();
+        }
+        if (repository instanceof TieredAasRepository) {
+            return ((TieredAasRepository) repository).getCold();
+        }
+        if (repository instanceof GroupCommitAasRepository) {
+            return ((GroupCommitAasRepository) repository).getDelegate();
+        }
+        if (repository instanceof NotifyingAasRepository) {
+            return ((NotifyingAasRepository) repository).getDelegate();
+        }
+        return null;
+    }
+}
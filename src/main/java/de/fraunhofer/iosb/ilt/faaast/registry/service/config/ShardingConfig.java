@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ConsistentHashRing;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.NotifyingAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.RemoteAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.shard.ShardedAasRepository;
+
+
+/**
+ * Enables sharding if {@value #PROPERTY_NODES} is set. The configured repository then only holds the descriptors
+ * assigned to this node and is wrapped into a {@link ShardedAasRepository} routing all other requests to the
+ * responsible nodes. The {@link RegistryListener}s of a node are notified about the modifications of its own shard
+ * only, no matter which node received them, so that e.g. the full-text index of a node covers its own shard.
+ *
+ * <p>Example for three nodes on localhost, started once per port:
+ *
+ * <pre>
+ * --server.port=8090 --registry.shard.self=http://localhost:8090
+ * --registry.shard.nodes=http://localhost:8090,http://localhost:8091,http://localhost:8092
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = ShardingConfig.PROPERTY_NODES)
+public class ShardingConfig {
+
+    /**
+     * Comma-separated base URLs of all nodes.
+     */
+    public static final String PROPERTY_NODES = "registry.shard.nodes";
+
+    /**
+     * Base URL of this node, must be contained in {@value #PROPERTY_NODES}.
+     */
+    public static final String PROPERTY_SELF = "registry.shard.self";
+
+    /**
+     * Number of positions of each node on the hash ring.
+     */
+    public static final String PROPERTY_VIRTUAL_NODES = "registry.shard.virtual-nodes";
+
+    /**
+     * Connect and read timeout for requests to other nodes in milliseconds.
+     */
+    public static final String PROPERTY_TIMEOUT = "registry.shard.timeout";
+
+    /**
+     * Number of threads used to contact other nodes.
+     */
+    public static final String PROPERTY_PARALLELISM = "registry.shard.parallelism";
+
+    private static final int DEFAULT_TIMEOUT = 5000;
+    private static final int DEFAULT_PARALLELISM = 16;
+
+    /**
+     * Wraps the configured repository into a {@link ShardedAasRepository}, outside of all other layers.
+     *
+     * @param environment The environment providing the sharding properties.
+     * @param listeners The listeners to notify about modifications of the local shard.
+     * @return The decorator.
+     */
+    @Bean
+    public RepositoryDecorator shardingDecorator(Environment environment, ObjectProvider<RegistryListener> listeners) {
+        return new RepositoryDecorator() {
+            @Override
+            public int getOrder() {
+                return ORDER_SHARDING;
+            }
+
+
+            @Override
+            public AasRepository decorate(AasRepository repository) {
+                List<String> nodes = Arrays.stream(environment.getRequiredProperty(PROPERTY_NODES).split(","))
+                        .map(String::trim)
+                        .filter(x -> !x.isEmpty())
+                        .toList();
+                String self = environment.getRequiredProperty(PROPERTY_SELF).trim();
+                if (!nodes.contains(self)) {
+                    throw new IllegalStateException(String.format("%s must be one of %s (self: %s, nodes: %s)", PROPERTY_SELF, PROPERTY_NODES, self, nodes));
+                }
+                int timeout = environment.getProperty(PROPERTY_TIMEOUT, Integer.class, DEFAULT_TIMEOUT);
+                ObjectMapper mapper = new Jackson2ObjectMapperBuilder()
+                        .modules(DescriptorMapperConfig.descriptorModule())
+                        .build();
+                return new ShardedAasRepository(
+                        self,
+                        nodes,
+                        new NotifyingAasRepository(repository, () -> listeners.orderedStream().toList()),
+                        x -> new RemoteAasRepository(x, mapper, timeout),
+                        environment.getProperty(PROPERTY_VIRTUAL_NODES, Integer.class, ConsistentHashRing.DEFAULT_VIRTUAL_NODES),
+                        environment.getProperty(PROPERTY_PARALLELISM, Integer.class, DEFAULT_PARALLELISM));
+            }
+        };
+    }
+}
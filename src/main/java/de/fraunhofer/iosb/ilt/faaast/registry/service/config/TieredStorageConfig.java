@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.registry.tiered.TieredAasRepository;
+
+
+/**
+ * Enables tiered storage if {@value #PROPERTY_ENABLED} is true. The frequently read descriptors are then held in
+ * memory in front of the persistent repository, which still holds all descriptors and receives all modifications.
+ */
+@Configuration
+@ConditionalOnProperty(name = TieredStorageConfig.PROPERTY_ENABLED, havingValue = "true")
+public class TieredStorageConfig {
+
+    /**
+     * Whether tiered storage is enabled.
+     */
+    public static final String PROPERTY_ENABLED = "registry.tiered.enabled";
+
+    /**
+     * Maximum number of shells held in memory.
+     */
+    public static final String PROPERTY_MAX_SHELLS = "registry.tiered.max-shells";
+
+    /**
+     * Maximum number of submodels read by their ID alone held in memory, 0 to disable.
+     */
+    public static final String PROPERTY_MAX_SUBMODELS = "registry.tiered.max-submodels";
+
+    private static final int DEFAULT_MAX_SHELLS = 10000;
+    private static final int DEFAULT_MAX_SUBMODELS = 10000;
+
+    /**
+     * Wraps the persistent repository into a {@link TieredAasRepository}, outside of group commit and inside of
+     * sharding. Rejects the in-memory repository.
+     *
+     * @param environment The environment providing the tiered storage properties.
+     * @return The decorator.
+     */
+    @Bean
+    public RepositoryDecorator tieredStorageDecorator(Environment environment) {
+        return new RepositoryDecorator() {
+            @Override
+            public int getOrder() {
+                return ORDER_TIERED_STORAGE;
+            }
+
+
+            @Override
+            public AasRepository decorate(AasRepository repository) {
+                if (repository instanceof AasRepositoryMemory) {
+                    throw new IllegalStateException("tiered storage requires a persistent repository (found: in-memory repository)");
+                }
+                return new TieredAasRepository(
+                        repository,
+                        environment.getProperty(PROPERTY_MAX_SHELLS, Integer.class, DEFAULT_MAX_SHELLS),
+                        environment.getProperty(PROPERTY_MAX_SUBMODELS, Integer.class, DEFAULT_MAX_SUBMODELS));
+            }
+        };
+    }
+}
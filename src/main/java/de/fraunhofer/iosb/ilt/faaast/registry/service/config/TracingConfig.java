@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.FileTraceExporter;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.OtlpHttpTraceExporter;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TraceCollector;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TraceExporter;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TracingFilter;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TracingHttpMessageConverter;
+import de.fraunhofer.iosb.ilt.faaast.registry.trace.TracingSessionEventListener;
+
+
+/**
+ * Enables request tracing if {@value #PROPERTY_ENABLED} is true. Every request is traced with spans for decoding the
+ * request body, validation, repository access, JPA flushes and serialization of the response, and latency statistics
+ * are kept per endpoint. Traces of failed or slow requests, plus a random sample of all others, are exported in
+ * OTLP/JSON format to a file and/or an OpenTelemetry collector. Example:
+ *
+ * <pre>
+ * --registry.tracing.enabled=true --registry.tracing.slow-threshold=200
+ * --registry.tracing.export.file=traces.jsonl --registry.tracing.export.otlp-endpoint=http://localhost:4318/v1/traces
+ * </pre>
+ */
+@Configuration
+@ConditionalOnProperty(name = TracingConfig.PROPERTY_ENABLED, havingValue = "true")
+public class TracingConfig {
+
+    /**
+     * Whether tracing is enabled.
+     */
+    public static final String PROPERTY_ENABLED = "registry.tracing.enabled";
+
+    /**
+     * Duration in milliseconds from which on a trace is always exported.
+     */
+    public static final String PROPERTY_SLOW_THRESHOLD = "registry.tracing.slow-threshold";
+
+    /**
+     * Probability of exporting the trace of a request that is neither slow nor failed.
+     */
+    public static final String PROPERTY_SAMPLE_RATE = "registry.tracing.sample-rate";
+
+    /**
+     * Maximum number of traces waiting to be exported, further traces are dropped.
+     */
+    public static final String PROPERTY_QUEUE_CAPACITY = "registry.tracing.queue-capacity";
+
+    /**
+     * Number of sampled traces retained in memory.
+     */
+    public static final String PROPERTY_RECENT_TRACES = "registry.tracing.recent-traces";
+
+    /**
+     * File traces are appended to.
+     */
+    public static final String PROPERTY_EXPORT_FILE = "registry.tracing.export.file";
+
+    /**
+     * URL of the OTLP/HTTP traces endpoint of an OpenTelemetry collector.
+     */
+    public static final String PROPERTY_EXPORT_OTLP_ENDPOINT = "registry.tracing.export.otlp-endpoint";
+
+    /**
+     * Connect and read timeout for requests to the collector in milliseconds.
+     */
+    public static final String PROPERTY_EXPORT_TIMEOUT = "registry.tracing.export.timeout";
+
+    private static final long DEFAULT_SLOW_THRESHOLD = 500;
+    private static final double DEFAULT_SAMPLE_RATE = 0.0;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_RECENT_TRACES = 100;
+    private static final int DEFAULT_EXPORT_TIMEOUT = 5000;
+
+    /**
+     * Creates the collector receiving all finished traces.
+     *
+     * @param environment The environment providing the tracing properties.
+     * @return The collector.
+     */
+    @Bean(destroyMethod = "close")
+    public TraceCollector traceCollector(Environment environment) {
+        ObjectMapper mapper = new ObjectMapper();
+        List<TraceExporter> exporters = new ArrayList<>();
+        if (environment.containsProperty(PROPERTY_EXPORT_FILE)) {
+            exporters.add(new FileTraceExporter(Path.of(environment.getProperty(PROPERTY_EXPORT_FILE)), mapper));
+        }
+        if (environment.containsProperty(PROPERTY_EXPORT_OTLP_ENDPOINT)) {
+            exporters.add(new OtlpHttpTraceExporter(
+                    environment.getProperty(PROPERTY_EXPORT_OTLP_ENDPOINT),
+                    mapper,
+                    environment.getProperty(PROPERTY_EXPORT_TIMEOUT, Integer.class, DEFAULT_EXPORT_TIMEOUT)));
+        }
+        return new TraceCollector(
+                exporters,
+                environment.getProperty(PROPERTY_SLOW_THRESHOLD, Long.class, DEFAULT_SLOW_THRESHOLD),
+                environment.getProperty(PROPERTY_SAMPLE_RATE, Double.class, DEFAULT_SAMPLE_RATE),
+                environment.getProperty(PROPERTY_QUEUE_CAPACITY, Integer.class, DEFAULT_QUEUE_CAPACITY),
+                environment.getProperty(PROPERTY_RECENT_TRACES, Integer.class, DEFAULT_RECENT_TRACES));
+    }
+
+
+    /**
+     * Registers the filter tracing every request. It runs before all other filters so that the root span covers the
+     * whole request.
+     *
+     * @param collector The collector receiving the traces.
+     * @return The filter registration.
+     */
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(TraceCollector collector) {
+        FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(new TracingFilter(collector));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+
+    /**
+     * Replaces the JSON message converters by ones recording decode and serialize spans.
+     *
+     * @return The configurer replacing the converters.
+     */
+    @Bean
+    public WebMvcConfigurer tracingMessageConverters() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                ListIterator<HttpMessageConverter<?>> iterator = converters.listIterator();
+                while (iterator.hasNext()) {
+                    HttpMessageConverter<?> converter = iterator.next();
+                    if (converter.getClass() == MappingJackson2HttpMessageConverter.class) {
+                        iterator.set(new TracingHttpMessageConverter(((MappingJackson2HttpMessageConverter) converter).getObjectMapper()));
+                    }
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Registers the Hibernate session listener recording JPA flush spans. Only effective if the entity manager factory
+     * is created by Spring Boot, i.e. if the JPA repository is used.
+     *
+     * @return The customizer.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer tracingSessionEvents() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, TracingSessionEventListener.class.getName());
+    }
+}
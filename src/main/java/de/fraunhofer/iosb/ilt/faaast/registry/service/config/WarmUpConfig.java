@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.config;
+
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.warmup.AccessLog;
+import de.fraunhofer.iosb.ilt.faaast.registry.warmup.WarmUp;
+
+
+/**
+ * Configures the warm-up phase.
+ *
+ * <p>If {@value #PROPERTY_ACCESS_LOG} is set, reads of individual descriptors are counted and persisted to this file.
+ * If {@value #PROPERTY_ENABLED} is true, the registry is warmed up after startup (see {@link WarmUp}), preferring the
+ * descriptors that were hot according to the access log. The warm-up runs before the application is reported ready,
+ * so the readiness probe at {@code /registry/health/readiness} only succeeds once it has finished.
+ */
+@Configuration
+public class WarmUpConfig {
+
+    /**
+     * Whether the registry is warmed up after startup.
+     */
+    public static final String PROPERTY_ENABLED = "registry.warmup.enabled";
+
+    /**
+     * File descriptor reads are counted in.
+     */
+    public static final String PROPERTY_ACCESS_LOG = "registry.warmup.access-log";
+
+    /**
+     * Maximum number of descriptors tracked in the access log.
+     */
+    public static final String PROPERTY_ACCESS_LOG_CAPACITY = "registry.warmup.access-log-capacity";
+
+    /**
+     * Interval in milliseconds in which the access log is saved.
+     */
+    public static final String PROPERTY_ACCESS_LOG_SAVE_INTERVAL = "registry.warmup.access-log-save-interval";
+
+    /**
+     * Maximum number of shells and of submodels preloaded.
+     */
+    public static final String PROPERTY_MAX_DESCRIPTORS = "registry.warmup.max-descriptors";
+
+    /**
+     * Number of times the preloaded descriptors are looked up and serialized.
+     */
+    public static final String PROPERTY_ITERATIONS = "registry.warmup.iterations";
+
+    /**
+     * Maximum number of requests per iteration sent to the registry's own REST API, 0 to disable.
+     */
+    public static final String PROPERTY_MAX_HTTP_REQUESTS = "registry.warmup.max-http-requests";
+
+    /**
+     * Time budget of the warm-up in milliseconds.
+     */
+    public static final String PROPERTY_TIMEOUT = "registry.warmup.timeout";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpConfig.class);
+    private static final int DEFAULT_ACCESS_LOG_CAPACITY = 100000;
+    private static final long DEFAULT_ACCESS_LOG_SAVE_INTERVAL = 60000;
+    private static final int DEFAULT_MAX_DESCRIPTORS = 10000;
+    private static final int DEFAULT_ITERATIONS = 3;
+    private static final int DEFAULT_MAX_HTTP_REQUESTS = 1000;
+    private static final long DEFAULT_TIMEOUT = 60000;
+
+    /**
+     * Creates the access log. It is registered as access listener and thus counts all reads.
+     *
+     * @param environment The environment providing the warm-up properties.
+     * @return The access log.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = PROPERTY_ACCESS_LOG)
+    public AccessLog accessLog(Environment environment) {
+        return new AccessLog(
+                Path.of(environment.getRequiredProperty(PROPERTY_ACCESS_LOG)),
+                environment.getProperty(PROPERTY_ACCESS_LOG_CAPACITY, Integer.class, DEFAULT_ACCESS_LOG_CAPACITY),
+                environment.getProperty(PROPERTY_ACCESS_LOG_SAVE_INTERVAL, Long.class, DEFAULT_ACCESS_LOG_SAVE_INTERVAL));
+    }
+
+
+    /**
+     * Runs the warm-up. Application runners are executed before the application is reported ready.
+     *
+     * @param context The application context.
+     * @param environment The environment providing the warm-up properties.
+     * @param aasRepository The repository.
+     * @param mapperBuilder The builder of the mapper used for requests and responses.
+     * @param accessLog The access log, if configured.
+     * @return The runner.
+     */
+    @Bean
+    @ConditionalOnProperty(name = PROPERTY_ENABLED, havingValue = "true")
+    public ApplicationRunner warmUpRunner(ApplicationContext context, Environment environment, AasRepository aasRepository,
+                                          Jackson2ObjectMapperBuilder mapperBuilder, ObjectProvider<AccessLog> accessLog) {
+        return args -> {
+            AvailabilityChangeEvent.publish(context, ReadinessState.REFUSING_TRAFFIC);
+            Integer port = environment.getProperty("local.server.port", Integer.class);
+            try {
+                LOGGER.info("warming up...");
+                WarmUp warmUp = new WarmUp.Builder()
+                        .repository(aasRepository)
+                        .mapper(mapperBuilder.build())
+                        .accessLog(accessLog.getIfAvailable())
+                        .baseUrl(port != null ? "http://localhost:" + port : null)
+                        .maxDescriptors(environment.getProperty(PROPERTY_MAX_DESCRIPTORS, Integer.class, DEFAULT_MAX_DESCRIPTORS))
+                        .iterations(environment.getProperty(PROPERTY_ITERATIONS, Integer.class, DEFAULT_ITERATIONS))
+                        .maxHttpRequests(environment.getProperty(PROPERTY_MAX_HTTP_REQUESTS, Integer.class, DEFAULT_MAX_HTTP_REQUESTS))
+                        .timeout(environment.getProperty(PROPERTY_TIMEOUT, Long.class, DEFAULT_TIMEOUT))
+                        .build();
+                LOGGER.info("warm-up finished {}", warmUp.run());
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("warm-up failed, starting anyway", e);
+            }
+        };
+    }
+}
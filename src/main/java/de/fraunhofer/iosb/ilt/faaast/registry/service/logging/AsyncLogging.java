@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.service.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Moves writing log events off the logging threads. Every appender of the root logger is wrapped in an
+ * {@link AsyncAppender} that buffers events in a bounded queue and writes them on a background thread.
+ */
+public class AsyncLogging {
+
+    private static final String PREFIX = "ASYNC-";
+
+    private AsyncLogging() {}
+
+
+    /**
+     * Wraps all appenders of the root logger that are not yet asynchronous.
+     *
+     * @param queueSize maximum number of buffered events
+     * @param neverBlock if true, events are dropped when the queue is full instead of blocking the logging thread
+     * @return the number of wrapped appenders
+     */
+    public static int enable(int queueSize, boolean neverBlock) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return 0;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        List<Appender<ILoggingEvent>> appenders = new ArrayList<>();
+        for (Iterator<Appender<ILoggingEvent>> iterator = root.iteratorForAppenders(); iterator.hasNext();) {
+            Appender<ILoggingEvent> appender = iterator.next();
+            if (!(appender instanceof AsyncAppender)) {
+                appenders.add(appender);
+            }
+        }
+        for (Appender<ILoggingEvent> appender: appenders) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName(PREFIX + appender.getName());
+            async.setQueueSize(queueSize);
+            async.setNeverBlock(neverBlock);
+            async.setDiscardingThreshold(0);
+            async.setIncludeCallerData(false);
+            async.addAppender(appender);
+            async.start();
+            root.detachAppender(appender);
+            root.addAppender(async);
+        }
+        return appenders.size();
+    }
+}
@@ -17,15 +17,26 @@ package de.fraunhofer.iosb.ilt.faaast.registry.service.logging;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.spi.FilterReply;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
- * Allows to set different log levels for FA³ST package and all other packages at run-time.
+ * Allows to set different log levels for FA³ST package and all other packages at run-time. Additionally, levels can
+ * be overridden for individual loggers or packages.
+ *
+ * <p>The effective level of a logger is resolved once and cached per logger name, so deciding about an event costs a
+ * single map lookup. The cache is cleared whenever a level is changed.
  */
 public class FaaastFilter extends ch.qos.logback.core.filter.Filter<ILoggingEvent> {
     private static final String PACKAGE_FAAAST = "de.fraunhofer.iosb.ilt.faaast";
-    private static Level levelFaaast = Level.WARN;
-    private static Level levelExternal = Level.WARN;
+    private static final Map<String, Level> EFFECTIVE_LEVELS = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+    private static volatile Level levelFaaast = Level.WARN;
+    private static volatile Level levelExternal = Level.WARN;
+    private static volatile Map<String, Level> overrides = Map.of();
 
     /**
      * Get level of logging for faaast packages.
@@ -43,7 +54,10 @@ public class FaaastFilter extends ch.qos.logback.core.filter.Filter<ILoggingEven
      * @param level of logging
      */
     public static void setLevelFaaast(Level level) {
-        levelFaaast = level;
+        synchronized (LOCK) {
+            levelFaaast = level;
+            EFFECTIVE_LEVELS.clear();
+        }
     }
 
 
@@ -63,18 +77,83 @@ public class FaaastFilter extends ch.qos.logback.core.filter.Filter<ILoggingEven
      * @param level of logging
      */
     public static void setLevelExternal(Level level) {
-        levelExternal = level;
+        synchronized (LOCK) {
+            levelExternal = level;
+            EFFECTIVE_LEVELS.clear();
+        }
     }
 
 
-    @Override
-    public FilterReply decide(ILoggingEvent e) {
-        if (e.getLoggerName().startsWith(PACKAGE_FAAAST) && e.getLevel().isGreaterOrEqual(levelFaaast)) {
-            return FilterReply.ACCEPT;
+    /**
+     * Get the levels overridden for individual loggers or packages.
+     *
+     * @return levels by logger name or package
+     */
+    public static Map<String, Level> getLevelOverrides() {
+        return overrides;
+    }
+
+
+    /**
+     * Override the level of logging for a logger or package. The most specific override applies.
+     *
+     * @param name name of the logger or package
+     * @param level of logging, null removes the override
+     */
+    public static void setLevelOverride(String name, Level level) {
+        synchronized (LOCK) {
+            Map<String, Level> result = new TreeMap<>(overrides);
+            if (Objects.isNull(level)) {
+                result.remove(name);
+            }
+            else {
+                result.put(name, level);
+            }
+            overrides = Map.copyOf(result);
+            EFFECTIVE_LEVELS.clear();
         }
-        if (!e.getLoggerName().startsWith(PACKAGE_FAAAST) && e.getLevel().isGreaterOrEqual(levelExternal)) {
-            return FilterReply.ACCEPT;
+    }
+
+
+    /**
+     * Checks whether an event of the given logger and level passes the filter.
+     *
+     * @param loggerName name of the logger
+     * @param level level of the event
+     * @return true if the event should be logged
+     */
+    public static boolean isEnabled(String loggerName, Level level) {
+        Level effectiveLevel = EFFECTIVE_LEVELS.get(loggerName);
+        if (Objects.isNull(effectiveLevel)) {
+            effectiveLevel = resolveLevel(loggerName);
+        }
+        return level.isGreaterOrEqual(effectiveLevel);
+    }
+
+
+    private static Level resolveLevel(String loggerName) {
+        synchronized (LOCK) {
+            Level result = null;
+            for (String name = loggerName; Objects.isNull(result) && !name.isEmpty(); name = parentOf(name)) {
+                result = overrides.get(name);
+            }
+            if (Objects.isNull(result)) {
+                result = loggerName.startsWith(PACKAGE_FAAAST) ? levelFaaast : levelExternal;
+            }
+            EFFECTIVE_LEVELS.put(loggerName, result);
+            return result;
         }
-        return FilterReply.DENY;
+    }
+
+
+    private static String parentOf(String name) {
+        int index = name.lastIndexOf('.');
+        return index < 0 ? "" : name.substring(0, index);
+    }
+
+
+    @Override
+    public FilterReply decide(ILoggingEvent e) {
+        return isEnabled(e.getLoggerName(), e.getLevel()) ? FilterReply.ACCEPT : FilterReply.DENY;
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Consistent hash ring assigning keys to nodes. Every node is placed on the ring multiple times (virtual nodes) so that
+ * keys are spread evenly and adding or removing a node only moves the keys of the affected ring segments.
+ *
+ * <p>Instances are immutable and thread-safe.
+ */
+public class ConsistentHashRing {
+
+    /**
+     * Default number of virtual nodes per node.
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final List<String> nodes;
+    private final NavigableMap<Long, String> ring;
+
+    /**
+     * Creates a new ring.
+     *
+     * @param nodes the nodes, must not be empty
+     * @param virtualNodes the number of positions of each node on the ring
+     * @throws IllegalArgumentException if nodes is empty or virtualNodes is not positive
+     */
+    public ConsistentHashRing(List<String> nodes, int virtualNodes) {
+        Ensure.requireNonNull(nodes, "nodes must be non-null");
+        Ensure.require(!nodes.isEmpty(), "nodes must be non-empty");
+        Ensure.require(virtualNodes > 0, "virtualNodes must be positive");
+        this.nodes = List.copyOf(nodes);
+        this.ring = new TreeMap<>();
+        for (String node: this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the node responsible for a key.
+     *
+     * @param key the key
+     * @return the responsible node
+     */
+    public String nodeFor(String key) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+
+    /**
+     * Gets all nodes of the ring.
+     *
+     * @return the nodes in the order they were given
+     */
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+
+    /**
+     * Computes the position of a key on the ring using 64-bit FNV-1a followed by a finalizing mix step, which gives
+     * well-distributed positions even for keys sharing long prefixes such as URIs.
+     *
+     * @param key the key
+     * @return the position
+     */
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b: key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.shard;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.RegistryListener;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} notifying {@link RegistryListener}s about every successful modification of the wrapped
+ * repository. Wraps the local repository of a sharded registry, so that the listeners of the node owning a descriptor
+ * are notified no matter whether the modification was received directly, forwarded by another node or is part of
+ * rebalancing.
+ *
+ * <p>The listeners are resolved on the first modification, as they usually depend on the repository themselves.
+ */
+public class NotifyingAasRepository extends AbstractAasRepository implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotifyingAasRepository.class);
+
+    private final AasRepository delegate;
+    private final Supplier<List<RegistryListener>> listenerSupplier;
+    private volatile List<RegistryListener> listeners;
+
+    public NotifyingAasRepository(AasRepository delegate, Supplier<List<RegistryListener>> listenerSupplier) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        Ensure.requireNonNull(listenerSupplier, "listenerSupplier must be non-null");
+        this.delegate = delegate;
+        this.listenerSupplier = listenerSupplier;
+    }
+
+
+    /**
+     * The wrapped repository.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public void close() {
+        closeDelegate(delegate);
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return delegate.getAASs();
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return delegate.getAASs(projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        return delegate.getAAS(aasId, projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        AssetAdministrationShellDescriptor result = delegate.create(descriptor);
+        notifyListeners(x -> x.shellCreated(result));
+        return result;
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        delegate.deleteAAS(aasId);
+        notifyListeners(x -> x.shellDeleted(aasId));
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        AssetAdministrationShellDescriptor result = delegate.update(aasId, descriptor);
+        notifyListeners(x -> x.shellUpdated(aasId, result));
+        return result;
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        return delegate.getSubmodels(aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return delegate.getSubmodels();
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        return delegate.getSubmodel(submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        SubmodelDescriptor result = delegate.addSubmodel(aasId, descriptor);
+        notifyListeners(x -> x.submodelCreated(aasId, result));
+        return result;
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        SubmodelDescriptor result = delegate.addSubmodel(descriptor);
+        notifyListeners(x -> x.submodelCreated(null, result));
+        return result;
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        delegate.deleteSubmodel(aasId, submodelId);
+        notifyListeners(x -> x.submodelDeleted(aasId, submodelId));
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        delegate.deleteSubmodel(submodelId);
+        notifyListeners(x -> x.submodelDeleted(null, submodelId));
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return delegate.findAASs(query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return delegate.findSubmodels(query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return delegate.findBySemanticId(semanticId);
+    }
+
+
+    private void notifyListeners(Consumer<RegistryListener> notification) {
+        if (Objects.isNull(listeners)) {
+            listeners = listenerSupplier.get();
+        }
+        for (RegistryListener listener: listeners) {
+            try {
+                notification.accept(listener);
+            }
+            catch (RuntimeException e) {
+                LOGGER.warn("registry listener failed (listener: {})", listener.getClass().getName(), e);
+            }
+        }
+    }
+}
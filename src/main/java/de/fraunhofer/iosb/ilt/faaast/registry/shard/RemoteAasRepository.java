@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.search.SearchHit;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * {@link de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository} accessing the local repository of another registry
+ * node via its shard endpoint ({@value #BASE_PATH}). IDs are transferred base64url-encoded, a missing resource is
+ * reported as HTTP 404 and an already existing resource as HTTP 409.
+ */
+public class RemoteAasRepository extends AbstractAasRepository {
+
+    /**
+     * Path of the shard endpoint relative to the base URL of a node.
+     */
+    public static final String BASE_PATH = "/registry/shard";
+
+    private static final ParameterizedTypeReference<List<AssetAdministrationShellDescriptor>> SHELL_LIST = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<SubmodelDescriptor>> SUBMODEL_LIST = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<PagedResult<AssetAdministrationShellDescriptor>> SHELL_PAGE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<PagedResult<SubmodelDescriptor>> SUBMODEL_PAGE = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<SemanticIdMatch>> SEMANTIC_ID_MATCH_LIST = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<String>> STRING_LIST = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<PagedResult<SearchHit>> SEARCH_HIT_PAGE = new ParameterizedTypeReference<>() {};
+
+    private final String node;
+    private final RestClient client;
+
+    /**
+     * Creates a new client for a node.
+     *
+     * @param node the base URL of the node, e.g. http://localhost:8090
+     * @param mapper the mapper used to read and write descriptors
+     * @param timeout connect and read timeout in milliseconds
+     */
+    public RemoteAasRepository(String node, ObjectMapper mapper, int timeout) {
+        this.node = node;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.client = RestClient.builder()
+                .baseUrl(node + BASE_PATH)
+                .requestFactory(requestFactory)
+                .messageConverters(x -> {
+                    x.removeIf(MappingJackson2HttpMessageConverter.class::isInstance);
+                    x.add(new MappingJackson2HttpMessageConverter(mapper));
+                })
+                .build();
+    }
+
+
+    /**
+     * Gets the base URL of the node.
+     *
+     * @return the base URL
+     */
+    public String getNode() {
+        return node;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return client.get().uri("/shells").retrieve().body(SHELL_LIST);
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        if (projection.isFull()) {
+            return getAASs();
+        }
+        return client.get().uri("/shells?fields={fields}", projection.toString()).retrieve().body(SHELL_LIST).stream()
+                .map(projection::apply)
+                .collect(Collectors.toList());
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        try {
+            return client.get().uri("/shells/{aasId}", encode(aasId)).retrieve().body(AssetAdministrationShellDescriptor.class);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        if (projection.isFull()) {
+            return getAAS(aasId);
+        }
+        ensureAasId(aasId);
+        try {
+            return projection.apply(client.get().uri("/shells/{aasId}?fields={fields}", encode(aasId), projection.toString())
+                    .retrieve()
+                    .body(AssetAdministrationShellDescriptor.class));
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        try {
+            return client.post().uri("/shells").body(descriptor).retrieve().body(AssetAdministrationShellDescriptor.class);
+        }
+        catch (HttpClientErrorException.Conflict e) {
+            throw buildAASAlreadyExistsException(descriptor.getId());
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        try {
+            client.delete().uri("/shells/{aasId}", encode(aasId)).retrieve().toBodilessEntity();
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        try {
+            return client.put().uri("/shells/{aasId}", encode(aasId)).body(descriptor).retrieve().body(AssetAdministrationShellDescriptor.class);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        try {
+            return client.get().uri("/shells/{aasId}/submodels", encode(aasId)).retrieve().body(SUBMODEL_LIST);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return client.get().uri("/submodels").retrieve().body(SUBMODEL_LIST);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        try {
+            return client.get()
+                    .uri("/shells/{aasId}/submodels/{submodelId}", encode(aasId), encode(submodelId))
+                    .retrieve()
+                    .body(SubmodelDescriptor.class);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildSubmodelNotFoundInAASException(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        try {
+            return client.get().uri("/submodels/{submodelId}", encode(submodelId)).retrieve().body(SubmodelDescriptor.class);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildSubmodelNotFoundException(submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        try {
+            return client.post().uri("/shells/{aasId}/submodels", encode(aasId)).body(descriptor).retrieve().body(SubmodelDescriptor.class);
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildAASNotFoundException(aasId);
+        }
+        catch (HttpClientErrorException.Conflict e) {
+            throw buildSubmodelAlreadyExistsException(descriptor.getId());
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        try {
+            return client.post().uri("/submodels").body(descriptor).retrieve().body(SubmodelDescriptor.class);
+        }
+        catch (HttpClientErrorException.Conflict e) {
+            throw buildSubmodelAlreadyExistsException(descriptor.getId());
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        try {
+            client.delete().uri("/shells/{aasId}/submodels/{submodelId}", encode(aasId), encode(submodelId)).retrieve().toBodilessEntity();
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildSubmodelNotFoundInAASException(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        try {
+            client.delete().uri("/submodels/{submodelId}", encode(submodelId)).retrieve().toBodilessEntity();
+        }
+        catch (HttpClientErrorException.NotFound e) {
+            throw buildSubmodelNotFoundException(submodelId);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return client.get().uri(x -> withQuery(x.path("/shells/search"), query).build()).retrieve().body(SHELL_PAGE);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return client.get().uri(x -> withQuery(x.path("/submodels/search"), query).build()).retrieve().body(SUBMODEL_PAGE);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return client.get().uri("/semantic-ids/{semanticId}", encode(semanticId)).retrieve().body(SEMANTIC_ID_MATCH_LIST);
+    }
+
+
+    /**
+     * Searches the full-text index of the node, which covers the descriptors of its own shard.
+     *
+     * @param text the search text
+     * @param limit the maximum number of hits to return
+     * @return the best hits of the node ordered by descending relevance
+     */
+    public PagedResult<SearchHit> search(String text, int limit) {
+        return client.get().uri("/search?q={text}&limit={limit}", text, limit).retrieve().body(SEARCH_HIT_PAGE);
+    }
+
+
+    /**
+     * Gets the cluster membership as currently known by the node.
+     *
+     * @return the base URLs of all nodes
+     */
+    public List<String> getNodes() {
+        return client.get().uri("/nodes").retrieve().body(STRING_LIST);
+    }
+
+
+    /**
+     * Sets the cluster membership of the node without propagating it to further nodes.
+     *
+     * @param nodes the base URLs of all nodes
+     */
+    public void setNodes(List<String> nodes) {
+        client.put().uri(x -> x.path("/nodes").queryParam("propagate", false).build()).body(nodes).retrieve().toBodilessEntity();
+    }
+
+
+    private static UriBuilder withQuery(UriBuilder builder, DescriptorQuery query) {
+        return builder
+                .queryParamIfPresent("idShortPrefix", Optional.ofNullable(query.getIdShortPrefix()))
+                .queryParamIfPresent("semanticId", Optional.ofNullable(query.getSemanticId()))
+                .queryParamIfPresent("endpointInterface", Optional.ofNullable(query.getEndpointInterface()))
+                .queryParamIfPresent("version", Optional.ofNullable(query.getAdministrationVersion()))
+                .queryParamIfPresent("assetKind", Optional.ofNullable(query.getAssetKind()))
+                .queryParam("offset", query.getOffset())
+                .queryParam("limit", query.getLimit());
+    }
+
+
+    private static String encode(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.shard;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Function;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+
+
+/**
+ * Iterates over the results of a {@link DescriptorQuery} on a single shard in ID order, fetching pages on demand. Used
+ * to merge the results of multiple shards.
+ *
+ * @param <T> the type of the results
+ */
+class ShardCursor<T> {
+
+    private final DescriptorQuery query;
+    private final Function<DescriptorQuery, PagedResult<T>> fetch;
+    private final int pageSize;
+    private final Deque<T> buffer;
+    private int nextOffset;
+    private long total;
+    private boolean exhausted;
+
+    /**
+     * Creates a cursor and fetches the first page.
+     *
+     * @param query the query, offset and limit are ignored
+     * @param fetch the function executing a query on the shard
+     * @param pageSize the number of results to fetch at once
+     */
+    ShardCursor(DescriptorQuery query, Function<DescriptorQuery, PagedResult<T>> fetch, int pageSize) {
+        this.query = query;
+        this.fetch = fetch;
+        this.pageSize = pageSize;
+        this.buffer = new ArrayDeque<>();
+        fetchPage();
+    }
+
+
+    /**
+     * Gets the total number of results on the shard as reported by the first page.
+     *
+     * @return the total number of results
+     */
+    long getTotal() {
+        return total;
+    }
+
+
+    /**
+     * Gets the next result without consuming it.
+     *
+     * @return the next result, or null if there are no more results
+     */
+    T peek() {
+        if (buffer.isEmpty() && !exhausted) {
+            fetchPage();
+        }
+        return buffer.peekFirst();
+    }
+
+
+    /**
+     * Consumes the next result.
+     *
+     * @return the next result, or null if there are no more results
+     */
+    T poll() {
+        T result = peek();
+        buffer.pollFirst();
+        return result;
+    }
+
+
+    private void fetchPage() {
+        PagedResult<T> page = fetch.apply(new DescriptorQuery.Builder()
+                .from(query)
+                .offset(nextOffset)
+                .limit(pageSize)
+                .build());
+        if (nextOffset == 0) {
+            total = page.getTotal();
+        }
+        buffer.addAll(page.getItems());
+        nextOffset += page.getItems().size();
+        exhausted = page.getItems().isEmpty() || !page.hasMore();
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} partitioning the registry across multiple nodes using a {@link ConsistentHashRing}.
+ *
+ * <p>Shells are assigned to nodes by their ID; the submodels of a shell always live on the node of the shell.
+ * Submodels registered on their own are assigned by their submodel ID. Requests for a single descriptor are routed to
+ * the responsible node, listings and searches are sent to all nodes in parallel and merged in ID order. As a submodel
+ * may also be exposed by a shell on another node, requests for a submodel by its ID alone are sent to all nodes if the
+ * node responsible for the submodel ID does not know it.
+ *
+ * <p>When the membership changes, every node moves the descriptors it is no longer responsible for to their new
+ * node in the background. Until this is finished, reads that miss on the new node fall back to the node responsible
+ * according to the previous membership. Membership changes should therefore be applied one at a time, waiting for
+ * {@link #isRebalancing()} to become false on all nodes.
+ */
+public class ShardedAasRepository extends AbstractAasRepository implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedAasRepository.class);
+
+    private final String self;
+    private final AasRepository local;
+    private final Function<String, RemoteAasRepository> remoteFactory;
+    private final int virtualNodes;
+    private final Map<String, RemoteAasRepository> remotes;
+    private final ExecutorService executor;
+    private final Object membershipLock;
+    private final Object rebalanceLock;
+    private volatile ConsistentHashRing ring;
+    private volatile ConsistentHashRing previousRing;
+
+    /**
+     * Creates a new sharded repository.
+     *
+     * @param self the base URL of this node, must be contained in nodes
+     * @param nodes the base URLs of all nodes
+     * @param local the repository holding the descriptors assigned to this node
+     * @param remoteFactory factory for clients accessing the local repository of other nodes
+     * @param virtualNodes the number of positions of each node on the hash ring
+     * @param parallelism the number of threads used to contact other nodes
+     */
+    public ShardedAasRepository(String self,
+                                List<String> nodes,
+                                AasRepository local,
+                                Function<String, RemoteAasRepository> remoteFactory,
+                                int virtualNodes,
+                                int parallelism) {
+        Ensure.requireNonNull(self, "self must be non-null");
+        Ensure.requireNonNull(local, "local must be non-null");
+        Ensure.requireNonNull(remoteFactory, "remoteFactory must be non-null");
+        Ensure.require(parallelism > 0, "parallelism must be positive");
+        this.self = self;
+        this.local = local;
+        this.remoteFactory = remoteFactory;
+        this.virtualNodes = virtualNodes;
+        this.remotes = new ConcurrentHashMap<>();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, x -> {
+            Thread thread = new Thread(x, "shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.membershipLock = new Object();
+        this.rebalanceLock = new Object();
+        this.ring = new ConsistentHashRing(nodes, virtualNodes);
+    }
+
+
+    /**
+     * Gets the base URL of this node.
+     *
+     * @return the base URL
+     */
+    public String getSelf() {
+        return self;
+    }
+
+
+    /**
+     * Gets the repository holding the descriptors assigned to this node.
+     *
+     * @return the local repository
+     */
+    public AasRepository getLocal() {
+        return local;
+    }
+
+
+    /**
+     * Gets the current cluster membership.
+     *
+     * @return the base URLs of all nodes
+     */
+    public List<String> getNodes() {
+        return ring.getNodes();
+    }
+
+
+    /**
+     * Checks whether descriptors are currently moved to other nodes after a membership change.
+     *
+     * @return true if rebalancing is in progress
+     */
+    public boolean isRebalancing() {
+        return Objects.nonNull(previousRing);
+    }
+
+
+    /**
+     * Changes the cluster membership and starts moving descriptors this node is no longer responsible for. Nodes
+     * joining the cluster must already be running.
+     *
+     * @param nodes the base URLs of all nodes
+     * @param propagate if true, the new membership is sent to all other old and new nodes before it is applied locally
+     */
+    public void setNodes(List<String> nodes, boolean propagate) {
+        ConsistentHashRing newRing = new ConsistentHashRing(nodes, virtualNodes);
+        synchronized (membershipLock) {
+            if (propagate) {
+                Set<String> affected = new LinkedHashSet<>(ring.getNodes());
+                affected.addAll(newRing.getNodes());
+                affected.remove(self);
+                for (String node: affected) {
+                    remote(node).setNodes(newRing.getNodes());
+                }
+            }
+            previousRing = ring;
+            ring = newRing;
+            LOGGER.info("cluster membership changed (nodes: {})", newRing.getNodes());
+            executor.execute(() -> rebalance(newRing));
+        }
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return mergeById(fanOut(AasRepository::getAASs), AssetAdministrationShellDescriptor::getId);
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return mergeById(fanOut(x -> x.getAASs(projection)), AssetAdministrationShellDescriptor::getId);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        return route(aasId, x -> x.getAAS(aasId));
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        return route(aasId, x -> x.getAAS(aasId, projection));
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        if (existsOnPreviousOwner(descriptor.getId(), x -> x.getAAS(descriptor.getId()))) {
+            throw buildAASAlreadyExistsException(descriptor.getId());
+        }
+        return owner(ring, descriptor.getId()).create(descriptor);
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        route(aasId, x -> {
+            x.deleteAAS(aasId);
+            return null;
+        });
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        ConsistentHashRing current = ring;
+        if (Objects.equals(current.nodeFor(aasId), current.nodeFor(descriptor.getId()))) {
+            return route(aasId, x -> x.update(aasId, descriptor));
+        }
+        // the ID changes the responsible node: copy first, then remove the old entry
+        getAAS(aasId);
+        AasRepository target = owner(current, descriptor.getId());
+        AssetAdministrationShellDescriptor result;
+        try {
+            result = target.create(descriptor);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            result = target.update(descriptor.getId(), descriptor);
+        }
+        deleteAAS(aasId);
+        return result;
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        return route(aasId, x -> x.getSubmodels(aasId));
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return mergeById(fanOut(AasRepository::getSubmodels), SubmodelDescriptor::getId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        return route(aasId, x -> x.getSubmodel(aasId, submodelId));
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        try {
+            return route(submodelId, x -> x.getSubmodel(submodelId));
+        }
+        catch (ResourceNotFoundException e) {
+            // the submodel may be exposed by a shell on another node
+            Optional<SubmodelDescriptor> result = fanOutIgnoringMisses(x -> x.getSubmodel(submodelId)).stream().findFirst();
+            if (result.isEmpty()) {
+                throw e;
+            }
+            return result.get();
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        return route(aasId, x -> x.addSubmodel(aasId, descriptor));
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        if (existsOnPreviousOwner(descriptor.getId(), x -> x.getSubmodel(descriptor.getId()))) {
+            throw buildSubmodelAlreadyExistsException(descriptor.getId());
+        }
+        return owner(ring, descriptor.getId()).addSubmodel(descriptor);
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        route(aasId, x -> {
+            x.deleteSubmodel(aasId, submodelId);
+            return null;
+        });
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        // like on a single node, the submodel is removed from all shells exposing it, which may live on any node
+        List<String> deleted = fanOutIgnoringMisses(x -> {
+            x.deleteSubmodel(submodelId);
+            return submodelId;
+        });
+        if (deleted.isEmpty()) {
+            throw buildSubmodelNotFoundException(submodelId);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return mergePages(query, AasRepository::findAASs, AssetAdministrationShellDescriptor::getId);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return mergePages(query, AasRepository::findSubmodels, SubmodelDescriptor::getId);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        List<SemanticIdMatch> exposed = new ArrayList<>();
+        List<SemanticIdMatch> standalone = new ArrayList<>();
+        for (List<SemanticIdMatch> matches: fanOut(x -> x.findBySemanticId(semanticId))) {
+            for (SemanticIdMatch match: matches) {
+                (Objects.nonNull(match.getAasId()) ? exposed : standalone).add(match);
+            }
+        }
+        Set<String> exposedIds = new HashSet<>();
+        Set<SemanticIdMatch> result = new LinkedHashSet<>(exposed);
+        exposed.forEach(x -> exposedIds.add(x.getSubmodelId()));
+        standalone.stream()
+                .filter(x -> !exposedIds.contains(x.getSubmodelId()))
+                .forEach(result::add);
+        return new ArrayList<>(result);
+    }
+
+
+    /**
+     * Executes a call on all nodes in parallel.
+     *
+     * @param <T> the type of the result
+     * @param localCall the call executed on this node
+     * @param remoteCall the call executed on each other node
+     * @return the results of all nodes
+     */
+    public <T> List<T> fanOut(Supplier<T> localCall, Function<RemoteAasRepository, T> remoteCall) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (String node: ring.getNodes()) {
+            futures.add(Objects.equals(node, self)
+                    ? CompletableFuture.supplyAsync(localCall, executor)
+                    : CompletableFuture.supplyAsync(() -> remoteCall.apply(remote(node)), executor));
+        }
+        List<T> result = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future: futures) {
+                result.add(future.join());
+            }
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        closeDelegate(local);
+    }
+
+
+    private void rebalance(ConsistentHashRing target) {
+        synchronized (rebalanceLock) {
+            long start = System.currentTimeMillis();
+            int shells = 0;
+            int submodels = 0;
+            try {
+                for (AssetAdministrationShellDescriptor aas: local.getAASs()) {
+                    String node = target.nodeFor(aas.getId());
+                    if (!Objects.equals(node, self)) {
+                        moveShell(aas, remote(node));
+                        shells++;
+                    }
+                }
+                for (SubmodelDescriptor submodel: local.getSubmodels()) {
+                    String node = target.nodeFor(submodel.getId());
+                    if (!Objects.equals(node, self)) {
+                        moveSubmodel(submodel, remote(node));
+                        submodels++;
+                    }
+                }
+                synchronized (membershipLock) {
+                    if (ring == target) {
+                        previousRing = null;
+                    }
+                }
+                LOGGER.info("rebalancing finished (moved shells: {}, moved submodels: {}, duration: {} ms)",
+                        shells, submodels, System.currentTimeMillis() - start);
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("rebalancing failed, reads keep falling back to the previous membership (moved shells: {}, moved submodels: {})",
+                        shells, submodels, e);
+            }
+        }
+    }
+
+
+    private void moveShell(AssetAdministrationShellDescriptor aas, AasRepository target) {
+        try {
+            target.create(aas);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            // the shell has been created on the new node after the membership change, that version wins
+        }
+        try {
+            local.deleteAAS(aas.getId());
+        }
+        catch (ResourceNotFoundException e) {
+            // deleted concurrently
+        }
+    }
+
+
+    private void moveSubmodel(SubmodelDescriptor submodel, AasRepository target) {
+        try {
+            target.addSubmodel(submodel);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            // the submodel has been created on the new node after the membership change, that version wins
+        }
+        try {
+            local.deleteSubmodel(submodel.getId());
+        }
+        catch (ResourceNotFoundException e) {
+            // deleted concurrently
+        }
+    }
+
+
+    private <T, E extends Exception> T route(String key, ShardCall<T, E> call) throws ResourceNotFoundException, E {
+        ConsistentHashRing current = ring;
+        ConsistentHashRing previous = previousRing;
+        try {
+            return call.apply(owner(current, key));
+        }
+        catch (ResourceNotFoundException e) {
+            if (Objects.isNull(previous) || Objects.equals(previous.nodeFor(key), current.nodeFor(key))) {
+                throw e;
+            }
+            return call.apply(owner(previous, key));
+        }
+    }
+
+
+    private boolean existsOnPreviousOwner(String key, ShardCall<?, RuntimeException> lookup) {
+        ConsistentHashRing current = ring;
+        ConsistentHashRing previous = previousRing;
+        if (Objects.isNull(previous) || Objects.equals(previous.nodeFor(key), current.nodeFor(key))) {
+            return false;
+        }
+        try {
+            lookup.apply(owner(previous, key));
+            return true;
+        }
+        catch (ResourceNotFoundException e) {
+            return false;
+        }
+    }
+
+
+    private <T> List<T> fanOut(Function<AasRepository, T> call) {
+        return fanOut(() -> call.apply(local), call::apply);
+    }
+
+
+    private <T> List<T> fanOutIgnoringMisses(ShardCall<T, RuntimeException> call) {
+        List<T> result = new ArrayList<>();
+        for (Optional<T> found: fanOut(x -> {
+            try {
+                return Optional.of(call.apply(x));
+            }
+            catch (ResourceNotFoundException e) {
+                return Optional.<T> empty();
+            }
+        })) {
+            found.ifPresent(result::add);
+        }
+        return result;
+    }
+
+
+    private static <T> List<T> mergeById(List<List<T>> lists, Function<T, String> idGetter) {
+        Map<String, T> result = new TreeMap<>();
+        for (List<T> list: lists) {
+            for (T element: list) {
+                result.putIfAbsent(idGetter.apply(element), element);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+
+    private <T> PagedResult<T> mergePages(DescriptorQuery query,
+                                          BiFunction<AasRepository, DescriptorQuery, PagedResult<T>> find,
+                                          Function<T, String> idGetter) {
+        int pageSize = (int) Math.min(DescriptorQuery.MAX_LIMIT, (long) query.getOffset() + query.getLimit());
+        List<ShardCursor<T>> cursors = fanOut(x -> new ShardCursor<>(query, y -> find.apply(x, y), pageSize));
+        PriorityQueue<ShardCursor<T>> heads = new PriorityQueue<>(Comparator.comparing((ShardCursor<T> x) -> idGetter.apply(x.peek())));
+        long total = 0;
+        for (ShardCursor<T> cursor: cursors) {
+            total += cursor.getTotal();
+            if (Objects.nonNull(cursor.peek())) {
+                heads.add(cursor);
+            }
+        }
+        List<T> items = new ArrayList<>(Math.min(query.getLimit(), (int) Math.min(Integer.MAX_VALUE, total)));
+        int index = 0;
+        String lastId = null;
+        while (!heads.isEmpty() && items.size() < query.getLimit()) {
+            ShardCursor<T> cursor = heads.poll();
+            T item = cursor.poll();
+            String id = idGetter.apply(item);
+            // a descriptor may be present on two nodes while it is being moved
+            if (!Objects.equals(id, lastId)) {
+                if (index++ >= query.getOffset()) {
+                    items.add(item);
+                }
+                lastId = id;
+            }
+            if (Objects.nonNull(cursor.peek())) {
+                heads.add(cursor);
+            }
+        }
+        return new PagedResult<>(items, query.getOffset(), query.getLimit(), total);
+    }
+
+
+    private AasRepository owner(ConsistentHashRing ring, String key) {
+        return repository(ring.nodeFor(key));
+    }
+
+
+    private AasRepository repository(String node) {
+        return Objects.equals(node, self) ? local : remote(node);
+    }
+
+
+    private RemoteAasRepository remote(String node) {
+        return remotes.computeIfAbsent(node, remoteFactory);
+    }
+
+    @FunctionalInterface
+    private interface ShardCall<T, E extends Exception> {
+
+        public T apply(AasRepository repository) throws ResourceNotFoundException, E;
+    }
+}
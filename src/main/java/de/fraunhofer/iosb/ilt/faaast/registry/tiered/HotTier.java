@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.tiered;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.FrequencySketch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.frequency.TinyLfuAdmission;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Bookkeeping of the descriptors of one kind held in the hot tier: which descriptors are resident, how often they
+ * are accessed and which one to evict when the tier is full.
+ *
+ * <p>A descriptor is promoted after it has been read from the cold tier if the tier has room or if it is accessed
+ * more frequently than the eviction victim ({@link TinyLfuAdmission}). The victim is the least frequently accessed of
+ * the oldest few resident descriptors; the others are moved to the end of the queue, so all resident descriptors are
+ * sampled in turn.
+ *
+ * <p>Modifications never update the hot tier, they invalidate the affected descriptors. To keep a read that raced
+ * with a modification from promoting the outdated descriptor, every invalidation increments a version, and a
+ * promotion only succeeds if the version is unchanged since the read started.
+ *
+ * @param <T> the type of descriptor
+ */
+class HotTier<T> {
+
+    private static final int STRIPES = 1024;
+    private static final int VICTIM_SAMPLE = 8;
+
+    private final int capacity;
+    private final FrequencySketch sketch;
+    private final TinyLfuAdmission admission;
+    private final Set<String> resident;
+    private final LinkedHashMap<String, Boolean> queue;
+    private final AtomicLongArray versions;
+    private final AtomicLong epoch;
+    private final BiConsumer<String, T> store;
+    private final Consumer<String> remove;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder promotions;
+    private final LongAdder rejections;
+    private final LongAdder evictions;
+    private final LongAdder invalidations;
+
+    /**
+     * Creates a new hot tier.
+     *
+     * @param capacity maximum number of resident descriptors, 0 disables the tier
+     * @param store adds a descriptor to the in-memory repository
+     * @param remove removes a descriptor from the in-memory repository
+     */
+    HotTier(int capacity, BiConsumer<String, T> store, Consumer<String> remove) {
+        Ensure.require(capacity >= 0, "capacity must be non-negative");
+        Ensure.requireNonNull(store, "store must be non-null");
+        Ensure.requireNonNull(remove, "remove must be non-null");
+        this.capacity = capacity;
+        this.sketch = new FrequencySketch(Math.max(capacity, 1));
+        this.admission = new TinyLfuAdmission(sketch);
+        this.resident = ConcurrentHashMap.newKeySet();
+        this.queue = new LinkedHashMap<>();
+        this.versions = new AtomicLongArray(STRIPES);
+        this.epoch = new AtomicLong();
+        this.store = store;
+        this.remove = remove;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.promotions = new LongAdder();
+        this.rejections = new LongAdder();
+        this.evictions = new LongAdder();
+        this.invalidations = new LongAdder();
+    }
+
+
+    /**
+     * Records a read of a descriptor and checks whether it is resident.
+     *
+     * @param id the ID of the descriptor
+     * @return true if the descriptor is resident, false otherwise
+     */
+    boolean access(String id) {
+        sketch.increment(id);
+        return resident.contains(id);
+    }
+
+
+    /**
+     * Checks whether a descriptor is resident without recording a read.
+     *
+     * @param id the ID of the descriptor
+     * @return true if the descriptor is resident, false otherwise
+     */
+    boolean isResident(String id) {
+        return resident.contains(id);
+    }
+
+
+    /**
+     * Checks whether descriptors of this kind are held in memory at all.
+     *
+     * @return true if the capacity is positive, false otherwise
+     */
+    boolean isEnabled() {
+        return capacity > 0;
+    }
+
+
+    /**
+     * Records that a read has been answered by the hot tier.
+     */
+    void hit() {
+        hits.increment();
+    }
+
+
+    /**
+     * Records that a read has been answered by the cold tier.
+     */
+    void miss() {
+        misses.increment();
+    }
+
+
+    /**
+     * Gets the current version of a descriptor. Must be called before reading the descriptor from the cold tier.
+     *
+     * @param id the ID of the descriptor
+     * @return the version
+     */
+    long getVersion(String id) {
+        return epoch.get() + versions.get(stripe(id));
+    }
+
+
+    /**
+     * Promotes a descriptor read from the cold tier, possibly evicting another descriptor.
+     *
+     * @param id the ID of the descriptor
+     * @param version the version of the descriptor before it has been read
+     * @param descriptor the descriptor
+     * @return true if the descriptor has been promoted, false otherwise
+     */
+    synchronized boolean promote(String id, long version, T descriptor) {
+        if (capacity == 0 || version != getVersion(id) || resident.contains(id)) {
+            return false;
+        }
+        if (queue.size() >= capacity) {
+            String victim = selectVictim();
+            if (!admission.admit(id, victim)) {
+                rejections.increment();
+                return false;
+            }
+            evict(victim);
+            evictions.increment();
+        }
+        store.accept(id, descriptor);
+        queue.put(id, Boolean.TRUE);
+        resident.add(id);
+        promotions.increment();
+        return true;
+    }
+
+
+    /**
+     * Removes a modified descriptor from the hot tier. Must be called after the cold tier has been modified.
+     *
+     * @param id the ID of the descriptor
+     */
+    synchronized void invalidate(String id) {
+        versions.incrementAndGet(stripe(id));
+        if (resident.contains(id)) {
+            evict(id);
+            invalidations.increment();
+        }
+    }
+
+
+    /**
+     * Fails all promotions of reads that are in progress. Used if a modification affects descriptors that cannot be
+     * determined.
+     */
+    synchronized void invalidateReads() {
+        epoch.incrementAndGet();
+    }
+
+
+    /**
+     * Gets the number of resident descriptors.
+     *
+     * @return the number of resident descriptors
+     */
+    int size() {
+        return resident.size();
+    }
+
+
+    /**
+     * Gets capacity, size and the counters of reads, promotions and evictions.
+     *
+     * @return the statistics by name
+     */
+    Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("capacity", capacity);
+        result.put("size", size());
+        result.put("hits", hitCount);
+        result.put("misses", missCount);
+        result.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        result.put("promotions", promotions.sum());
+        result.put("rejections", rejections.sum());
+        result.put("evictions", evictions.sum());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+
+
+    private String selectVictim() {
+        Iterator<String> iterator = queue.keySet().iterator();
+        List<String> survivors = new ArrayList<>(VICTIM_SAMPLE);
+        String victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int i = 0; i < VICTIM_SAMPLE && iterator.hasNext(); i++) {
+            String id = iterator.next();
+            int frequency = sketch.frequency(id);
+            if (frequency < victimFrequency) {
+                if (victim != null) {
+                    survivors.add(victim);
+                }
+                victim = id;
+                victimFrequency = frequency;
+            }
+            else {
+                survivors.add(id);
+            }
+        }
+        for (String survivor: survivors) {
+            queue.remove(survivor);
+            queue.put(survivor, Boolean.TRUE);
+        }
+        return victim;
+    }
+
+
+    private void evict(String id) {
+        queue.remove(id);
+        resident.remove(id);
+        remove.accept(id);
+    }
+
+
+    private static int stripe(String id) {
+        return (id.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.tiered;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.registry.memory.AasRepositoryMemory;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} keeping the frequently read descriptors in memory (hot tier) in front of a persistent
+ * repository holding all descriptors (cold tier), usually a {@link de.fraunhofer.iosb.ilt.faaast.registry.jpa.AasRepositoryJpa}.
+ *
+ * <p>Reads of single shells and submodels are answered from an {@link AasRepositoryMemory} if the descriptor is
+ * resident, otherwise from the cold tier. A descriptor read from the cold tier is promoted if it is read more
+ * frequently than the descriptor it would displace, see {@link HotTier}. The number of resident shells and of
+ * resident submodels is limited, so the memory used by the hot tier is bounded independent of the size of the
+ * registry. Submodels read via their shell count as reads of the shell and are answered from the hot tier if the
+ * shell is resident.
+ *
+ * <p>Modifications are written to the cold tier first and then remove the affected descriptors from the hot tier, so
+ * a successful modification is durable and visible to all subsequent reads. As a submodel can be read by its ID alone
+ * even if it belongs to a shell, modifying or deleting a shell that is not resident reads it from the cold tier first
+ * to determine its submodels. Listings and searches always query the cold tier.
+ */
+public class TieredAasRepository extends AbstractAasRepository implements AutoCloseable {
+
+    private final AasRepository cold;
+    private final AasRepositoryMemory hotShells;
+    private final AasRepositoryMemory hotSubmodels;
+    private final HotTier<AssetAdministrationShellDescriptor> shells;
+    private final HotTier<SubmodelDescriptor> submodels;
+    private final Map<String, String> residentShellBySubmodel;
+
+    /**
+     * Creates a new tiered repository.
+     *
+     * @param cold the repository holding all descriptors
+     * @param maxShells maximum number of shells held in memory
+     * @param maxSubmodels maximum number of submodels read by their ID alone held in memory, 0 to always read them from
+     *            the cold tier
+     */
+    public TieredAasRepository(AasRepository cold, int maxShells, int maxSubmodels) {
+        Ensure.requireNonNull(cold, "cold must be non-null");
+        Ensure.require(maxShells > 0, "maxShells must be positive");
+        Ensure.require(maxSubmodels >= 0, "maxSubmodels must be non-negative");
+        this.cold = cold;
+        this.hotShells = new AasRepositoryMemory();
+        this.hotSubmodels = new AasRepositoryMemory();
+        this.residentShellBySubmodel = new ConcurrentHashMap<>();
+        this.shells = new HotTier<>(maxShells, this::storeShell, this::removeShell);
+        this.submodels = new HotTier<>(maxSubmodels, this::storeSubmodel, this::removeSubmodel);
+    }
+
+
+    /**
+     * Gets the repository holding all descriptors.
+     *
+     * @return the cold tier
+     */
+    public AasRepository getCold() {
+        return cold;
+    }
+
+
+    /**
+     * Gets size, capacity, hit ratio and the number of promotions and evictions of both tiers.
+     *
+     * @return the statistics of the resident shells and submodels
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shells", shells.getStatistics());
+        result.put("submodels", submodels.getStatistics());
+        return result;
+    }
+
+
+    @Override
+    public void close() {
+        closeDelegate(cold);
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        return cold.getAASs();
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        return cold.getAASs(projection);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        if (shells.access(aasId)) {
+            try {
+                AssetAdministrationShellDescriptor result = hotShells.getAAS(aasId);
+                shells.hit();
+                return result;
+            }
+            catch (ResourceNotFoundException e) {
+                // evicted concurrently
+            }
+        }
+        shells.miss();
+        long version = shells.getVersion(aasId);
+        AssetAdministrationShellDescriptor result = cold.getAAS(aasId);
+        shells.promote(aasId, version, result);
+        return result;
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        AssetAdministrationShellDescriptor result = cold.create(descriptor);
+        shells.invalidate(descriptor.getId());
+        invalidateSubmodels(getSubmodelIds(descriptor));
+        return result;
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        Set<String> submodelIds = getResidentOrColdSubmodelIds(aasId);
+        cold.deleteAAS(aasId);
+        shells.invalidate(aasId);
+        invalidateSubmodels(submodelIds);
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        Set<String> submodelIds = getResidentOrColdSubmodelIds(aasId);
+        submodelIds.addAll(getSubmodelIds(descriptor));
+        AssetAdministrationShellDescriptor result = cold.update(aasId, descriptor);
+        shells.invalidate(aasId);
+        shells.invalidate(descriptor.getId());
+        invalidateSubmodels(submodelIds);
+        return result;
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        if (shells.access(aasId)) {
+            try {
+                List<SubmodelDescriptor> result = hotShells.getSubmodels(aasId);
+                shells.hit();
+                return result;
+            }
+            catch (ResourceNotFoundException e) {
+                // evicted concurrently
+            }
+        }
+        shells.miss();
+        return cold.getSubmodels(aasId);
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        return cold.getSubmodels();
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        if (shells.access(aasId)) {
+            try {
+                SubmodelDescriptor result = hotShells.getSubmodel(aasId, submodelId);
+                shells.hit();
+                return result;
+            }
+            catch (ResourceNotFoundException e) {
+                // evicted concurrently or submodel not found, both answered by the cold tier
+            }
+        }
+        shells.miss();
+        return cold.getSubmodel(aasId, submodelId);
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        if (submodels.access(submodelId)) {
+            try {
+                SubmodelDescriptor result = hotSubmodels.getSubmodel(submodelId);
+                submodels.hit();
+                return result;
+            }
+            catch (ResourceNotFoundException e) {
+                // evicted concurrently
+            }
+        }
+        submodels.miss();
+        long version = submodels.getVersion(submodelId);
+        SubmodelDescriptor result = cold.getSubmodel(submodelId);
+        submodels.promote(submodelId, version, result);
+        return result;
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        ensureAasId(aasId);
+        ensureDescriptorId(descriptor);
+        SubmodelDescriptor result = cold.addSubmodel(aasId, descriptor);
+        shells.invalidate(aasId);
+        submodels.invalidate(descriptor.getId());
+        return result;
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        ensureDescriptorId(descriptor);
+        SubmodelDescriptor result = cold.addSubmodel(descriptor);
+        submodels.invalidate(descriptor.getId());
+        return result;
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        ensureAasId(aasId);
+        ensureSubmodelId(submodelId);
+        cold.deleteSubmodel(aasId, submodelId);
+        shells.invalidate(aasId);
+        submodels.invalidate(submodelId);
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        ensureSubmodelId(submodelId);
+        cold.deleteSubmodel(submodelId);
+        submodels.invalidate(submodelId);
+        // the submodel may have belonged to a shell whose read is in progress
+        shells.invalidateReads();
+        String aasId = residentShellBySubmodel.get(submodelId);
+        if (Objects.nonNull(aasId)) {
+            shells.invalidate(aasId);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        return cold.findAASs(query);
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        return cold.findSubmodels(query);
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        return cold.findBySemanticId(semanticId);
+    }
+
+
+    private Set<String> getResidentOrColdSubmodelIds(String aasId) throws ResourceNotFoundException {
+        if (shells.isResident(aasId)) {
+            try {
+                return getSubmodelIds(hotShells.getAAS(aasId));
+            }
+            catch (ResourceNotFoundException e) {
+                // evicted concurrently
+            }
+        }
+        if (!submodels.isEnabled()) {
+            return new HashSet<>();
+        }
+        return getSubmodelIds(cold.getAAS(aasId));
+    }
+
+
+    private void invalidateSubmodels(Set<String> submodelIds) {
+        submodelIds.forEach(submodels::invalidate);
+    }
+
+
+    private void storeShell(String aasId, AssetAdministrationShellDescriptor descriptor) {
+        try {
+            hotShells.create(descriptor);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(String.format("shell already resident (id: %s)", aasId), e);
+        }
+        descriptor.getSubmodels().forEach(x -> residentShellBySubmodel.put(x.getId(), aasId));
+    }
+
+
+    private void removeShell(String aasId) {
+        try {
+            hotShells.getAAS(aasId).getSubmodels().forEach(x -> residentShellBySubmodel.remove(x.getId(), aasId));
+            hotShells.deleteAAS(aasId);
+        }
+        catch (ResourceNotFoundException e) {
+            throw new IllegalStateException(String.format("shell not resident (id: %s)", aasId), e);
+        }
+    }
+
+
+    private void storeSubmodel(String submodelId, SubmodelDescriptor descriptor) {
+        try {
+            hotSubmodels.addSubmodel(descriptor);
+        }
+        catch (ResourceAlreadyExistsException e) {
+            throw new IllegalStateException(String.format("submodel already resident (id: %s)", submodelId), e);
+        }
+    }
+
+
+    private void removeSubmodel(String submodelId) {
+        try {
+            hotSubmodels.deleteSubmodel(submodelId);
+        }
+        catch (ResourceNotFoundException e) {
+            throw new IllegalStateException(String.format("submodel not resident (id: %s)", submodelId), e);
+        }
+    }
+
+
+    private static Set<String> getSubmodelIds(AssetAdministrationShellDescriptor descriptor) {
+        Set<String> result = new HashSet<>();
+        descriptor.getSubmodels().forEach(x -> result.add(x.getId()));
+        return result;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock-free latency and throughput statistics of a single endpoint. Latencies are recorded in a log-linear histogram
+ * with four sub-buckets per power of two, so reported percentiles overestimate the exact value by at most 25%.
+ */
+public class EndpointStatistics {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 128;
+    private static final int RATE_WINDOW_SECONDS = 60;
+
+    private final LongAdder count;
+    private final LongAdder errors;
+    private final LongAdder totalMicros;
+    private final AtomicLong maxMicros;
+    private final AtomicLongArray histogram;
+    private final AtomicLongArray rateSeconds;
+    private final AtomicLongArray rateCounts;
+
+    public EndpointStatistics() {
+        count = new LongAdder();
+        errors = new LongAdder();
+        totalMicros = new LongAdder();
+        maxMicros = new AtomicLong();
+        histogram = new AtomicLongArray(BUCKETS);
+        rateSeconds = new AtomicLongArray(RATE_WINDOW_SECONDS);
+        rateCounts = new AtomicLongArray(RATE_WINDOW_SECONDS);
+    }
+
+
+    /**
+     * Records a request.
+     *
+     * @param durationNanos the duration of the request
+     * @param error whether the request failed with a server error
+     */
+    public void record(long durationNanos, boolean error) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        count.increment();
+        if (error) {
+            errors.increment();
+        }
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+        histogram.incrementAndGet(bucketOf(micros));
+        long second = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        int slot = (int) (second % RATE_WINDOW_SECONDS);
+        long slotSecond = rateSeconds.get(slot);
+        if (slotSecond != second && rateSeconds.compareAndSet(slot, slotSecond, second)) {
+            rateCounts.set(slot, 0);
+        }
+        rateCounts.incrementAndGet(slot);
+    }
+
+
+    /**
+     * Creates a snapshot of the statistics. Durations are given in milliseconds, the request rate is averaged over the
+     * last minute.
+     *
+     * @return the statistics by name
+     */
+    public Map<String, Object> snapshot() {
+        long[] buckets = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = histogram.get(i);
+            total += buckets[i];
+        }
+        long requests = count.sum();
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        long recent = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (now - rateSeconds.get(i) < RATE_WINDOW_SECONDS) {
+                recent += rateCounts.get(i);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", requests);
+        result.put("errors", errors.sum());
+        result.put("requestsPerSecond", (double) recent / RATE_WINDOW_SECONDS);
+        result.put("meanMillis", requests == 0 ? 0.0 : totalMicros.sum() / 1000.0 / requests);
+        result.put("p50Millis", percentile(buckets, total, 0.50));
+        result.put("p95Millis", percentile(buckets, total, 0.95));
+        result.put("p99Millis", percentile(buckets, total, 0.99));
+        result.put("maxMillis", maxMicros.get() / 1000.0);
+        return result;
+    }
+
+
+    private static double percentile(long[] buckets, long total, double quantile) {
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(BUCKETS - 1) / 1000.0;
+    }
+
+
+    private static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket);
+    }
+
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 1;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << shift;
+    }
+}
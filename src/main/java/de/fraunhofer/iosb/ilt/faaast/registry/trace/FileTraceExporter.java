@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Appends traces to a file, one OTLP/JSON export request per line. This is the format written by the file exporter of
+ * the OpenTelemetry collector, so the file can be replayed into any OTLP-compatible backend.
+ */
+public class FileTraceExporter implements TraceExporter {
+
+    private final Path file;
+    private final ObjectMapper mapper;
+    private BufferedWriter writer;
+
+    public FileTraceExporter(Path file, ObjectMapper mapper) {
+        Ensure.requireNonNull(file, "file must be non-null");
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        this.file = file;
+        this.mapper = mapper;
+    }
+
+
+    @Override
+    public void export(List<Trace> traces) throws IOException {
+        if (Objects.isNull(writer)) {
+            if (Objects.nonNull(file.getParent())) {
+                Files.createDirectories(file.getParent());
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(mapper.writeValueAsString(OtlpJson.toExportRequest(traces)));
+        writer.newLine();
+        writer.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (Objects.nonNull(writer)) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
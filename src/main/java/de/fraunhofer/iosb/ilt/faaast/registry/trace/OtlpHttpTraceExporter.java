@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Sends traces to an OpenTelemetry collector using OTLP/HTTP with JSON encoding.
+ */
+public class OtlpHttpTraceExporter implements TraceExporter {
+
+    private final String endpoint;
+    private final ObjectMapper mapper;
+    private final RestClient client;
+
+    /**
+     * Creates a new exporter.
+     *
+     * @param endpoint the full URL of the traces endpoint, e.g. {@code http://localhost:4318/v1/traces}
+     * @param mapper the mapper used to serialize the export requests
+     * @param timeout connect and read timeout in milliseconds
+     */
+    public OtlpHttpTraceExporter(String endpoint, ObjectMapper mapper, int timeout) {
+        Ensure.requireNonNull(endpoint, "endpoint must be non-null");
+        Ensure.requireNonNull(mapper, "mapper must be non-null");
+        Ensure.require(timeout > 0, "timeout must be positive");
+        this.endpoint = endpoint;
+        this.mapper = mapper;
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.client = RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+
+    @Override
+    public void export(List<Trace> traces) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(OtlpJson.toExportRequest(traces));
+        try {
+            client.post()
+                    .uri(endpoint)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body)
+                    .retrieve()
+                    .toBodilessEntity();
+        }
+        catch (RestClientException e) {
+            throw new IOException(String.format("exporting traces to %s failed", endpoint), e);
+        }
+    }
+}
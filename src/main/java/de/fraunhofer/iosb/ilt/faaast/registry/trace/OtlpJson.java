@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Converts traces into the JSON encoding of the OpenTelemetry protocol (OTLP), i.e. an
+ * {@code ExportTraceServiceRequest} as accepted by OTLP/HTTP collectors at {@code /v1/traces}.
+ */
+public class OtlpJson {
+
+    /**
+     * Value of the {@code service.name} resource attribute.
+     */
+    public static final String SERVICE_NAME = "faaast-registry";
+
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private OtlpJson() {}
+
+
+    /**
+     * Converts traces into a single export request.
+     *
+     * @param traces the traces
+     * @return the export request as tree of maps and lists, ready to be serialized by any JSON mapper
+     */
+    public static Map<String, Object> toExportRequest(List<Trace> traces) {
+        List<Object> spans = new ArrayList<>();
+        for (Trace trace: traces) {
+            for (Span span: trace.getSpans()) {
+                spans.add(toSpan(span));
+            }
+        }
+        return Map.of("resourceSpans", List.of(Map.of(
+                "resource", Map.of("attributes", toAttributes(Map.of("service.name", SERVICE_NAME))),
+                "scopeSpans", List.of(Map.of(
+                        "scope", Map.of("name", Tracing.class.getPackageName()),
+                        "spans", spans)))));
+    }
+
+
+    private static Map<String, Object> toSpan(Span span) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("traceId", span.getTraceId());
+        result.put("spanId", span.getSpanId());
+        if (Objects.nonNull(span.getParentSpanId())) {
+            result.put("parentSpanId", span.getParentSpanId());
+        }
+        result.put("name", span.getName());
+        result.put("kind", Objects.isNull(span.getParentSpanId()) ? SPAN_KIND_SERVER : SPAN_KIND_INTERNAL);
+        result.put("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        result.put("endTimeUnixNano", Long.toString(Math.max(span.getStartEpochNanos(), span.getEndEpochNanos())));
+        result.put("attributes", toAttributes(span.getAttributes()));
+        if (span.isError()) {
+            result.put("status", Map.of("code", STATUS_CODE_ERROR));
+        }
+        return result;
+    }
+
+
+    private static List<Object> toAttributes(Map<String, Object> attributes) {
+        List<Object> result = new ArrayList<>(attributes.size());
+        for (Map.Entry<String, Object> attribute: attributes.entrySet()) {
+            result.add(Map.of("key", attribute.getKey(), "value", toValue(attribute.getValue())));
+        }
+        return result;
+    }
+
+
+    private static Map<String, Object> toValue(Object value) {
+        if (value instanceof Boolean) {
+            return Map.of("boolValue", value);
+        }
+        else if (value instanceof Double || value instanceof Float) {
+            return Map.of("doubleValue", value);
+        }
+        else if (value instanceof Number) {
+            return Map.of("intValue", Long.toString(((Number) value).longValue()));
+        }
+        else {
+            return Map.of("stringValue", String.valueOf(value));
+        }
+    }
+}
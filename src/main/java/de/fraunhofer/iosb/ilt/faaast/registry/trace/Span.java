@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * A timed stage of a request, modeled after OpenTelemetry spans. Spans are created through {@link Tracing} and are
+ * only accessed by the thread handling the request until the trace is finished.
+ */
+public class Span {
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private String name;
+    private final long startEpochNanos;
+    private final long startNanoTime;
+    private long durationNanos;
+    private Map<String, Object> attributes;
+    private boolean error;
+
+    Span(String traceId, String spanId, String parentSpanId, String name, long startEpochNanos, long startNanoTime) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochNanos = startEpochNanos;
+        this.startNanoTime = startNanoTime;
+        this.durationNanos = -1;
+    }
+
+
+    /**
+     * Ends the span unless it has already been ended.
+     */
+    void end() {
+        if (durationNanos < 0) {
+            durationNanos = System.nanoTime() - startNanoTime;
+        }
+    }
+
+
+    /**
+     * Renames the span, e.g. once the route of a request is known.
+     *
+     * @param name the new name
+     */
+    void setName(String name) {
+        this.name = name;
+    }
+
+
+    /**
+     * Sets an attribute. Values should be strings, numbers or booleans.
+     *
+     * @param key the key
+     * @param value the value, null removes the attribute
+     */
+    public void setAttribute(String key, Object value) {
+        if (Objects.isNull(value)) {
+            if (Objects.nonNull(attributes)) {
+                attributes.remove(key);
+            }
+            return;
+        }
+        if (Objects.isNull(attributes)) {
+            attributes = new LinkedHashMap<>();
+        }
+        attributes.put(key, value);
+    }
+
+
+    /**
+     * Marks the span as failed.
+     */
+    public void setError() {
+        error = true;
+    }
+
+
+    /**
+     * The ID of the trace, 32 hex digits.
+     *
+     * @return the trace ID
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+
+    /**
+     * The ID of the span, 16 hex digits.
+     *
+     * @return the span ID
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+
+    /**
+     * The ID of the enclosing span.
+     *
+     * @return the parent span ID, or null for the root span
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+
+    /**
+     * The name of the stage.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * The start time.
+     *
+     * @return nanoseconds since the epoch
+     */
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+
+    /**
+     * The end time.
+     *
+     * @return nanoseconds since the epoch, or -1 if the span has not ended
+     */
+    public long getEndEpochNanos() {
+        return durationNanos < 0 ? -1 : startEpochNanos + durationNanos;
+    }
+
+
+    /**
+     * The duration.
+     *
+     * @return the duration in nanoseconds, or -1 if the span has not ended
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+
+    /**
+     * The attributes.
+     *
+     * @return the attributes, never null
+     */
+    public Map<String, Object> getAttributes() {
+        return Objects.nonNull(attributes) ? attributes : Map.of();
+    }
+
+
+    /**
+     * Whether the stage failed.
+     *
+     * @return true if the span has been marked as failed
+     */
+    public boolean isError() {
+        return error;
+    }
+}
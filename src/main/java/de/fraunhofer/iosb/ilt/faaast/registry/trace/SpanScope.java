@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.Objects;
+
+
+/**
+ * Ends a span when closed. Returned by {@link Tracing#span(String)}.
+ */
+public class SpanScope implements AutoCloseable {
+
+    static final SpanScope NOOP = new SpanScope(null, null);
+
+    private final Trace trace;
+    private final Span span;
+
+    SpanScope(Trace trace, Span span) {
+        this.trace = trace;
+        this.span = span;
+    }
+
+
+    /**
+     * Sets an attribute of the span.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public void setAttribute(String key, Object value) {
+        if (Objects.nonNull(span)) {
+            span.setAttribute(key, value);
+        }
+    }
+
+
+    /**
+     * Marks the span as failed.
+     */
+    public void setError() {
+        if (Objects.nonNull(span)) {
+            span.setError();
+        }
+    }
+
+
+    @Override
+    public void close() {
+        if (Objects.nonNull(span)) {
+            trace.endSpan(span);
+        }
+    }
+}
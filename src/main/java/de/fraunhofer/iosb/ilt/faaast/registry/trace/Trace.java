@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * All spans recorded while handling one request. The first span is the root span covering the whole request.
+ */
+public class Trace {
+
+    /**
+     * Maximum number of spans recorded per trace; further spans are counted but not recorded.
+     */
+    public static final int MAX_SPANS = 256;
+
+    private final String traceId;
+    private final long epochNanosAtStart;
+    private final long nanoTimeAtStart;
+    private final List<Span> spans;
+    private final Deque<Span> open;
+    private int droppedSpans;
+
+    Trace(String rootName) {
+        this.traceId = randomHex(2);
+        this.epochNanosAtStart = System.currentTimeMillis() * 1_000_000L;
+        this.nanoTimeAtStart = System.nanoTime();
+        this.spans = new ArrayList<>();
+        this.open = new ArrayDeque<>();
+        startSpan(rootName);
+    }
+
+
+    /**
+     * Starts a span as child of the innermost open span.
+     *
+     * @param name the name of the span
+     * @return the span, or null if the trace already holds {@link #MAX_SPANS} spans
+     */
+    Span startSpan(String name) {
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return null;
+        }
+        long now = System.nanoTime();
+        Span parent = open.peek();
+        Span span = new Span(traceId, randomHex(1), parent == null ? null : parent.getSpanId(), name,
+                epochNanosAtStart + (now - nanoTimeAtStart), now);
+        spans.add(span);
+        open.push(span);
+        return span;
+    }
+
+
+    /**
+     * Ends a span and all spans opened within it that have not been ended.
+     *
+     * @param span the span
+     */
+    void endSpan(Span span) {
+        if (!open.contains(span)) {
+            return;
+        }
+        Span current;
+        do {
+            current = open.pop();
+            current.end();
+        } while (current != span);
+    }
+
+
+    /**
+     * Ends all open spans including the root span.
+     */
+    void finish() {
+        while (!open.isEmpty()) {
+            open.pop().end();
+        }
+    }
+
+
+    /**
+     * The innermost open span.
+     *
+     * @return the span, or null if all spans have ended
+     */
+    Span current() {
+        return open.peek();
+    }
+
+
+    /**
+     * The ID of the trace.
+     *
+     * @return the trace ID
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+
+    /**
+     * The root span covering the whole request.
+     *
+     * @return the root span
+     */
+    public Span getRoot() {
+        return spans.get(0);
+    }
+
+
+    /**
+     * All recorded spans in the order they were started.
+     *
+     * @return the spans
+     */
+    public List<Span> getSpans() {
+        return Collections.unmodifiableList(spans);
+    }
+
+
+    /**
+     * The number of spans not recorded because of {@link #MAX_SPANS}.
+     *
+     * @return the number of dropped spans
+     */
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+
+    private static String randomHex(int longs) {
+        StringBuilder result = new StringBuilder(longs * 16);
+        for (int i = 0; i < longs; i++) {
+            long value = ThreadLocalRandom.current().nextLong();
+            String hex = Long.toHexString(value);
+            result.append("0".repeat(16 - hex.length())).append(hex);
+        }
+        return result.toString();
+    }
+}
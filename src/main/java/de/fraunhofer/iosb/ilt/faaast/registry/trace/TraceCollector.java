@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Collects finished traces. Every trace updates the statistics of its endpoint; whether the trace itself is kept is
+ * decided afterwards (tail-based sampling): traces of failed requests and of requests slower than a threshold are
+ * always kept, all other traces with a configurable probability. Kept traces are retained in memory for inspection and
+ * handed to the exporters on a background thread. If exporting cannot keep up, traces are dropped instead of slowing
+ * down request handling.
+ */
+public class TraceCollector implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TraceCollector.class);
+    private static final int EXPORT_BATCH_SIZE = 64;
+    private static final long POLL_INTERVAL = 100;
+
+    private final List<TraceExporter> exporters;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int recentCapacity;
+    private final Map<String, EndpointStatistics> endpoints;
+    private final Deque<Trace> recent;
+    private final BlockingQueue<Trace> queue;
+    private final ExecutorService exporter;
+    private final LongAdder sampled;
+    private final LongAdder dropped;
+    private final LongAdder exported;
+    private final LongAdder exportFailures;
+    private volatile boolean running;
+
+    /**
+     * Creates a new collector.
+     *
+     * @param exporters the exporters receiving sampled traces, may be empty
+     * @param slowThreshold duration in milliseconds from which on a trace is always kept
+     * @param sampleRate probability of keeping any other successful trace, between 0 and 1
+     * @param queueCapacity maximum number of traces waiting to be exported
+     * @param recentCapacity number of sampled traces retained in memory
+     */
+    public TraceCollector(List<TraceExporter> exporters, long slowThreshold, double sampleRate, int queueCapacity, int recentCapacity) {
+        Ensure.requireNonNull(exporters, "exporters must be non-null");
+        Ensure.require(slowThreshold >= 0, "slowThreshold must be non-negative");
+        Ensure.require(sampleRate >= 0 && sampleRate <= 1, "sampleRate must be between 0 and 1");
+        Ensure.require(queueCapacity > 0, "queueCapacity must be positive");
+        Ensure.require(recentCapacity >= 0, "recentCapacity must be non-negative");
+        this.exporters = List.copyOf(exporters);
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThreshold);
+        this.sampleRate = sampleRate;
+        this.recentCapacity = recentCapacity;
+        this.endpoints = new ConcurrentHashMap<>();
+        this.recent = new ArrayDeque<>();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.sampled = new LongAdder();
+        this.dropped = new LongAdder();
+        this.exported = new LongAdder();
+        this.exportFailures = new LongAdder();
+        this.running = true;
+        if (this.exporters.isEmpty()) {
+            this.exporter = null;
+        }
+        else {
+            this.exporter = Executors.newSingleThreadExecutor(x -> {
+                Thread thread = new Thread(x, "trace-export");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.exporter.execute(this::exportLoop);
+        }
+    }
+
+
+    /**
+     * Records a finished trace.
+     *
+     * @param trace the trace
+     * @param route the route of the request, used as key of the endpoint statistics
+     * @param status the HTTP status code of the response
+     */
+    public void record(Trace trace, String route, int status) {
+        Span root = trace.getRoot();
+        boolean error = status >= 500 || root.isError();
+        endpoints.computeIfAbsent(route, x -> new EndpointStatistics()).record(root.getDurationNanos(), error);
+        String reason = samplingReason(root, error);
+        if (reason == null) {
+            return;
+        }
+        root.setAttribute("sampling.reason", reason);
+        sampled.increment();
+        if (recentCapacity > 0) {
+            synchronized (recent) {
+                if (recent.size() == recentCapacity) {
+                    recent.removeFirst();
+                }
+                recent.addLast(trace);
+            }
+        }
+        if (running && !exporters.isEmpty() && !queue.offer(trace)) {
+            dropped.increment();
+        }
+    }
+
+
+    /**
+     * Gets the statistics of all endpoints that have been requested at least once.
+     *
+     * @return the statistics by route
+     */
+    public Map<String, Map<String, Object>> getEndpointStatistics() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        endpoints.forEach((route, statistics) -> result.put(route, statistics.snapshot()));
+        return result;
+    }
+
+
+    /**
+     * Gets the most recently sampled traces.
+     *
+     * @return the traces, oldest first
+     */
+    public List<Trace> getRecentTraces() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+
+    /**
+     * Gets counters of sampled, dropped and exported traces.
+     *
+     * @return the counters by name
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampled", sampled.sum());
+        result.put("queued", queue.size());
+        result.put("dropped", dropped.sum());
+        result.put("exported", exported.sum());
+        result.put("exportFailures", exportFailures.sum());
+        return result;
+    }
+
+
+    /**
+     * Exports all queued traces and stops the exporters.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (exporter == null) {
+            return;
+        }
+        exporter.shutdown();
+        try {
+            if (!exporter.awaitTermination(5, TimeUnit.SECONDS)) {
+                exporter.shutdownNow();
+            }
+        }
+        catch (InterruptedException e) {
+            exporter.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (TraceExporter traceExporter: exporters) {
+            try {
+                traceExporter.close();
+            }
+            catch (Exception e) {
+                LOGGER.debug("closing trace exporter failed", e);
+            }
+        }
+    }
+
+
+    private String samplingReason(Span root, boolean error) {
+        if (error) {
+            return "error";
+        }
+        else if (root.getDurationNanos() >= slowThresholdNanos) {
+            return "slow";
+        }
+        else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            return "probabilistic";
+        }
+        return null;
+    }
+
+
+    private void exportLoop() {
+        List<Trace> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Trace first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, EXPORT_BATCH_SIZE - 1);
+                export(batch);
+                batch.clear();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+
+    private void export(List<Trace> batch) {
+        for (TraceExporter traceExporter: exporters) {
+            try {
+                traceExporter.export(batch);
+                exported.add(batch.size());
+            }
+            catch (IOException | RuntimeException e) {
+                exportFailures.add(batch.size());
+                LOGGER.debug("exporting {} traces failed", batch.size(), e);
+            }
+        }
+    }
+}
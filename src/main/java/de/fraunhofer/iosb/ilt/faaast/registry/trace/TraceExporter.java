@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.IOException;
+import java.util.List;
+
+
+/**
+ * Destination of sampled traces. Exporters are called from a single background thread.
+ */
+public interface TraceExporter extends AutoCloseable {
+
+    /**
+     * Exports a batch of finished traces.
+     *
+     * @param traces the traces
+     * @throws IOException if exporting fails
+     */
+    public void export(List<Trace> traces) throws IOException;
+
+
+    @Override
+    public default void close() throws IOException {}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.Objects;
+
+
+/**
+ * Entry point for instrumenting code. A trace is bound to the thread handling a request by the {@link TracingFilter};
+ * code running on that thread opens spans using
+ *
+ * <pre>
+ * try (SpanScope scope = Tracing.span("repository")) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * <p>Without a bound trace, e.g. if tracing is disabled or on background threads, all methods are no-ops costing a
+ * single thread-local lookup.
+ */
+public final class Tracing {
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    private Tracing() {}
+
+
+    /**
+     * Starts a new trace and binds it to the current thread.
+     *
+     * @param rootName the name of the root span
+     * @return the trace
+     */
+    public static Trace startTrace(String rootName) {
+        Trace trace = new Trace(rootName);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+
+    /**
+     * Ends all open spans of the trace bound to the current thread and unbinds it.
+     *
+     * @return the trace, or null if no trace is bound
+     */
+    public static Trace endTrace() {
+        Trace trace = CURRENT.get();
+        CURRENT.remove();
+        if (Objects.nonNull(trace)) {
+            trace.finish();
+        }
+        return trace;
+    }
+
+
+    /**
+     * Opens a span as child of the innermost open span of the current trace.
+     *
+     * @param name the name of the span
+     * @return the scope that ends the span when closed
+     */
+    public static SpanScope span(String name) {
+        Trace trace = CURRENT.get();
+        if (Objects.isNull(trace)) {
+            return SpanScope.NOOP;
+        }
+        Span span = trace.startSpan(name);
+        return Objects.isNull(span) ? SpanScope.NOOP : new SpanScope(trace, span);
+    }
+
+
+    /**
+     * Sets an attribute of the innermost open span of the current trace.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    public static void setAttribute(String key, Object value) {
+        Trace trace = CURRENT.get();
+        if (Objects.nonNull(trace) && Objects.nonNull(trace.current())) {
+            trace.current().setAttribute(key, value);
+        }
+    }
+
+
+    /**
+     * Increments a counter attribute of the innermost open span of the current trace.
+     *
+     * @param key the key
+     */
+    public static void incrementAttribute(String key) {
+        Trace trace = CURRENT.get();
+        if (Objects.nonNull(trace) && Objects.nonNull(trace.current())) {
+            Span span = trace.current();
+            Object value = span.getAttributes().get(key);
+            span.setAttribute(key, value instanceof Long ? (Long) value + 1 : 1L);
+        }
+    }
+}
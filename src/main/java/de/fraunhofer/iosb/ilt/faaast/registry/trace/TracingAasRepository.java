@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.List;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AbstractAasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * {@link AasRepository} recording a span named {@code repository.<method>} for every call. Expected failures such as
+ * {@link ResourceNotFoundException} end the span normally. Without an active trace all calls are passed through
+ * unchanged.
+ */
+public class TracingAasRepository extends AbstractAasRepository {
+
+    private static final String PREFIX = "repository.";
+
+    private final AasRepository delegate;
+
+    public TracingAasRepository(AasRepository delegate) {
+        Ensure.requireNonNull(delegate, "delegate must be non-null");
+        this.delegate = delegate;
+    }
+
+
+    /**
+     * The wrapped repository.
+     *
+     * @return the wrapped repository
+     */
+    public AasRepository getDelegate() {
+        return delegate;
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs() {
+        try (SpanScope scope = Tracing.span(PREFIX + "getAASs")) {
+            List<AssetAdministrationShellDescriptor> result = delegate.getAASs();
+            scope.setAttribute("registry.result_count", (long) result.size());
+            return result;
+        }
+    }
+
+
+    @Override
+    public List<AssetAdministrationShellDescriptor> getAASs(ShellProjection projection) {
+        try (SpanScope scope = Tracing.span(PREFIX + "getAASs")) {
+            scope.setAttribute("registry.projection", projection.toString());
+            List<AssetAdministrationShellDescriptor> result = delegate.getAASs(projection);
+            scope.setAttribute("registry.result_count", (long) result.size());
+            return result;
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "getAAS")) {
+            return delegate.getAAS(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor getAAS(String aasId, ShellProjection projection) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "getAAS")) {
+            scope.setAttribute("registry.projection", projection.toString());
+            return delegate.getAAS(aasId, projection);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor create(AssetAdministrationShellDescriptor descriptor) throws ResourceAlreadyExistsException {
+        try (SpanScope scope = Tracing.span(PREFIX + "create")) {
+            return delegate.create(descriptor);
+        }
+    }
+
+
+    @Override
+    public void deleteAAS(String aasId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "deleteAAS")) {
+            delegate.deleteAAS(aasId);
+        }
+    }
+
+
+    @Override
+    public AssetAdministrationShellDescriptor update(String aasId, AssetAdministrationShellDescriptor descriptor) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "update")) {
+            return delegate.update(aasId, descriptor);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels(String aasId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "getSubmodels")) {
+            return delegate.getSubmodels(aasId);
+        }
+    }
+
+
+    @Override
+    public List<SubmodelDescriptor> getSubmodels() {
+        try (SpanScope scope = Tracing.span(PREFIX + "getSubmodels")) {
+            List<SubmodelDescriptor> result = delegate.getSubmodels();
+            scope.setAttribute("registry.result_count", (long) result.size());
+            return result;
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "getSubmodel")) {
+            return delegate.getSubmodel(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor getSubmodel(String submodelId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "getSubmodel")) {
+            return delegate.getSubmodel(submodelId);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(String aasId, SubmodelDescriptor descriptor) throws ResourceNotFoundException, ResourceAlreadyExistsException {
+        try (SpanScope scope = Tracing.span(PREFIX + "addSubmodel")) {
+            return delegate.addSubmodel(aasId, descriptor);
+        }
+    }
+
+
+    @Override
+    public SubmodelDescriptor addSubmodel(SubmodelDescriptor descriptor) throws ResourceAlreadyExistsException {
+        try (SpanScope scope = Tracing.span(PREFIX + "addSubmodel")) {
+            return delegate.addSubmodel(descriptor);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String aasId, String submodelId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "deleteSubmodel")) {
+            delegate.deleteSubmodel(aasId, submodelId);
+        }
+    }
+
+
+    @Override
+    public void deleteSubmodel(String submodelId) throws ResourceNotFoundException {
+        try (SpanScope scope = Tracing.span(PREFIX + "deleteSubmodel")) {
+            delegate.deleteSubmodel(submodelId);
+        }
+    }
+
+
+    @Override
+    public PagedResult<AssetAdministrationShellDescriptor> findAASs(DescriptorQuery query) {
+        try (SpanScope scope = Tracing.span(PREFIX + "findAASs")) {
+            PagedResult<AssetAdministrationShellDescriptor> result = delegate.findAASs(query);
+            scope.setAttribute("registry.result_count", (long) result.getItems().size());
+            return result;
+        }
+    }
+
+
+    @Override
+    public PagedResult<SubmodelDescriptor> findSubmodels(DescriptorQuery query) {
+        try (SpanScope scope = Tracing.span(PREFIX + "findSubmodels")) {
+            PagedResult<SubmodelDescriptor> result = delegate.findSubmodels(query);
+            scope.setAttribute("registry.result_count", (long) result.getItems().size());
+            return result;
+        }
+    }
+
+
+    @Override
+    public List<SemanticIdMatch> findBySemanticId(String semanticId) {
+        try (SpanScope scope = Tracing.span(PREFIX + "findBySemanticId")) {
+            List<SemanticIdMatch> result = delegate.findBySemanticId(semanticId);
+            scope.setAttribute("registry.result_count", (long) result.size());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Traces every request. The root span covers the whole request including serialization of the response; nested spans
+ * are added by the instrumented components. When the request is finished, the trace is handed to the
+ * {@link TraceCollector} together with the matched route, e.g. {@code GET /registry/shell-descriptors/{aasIdentifier}},
+ * so that statistics are aggregated per endpoint rather than per URL.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    private static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final TraceCollector collector;
+
+    public TracingFilter(TraceCollector collector) {
+        Ensure.requireNonNull(collector, "collector must be non-null");
+        this.collector = collector;
+    }
+
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Trace trace = Tracing.startTrace(request.getMethod());
+        Span root = trace.getRoot();
+        root.setAttribute("http.request.method", request.getMethod());
+        root.setAttribute("url.path", request.getRequestURI());
+        boolean failed = false;
+        try {
+            filterChain.doFilter(request, response);
+        }
+        catch (IOException | ServletException | RuntimeException e) {
+            failed = true;
+            root.setError();
+            root.setAttribute("exception.type", e.getClass().getName());
+            throw e;
+        }
+        finally {
+            Tracing.endTrace();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = Objects.nonNull(pattern) ? pattern.toString() : UNMATCHED_ROUTE;
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            root.setName(request.getMethod() + " " + route);
+            root.setAttribute("http.route", route);
+            root.setAttribute("http.response.status_code", (long) status);
+            collector.record(trace, root.getName(), status);
+        }
+    }
+}
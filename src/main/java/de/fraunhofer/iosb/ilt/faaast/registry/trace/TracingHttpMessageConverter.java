@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * JSON message converter recording a {@code decode} span for reading request bodies and a {@code serialize} span for
+ * writing response bodies.
+ */
+public class TracingHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    public TracingHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+        try (SpanScope scope = Tracing.span("decode")) {
+            return super.read(type, contextClass, inputMessage);
+        }
+    }
+
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+        try (SpanScope scope = Tracing.span("decode")) {
+            return super.readInternal(clazz, inputMessage);
+        }
+    }
+
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+        try (SpanScope scope = Tracing.span("serialize")) {
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.trace;
+
+import java.util.Objects;
+
+import org.hibernate.SessionEventListener;
+
+
+/**
+ * Hibernate session listener recording a {@code jpa.flush} span for every flush and counting the JDBC statements
+ * executed within the innermost open span. Hibernate creates one instance per session, so no state is shared between
+ * threads.
+ */
+public class TracingSessionEventListener implements SessionEventListener {
+
+    private SpanScope flush;
+
+    @Override
+    public void flushStart() {
+        flush = Tracing.span("jpa.flush");
+    }
+
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        if (Objects.nonNull(flush)) {
+            flush.setAttribute("db.entity_count", (long) numberOfEntities);
+            flush.setAttribute("db.collection_count", (long) numberOfCollections);
+            flush.close();
+            flush = null;
+        }
+    }
+
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        Tracing.incrementAttribute("db.statement_count");
+    }
+}
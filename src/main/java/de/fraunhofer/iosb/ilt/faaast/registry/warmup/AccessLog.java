@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AccessListener;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Counts reads of individual descriptors and persists the counts, so that the descriptors hot before a restart can be
+ * preloaded after it. At most {@code capacity} distinct descriptors are tracked; reads of further descriptors are
+ * ignored until the log is saved, which keeps only the {@code capacity} most frequently read ones.
+ *
+ * <p>The file contains one descriptor per line: the read count, {@code S} for shells or {@code M} for submodels, the
+ * ID of the shell (or {@code -}) and the ID of the submodel, separated by spaces. IDs are base64url-encoded.
+ */
+public class AccessLog implements AccessListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+    private static final String SHELL = "S";
+    private static final String SUBMODEL = "M";
+    private static final String NONE = "-";
+
+    private final Path file;
+    private final int capacity;
+    private final long saveInterval;
+    private final Map<Entry, LongAdder> counts;
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean recording;
+
+    /**
+     * Creates a new access log.
+     *
+     * @param file the file the counts are persisted in
+     * @param capacity maximum number of tracked descriptors
+     * @param saveInterval interval in milliseconds in which the counts are saved while running
+     */
+    public AccessLog(Path file, int capacity, long saveInterval) {
+        Ensure.requireNonNull(file, "file must be non-null");
+        Ensure.require(capacity > 0, "capacity must be positive");
+        Ensure.require(saveInterval > 0, "saveInterval must be positive");
+        this.file = file;
+        this.capacity = capacity;
+        this.saveInterval = saveInterval;
+        this.counts = new ConcurrentHashMap<>();
+        this.recording = true;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(x -> {
+            Thread thread = new Thread(x, "access-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Loads the counts of the previous run and starts saving the counts periodically.
+     */
+    public void start() {
+        try {
+            load();
+        }
+        catch (IOException e) {
+            LOGGER.warn("loading access log failed, starting with an empty log (file: {})", file, e);
+        }
+        scheduler.scheduleWithFixedDelay(this::trySave, saveInterval, saveInterval, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stops saving periodically and saves the counts a last time.
+     */
+    public void stop() {
+        scheduler.shutdownNow();
+        trySave();
+    }
+
+
+    @Override
+    public void shellRead(String aasId) {
+        record(new Entry(true, null, aasId));
+    }
+
+
+    @Override
+    public void submodelRead(String aasId, String submodelId) {
+        record(new Entry(false, aasId, submodelId));
+    }
+
+
+    /**
+     * Enables or disables recording, e.g. while the registry itself generates reads during warm-up.
+     *
+     * @param recording whether reads are recorded
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+
+    /**
+     * Gets the recorded descriptors, most frequently read first.
+     *
+     * @param limit maximum number of entries
+     * @return the entries
+     */
+    public List<Entry> getEntries(int limit) {
+        List<Map.Entry<Entry, Long>> snapshot = new ArrayList<>(counts.size());
+        counts.forEach((entry, count) -> snapshot.add(Map.entry(entry, count.sum())));
+        return snapshot.stream()
+                .sorted(Map.Entry.<Entry, Long> comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+
+    /**
+     * Loads the counts saved by a previous run and adds them to the current counts. Does nothing if the file does not
+     * exist.
+     *
+     * @throws IOException if reading the file fails
+     */
+    public void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null && counts.size() < capacity) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 4) {
+                    continue;
+                }
+                Entry entry = new Entry(
+                        SHELL.equals(fields[1]),
+                        NONE.equals(fields[2]) ? null : decode(fields[2]),
+                        decode(fields[3]));
+                counts.computeIfAbsent(entry, x -> new LongAdder()).add(Long.parseLong(fields[0]));
+            }
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException(String.format("invalid access log (file: %s)", file), e);
+        }
+    }
+
+
+    /**
+     * Saves the counts of the most frequently read descriptors, replacing the file atomically.
+     *
+     * @throws IOException if writing the file fails
+     */
+    public synchronized void save() throws IOException {
+        if (Objects.nonNull(file.toAbsolutePath().getParent())) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Entry> entries = getEntries(capacity);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry: entries) {
+                LongAdder count = counts.get(entry);
+                writer.write(String.format("%d %s %s %s",
+                        Objects.nonNull(count) ? count.sum() : 0,
+                        entry.isShell() ? SHELL : SUBMODEL,
+                        Objects.nonNull(entry.getAasId()) ? encode(entry.getAasId()) : NONE,
+                        encode(entry.getId())));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        counts.keySet().retainAll(new HashSet<>(entries));
+    }
+
+
+    private void trySave() {
+        try {
+            save();
+        }
+        catch (IOException e) {
+            LOGGER.warn("saving access log failed (file: {})", file, e);
+        }
+    }
+
+
+    private void record(Entry entry) {
+        if (!recording) {
+            return;
+        }
+        LongAdder count = counts.get(entry);
+        if (Objects.isNull(count)) {
+            if (counts.size() >= capacity) {
+                return;
+            }
+            count = counts.computeIfAbsent(entry, x -> new LongAdder());
+        }
+        count.increment();
+    }
+
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static String decode(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A read descriptor.
+     */
+    public static class Entry {
+
+        private final boolean shell;
+        private final String aasId;
+        private final String id;
+
+        private Entry(boolean shell, String aasId, String id) {
+            this.shell = shell;
+            this.aasId = aasId;
+            this.id = id;
+        }
+
+
+        /**
+         * Whether the entry refers to a shell or to a submodel.
+         *
+         * @return true for shells
+         */
+        public boolean isShell() {
+            return shell;
+        }
+
+
+        /**
+         * The ID of the shell a submodel has been read from.
+         *
+         * @return the shell ID, or null for shells and submodels read on their own
+         */
+        public String getAasId() {
+            return aasId;
+        }
+
+
+        /**
+         * The ID of the shell or submodel.
+         *
+         * @return the ID
+         */
+        public String getId() {
+            return id;
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shell, aasId, id);
+        }
+
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            else if (obj == null) {
+                return false;
+            }
+            else if (this.getClass() != obj.getClass()) {
+                return false;
+            }
+            else {
+                Entry other = (Entry) obj;
+                return shell == other.shell
+                        && Objects.equals(aasId, other.aasId)
+                        && Objects.equals(id, other.id);
+            }
+        }
+    }
+}
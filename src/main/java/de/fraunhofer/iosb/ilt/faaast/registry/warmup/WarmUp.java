@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.PagedResult;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.util.Ensure;
+
+
+/**
+ * Warms up a freshly started registry before it accepts traffic.
+ *
+ * <p>First, the hot descriptors are loaded from the repository: the most frequently read descriptors of the previous
+ * run if an {@link AccessLog} is available, otherwise the first {@code maxDescriptors} shells and submodels, i.e. the
+ * full set if the registry is small. This fills the database buffers, statement and query plan caches as well as any
+ * caching layer of the repository. Then the loaded descriptors are repeatedly looked up, serialized and deserialized,
+ * and optionally requested through the REST API of the registry itself, so that the JIT compiler has compiled the hot
+ * paths before the first client request arrives. All steps stop when the time budget is used up.
+ */
+public class WarmUp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+    private static final String SHELL_PATH = "/registry/shell-descriptors/";
+    private static final String SUBMODEL_PATH = "/submodel-descriptors/";
+    private static final String STANDALONE_SUBMODEL_PATH = "/registry/submodel-descriptors/";
+
+    private final AasRepository repository;
+    private final ObjectMapper mapper;
+    private final AccessLog accessLog;
+    private final String baseUrl;
+    private final int maxDescriptors;
+    private final int iterations;
+    private final int maxHttpRequests;
+    private final long timeout;
+    private final List<AssetAdministrationShellDescriptor> shells;
+    private final List<SubmodelRead> submodels;
+    private long deadline;
+
+    private WarmUp(Builder builder) {
+        this.repository = builder.repository;
+        this.mapper = builder.mapper;
+        this.accessLog = builder.accessLog;
+        this.baseUrl = builder.baseUrl;
+        this.maxDescriptors = builder.maxDescriptors;
+        this.iterations = builder.iterations;
+        this.maxHttpRequests = builder.maxHttpRequests;
+        this.timeout = builder.timeout;
+        this.shells = new ArrayList<>();
+        this.submodels = new ArrayList<>();
+    }
+
+
+    /**
+     * Runs the warm-up.
+     *
+     * @return statistics about the warm-up by name
+     */
+    public Map<String, Object> run() {
+        long start = System.currentTimeMillis();
+        deadline = start + timeout;
+        if (Objects.nonNull(accessLog)) {
+            accessLog.setRecording(false);
+        }
+        int completedIterations = 0;
+        int httpRequests = 0;
+        try {
+            preload();
+            long preloadTime = System.currentTimeMillis() - start;
+            LOGGER.debug("warm-up preloaded {} shells and {} submodels in {} ms", shells.size(), submodels.size(), preloadTime);
+            RestClient client = Objects.nonNull(baseUrl) ? createClient() : null;
+            for (; completedIterations < iterations && !expired(); completedIterations++) {
+                exerciseRepositoryAndMapper();
+                if (Objects.nonNull(client)) {
+                    httpRequests += exerciseHttp(client);
+                }
+            }
+        }
+        finally {
+            if (Objects.nonNull(accessLog)) {
+                accessLog.setRecording(true);
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shells", shells.size());
+        result.put("submodels", submodels.size());
+        result.put("iterations", completedIterations);
+        result.put("httpRequests", httpRequests);
+        result.put("durationMillis", System.currentTimeMillis() - start);
+        result.put("timedOut", expired());
+        return result;
+    }
+
+
+    private void preload() {
+        if (maxDescriptors == 0) {
+            return;
+        }
+        if (Objects.nonNull(accessLog)) {
+            for (AccessLog.Entry entry: accessLog.getEntries(maxDescriptors)) {
+                if (expired()) {
+                    return;
+                }
+                try {
+                    if (entry.isShell()) {
+                        shells.add(repository.getAAS(entry.getId()));
+                    }
+                    else if (Objects.isNull(entry.getAasId())) {
+                        submodels.add(new SubmodelRead(null, repository.getSubmodel(entry.getId())));
+                    }
+                    else {
+                        submodels.add(new SubmodelRead(entry.getAasId(), repository.getSubmodel(entry.getAasId(), entry.getId())));
+                    }
+                }
+                catch (ResourceNotFoundException e) {
+                    // deleted since the access log has been saved
+                }
+            }
+        }
+        if (shells.isEmpty() && submodels.isEmpty()) {
+            preloadPages();
+        }
+    }
+
+
+    private void preloadPages() {
+        int offset = 0;
+        PagedResult<AssetAdministrationShellDescriptor> shellPage;
+        do {
+            shellPage = repository.findAASs(page(offset));
+            for (AssetAdministrationShellDescriptor shell: shellPage.getItems()) {
+                shells.add(shell);
+                if (Objects.nonNull(shell.getSubmodels())) {
+                    shell.getSubmodels().forEach(x -> submodels.add(new SubmodelRead(shell.getId(), x)));
+                }
+            }
+            offset += shellPage.getItems().size();
+        } while (shellPage.hasMore() && offset < maxDescriptors && !expired());
+        offset = 0;
+        PagedResult<SubmodelDescriptor> submodelPage;
+        do {
+            submodelPage = repository.findSubmodels(page(offset));
+            submodelPage.getItems().forEach(x -> submodels.add(new SubmodelRead(null, x)));
+            offset += submodelPage.getItems().size();
+        } while (submodelPage.hasMore() && offset < maxDescriptors && !expired());
+    }
+
+
+    private DescriptorQuery page(int offset) {
+        return new DescriptorQuery.Builder()
+                .offset(offset)
+                .limit(Math.min(DescriptorQuery.MAX_LIMIT, Math.max(1, maxDescriptors - offset)))
+                .build();
+    }
+
+
+    private void exerciseRepositoryAndMapper() {
+        try {
+            for (AssetAdministrationShellDescriptor shell: shells) {
+                if (expired()) {
+                    return;
+                }
+                repository.getAAS(shell.getId());
+                mapper.readValue(mapper.writeValueAsBytes(shell), AssetAdministrationShellDescriptor.class);
+            }
+            for (SubmodelRead submodel: submodels) {
+                if (expired()) {
+                    return;
+                }
+                if (Objects.isNull(submodel.aasId)) {
+                    repository.getSubmodel(submodel.descriptor.getId());
+                }
+                else {
+                    repository.getSubmodel(submodel.aasId, submodel.descriptor.getId());
+                }
+                mapper.readValue(mapper.writeValueAsBytes(submodel.descriptor), SubmodelDescriptor.class);
+            }
+        }
+        catch (ResourceNotFoundException | IOException e) {
+            LOGGER.debug("warm-up iteration aborted", e);
+        }
+    }
+
+
+    private int exerciseHttp(RestClient client) {
+        int requests = 0;
+        try {
+            for (int i = 0; i < shells.size() && requests < maxHttpRequests && !expired(); i++, requests++) {
+                get(client, SHELL_PATH + encode(shells.get(i).getId()));
+            }
+            for (int i = 0; i < submodels.size() && requests < maxHttpRequests && !expired(); i++, requests++) {
+                SubmodelRead submodel = submodels.get(i);
+                get(client, Objects.isNull(submodel.aasId)
+                        ? STANDALONE_SUBMODEL_PATH + encode(submodel.descriptor.getId())
+                        : SHELL_PATH + encode(submodel.aasId) + SUBMODEL_PATH + encode(submodel.descriptor.getId()));
+            }
+        }
+        catch (RestClientException e) {
+            LOGGER.debug("warm-up requests aborted", e);
+        }
+        return requests;
+    }
+
+
+    private void get(RestClient client, String path) {
+        client.get()
+                .uri(baseUrl + path)
+                .exchange((request, response) -> response.getBody().readAllBytes());
+    }
+
+
+    private RestClient createClient() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        int requestTimeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeout));
+        requestFactory.setConnectTimeout(requestTimeout);
+        requestFactory.setReadTimeout(requestTimeout);
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+
+    private boolean expired() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+
+    private static String encode(String id) {
+        return Base64.getUrlEncoder().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+
+    private static class SubmodelRead {
+
+        private final String aasId;
+        private final SubmodelDescriptor descriptor;
+
+        private SubmodelRead(String aasId, SubmodelDescriptor descriptor) {
+            this.aasId = aasId;
+            this.descriptor = descriptor;
+        }
+    }
+
+    public static class Builder {
+
+        private AasRepository repository;
+        private ObjectMapper mapper;
+        private AccessLog accessLog;
+        private String baseUrl;
+        private int maxDescriptors = 10000;
+        private int iterations = 3;
+        private int maxHttpRequests = 1000;
+        private long timeout = 60000;
+
+        public Builder repository(AasRepository value) {
+            this.repository = value;
+            return this;
+        }
+
+
+        public Builder mapper(ObjectMapper value) {
+            this.mapper = value;
+            return this;
+        }
+
+
+        public Builder accessLog(AccessLog value) {
+            this.accessLog = value;
+            return this;
+        }
+
+
+        public Builder baseUrl(String value) {
+            this.baseUrl = value;
+            return this;
+        }
+
+
+        public Builder maxDescriptors(int value) {
+            this.maxDescriptors = value;
+            return this;
+        }
+
+
+        public Builder iterations(int value) {
+            this.iterations = value;
+            return this;
+        }
+
+
+        public Builder maxHttpRequests(int value) {
+            this.maxHttpRequests = value;
+            return this;
+        }
+
+
+        public Builder timeout(long value) {
+            this.timeout = value;
+            return this;
+        }
+
+
+        /**
+         * Builds the warm-up.
+         *
+         * @return the warm-up
+         * @throws IllegalArgumentException if a required value is missing or a value is out of range
+         */
+        public WarmUp build() {
+            Ensure.requireNonNull(repository, "repository must be non-null");
+            Ensure.requireNonNull(mapper, "mapper must be non-null");
+            Ensure.require(maxDescriptors >= 0, "maxDescriptors must be non-negative");
+            Ensure.require(iterations >= 0, "iterations must be non-negative");
+            Ensure.require(maxHttpRequests >= 0, "maxHttpRequests must be non-negative");
+            Ensure.require(timeout > 0, "timeout must be positive");
+            return new WarmUp(this);
+        }
+    }
+}
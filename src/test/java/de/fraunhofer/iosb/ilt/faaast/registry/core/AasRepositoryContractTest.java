@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.core;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.digitaltwin.aas4j.v3.model.KeyTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.ReferenceTypes;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultKey;
+import org.eclipse.digitaltwin.aas4j.v3.model.impl.DefaultReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceAlreadyExistsException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.exception.ResourceNotFoundException;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.SemanticIdMatch;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.ShellProjection;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultAssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultEndpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.impl.DefaultSubmodelDescriptor;
+
+
+/**
+ * Checks that an {@link AasRepository} implements the contract of the interface, i.e. returns what was written and
+ * throws {@link ResourceNotFoundException} and {@link ResourceAlreadyExistsException} where documented. Every
+ * implementation is expected to pass, so that performance work on a single implementation does not silently change
+ * the semantics. Subclasses provide a new, empty repository for every test.
+ */
+public abstract class AasRepositoryContractTest {
+
+    private static final String ID_PREFIX = "urn:contract:";
+    private static final String SHELL_ID = ID_PREFIX + "shell";
+    private static final String STANDALONE_SUBMODEL_ID = ID_PREFIX + "submodel:standalone";
+    private static final String UNKNOWN_ID = ID_PREFIX + "unknown";
+    private static final String SEMANTIC_ID = ID_PREFIX + "semantic-id";
+
+    protected AasRepository repository;
+
+    /**
+     * Creates the repository under test.
+     *
+     * @return a new, empty repository
+     * @throws Exception if the repository cannot be created
+     */
+    protected abstract AasRepository createRepository() throws Exception;
+
+
+    /**
+     * Releases the resources of the repository under test. Closes the repository if it is {@link AutoCloseable}.
+     *
+     * @throws Exception if closing fails
+     */
+    protected void closeRepository() throws Exception {
+        if (repository instanceof AutoCloseable) {
+            ((AutoCloseable) repository).close();
+        }
+    }
+
+
+    @Before
+    public void setUp() throws Exception {
+        repository = createRepository();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        closeRepository();
+    }
+
+
+    @Test
+    public void testCreate() throws Exception {
+        AssetAdministrationShellDescriptor result = repository.create(shell("shell", 0, 1));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo(SHELL_ID);
+        assertThatThrownBy(() -> repository.create(shell("shell", 0)))
+                .as("accepts an existing shell ID")
+                .isInstanceOf(ResourceAlreadyExistsException.class);
+    }
+
+
+    @Test
+    public void testGetAAS() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        AssetAdministrationShellDescriptor result = repository.getAAS(SHELL_ID);
+
+        assertThat(result.getId()).isEqualTo(SHELL_ID);
+        assertThat(result.getIdShort()).isEqualTo("shell");
+        assertThatThrownBy(() -> repository.getAAS(UNKNOWN_ID)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testGetAASProjected() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        AssetAdministrationShellDescriptor result = repository.getAAS(SHELL_ID, ShellProjection.parse(null, null, ShellProjection.SUBMODELS_IDS));
+
+        assertThat(result.getIdShort()).isEqualTo("shell");
+        assertThat(ids(result.getSubmodels())).isEqualTo(Set.of(submodelId(0), submodelId(1)));
+        assertThat(result.getSubmodels())
+                .as("returns submodel attributes other than the ID")
+                .allMatch(x -> Objects.isNull(x.getIdShort()));
+        assertThatThrownBy(() -> repository.getAAS(UNKNOWN_ID, ShellProjection.CORE)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testGetAASs() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        assertThat(ids(repository.getAASs())).containsExactly(SHELL_ID);
+    }
+
+
+    @Test
+    public void testGetAASsProjected() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        AssetAdministrationShellDescriptor core = findShell(repository.getAASs(ShellProjection.CORE));
+        assertThat(core.getIdShort()).isEqualTo("shell");
+        assertThat(core.getEndpoints()).hasSize(1);
+        assertThat(core.getSubmodels()).as("returns submodels that were not selected").isNullOrEmpty();
+
+        AssetAdministrationShellDescriptor id = findShell(repository.getAASs(ShellProjection.of(Set.of())));
+        assertThat(id.getIdShort()).as("returns an idShort that was not selected").isNull();
+
+        AssetAdministrationShellDescriptor submodelIds = findShell(repository.getAASs(ShellProjection.parse(null, ShellProjection.LEVEL_CORE, ShellProjection.SUBMODELS_IDS)));
+        assertThat(ids(submodelIds.getSubmodels())).isEqualTo(Set.of(submodelId(0), submodelId(1)));
+    }
+
+
+    @Test
+    public void testUpdate() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        AssetAdministrationShellDescriptor result = repository.update(SHELL_ID, shell("updated", 0, 1));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo(SHELL_ID);
+        assertThat(repository.getAAS(SHELL_ID).getIdShort()).isEqualTo("updated");
+        assertThatThrownBy(() -> repository.update(UNKNOWN_ID, shell("unknown", 0))).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testGetSubmodelsOfAAS() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        assertThat(ids(repository.getSubmodels(SHELL_ID))).isEqualTo(Set.of(submodelId(0), submodelId(1)));
+        assertThatThrownBy(() -> repository.getSubmodels(UNKNOWN_ID)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testGetSubmodelOfAAS() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        assertThat(repository.getSubmodel(SHELL_ID, submodelId(0)).getId()).isEqualTo(submodelId(0));
+        assertThatThrownBy(() -> repository.getSubmodel(SHELL_ID, UNKNOWN_ID)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> repository.getSubmodel(UNKNOWN_ID, submodelId(0))).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testAddSubmodelToAAS() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        SubmodelDescriptor result = repository.addSubmodel(SHELL_ID, submodel(2));
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo(submodelId(2));
+        assertThat(ids(repository.getSubmodels(SHELL_ID))).contains(submodelId(2));
+        assertThatThrownBy(() -> repository.addSubmodel(SHELL_ID, submodel(2))).isInstanceOf(ResourceAlreadyExistsException.class);
+        assertThatThrownBy(() -> repository.addSubmodel(UNKNOWN_ID, submodel(3))).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testAddSubmodel() throws Exception {
+        SubmodelDescriptor result = repository.addSubmodel(standaloneSubmodel());
+
+        assertThat(result).isNotNull();
+        assertThat(result.getId()).isEqualTo(STANDALONE_SUBMODEL_ID);
+        assertThatThrownBy(() -> repository.addSubmodel(standaloneSubmodel())).isInstanceOf(ResourceAlreadyExistsException.class);
+    }
+
+
+    @Test
+    public void testGetSubmodels() throws Exception {
+        repository.addSubmodel(standaloneSubmodel());
+
+        assertThat(ids(repository.getSubmodels())).contains(STANDALONE_SUBMODEL_ID);
+    }
+
+
+    @Test
+    public void testGetSubmodel() throws Exception {
+        repository.addSubmodel(standaloneSubmodel());
+
+        assertThat(repository.getSubmodel(STANDALONE_SUBMODEL_ID).getId()).isEqualTo(STANDALONE_SUBMODEL_ID);
+        assertThatThrownBy(() -> repository.getSubmodel(UNKNOWN_ID)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testFindAASs() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        assertThat(ids(repository.findAASs(new DescriptorQuery.Builder()
+                .idShortPrefix("she")
+                .build()).getItems())).containsExactly(SHELL_ID);
+        assertThat(repository.findAASs(new DescriptorQuery.Builder()
+                .idShortPrefix(UNKNOWN_ID)
+                .build()).getItems()).isEmpty();
+    }
+
+
+    @Test
+    public void testFindSubmodels() throws Exception {
+        repository.addSubmodel(standaloneSubmodel());
+
+        assertThat(ids(repository.findSubmodels(new DescriptorQuery.Builder()
+                .semanticId(SEMANTIC_ID)
+                .build()).getItems())).containsExactly(STANDALONE_SUBMODEL_ID);
+    }
+
+
+    @Test
+    public void testFindBySemanticId() throws Exception {
+        repository.addSubmodel(standaloneSubmodel());
+
+        List<SemanticIdMatch> matches = repository.findBySemanticId(SEMANTIC_ID);
+
+        assertThat(matches)
+                .as("does not report the submodel without a shell")
+                .anyMatch(x -> STANDALONE_SUBMODEL_ID.equals(x.getSubmodelId()) && Objects.isNull(x.getAasId()));
+        assertThat(repository.findBySemanticId(UNKNOWN_ID)).isEmpty();
+    }
+
+
+    @Test
+    public void testDeleteSubmodelOfAAS() throws Exception {
+        repository.create(shell("shell", 0, 1, 2));
+
+        repository.deleteSubmodel(SHELL_ID, submodelId(2));
+
+        assertThat(ids(repository.getSubmodels(SHELL_ID))).doesNotContain(submodelId(2));
+        assertThatThrownBy(() -> repository.getSubmodel(SHELL_ID, submodelId(2))).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> repository.deleteSubmodel(SHELL_ID, submodelId(2))).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> repository.deleteSubmodel(UNKNOWN_ID, submodelId(0))).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testDeleteSubmodel() throws Exception {
+        repository.addSubmodel(standaloneSubmodel());
+
+        repository.deleteSubmodel(STANDALONE_SUBMODEL_ID);
+
+        assertThatThrownBy(() -> repository.getSubmodel(STANDALONE_SUBMODEL_ID)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> repository.deleteSubmodel(STANDALONE_SUBMODEL_ID)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    @Test
+    public void testDeleteAAS() throws Exception {
+        repository.create(shell("shell", 0, 1));
+
+        repository.deleteAAS(SHELL_ID);
+
+        assertThatThrownBy(() -> repository.getAAS(SHELL_ID)).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(repository.getAASs()).isEmpty();
+        assertThatThrownBy(() -> repository.deleteAAS(SHELL_ID)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    private static AssetAdministrationShellDescriptor findShell(List<AssetAdministrationShellDescriptor> shells) {
+        return shells.stream()
+                .filter(x -> SHELL_ID.equals(x.getId()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("shell not contained"));
+    }
+
+
+    private static Set<String> ids(List<?> descriptors) {
+        return descriptors.stream()
+                .map(x -> x instanceof AssetAdministrationShellDescriptor
+                        ? ((AssetAdministrationShellDescriptor) x).getId()
+                        : ((SubmodelDescriptor) x).getId())
+                .collect(Collectors.toSet());
+    }
+
+
+    private static AssetAdministrationShellDescriptor shell(String idShort, int... submodels) {
+        List<SubmodelDescriptor> descriptors = new ArrayList<>();
+        for (int submodel: submodels) {
+            descriptors.add(submodel(submodel));
+        }
+        return new DefaultAssetAdministrationShellDescriptor.Builder()
+                .id(SHELL_ID)
+                .idShort(idShort)
+                .endpoints(List.of(new DefaultEndpoint.Builder()
+                        .interfaceInformation("AAS-3.0")
+                        .build()))
+                .submodels(descriptors)
+                .build();
+    }
+
+
+    private static SubmodelDescriptor submodel(int index) {
+        return new DefaultSubmodelDescriptor.Builder()
+                .id(submodelId(index))
+                .idShort("submodel" + index)
+                .endpoints(List.of(new DefaultEndpoint.Builder()
+                        .interfaceInformation("SUBMODEL-3.0")
+                        .build()))
+                .build();
+    }
+
+
+    private static SubmodelDescriptor standaloneSubmodel() {
+        return new DefaultSubmodelDescriptor.Builder()
+                .id(STANDALONE_SUBMODEL_ID)
+                .idShort("standalone")
+                .semanticId(new DefaultReference.Builder()
+                        .type(ReferenceTypes.EXTERNAL_REFERENCE)
+                        .keys(new DefaultKey.Builder()
+                                .type(KeyTypes.GLOBAL_REFERENCE)
+                                .value(SEMANTIC_ID)
+                                .build())
+                        .build())
+                .endpoints(List.of(new DefaultEndpoint.Builder()
+                        .interfaceInformation("SUBMODEL-3.0")
+                        .build()))
+                .build();
+    }
+
+
+    private static String submodelId(int index) {
+        return ID_PREFIX + "submodel:" + index;
+    }
+}
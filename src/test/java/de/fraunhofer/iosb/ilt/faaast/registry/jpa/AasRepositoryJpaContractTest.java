@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepository;
+import de.fraunhofer.iosb.ilt.faaast.registry.core.AasRepositoryContractTest;
+
+
+/**
+ * Runs the {@link AasRepositoryContractTest} against {@link AasRepositoryJpa} on an in-memory H2 database. As in the
+ * application, the repository uses a shared entity manager and its methods run in the transactions declared by its
+ * annotations.
+ */
+public class AasRepositoryJpaContractTest extends AasRepositoryContractTest {
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    protected AasRepository createRepository() {
+        entityManagerFactory = JpaTestUtils.createEntityManagerFactory();
+        ProxyFactory proxyFactory = new ProxyFactory(new AasRepositoryJpa(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory)));
+        proxyFactory.addInterface(AasRepository.class);
+        proxyFactory.addAdvice(new TransactionInterceptor(new JpaTransactionManager(entityManagerFactory), new AnnotationTransactionAttributeSource()));
+        return (AasRepository) proxyFactory.getProxy();
+    }
+
+
+    @Override
+    protected void closeRepository() {
+        entityManagerFactory.close();
+    }
+}
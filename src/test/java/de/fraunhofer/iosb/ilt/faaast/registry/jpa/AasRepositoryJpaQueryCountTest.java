@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.core.query.DescriptorQuery;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.util.EntityManagerHelper;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.AssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.Endpoint;
+import de.fraunhofer.iosb.ilt.faaast.service.model.descriptor.SubmodelDescriptor;
+
+
+/**
+ * Checks that reading shells from {@link AasRepositoryJpa} and using their complete descriptor graph takes a number of
+ * queries that does not depend on the number of shells and submodels read.
+ */
+public class AasRepositoryJpaQueryCountTest {
+
+    /**
+     * Number of association paths initialized per page of shells and of submodels, see {@link AasRepositoryJpa}.
+     */
+    private static final int SHELL_FETCH_PATHS = 6;
+    private static final int SUBMODEL_FETCH_PATHS = 5;
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private Statistics statistics;
+    private AasRepositoryJpa repository;
+
+    @Before
+    public void setUp() {
+        entityManagerFactory = JpaTestUtils.createEntityManagerFactory();
+        entityManager = entityManagerFactory.createEntityManager();
+        statistics = JpaTestUtils.statistics(entityManagerFactory);
+        repository = new AasRepositoryJpa(entityManager);
+    }
+
+
+    @After
+    public void tearDown() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+
+    @Test
+    public void testGetAASsQueryCountIndependentOfShellCount() throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator.Builder()
+                .submodelsPerShell(3)
+                .build();
+        register(generator, 0, 10);
+        long queriesFew = countQueries(() -> touch(repository.getAASs()));
+
+        register(generator, 10, 100);
+        long queriesMany = countQueries(() -> touch(repository.getAASs()));
+
+        assertThat(queriesMany).isEqualTo(queriesFew);
+        assertThat(queriesMany).isLessThanOrEqualTo(1 + SHELL_FETCH_PATHS + SUBMODEL_FETCH_PATHS);
+    }
+
+
+    @Test
+    public void testGetAASQueryCountIndependentOfSubmodelCount() throws Exception {
+        register(new WorkloadGenerator.Builder().submodelsPerShell(1).build(), 0, 1);
+        register(new WorkloadGenerator.Builder().submodelsPerShell(50).build(), 1, 2);
+
+        long queriesFew = countQueries(() -> touch(List.of(repository.getAAS(WorkloadGenerator.shellId(0)))));
+        long queriesMany = countQueries(() -> touch(List.of(repository.getAAS(WorkloadGenerator.shellId(1)))));
+
+        assertThat(queriesMany).isEqualTo(queriesFew);
+        assertThat(queriesMany).isLessThanOrEqualTo(1 + SHELL_FETCH_PATHS + SUBMODEL_FETCH_PATHS);
+    }
+
+
+    @Test
+    public void testGetAASsMoreShellsThanBatchSize() throws Exception {
+        int shells = 2 * EntityManagerHelper.FETCH_BATCH_SIZE + 1;
+        register(new WorkloadGenerator.Builder().submodelsPerShell(1).build(), 0, shells);
+
+        entityManager.clear();
+        statistics.clear();
+        List<AssetAdministrationShellDescriptor> result = repository.getAASs();
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + 3 * (SHELL_FETCH_PATHS + SUBMODEL_FETCH_PATHS));
+
+        statistics.clear();
+        touch(result);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(result.stream().map(AssetAdministrationShellDescriptor::getId).collect(Collectors.toSet()))
+                .isEqualTo(IntStream.range(0, shells).mapToObj(WorkloadGenerator::shellId).collect(Collectors.toSet()));
+    }
+
+
+    @Test
+    public void testFindAASsQueryCountIndependentOfPageSize() throws Exception {
+        register(new WorkloadGenerator.Builder().submodelsPerShell(2).build(), 0, 200);
+
+        long queriesFew = countQueries(() -> touch(repository.findAASs(new DescriptorQuery.Builder().limit(10).build()).getItems()));
+        long queriesMany = countQueries(() -> touch(repository.findAASs(new DescriptorQuery.Builder().limit(200).build()).getItems()));
+
+        assertThat(queriesMany).isEqualTo(queriesFew);
+    }
+
+
+    private void register(WorkloadGenerator generator, int from, int to) throws Exception {
+        JpaTestUtils.inTransaction(entityManager, () -> {
+            for (int i = from; i < to; i++) {
+                repository.create(generator.shell(i));
+            }
+            return null;
+        });
+    }
+
+
+    private long countQueries(JpaTestUtils.Action<?> action) throws Exception {
+        entityManager.clear();
+        statistics.clear();
+        action.execute();
+        return statistics.getPrepareStatementCount();
+    }
+
+
+    /**
+     * Reads every association that is serialized when a shell is returned, so that any association left uninitialized
+     * by the repository shows up as additional queries.
+     */
+    private static Object touch(List<? extends AssetAdministrationShellDescriptor> shells) {
+        for (AssetAdministrationShellDescriptor shell: shells) {
+            if (shell.getAdministration() != null) {
+                shell.getAdministration().getVersion();
+            }
+            touchEndpoints(shell.getEndpoints());
+            shell.getDescriptions().size();
+            shell.getDisplayNames().size();
+            shell.getSpecificAssetIds().size();
+            for (SubmodelDescriptor submodel: shell.getSubmodels()) {
+                if (submodel.getAdministration() != null) {
+                    submodel.getAdministration().getVersion();
+                }
+                touchEndpoints(submodel.getEndpoints());
+                submodel.getDescriptions().size();
+                submodel.getDisplayNames().size();
+                if (submodel.getSemanticId() != null) {
+                    submodel.getSemanticId().getKeys().size();
+                }
+            }
+        }
+        return null;
+    }
+
+
+    private static void touchEndpoints(List<Endpoint> endpoints) {
+        for (Endpoint endpoint: endpoints) {
+            endpoint.getProtocolInformation().getHref();
+        }
+    }
+}
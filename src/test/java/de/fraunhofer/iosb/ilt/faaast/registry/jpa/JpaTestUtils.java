@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa;
+
+import java.util.Map;
+import java.util.UUID;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.service.App;
+
+
+/**
+ * Creates entity manager factories for the JPA model backed by a private in-memory H2 database with Hibernate
+ * statistics enabled. The entities are found the same way as in {@link App}, by scanning the packages of its
+ * {@link EntityScan} annotation.
+ */
+public class JpaTestUtils {
+
+    /**
+     * An action executed in a transaction.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface Action<T> {
+
+        /**
+         * Executes the action.
+         *
+         * @return the result
+         * @throws Exception if the action fails
+         */
+        T execute() throws Exception;
+    }
+
+    private JpaTestUtils() {}
+
+
+    /**
+     * Creates an entity manager factory on a new, empty in-memory database.
+     *
+     * @return the entity manager factory
+     */
+    public static EntityManagerFactory createEntityManagerFactory() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(App.class.getAnnotation(EntityScan.class).basePackages());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "hibernate.generate_statistics", "true"));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+
+    /**
+     * Gets the Hibernate statistics of an entity manager factory.
+     *
+     * @param entityManagerFactory the entity manager factory
+     * @return the statistics
+     */
+    public static Statistics statistics(EntityManagerFactory entityManagerFactory) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+
+    /**
+     * Executes an action in a transaction of the given entity manager and clears the persistence context afterwards,
+     * so that subsequent reads hit the database.
+     *
+     * @param <T> the type of the result
+     * @param entityManager the entity manager
+     * @param action the action
+     * @return the result of the action
+     * @throws Exception if the action fails, the transaction is rolled back in this case
+     */
+    public static <T> T inTransaction(EntityManager entityManager, Action<T> action) throws Exception {
+        entityManager.getTransaction().begin();
+        try {
+            T result = action.execute();
+            entityManager.getTransaction().commit();
+            return result;
+        }
+        finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.clear();
+        }
+    }
+}
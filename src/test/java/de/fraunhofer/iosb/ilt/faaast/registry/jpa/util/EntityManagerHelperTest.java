@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021 Fraunhofer IOSB, eine rechtlich nicht selbstaendige
+ * Einrichtung der Fraunhofer-Gesellschaft zur Foerderung der angewandten
+ * Forschung e.V.
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.fraunhofer.iosb.ilt.faaast.registry.jpa.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.AasRepositoryJpa;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.JpaTestUtils;
+import de.fraunhofer.iosb.ilt.faaast.registry.jpa.model.JpaAssetAdministrationShellDescriptor;
+import de.fraunhofer.iosb.ilt.faaast.registry.loadtest.WorkloadGenerator;
+
+
+public class EntityManagerHelperTest {
+
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        entityManagerFactory = JpaTestUtils.createEntityManagerFactory();
+        entityManager = entityManagerFactory.createEntityManager();
+        statistics = JpaTestUtils.statistics(entityManagerFactory);
+    }
+
+
+    @After
+    public void tearDown() {
+        entityManager.close();
+        entityManagerFactory.close();
+    }
+
+
+    @Test
+    public void testFetchSplitsEntitiesIntoBatches() throws Exception {
+        assertFetchQueries(2 * EntityManagerHelper.FETCH_BATCH_SIZE + 1, 3);
+    }
+
+
+    @Test
+    public void testFetchExactlyOneBatch() throws Exception {
+        assertFetchQueries(EntityManagerHelper.FETCH_BATCH_SIZE, 1);
+    }
+
+
+    @Test
+    public void testFetchNestedPath() throws Exception {
+        List<JpaAssetAdministrationShellDescriptor> shells = register(EntityManagerHelper.FETCH_BATCH_SIZE + 1);
+
+        statistics.clear();
+        EntityManagerHelper.fetch(entityManager, JpaAssetAdministrationShellDescriptor.class, shells, "endpoints.protocolInformation");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        statistics.clear();
+        shells.forEach(x -> x.getEndpoints().forEach(y -> y.getProtocolInformation().getHref()));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+
+    @Test
+    public void testFetchEmpty() {
+        statistics.clear();
+        EntityManagerHelper.fetch(entityManager, JpaAssetAdministrationShellDescriptor.class, List.of(), "descriptions");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+
+    private void assertFetchQueries(int count, long expectedQueries) throws Exception {
+        List<JpaAssetAdministrationShellDescriptor> shells = register(count);
+        PersistenceUnitUtil util = entityManagerFactory.getPersistenceUnitUtil();
+        assertThat(shells).noneMatch(x -> util.isLoaded(x, "descriptions"));
+
+        statistics.clear();
+        EntityManagerHelper.fetch(entityManager, JpaAssetAdministrationShellDescriptor.class, shells, "descriptions");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(expectedQueries);
+        assertThat(shells).allMatch(x -> util.isLoaded(x, "descriptions"));
+    }
+
+
+    private List<JpaAssetAdministrationShellDescriptor> register(int count) throws Exception {
+        WorkloadGenerator generator = new WorkloadGenerator.Builder()
+                .submodelsPerShell(0)
+                .build();
+        AasRepositoryJpa repository = new AasRepositoryJpa(entityManager);
+        JpaTestUtils.inTransaction(entityManager, () -> {
+            for (int i = 0; i < count; i++) {
+                repository.create(generator.shell(i));
+            }
+            return null;
+        });
+        return EntityManagerHelper.getAll(entityManager, JpaAssetAdministrationShellDescriptor.class);
+    }
+}